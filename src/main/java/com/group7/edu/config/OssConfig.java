@@ -0,0 +1,171 @@
+package com.group7.edu.config;
+
+import com.aliyuncs.exceptions.ClientException;
+import com.group7.edu.oss.ClientBuilderConfiguration;
+import com.group7.edu.oss.LocalFileOSS;
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.OSSClientBuilder;
+import com.group7.edu.oss.common.auth.CredentialsProviderFactory;
+import com.group7.edu.oss.common.auth.RefreshAheadCredentialsProvider;
+import com.group7.edu.osshandle.secretkey.Temporary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
+
+/**
+ * 全局共享的OSS客户端，osshandle下的所有实现共用一个连接池。
+ * 启动完成后预热连接，容器关闭时调用shutdown释放连接池。
+ * oss.client.type=local时改用本地文件实现LocalFileOSS，压测和无网络环境下使用，可注入延迟和错误率。
+ * 配置oss.client.sts-role-arn或oss.client.ecs-ram-role时改用临时凭证，过期前在后台线程续期，请求线程不等待STS；
+ * 此时直传表单和签名url的有效期不会超过签发时所用凭证的过期时间。
+ * @author 993926972
+ */
+@SpringBootConfiguration
+public class OssConfig {
+
+    @Value("${oss.client.max-connections:128}")
+    private int maxConnections;
+
+    @Value("${oss.client.connection-timeout:5000}")
+    private int connectionTimeout;
+
+    @Value("${oss.client.socket-timeout:30000}")
+    private int socketTimeout;
+
+    @Value("${oss.client.connection-request-timeout:3000}")
+    private int connectionRequestTimeout;
+
+    @Value("${oss.client.idle-connection-time:60000}")
+    private long idleConnectionTime;
+
+    @Value("${oss.client.max-error-retry:3}")
+    private int maxErrorRetry;
+
+    @Value("${oss.client.retry-budget-capacity:100}")
+    private int retryBudgetCapacity;
+
+    @Value("${oss.client.retry-budget-ratio:0.1}")
+    private double retryBudgetRatio;
+
+    @Value("${oss.client.hedging-enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${oss.client.hedging-delay:-1}")
+    private long hedgingDelay;
+
+    @Value("${oss.client.hedging-percentile:0.95}")
+    private double hedgingPercentile;
+
+    @Value("${oss.client.hedging-ratio:0.05}")
+    private double hedgingRatio;
+
+    @Value("${oss.client.warm-up-connections:4}")
+    private int warmUpConnections;
+
+    @Value("${oss.client.type:aliyun}")
+    private String clientType;
+
+    @Value("${oss.client.sts-role-arn:}")
+    private String stsRoleArn;
+
+    @Value("${oss.client.sts-region:cn-hangzhou}")
+    private String stsRegion;
+
+    @Value("${oss.client.ecs-ram-role:}")
+    private String ecsRamRole;
+
+    private RefreshAheadCredentialsProvider credentialsProvider;
+
+    @Value("${oss.local.root:${java.io.tmpdir}/edu-oss/local}")
+    private String localRoot;
+
+    @Value("${oss.local.endpoint:http://localhost}")
+    private String localEndpoint;
+
+    @Value("${oss.local.min-latency:0}")
+    private long localMinLatency;
+
+    @Value("${oss.local.max-latency:0}")
+    private long localMaxLatency;
+
+    @Value("${oss.local.error-rate:0}")
+    private double localErrorRate;
+
+    @Bean(destroyMethod = "shutdown")
+    public OSS ossClient() {
+        if ("local".equals(clientType)) {
+            return localClient();
+        }
+        ClientBuilderConfiguration conf = new ClientBuilderConfiguration();
+        conf.setMaxConnections(maxConnections);
+        conf.setConnectionTimeout(connectionTimeout);
+        conf.setSocketTimeout(socketTimeout);
+        conf.setConnectionRequestTimeout(connectionRequestTimeout);
+        conf.setIdleConnectionTime(idleConnectionTime);
+        conf.setMaxErrorRetry(maxErrorRetry);
+        conf.setRetryBudgetCapacity(retryBudgetCapacity);
+        conf.setRetryBudgetRatio(retryBudgetRatio);
+        conf.setHedgingEnabled(hedgingEnabled);
+        conf.setHedgingDelay(hedgingDelay);
+        conf.setHedgingPercentile(hedgingPercentile);
+        conf.setHedgingRatio(hedgingRatio);
+        try {
+            if (!stsRoleArn.isEmpty()) {
+                credentialsProvider = CredentialsProviderFactory.newRefreshAheadSTSAssumeRoleSessionCredentialsProvider(
+                        stsRegion, Temporary.ACCESS_KEY_ID, Temporary.ACCESS_KEY_SECRET, stsRoleArn);
+            } else if (!ecsRamRole.isEmpty()) {
+                credentialsProvider = CredentialsProviderFactory.newRefreshAheadInstanceProfileCredentialsProvider(ecsRamRole);
+            }
+        } catch (ClientException e) {
+            throw new IllegalStateException("创建OSS临时凭证失败: " + e.getMessage(), e);
+        }
+        if (credentialsProvider != null) {
+            return new OSSClientBuilder().build(Temporary.ENDPOINT, credentialsProvider, conf);
+        }
+        return new OSSClientBuilder().build(Temporary.ENDPOINT, Temporary.ACCESS_KEY_ID, Temporary.ACCESS_KEY_SECRET, conf);
+    }
+
+    @PreDestroy
+    public void shutdownCredentials() {
+        if (credentialsProvider != null) {
+            credentialsProvider.shutdown();
+        }
+    }
+
+    private OSS localClient() {
+        LocalFileOSS local = new LocalFileOSS(Paths.get(localRoot), localEndpoint,
+                Temporary.ACCESS_KEY_ID, Temporary.ACCESS_KEY_SECRET);
+        for (String bucket : new String[]{Temporary.SOURCE_BUCKET_NAME, Temporary.BUCKET_NAME}) {
+            if (!local.doesBucketExist(bucket)) {
+                local.createBucket(bucket);
+            }
+        }
+        local.setLatency(localMinLatency, localMaxLatency);
+        local.setErrorRate(localErrorRate);
+        return local;
+    }
+
+    /**
+     * 预热：并发发起几次轻量请求，提前完成DNS解析和建连，连接归还后留在池中复用。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        OSS ossClient = ossClient();
+        for (int i = 0; i < warmUpConnections; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    ossClient.doesBucketExist(Temporary.SOURCE_BUCKET_NAME);
+                } catch (Exception e) {
+                    System.out.println("OSS连接预热失败: " + e.getMessage());
+                }
+            }, "oss-warm-up-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.group7.edu.controller.tql;
+
+import com.group7.edu.osshandle.OssGuard;
+import com.group7.edu.osshandle.ThumbnailService;
+import com.group7.edu.osshandle.ThumbnailStore;
+import com.group7.edu.osshandle.VideoSegmentCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * 本地媒体文件输出
+ * @author 993926972
+ */
+@RestController
+public class MediaController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Resource
+    private ThumbnailService thumbnailService;
+    @Resource
+    private VideoSegmentCache videoSegmentCache;
+    @Resource
+    private OssGuard ossGuard;
+
+    @Value("${oss.thumb.max-age:2592000}")
+    private long maxAge;
+
+    @Value("${oss.video.max-age:86400}")
+    private long videoMaxAge;
+
+    /**
+     * 缩略图，命中本地缓存直接返回文件，否则生成后返回；本地生成失败时重定向到OSS图片处理地址。
+     * 只接受oss.thumb.sizes中配置的尺寸，其他尺寸返回404
+     * @param uuid 文件uuid
+     * @param w 宽
+     * @param h 高
+     */
+    @GetMapping("/media/thumb/{uuid:.+}/{w:\\d+}x{h:\\d+}")
+    public void thumb(@PathVariable String uuid, @PathVariable int w, @PathVariable int h,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!thumbnailService.isEnabled() || !thumbnailService.isAllowedSize(w, h)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ThumbnailStore.Thumbnail thumbnail = thumbnailService.get(uuid, w, h);
+        if (thumbnail == null) {
+            String url = thumbnailService.fallbackUrl(uuid, w, h);
+            if (url == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            } else {
+                response.sendRedirect(url);
+            }
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, thumbnail.getETag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, thumbnail.getLastModified());
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(thumbnail.getETag()) || "*".equals(ifNoneMatch.trim()))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        ByteBuffer data = thumbnail.getData().duplicate();
+        response.setContentType(thumbnail.getContentType());
+        response.setContentLength(data.remaining());
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        response.flushBuffer();
+    }
+
+    /**
+     * 视频，支持单个Range请求；数据按段从本地缓存输出，缓存缺失的段从OSS拉取。
+     * 开放结尾的Range(bytes=n-)只返回到当前段结束，播放器会继续请求后面的部分。
+     * 不带Range且超过一段的GET(下载工具等)重定向到OSS签名地址，不占用Tomcat线程整段输出，也不把其他视频的热点段挤出缓存；
+     * OSS读熔断时只返回第一段(206)。
+     * 整个请求落在一个段内时交给Tomcat的sendfile(FileChannel.transferTo)直接写socket，否则映射段文件逐段写出。
+     * @param uuid 文件uuid
+     */
+    @GetMapping("/media/video/{uuid:.+}")
+    public void video(@PathVariable String uuid, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!videoSegmentCache.isEnabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        VideoSegmentCache.VideoInfo info = videoSegmentCache.info(uuid);
+        if (info == null) {
+            String url = ossGuard.isOpen(OssGuard.READ) ? videoSegmentCache.fallbackUrl(uuid) : null;
+            if (url == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            } else {
+                response.sendRedirect(url);
+            }
+            return;
+        }
+        long length = info.getLength();
+        long segmentSize = videoSegmentCache.getSegmentSize();
+        String eTag = "\"" + info.getETag() + "\"";
+        long start = 0;
+        long end = length - 1;
+        boolean partial = false;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(eTag))) {
+            long[] bytes = parseRange(range, length);
+            if (bytes == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bytes.length == 2) {
+                start = bytes[0];
+                end = bytes[1] < 0 ? Math.min(length, (start / segmentSize + 1) * segmentSize) - 1 : bytes[1];
+                partial = true;
+            }
+        }
+        if (length == 0) {
+            response.setContentLength(0);
+            return;
+        }
+        boolean head = "HEAD".equals(request.getMethod());
+        if (!partial && end >= segmentSize && !head) {
+            String url = !ossGuard.isOpen(OssGuard.READ) ? videoSegmentCache.fallbackUrl(uuid) : null;
+            if (url != null) {
+                response.sendRedirect(url);
+                return;
+            }
+            end = segmentSize - 1;
+            partial = true;
+        }
+        long first = start / segmentSize;
+        long last = end / segmentSize;
+        boolean sendfile = first == last && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT));
+        Path firstFile = null;
+        FileChannel firstChannel = null;
+        if (!head) {
+            try {
+                if (sendfile) {
+                    firstFile = videoSegmentCache.lease(info, first);
+                } else {
+                    firstChannel = videoSegmentCache.open(info, first);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                String url = videoSegmentCache.fallbackUrl(uuid);
+                if (url == null) {
+                    response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+                } else {
+                    response.sendRedirect(url);
+                }
+                return;
+            }
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + videoMaxAge);
+        response.setContentType(info.getContentType() == null ? "application/octet-stream" : info.getContentType());
+        if (partial) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        response.setContentLengthLong(end - start + 1);
+        if (head) {
+            return;
+        }
+        if (sendfile) {
+            long base = first * segmentSize;
+            request.setAttribute(SENDFILE_FILENAME, firstFile.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start - base);
+            request.setAttribute(SENDFILE_END, end - base + 1);
+            return;
+        }
+        try {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long segment = first; segment <= last; segment++) {
+                long base = segment * segmentSize;
+                long from = Math.max(start, base) - base;
+                long to = Math.min(end, base + segmentSize - 1) - base + 1;
+                try (FileChannel channel = segment == first ? firstChannel : videoSegmentCache.open(info, segment)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+            }
+        } finally {
+            firstChannel.close();
+        }
+        response.flushBuffer();
+    }
+
+    /**
+     * 解析Range请求头
+     * @return {start, end}，end为-1表示开放结尾；格式不支持(如多段)返回空数组，按整文件返回；超出文件长度返回null
+     */
+    private static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return new long[0];
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? -1 : Math.min(Long.parseLong(last), length - 1);
+                if (last.length() > 0 && Long.parseLong(last) < start) {
+                    return new long[0];
+                }
+            }
+            if (start >= length) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
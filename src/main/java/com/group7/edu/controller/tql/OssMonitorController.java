@@ -0,0 +1,198 @@
+package com.group7.edu.controller.tql;
+
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.OSSClient;
+import com.group7.edu.oss.common.auth.RefreshAheadCredentialsProvider;
+import com.group7.edu.oss.common.comm.RequestMetrics;
+import com.group7.edu.oss.common.comm.RetryBudget;
+import com.group7.edu.oss.common.comm.RoutePoolStats;
+import com.group7.edu.oss.common.utils.LatencyHistogram;
+import com.group7.edu.oss.internal.RequestHedger;
+import com.group7.edu.osshandle.DeleteJournal;
+import com.group7.edu.osshandle.OssGuard;
+import com.group7.edu.utils.ResultData;
+import org.apache.http.pool.PoolStats;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * OSS客户端运行状态监控
+ * @author 993926972
+ */
+@RestController
+public class OssMonitorController {
+
+    @Resource
+    private OSS ossClient;
+    @Resource
+    private DeleteJournal deleteJournal;
+    @Resource
+    private OssGuard ossGuard;
+
+    /**
+     * 连接池状态：active为正在使用的连接数，idle为池中空闲连接数；
+     * routes为每个目标地址的连接数及等待借出连接的耗时(毫秒)，pending和等待耗时高说明连接池不够用而不是网络慢
+     * @return ResultData
+     */
+    @RequestMapping("/sys/oss/pool")
+    public ResultData pool() {
+        if (!(ossClient instanceof OSSClient)) {
+            return ResultData.isFailure("当前OSS客户端不支持连接池统计");
+        }
+        PoolStats stats = ((OSSClient) ossClient).getConnectionPoolStats();
+        if (stats == null) {
+            return ResultData.isFailure("当前OSS客户端未使用连接池");
+        }
+        Map<String, Map<String, Object>> routes = new TreeMap<>();
+        for (RoutePoolStats route : ((OSSClient) ossClient).getRoutePoolStats().values()) {
+            LatencyHistogram.Snapshot wait = route.getLeaseWait();
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("active", route.getLeased());
+            stat.put("idle", route.getAvailable());
+            stat.put("pending", route.getPending());
+            stat.put("max", route.getMax());
+            stat.put("leaseTimeouts", route.getLeaseTimeouts());
+            stat.put("leases", wait.getCount());
+            stat.put("waitMean", wait.getMeanMillis());
+            stat.put("waitP50", wait.getPercentileMillis(0.5));
+            stat.put("waitP99", wait.getPercentileMillis(0.99));
+            stat.put("waitMax", wait.getMaxMillis());
+            routes.put(route.getRoute(), stat);
+        }
+        return ResultData.isSuccess()
+                .put("active", stats.getLeased())
+                .put("idle", stats.getAvailable())
+                .put("pending", stats.getPending())
+                .put("max", stats.getMax())
+                .put("routes", routes);
+    }
+
+    /**
+     * 重试情况：retries为已发出的重试次数，exhausted为重试预算耗尽后放弃的重试次数，
+     * tokens为当前还允许的重试次数，errors为按错误码统计的失败次数
+     * @return ResultData
+     */
+    @RequestMapping("/sys/oss/retry")
+    public ResultData retry() {
+        if (!(ossClient instanceof OSSClient)) {
+            return ResultData.isFailure("当前OSS客户端不支持重试统计");
+        }
+        RetryBudget.Stats stats = ((OSSClient) ossClient).getRetryStats();
+        return ResultData.isSuccess()
+                .put("retries", stats.getRetries())
+                .put("exhausted", stats.getBudgetExhausted())
+                .put("tokens", stats.getAvailableTokens())
+                .put("capacity", stats.getCapacity())
+                .put("errors", stats.getErrorCounts());
+    }
+
+    /**
+     * 对冲请求：读对象和读元数据超过delay毫秒未返回时再发一个相同请求，先返回的生效；
+     * winRate为补发请求先返回的比例，rateLimited为因限流没有补发的次数
+     * @return ResultData
+     */
+    @RequestMapping("/sys/oss/hedge")
+    public ResultData hedge() {
+        if (!(ossClient instanceof OSSClient)) {
+            return ResultData.isFailure("当前OSS客户端不支持对冲统计");
+        }
+        RequestHedger.Stats stats = ((OSSClient) ossClient).getHedgingStats();
+        return ResultData.isSuccess()
+                .put("calls", stats.getCalls())
+                .put("hedges", stats.getHedges())
+                .put("wins", stats.getHedgeWins())
+                .put("winRate", stats.getWinRate())
+                .put("rateLimited", stats.getRateLimited())
+                .put("delay", stats.getDelayMillis());
+    }
+
+    /**
+     * 临时凭证后台续期：refreshes、failures为成功、失败的获取次数，blocking为请求线程等待获取凭证的次数，
+     * latency为获取凭证的耗时(毫秒)，expiresIn为当前凭证距过期的毫秒数
+     * @return ResultData
+     */
+    @RequestMapping("/sys/oss/credentials")
+    public ResultData credentials() {
+        if (!(ossClient instanceof OSSClient)
+                || !(((OSSClient) ossClient).getCredentialsProvider() instanceof RefreshAheadCredentialsProvider)) {
+            return ResultData.isFailure("当前OSS客户端未使用后台续期的临时凭证");
+        }
+        RefreshAheadCredentialsProvider.Stats stats =
+                ((RefreshAheadCredentialsProvider) ((OSSClient) ossClient).getCredentialsProvider()).getStats();
+        long expiration = stats.getExpirationTime();
+        return ResultData.isSuccess()
+                .put("refreshes", stats.getRefreshes())
+                .put("failures", stats.getFailures())
+                .put("consecutiveFailures", stats.getConsecutiveFailures())
+                .put("blocking", stats.getBlockingFetches())
+                .put("latency", latencyStat(stats.getLatency()))
+                .put("expiresIn", expiration == 0 || expiration == Long.MAX_VALUE ? expiration
+                        : expiration - System.currentTimeMillis())
+                .put("lastError", stats.getLastError());
+    }
+
+    /**
+     * 各操作的耗时分布(毫秒)：operations按操作汇总，details按操作、状态码(0为没有收到响应)和重试次数细分；
+     * 耗时从第一次请求开始算到最终结果，包含重试等待
+     * @return ResultData
+     */
+    @RequestMapping("/sys/oss/latency")
+    public ResultData latency() {
+        if (!(ossClient instanceof OSSClient)) {
+            return ResultData.isFailure("当前OSS客户端不支持耗时统计");
+        }
+        Map<String, LatencyHistogram.Snapshot> operations = new TreeMap<>();
+        Map<String, Map<String, Object>> details = new TreeMap<>();
+        for (Map.Entry<RequestMetrics.Key, LatencyHistogram.Snapshot> entry
+                : ((OSSClient) ossClient).getLatencyStats().entrySet()) {
+            RequestMetrics.Key key = entry.getKey();
+            operations.merge(key.getOperation(), entry.getValue(), LatencyHistogram.Snapshot::merge);
+            Map<String, Object> stat = latencyStat(entry.getValue());
+            stat.put("status", key.getStatus());
+            stat.put("retries", key.getRetries());
+            details.put(key.getOperation() + " " + key.getStatus() + " " + key.getRetries(), stat);
+        }
+        Map<String, Map<String, Object>> summary = new TreeMap<>();
+        operations.forEach((operation, snapshot) -> summary.put(operation, latencyStat(snapshot)));
+        return ResultData.isSuccess()
+                .put("operations", summary)
+                .put("details", details);
+    }
+
+    private static Map<String, Object> latencyStat(LatencyHistogram.Snapshot snapshot) {
+        Map<String, Object> stat = new LinkedHashMap<>();
+        stat.put("count", snapshot.getCount());
+        stat.put("mean", snapshot.getMeanMillis());
+        stat.put("p50", snapshot.getPercentileMillis(0.5));
+        stat.put("p90", snapshot.getPercentileMillis(0.9));
+        stat.put("p99", snapshot.getPercentileMillis(0.99));
+        stat.put("p999", snapshot.getPercentileMillis(0.999));
+        stat.put("max", snapshot.getMaxMillis());
+        return stat;
+    }
+
+    /**
+     * 异步删除队列：pending为待删除数量，dead为多次重试失败后放弃的文件
+     * @return ResultData
+     */
+    @RequestMapping("/sys/oss/delete")
+    public ResultData delete() {
+        return ResultData.isSuccess()
+                .put("pending", deleteJournal.pendingCount())
+                .put("dead", deleteJournal.deadLetters());
+    }
+
+    /**
+     * 各类OSS调用的熔断状态(CLOSED/OPEN/HALF_OPEN)及调用、失败、超时、拒绝、熔断拦截次数
+     * @return ResultData
+     */
+    @RequestMapping("/sys/oss/guard")
+    public ResultData guard() {
+        return ResultData.isSuccess().put("guard", ossGuard.stats());
+    }
+}
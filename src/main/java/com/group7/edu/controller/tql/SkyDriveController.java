@@ -1,20 +1,33 @@
 package com.group7.edu.controller.tql;
 
 import com.group7.edu.entity.tql.SysNetDiskFile;
+import com.group7.edu.osshandle.OssUpload;
 import com.group7.edu.service.tql.SysNetDiskFileService;
 import com.group7.edu.utils.PagingUtils;
 import com.group7.edu.utils.ResultData;
+import com.group7.edu.utils.ShiroUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 @RestController
 public class SkyDriveController {
 
     @Resource
     private SysNetDiskFileService sysNetDiskFileService;
+    @Resource
+    private OssUpload ossUpload;
 
     /**
      * @param sysNetDiskFile 上传
@@ -30,6 +43,65 @@ public class SkyDriveController {
         return sysNetDiskFileService.fileUpload(sysNetDiskFile);
     }
 
+    /**
+     * 浏览器直传OSS的表单参数，浏览器拿到后直接PostObject到host，上传完成由OSS回调/sys/disk/callback入库
+     * @param fileName 文件名
+     * @return ResultData form为表单域
+     */
+    @RequestMapping("/sys/disk/policy")
+    public ResultData uploadPolicy(String fileName) {
+        Map<String, String> form = ossUpload.postPolicy(ShiroUtils.getUserId(), fileName);
+        if (form == null) {
+            return ResultData.isFailure("文件名不合法");
+        }
+        return ResultData.isSuccess().put("form", form);
+    }
+
+    /**
+     * OSS上传回调，校验OSS的签名后入库；返回非200时OSS会告诉浏览器上传失败
+     * @return ResultData 原样返回给浏览器
+     */
+    @PostMapping("/sys/disk/callback")
+    public ResultData uploadCallback(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        if (!ossUpload.verifyCallback(request.getHeader("authorization"), request.getHeader("x-oss-pub-key-url"),
+                request.getRequestURI(), request.getQueryString(), body)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return ResultData.isFailure("回调签名校验失败");
+        }
+        Map<String, String> params = new HashMap<>();
+        for (String pair : new String(body, StandardCharsets.UTF_8).split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+        if (!ossUpload.verifyUpload(params)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return ResultData.isFailure("回调参数与签发的上传不符");
+        }
+        String filename = params.get("filename");
+        SysNetDiskFile sysNetDiskFile = new SysNetDiskFile();
+        sysNetDiskFile.setFileuuid(params.get("object"));
+        sysNetDiskFile.setFilename(filename);
+        sysNetDiskFile.setSize(params.get("size"));
+        try {
+            sysNetDiskFile.setUid(Integer.valueOf(params.get("uid")));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return ResultData.isFailure("回调参数不完整");
+        }
+        if (filename != null && filename.lastIndexOf('.') >= 0) {
+            sysNetDiskFile.setSuffix(filename.substring(filename.lastIndexOf('.')).toLowerCase());
+        }
+        ResultData resultData = sysNetDiskFileService.uploadCallback(sysNetDiskFile);
+        if (resultData.getCode() != 0) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        }
+        return resultData;
+    }
+
     /**
      * 查看所有文件
      * @param limit limit
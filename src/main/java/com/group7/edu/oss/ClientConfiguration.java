@@ -39,6 +39,11 @@ public class ClientConfiguration {
     public static final String DEFAULT_USER_AGENT = VersionInfoUtils.getDefaultUserAgent();
 
     public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final int DEFAULT_RETRY_BUDGET_CAPACITY = 100;
+    public static final double DEFAULT_RETRY_BUDGET_RATIO = 0.1;
+    public static final long DEFAULT_HEDGING_DELAY = -1;
+    public static final double DEFAULT_HEDGING_PERCENTILE = 0.95;
+    public static final double DEFAULT_HEDGING_RATIO = 0.05;
 
     public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = -1;
     public static final int DEFAULT_CONNECTION_TIMEOUT = 50 * 1000;
@@ -59,6 +64,12 @@ public class ClientConfiguration {
 
     protected String userAgent = DEFAULT_USER_AGENT;
     protected int maxErrorRetry = DEFAULT_MAX_RETRIES;
+    protected int retryBudgetCapacity = DEFAULT_RETRY_BUDGET_CAPACITY;
+    protected double retryBudgetRatio = DEFAULT_RETRY_BUDGET_RATIO;
+    protected boolean hedgingEnabled = false;
+    protected long hedgingDelay = DEFAULT_HEDGING_DELAY;
+    protected double hedgingPercentile = DEFAULT_HEDGING_PERCENTILE;
+    protected double hedgingRatio = DEFAULT_HEDGING_RATIO;
     protected int connectionRequestTimeout = DEFAULT_CONNECTION_REQUEST_TIMEOUT;
     protected int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
     protected int socketTimeout = DEFAULT_SOCKET_TIMEOUT;
@@ -336,6 +347,139 @@ public class ClientConfiguration {
         this.maxErrorRetry = maxErrorRetry;
     }
 
+    /**
+     * Gets the capacity of the client-wide retry budget, in retries. Every
+     * retry takes one token from the budget and every successful request puts
+     * back {@link #getRetryBudgetRatio()} tokens, so once the budget is spent
+     * retries are limited to that share of successful requests. By default
+     * it's 100.
+     *
+     * @return The retry budget capacity.
+     */
+    public int getRetryBudgetCapacity() {
+        return retryBudgetCapacity;
+    }
+
+    /**
+     * Sets the capacity of the client-wide retry budget, in retries. 0 or a
+     * negative value turns the budget off. By default it's 100.
+     *
+     * @param retryBudgetCapacity
+     *            The retry budget capacity.
+     */
+    public void setRetryBudgetCapacity(int retryBudgetCapacity) {
+        this.retryBudgetCapacity = retryBudgetCapacity;
+    }
+
+    /**
+     * Gets the number of retry tokens earned by each successful request. By
+     * default it's 0.1, i.e. one retry per ten successful requests.
+     *
+     * @return The retry budget ratio.
+     */
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    /**
+     * Sets the number of retry tokens earned by each successful request. By
+     * default it's 0.1.
+     *
+     * @param retryBudgetRatio
+     *            The retry budget ratio.
+     */
+    public void setRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+    }
+
+    /**
+     * Gets the flag of hedging getObject and getObjectMetadata. When it is
+     * on and a call has not answered within the hedging delay, a second
+     * identical request is sent; the first response wins and the other
+     * request is aborted. By default it's false.
+     *
+     * @return True if hedging is enabled.
+     */
+    public boolean isHedgingEnabled() {
+        return hedgingEnabled;
+    }
+
+    /**
+     * Sets the flag of hedging getObject and getObjectMetadata. By default
+     * it's false.
+     *
+     * @param hedgingEnabled
+     *            True to enable hedging.
+     */
+    public void setHedgingEnabled(boolean hedgingEnabled) {
+        this.hedgingEnabled = hedgingEnabled;
+    }
+
+    /**
+     * Gets the delay in millisecond after which a hedged call sends its second
+     * request. 0 or a negative value means the delay follows the
+     * {@link #getHedgingPercentile()} latency of recent calls. By default it's
+     * -1.
+     *
+     * @return The hedging delay in millisecond.
+     */
+    public long getHedgingDelay() {
+        return hedgingDelay;
+    }
+
+    /**
+     * Sets the delay in millisecond after which a hedged call sends its second
+     * request; 0 or a negative value makes it adaptive. By default it's -1.
+     *
+     * @param hedgingDelay
+     *            The hedging delay in millisecond.
+     */
+    public void setHedgingDelay(long hedgingDelay) {
+        this.hedgingDelay = hedgingDelay;
+    }
+
+    /**
+     * Gets the latency percentile of recent calls used as the adaptive
+     * hedging delay. By default it's 0.95.
+     *
+     * @return The hedging percentile, between 0 and 1.
+     */
+    public double getHedgingPercentile() {
+        return hedgingPercentile;
+    }
+
+    /**
+     * Sets the latency percentile of recent calls used as the adaptive
+     * hedging delay. By default it's 0.95.
+     *
+     * @param hedgingPercentile
+     *            The hedging percentile, between 0 and 1.
+     */
+    public void setHedgingPercentile(double hedgingPercentile) {
+        this.hedgingPercentile = hedgingPercentile;
+    }
+
+    /**
+     * Gets the most second requests sent per hedged call, on average. By
+     * default it's 0.05, i.e. at most 5% extra requests.
+     *
+     * @return The hedging ratio.
+     */
+    public double getHedgingRatio() {
+        return hedgingRatio;
+    }
+
+    /**
+     * Sets the most second requests sent per hedged call, on average. By
+     * default it's 0.05.
+     *
+     * @param hedgingRatio
+     *            The hedging ratio.
+     */
+    public void setHedgingRatio(double hedgingRatio) {
+        this.hedgingRatio = hedgingRatio;
+    }
+
     /**
      * Gets the connection TTL (time to live). Http connection is cached by the
      * connection manager with a TTL.
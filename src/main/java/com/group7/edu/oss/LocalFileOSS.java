@@ -0,0 +1,1805 @@
+package com.group7.edu.oss;
+
+import com.group7.edu.oss.common.auth.Credentials;
+import com.group7.edu.oss.common.auth.DefaultCredentialProvider;
+import com.group7.edu.oss.common.comm.ResponseMessage;
+import com.group7.edu.oss.common.comm.SignVersion;
+import com.group7.edu.oss.common.comm.io.BoundedInputStream;
+import com.group7.edu.oss.common.utils.BinaryUtil;
+import com.group7.edu.oss.common.utils.ExceptionFactory;
+import com.group7.edu.oss.internal.OSSHeaders;
+import com.group7.edu.oss.internal.OSSUtils;
+import com.group7.edu.oss.model.*;
+import com.group7.edu.oss.model.SetBucketCORSRequest.CORSRule;
+
+import java.io.*;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * An in-process {@link OSS} implementation backed by the local file system, meant for load tests and
+ * benchmarks on machines without access to a real bucket.
+ * <p>
+ * Each bucket is a directory under the root. Object data is stored in {@code data/} and object metadata
+ * in {@code meta/} as properties files, both named by the MD5 of the key, so arbitrary keys map to safe
+ * file names. The key index is rebuilt from {@code meta/} on start-up. In-progress multipart uploads are
+ * kept in memory only and are discarded on restart.
+ * </p>
+ * <p>
+ * Supported operations: buckets (create, delete, exist, list), put/get with range, head/metadata,
+ * copy, delete and batch delete, list objects, multipart upload, and presigned URLs. Presigned URLs are
+ * signed by a real {@link OSSClient} against the configured endpoint, and {@code getObject}/{@code putObject}
+ * with a signed URL resolve the bucket and key from that URL. All other operations throw
+ * {@link ClientException}.
+ * </p>
+ * <p>
+ * {@link #setLatency(long, long)} adds a random delay to every supported call and
+ * {@link #setErrorRate(double)} makes a fraction of calls fail with either a {@link ClientException}
+ * (socket timeout) or an {@link OSSException} (InternalError), as a remote service would.
+ * </p>
+ */
+public class LocalFileOSS implements OSS {
+
+    private static final String UPLOAD_DIR = ".uploads";
+    private static final String DATA_DIR = "data";
+    private static final String META_DIR = "meta";
+    private static final String META_SUFFIX = ".properties";
+    private static final String KEY_PROPERTY = "key";
+    private static final String ETAG_PROPERTY = "etag";
+    private static final String SIZE_PROPERTY = "size";
+    private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+    private static final String HEADER_PREFIX = "header.";
+    private static final int DEFAULT_MAX_KEYS = 100;
+    private static final int MAX_KEYS_LIMIT = 1000;
+    private static final String CONTENT_RANGE = "Content-Range";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final Path root;
+    private final Path uploadRoot;
+    private final String endpoint;
+    private final OSSClient signer;
+    private final Map<String, ConcurrentSkipListMap<String, LocalObject>> buckets =
+            new ConcurrentHashMap<String, ConcurrentSkipListMap<String, LocalObject>>();
+    private final Map<String, LocalUpload> uploads = new ConcurrentHashMap<String, LocalUpload>();
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private volatile long minLatency;
+    private volatile long maxLatency;
+    private volatile double errorRate;
+
+    /**
+     * Creates a local OSS rooted at the given directory, signing URLs for {@code http://localhost}.
+     */
+    public LocalFileOSS(String root) {
+        this(Paths.get(root), "http://localhost", "local", "local");
+    }
+
+    /**
+     * Creates a local OSS rooted at the given directory.
+     *
+     * @param root
+     *            Directory holding one sub-directory per bucket.
+     * @param endpoint
+     *            Endpoint used when generating presigned URLs.
+     * @param accessKeyId
+     *            Access key id used when generating presigned URLs.
+     * @param secretAccessKey
+     *            Secret used when generating presigned URLs.
+     */
+    public LocalFileOSS(Path root, String endpoint, String accessKeyId, String secretAccessKey) {
+        this.root = root;
+        this.uploadRoot = root.resolve(UPLOAD_DIR);
+        this.endpoint = endpoint;
+        this.signer = new OSSClient(endpoint, new DefaultCredentialProvider(accessKeyId, secretAccessKey), null);
+        try {
+            Files.createDirectories(root);
+            deleteTree(uploadRoot);
+            try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path dir : dirs) {
+                    String bucketName = dir.getFileName().toString();
+                    if (OSSUtils.validateBucketName(bucketName)) {
+                        buckets.put(bucketName, loadIndex(dir));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ClientException("Failed to open local OSS root " + root, e);
+        }
+    }
+
+    /**
+     * Adds a uniformly distributed delay between {@code minMillis} and {@code maxMillis} to every call.
+     */
+    public void setLatency(long minMillis, long maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Invalid latency range " + minMillis + "-" + maxMillis);
+        }
+        this.minLatency = minMillis;
+        this.maxLatency = maxMillis;
+    }
+
+    /**
+     * Makes the given fraction of calls fail, half with a client-side and half with a server-side error.
+     */
+    public void setErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("Invalid error rate " + errorRate);
+        }
+        this.errorRate = errorRate;
+    }
+
+    @Override
+    public void switchCredentials(Credentials creds) {
+        signer.switchCredentials(creds);
+    }
+
+    @Override
+    public void switchSignatureVersion(SignVersion signatureVersion) {
+        signer.switchSignatureVersion(signatureVersion);
+    }
+
+    @Override
+    public void shutdown() {
+        signer.shutdown();
+    }
+
+    @Override
+    public Bucket createBucket(String bucketName) throws OSSException, ClientException {
+        return createBucket(new CreateBucketRequest(bucketName));
+    }
+
+    @Override
+    public Bucket createBucket(CreateBucketRequest createBucketRequest) throws OSSException, ClientException {
+        String bucketName = createBucketRequest.getBucketName();
+        OSSUtils.ensureBucketNameValid(bucketName);
+        inject();
+        Path dir = root.resolve(bucketName);
+        try {
+            Files.createDirectories(dir.resolve(DATA_DIR));
+            Files.createDirectories(dir.resolve(META_DIR));
+        } catch (IOException e) {
+            throw ExceptionFactory.createNetworkException(e);
+        }
+        buckets.putIfAbsent(bucketName, new ConcurrentSkipListMap<String, LocalObject>());
+        Bucket bucket = new Bucket(bucketName, nextRequestId());
+        bucket.setCreationDate(new Date());
+        return bucket;
+    }
+
+    @Override
+    public void deleteBucket(String bucketName) throws OSSException, ClientException {
+        deleteBucket(new GenericRequest(bucketName));
+    }
+
+    @Override
+    public void deleteBucket(GenericRequest genericRequest) throws OSSException, ClientException {
+        String bucketName = genericRequest.getBucketName();
+        inject();
+        if (!objects(bucketName).isEmpty()) {
+            throw error(OSSErrorCode.BUCKET_NOT_EMPTY, "The bucket you tried to delete is not empty.");
+        }
+        buckets.remove(bucketName);
+        try {
+            deleteTree(root.resolve(bucketName));
+        } catch (IOException e) {
+            throw ExceptionFactory.createNetworkException(e);
+        }
+    }
+
+    @Override
+    public List<Bucket> listBuckets() throws OSSException, ClientException {
+        inject();
+        List<Bucket> list = new ArrayList<Bucket>();
+        for (String name : new TreeSet<String>(buckets.keySet())) {
+            list.add(new Bucket(name));
+        }
+        return list;
+    }
+
+    @Override
+    public boolean doesBucketExist(String bucketName) throws OSSException, ClientException {
+        return doesBucketExist(new GenericRequest(bucketName));
+    }
+
+    @Override
+    public boolean doesBucketExist(GenericRequest genericRequest) throws OSSException, ClientException {
+        inject();
+        return buckets.containsKey(genericRequest.getBucketName());
+    }
+
+    @Override
+    public ObjectListing listObjects(String bucketName) throws OSSException, ClientException {
+        return listObjects(new ListObjectsRequest(bucketName));
+    }
+
+    @Override
+    public ObjectListing listObjects(String bucketName, String prefix) throws OSSException, ClientException {
+        return listObjects(new ListObjectsRequest(bucketName).withPrefix(prefix));
+    }
+
+    @Override
+    public ObjectListing listObjects(ListObjectsRequest listObjectsRequest) throws OSSException, ClientException {
+        String bucketName = listObjectsRequest.getBucketName();
+        String prefix = listObjectsRequest.getPrefix() == null ? "" : listObjectsRequest.getPrefix();
+        String marker = listObjectsRequest.getMarker();
+        String delimiter = listObjectsRequest.getDelimiter();
+        Integer maxKeys = listObjectsRequest.getMaxKeys();
+        int limit = maxKeys == null ? DEFAULT_MAX_KEYS : Math.min(maxKeys, MAX_KEYS_LIMIT);
+        inject();
+
+        ConcurrentSkipListMap<String, LocalObject> objects = objects(bucketName);
+        NavigableMap<String, LocalObject> candidates = marker == null || marker.compareTo(prefix) < 0
+                ? objects.tailMap(prefix, true) : objects.tailMap(marker, false);
+
+        ObjectListing listing = new ObjectListing();
+        listing.setBucketName(bucketName);
+        listing.setPrefix(listObjectsRequest.getPrefix());
+        listing.setMarker(marker);
+        listing.setDelimiter(delimiter);
+        listing.setMaxKeys(limit);
+        listing.setEncodingType(listObjectsRequest.getEncodingType());
+
+        int count = 0;
+        String lastPrefix = null;
+        String next = null;
+        for (LocalObject object : candidates.values()) {
+            String key = object.key;
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (lastPrefix != null && key.startsWith(lastPrefix)) {
+                continue;
+            }
+            if (count == limit) {
+                listing.setTruncated(true);
+                listing.setNextMarker(next);
+                break;
+            }
+            int index = delimiter == null || delimiter.isEmpty() ? -1 : key.indexOf(delimiter, prefix.length());
+            if (index >= 0) {
+                lastPrefix = key.substring(0, index + delimiter.length());
+                listing.addCommonPrefix(lastPrefix);
+                next = lastPrefix;
+            } else {
+                listing.addObjectSummary(object.toSummary(bucketName));
+                next = key;
+            }
+            count++;
+        }
+        return listing;
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, InputStream input)
+            throws OSSException, ClientException {
+        return putObject(bucketName, key, input, null);
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, InputStream input, ObjectMetadata metadata)
+            throws OSSException, ClientException {
+        return putObject(new PutObjectRequest(bucketName, key, input, metadata));
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, File file, ObjectMetadata metadata)
+            throws OSSException, ClientException {
+        return putObject(new PutObjectRequest(bucketName, key, file, metadata));
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, File file) throws OSSException, ClientException {
+        return putObject(bucketName, key, file, null);
+    }
+
+    @Override
+    public PutObjectResult putObject(PutObjectRequest putObjectRequest) throws OSSException, ClientException {
+        inject();
+        LocalObject object;
+        if (putObjectRequest.getFile() != null) {
+            try (InputStream in = new FileInputStream(putObjectRequest.getFile())) {
+                object = store(putObjectRequest.getBucketName(), putObjectRequest.getKey(), in,
+                        putObjectRequest.getMetadata());
+            } catch (IOException e) {
+                throw ExceptionFactory.createNetworkException(e);
+            }
+        } else {
+            object = store(putObjectRequest.getBucketName(), putObjectRequest.getKey(),
+                    putObjectRequest.getInputStream(), putObjectRequest.getMetadata());
+        }
+        PutObjectResult result = new PutObjectResult();
+        result.setETag(object.eTag);
+        result.setRequestId(nextRequestId());
+        return result;
+    }
+
+    @Override
+    public PutObjectResult putObject(URL signedUrl, String filePath, Map<String, String> requestHeaders)
+            throws OSSException, ClientException {
+        return putObject(signedUrl, filePath, requestHeaders, false);
+    }
+
+    @Override
+    public PutObjectResult putObject(URL signedUrl, String filePath, Map<String, String> requestHeaders,
+            boolean useChunkEncoding) throws OSSException, ClientException {
+        File file = new File(filePath);
+        try (InputStream in = new FileInputStream(file)) {
+            return putObject(signedUrl, in, file.length(), requestHeaders, useChunkEncoding);
+        } catch (IOException e) {
+            throw ExceptionFactory.createNetworkException(e);
+        }
+    }
+
+    @Override
+    public PutObjectResult putObject(URL signedUrl, InputStream requestContent, long contentLength,
+            Map<String, String> requestHeaders) throws OSSException, ClientException {
+        return putObject(signedUrl, requestContent, contentLength, requestHeaders, false);
+    }
+
+    @Override
+    public PutObjectResult putObject(URL signedUrl, InputStream requestContent, long contentLength,
+            Map<String, String> requestHeaders, boolean useChunkEncoding) throws OSSException, ClientException {
+        String[] location = resolve(signedUrl);
+        ObjectMetadata metadata = new ObjectMetadata();
+        if (requestHeaders != null) {
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                metadata.setHeader(header.getKey(), header.getValue());
+            }
+        }
+        InputStream in = contentLength >= 0 && !useChunkEncoding
+                ? new BoundedInputStream(requestContent, contentLength) : requestContent;
+        return putObject(new PutObjectRequest(location[0], location[1], in, metadata));
+    }
+
+    @Override
+    public CopyObjectResult copyObject(String sourceBucketName, String sourceKey, String destinationBucketName,
+            String destinationKey) throws OSSException, ClientException {
+        return copyObject(new CopyObjectRequest(sourceBucketName, sourceKey, destinationBucketName, destinationKey));
+    }
+
+    @Override
+    public CopyObjectResult copyObject(CopyObjectRequest copyObjectRequest) throws OSSException, ClientException {
+        inject();
+        LocalObject source = object(copyObjectRequest.getSourceBucketName(), copyObjectRequest.getSourceKey());
+        checkConstraints(source, copyObjectRequest.getMatchingETagConstraints(),
+                copyObjectRequest.getNonmatchingEtagConstraints());
+        Map<String, String> headers = copyObjectRequest.getNewObjectMetadata() == null
+                ? source.headers : headers(copyObjectRequest.getNewObjectMetadata());
+        LocalObject copy;
+        try (InputStream in = Files.newInputStream(dataFile(copyObjectRequest.getSourceBucketName(), source.key))) {
+            copy = store(copyObjectRequest.getDestinationBucketName(), copyObjectRequest.getDestinationKey(), in,
+                    headers);
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(copyObjectRequest.getSourceKey());
+        } catch (IOException e) {
+            throw ExceptionFactory.createNetworkException(e);
+        }
+        CopyObjectResult result = new CopyObjectResult();
+        result.setEtag(copy.eTag);
+        result.setLastModified(new Date(copy.lastModified));
+        result.setRequestId(nextRequestId());
+        return result;
+    }
+
+    @Override
+    public OSSObject getObject(String bucketName, String key) throws OSSException, ClientException {
+        return getObject(new GetObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public ObjectMetadata getObject(GetObjectRequest getObjectRequest, File file) throws OSSException, ClientException {
+        OSSObject object = getObject(getObjectRequest);
+        try (InputStream in = object.getObjectContent()) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw ExceptionFactory.createNetworkException(e);
+        }
+        return object.getObjectMetadata();
+    }
+
+    @Override
+    public OSSObject getObject(GetObjectRequest getObjectRequest) throws OSSException, ClientException {
+        String bucketName = getObjectRequest.getBucketName();
+        String key = getObjectRequest.getKey();
+        if (getObjectRequest.getAbsoluteUri() != null) {
+            String[] location = resolve(getObjectRequest.getAbsoluteUri());
+            bucketName = location[0];
+            key = location[1];
+        }
+        inject();
+        LocalObject object = object(bucketName, key);
+        checkConstraints(object, getObjectRequest.getMatchingETagConstraints(),
+                getObjectRequest.getNonmatchingETagConstraints());
+
+        long start = 0;
+        long end = object.size - 1;
+        long[] range = getObjectRequest.getRange();
+        if (range != null && object.size > 0) {
+            if (range[0] < 0) {
+                start = Math.max(0, object.size - range[1]);
+            } else {
+                start = range[0];
+                end = range[1] < 0 ? end : Math.min(range[1], end);
+            }
+            if (start >= object.size || start > end) {
+                throw error(OSSErrorCode.INVALID_RANGE, "The requested range cannot be satisfied.");
+            }
+        }
+
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(dataFile(bucketName, key), StandardOpenOption.READ);
+            channel.position(start);
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(key);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw ExceptionFactory.createNetworkException(e);
+        }
+        ObjectMetadata metadata = object.toMetadata();
+        metadata.setContentLength(end - start + 1);
+        if (range != null) {
+            metadata.setHeader(CONTENT_RANGE, "bytes " + start + "-" + end + "/" + object.size);
+        }
+        OSSObject ossObject = new OSSObject();
+        ossObject.setBucketName(bucketName);
+        ossObject.setKey(key);
+        ossObject.setObjectMetadata(metadata);
+        ossObject.setObjectContent(new BoundedInputStream(Channels.newInputStream(channel), end - start + 1));
+        return ossObject;
+    }
+
+    @Override
+    public OSSObject getObject(URL signedUrl, Map<String, String> requestHeaders) throws OSSException, ClientException {
+        return getObject(new GetObjectRequest(signedUrl, requestHeaders));
+    }
+
+    @Override
+    public SimplifiedObjectMeta getSimplifiedObjectMeta(String bucketName, String key)
+            throws OSSException, ClientException {
+        return getSimplifiedObjectMeta(new GenericRequest(bucketName, key));
+    }
+
+    @Override
+    public SimplifiedObjectMeta getSimplifiedObjectMeta(GenericRequest genericRequest)
+            throws OSSException, ClientException {
+        inject();
+        LocalObject object = object(genericRequest.getBucketName(), genericRequest.getKey());
+        SimplifiedObjectMeta meta = new SimplifiedObjectMeta();
+        meta.setETag(object.eTag);
+        meta.setSize(object.size);
+        meta.setLastModified(new Date(object.lastModified));
+        return meta;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucketName, String key) throws OSSException, ClientException {
+        return getObjectMetadata(new GenericRequest(bucketName, key));
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(GenericRequest genericRequest) throws OSSException, ClientException {
+        inject();
+        return object(genericRequest.getBucketName(), genericRequest.getKey()).toMetadata();
+    }
+
+    @Override
+    public ObjectMetadata headObject(String bucketName, String key) throws OSSException, ClientException {
+        return headObject(new HeadObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public ObjectMetadata headObject(HeadObjectRequest headObjectRequest) throws OSSException, ClientException {
+        inject();
+        LocalObject object = object(headObjectRequest.getBucketName(), headObjectRequest.getKey());
+        checkConstraints(object, headObjectRequest.getMatchingETagConstraints(),
+                headObjectRequest.getNonmatchingETagConstraints());
+        return object.toMetadata();
+    }
+
+    @Override
+    public void deleteObject(String bucketName, String key) throws OSSException, ClientException {
+        deleteObject(new GenericRequest(bucketName, key));
+    }
+
+    @Override
+    public void deleteObject(GenericRequest genericRequest) throws OSSException, ClientException {
+        inject();
+        remove(genericRequest.getBucketName(), genericRequest.getKey());
+    }
+
+    @Override
+    public DeleteObjectsResult deleteObjects(DeleteObjectsRequest deleteObjectsRequest)
+            throws OSSException, ClientException {
+        inject();
+        List<String> deleted = new ArrayList<String>();
+        for (String key : deleteObjectsRequest.getKeys()) {
+            remove(deleteObjectsRequest.getBucketName(), key);
+            deleted.add(key);
+        }
+        DeleteObjectsResult result = new DeleteObjectsResult(
+                deleteObjectsRequest.isQuiet() ? new ArrayList<String>() : deleted);
+        result.setRequestId(nextRequestId());
+        return result;
+    }
+
+    @Override
+    public boolean doesObjectExist(String bucketName, String key) throws OSSException, ClientException {
+        return doesObjectExist(new GenericRequest(bucketName, key));
+    }
+
+    @Override
+    public boolean doesObjectExist(GenericRequest genericRequest) throws OSSException, ClientException {
+        inject();
+        return objects(genericRequest.getBucketName()).containsKey(genericRequest.getKey());
+    }
+
+    @Override
+    public boolean doesObjectExist(String bucketName, String key, boolean isOnlyInOSS)
+            throws OSSException, ClientException {
+        return doesObjectExist(bucketName, key);
+    }
+
+    @Deprecated
+    @Override
+    public boolean doesObjectExist(HeadObjectRequest headObjectRequest) throws OSSException, ClientException {
+        return doesObjectExist(headObjectRequest.getBucketName(), headObjectRequest.getKey());
+    }
+
+    @Override
+    public URL generatePresignedUrl(String bucketName, String key, Date expiration) throws ClientException {
+        return signer.generatePresignedUrl(bucketName, key, expiration);
+    }
+
+    @Override
+    public URL generatePresignedUrl(String bucketName, String key, Date expiration, HttpMethod method)
+            throws ClientException {
+        return signer.generatePresignedUrl(bucketName, key, expiration, method);
+    }
+
+    @Override
+    public URL generatePresignedUrl(GeneratePresignedUrlRequest request) throws ClientException {
+        return signer.generatePresignedUrl(request);
+    }
+
+    @Override
+    public List<URL> generatePresignedUrls(List<GeneratePresignedUrlRequest> requests) throws ClientException {
+        return signer.generatePresignedUrls(requests);
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request)
+            throws OSSException, ClientException {
+        OSSUtils.ensureObjectKeyValid(request.getKey());
+        inject();
+        objects(request.getBucketName());
+        String uploadId = UUID.randomUUID().toString().replace("-", "").toUpperCase();
+        Path dir;
+        try {
+            dir = Files.createDirectories(uploadRoot.resolve(uploadId));
+        } catch (IOException e) {
+            throw ExceptionFactory.createNetworkException(e);
+        }
+        Map<String, String> headers = request.getObjectMetadata() == null
+                ? new HashMap<String, String>() : headers(request.getObjectMetadata());
+        uploads.put(uploadId, new LocalUpload(request.getBucketName(), request.getKey(), dir, headers));
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+        result.setRequestId(nextRequestId());
+        return result;
+    }
+
+    @Override
+    public MultipartUploadListing listMultipartUploads(ListMultipartUploadsRequest request)
+            throws OSSException, ClientException {
+        inject();
+        objects(request.getBucketName());
+        MultipartUploadListing listing = new MultipartUploadListing(request.getBucketName());
+        listing.setPrefix(request.getPrefix());
+        for (Map.Entry<String, LocalUpload> entry : uploads.entrySet()) {
+            LocalUpload upload = entry.getValue();
+            if (upload.bucketName.equals(request.getBucketName())
+                    && (request.getPrefix() == null || upload.key.startsWith(request.getPrefix()))) {
+                MultipartUpload multipartUpload = new MultipartUpload();
+                multipartUpload.setKey(upload.key);
+                multipartUpload.setUploadId(entry.getKey());
+                multipartUpload.setInitiated(new Date(upload.initiated));
+                listing.addMultipartUpload(multipartUpload);
+            }
+        }
+        return listing;
+    }
+
+    @Override
+    public PartListing listParts(ListPartsRequest request) throws OSSException, ClientException {
+        inject();
+        LocalUpload upload = upload(request.getUploadId());
+        PartListing listing = new PartListing();
+        listing.setBucketName(upload.bucketName);
+        listing.setKey(upload.key);
+        listing.setUploadId(request.getUploadId());
+        int marker = request.getPartNumberMarker() == null ? 0 : request.getPartNumberMarker();
+        int maxParts = request.getMaxParts() == null ? MAX_KEYS_LIMIT : request.getMaxParts();
+        listing.setMaxParts(maxParts);
+        listing.setPartNumberMarker(marker);
+        for (PartSummary part : upload.parts.tailMap(marker, false).values()) {
+            if (listing.getParts().size() == maxParts) {
+                listing.setTruncated(true);
+                break;
+            }
+            listing.addPart(part);
+            listing.setNextPartNumberMarker(part.getPartNumber());
+        }
+        return listing;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) throws OSSException, ClientException {
+        inject();
+        LocalUpload upload = upload(request.getUploadId());
+        Path file = upload.dir.resolve(String.valueOf(request.getPartNumber()));
+        InputStream in = request.getPartSize() >= 0 && !request.isUseChunkEncoding()
+                ? new BoundedInputStream(request.getInputStream(), request.getPartSize()) : request.getInputStream();
+        String eTag;
+        long size;
+        try {
+            MessageDigest md5 = md5();
+            size = Files.copy(new DigestInputStream(in, md5), file, StandardCopyOption.REPLACE_EXISTING);
+            eTag = hex(md5.digest());
+        } catch (IOException e) {
+            throw ExceptionFactory.createNetworkException(e);
+        }
+        PartSummary part = new PartSummary();
+        part.setPartNumber(request.getPartNumber());
+        part.setETag(eTag);
+        part.setSize(size);
+        part.setLastModified(new Date());
+        upload.parts.put(request.getPartNumber(), part);
+
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(eTag);
+        result.setPartSize(size);
+        result.setRequestId(nextRequestId());
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) throws OSSException, ClientException {
+        inject();
+        LocalUpload upload = uploads.remove(request.getUploadId());
+        if (upload == null) {
+            throw error(OSSErrorCode.NO_SUCH_UPLOAD, "The specified upload does not exist.");
+        }
+        upload.delete();
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request)
+            throws OSSException, ClientException {
+        inject();
+        LocalUpload upload = upload(request.getUploadId());
+        List<PartETag> partETags = request.getPartETags();
+        if (partETags == null || partETags.isEmpty()) {
+            throw error(OSSErrorCode.MALFORMED_XML, "No parts were specified.");
+        }
+        MessageDigest md5 = md5();
+        Path tmp = tempFile(upload.bucketName, upload.key);
+        long size = 0;
+        int last = 0;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (PartETag partETag : partETags) {
+                PartSummary part = upload.parts.get(partETag.getPartNumber());
+                if (partETag.getPartNumber() <= last) {
+                    throw error(OSSErrorCode.INVALID_PART_ORDER, "The list of parts was not in ascending order.");
+                }
+                if (part == null || !part.getETag().equalsIgnoreCase(OSSUtils.trimQuotes(partETag.getETag()))) {
+                    throw error(OSSErrorCode.INVALID_PART, "Part " + partETag.getPartNumber() + " could not be found.");
+                }
+                last = partETag.getPartNumber();
+                Path partFile = upload.dir.resolve(String.valueOf(last));
+                try (FileChannel in = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                    long position = 0;
+                    while (position < part.getSize()) {
+                        position += in.transferTo(position, part.getSize() - position, out);
+                    }
+                }
+                size += part.getSize();
+                md5.update(unhex(part.getETag()));
+            }
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw ExceptionFactory.createNetworkException(e);
+        } catch (OSSException e) {
+            deleteQuietly(tmp);
+            throw e;
+        }
+        LocalObject object = commit(upload.bucketName, upload.key, tmp, size,
+                hex(md5.digest()) + "-" + partETags.size(), upload.headers);
+        uploads.remove(request.getUploadId());
+        upload.delete();
+
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setBucketName(upload.bucketName);
+        result.setKey(upload.key);
+        result.setETag(object.eTag);
+        result.setLocation(endpoint + "/" + upload.bucketName + "/" + upload.key);
+        result.setRequestId(nextRequestId());
+        return result;
+    }
+
+    @Override
+    public BucketList listBuckets(String prefix, String marker, Integer maxKeys) throws OSSException, ClientException {
+        throw unsupported("listBuckets");
+    }
+
+    @Override
+    public BucketList listBuckets(ListBucketsRequest listBucketsRequest) throws OSSException, ClientException {
+        throw unsupported("listBuckets");
+    }
+
+    @Override
+    public void setBucketAcl(String bucketName, CannedAccessControlList acl) throws OSSException, ClientException {
+        throw unsupported("setBucketAcl");
+    }
+
+    @Override
+    public void setBucketAcl(SetBucketAclRequest setBucketAclRequest) throws OSSException, ClientException {
+        throw unsupported("setBucketAcl");
+    }
+
+    @Override
+    public AccessControlList getBucketAcl(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketAcl");
+    }
+
+    @Override
+    public AccessControlList getBucketAcl(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketAcl");
+    }
+
+    @Override
+    public BucketMetadata getBucketMetadata(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketMetadata");
+    }
+
+    @Override
+    public BucketMetadata getBucketMetadata(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketMetadata");
+    }
+
+    @Override
+    public void setBucketReferer(String bucketName, BucketReferer referer) throws OSSException, ClientException {
+        throw unsupported("setBucketReferer");
+    }
+
+    @Override
+    public void setBucketReferer(SetBucketRefererRequest setBucketRefererRequest) throws OSSException, ClientException {
+        throw unsupported("setBucketReferer");
+    }
+
+    @Override
+    public BucketReferer getBucketReferer(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketReferer");
+    }
+
+    @Override
+    public BucketReferer getBucketReferer(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketReferer");
+    }
+
+    @Override
+    public String getBucketLocation(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketLocation");
+    }
+
+    @Override
+    public String getBucketLocation(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketLocation");
+    }
+
+    @Override
+    public void setBucketTagging(String bucketName, Map<String, String> tags) throws OSSException, ClientException {
+        throw unsupported("setBucketTagging");
+    }
+
+    @Override
+    public void setBucketTagging(String bucketName, TagSet tagSet) throws OSSException, ClientException {
+        throw unsupported("setBucketTagging");
+    }
+
+    @Override
+    public void setBucketTagging(SetBucketTaggingRequest setBucketTaggingRequest) throws OSSException, ClientException {
+        throw unsupported("setBucketTagging");
+    }
+
+    @Override
+    public TagSet getBucketTagging(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketTagging");
+    }
+
+    @Override
+    public TagSet getBucketTagging(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketTagging");
+    }
+
+    @Override
+    public void deleteBucketTagging(String bucketName) throws OSSException, ClientException {
+        throw unsupported("deleteBucketTagging");
+    }
+
+    @Override
+    public void deleteBucketTagging(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("deleteBucketTagging");
+    }
+
+    @Override
+    public OSSObject selectObject(SelectObjectRequest selectObjectRequest) throws OSSException, ClientException {
+        throw unsupported("selectObject");
+    }
+
+    @Override
+    public SelectObjectMetadata createSelectObjectMetadata(
+            CreateSelectObjectMetadataRequest createSelectObjectMetadataRequest)
+            throws OSSException, ClientException {
+        throw unsupported("createSelectObjectMetadata");
+    }
+
+    @Override
+    public AppendObjectResult appendObject(AppendObjectRequest appendObjectRequest)
+            throws OSSException, ClientException {
+        throw unsupported("appendObject");
+    }
+
+    @Override
+    public void setObjectAcl(String bucketName, String key, CannedAccessControlList cannedAcl)
+            throws OSSException, ClientException {
+        throw unsupported("setObjectAcl");
+    }
+
+    @Override
+    public void setObjectAcl(SetObjectAclRequest setObjectAclRequest) throws OSSException, ClientException {
+        throw unsupported("setObjectAcl");
+    }
+
+    @Override
+    public ObjectAcl getObjectAcl(String bucketName, String key) throws OSSException, ClientException {
+        throw unsupported("getObjectAcl");
+    }
+
+    @Override
+    public ObjectAcl getObjectAcl(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getObjectAcl");
+    }
+
+    @Override
+    public RestoreObjectResult restoreObject(String bucketName, String key) throws OSSException, ClientException {
+        throw unsupported("restoreObject");
+    }
+
+    @Override
+    public RestoreObjectResult restoreObject(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("restoreObject");
+    }
+
+    @Override
+    public void putBucketImage(PutBucketImageRequest request) throws OSSException, ClientException {
+        throw unsupported("putBucketImage");
+    }
+
+    @Override
+    public GetBucketImageResult getBucketImage(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketImage");
+    }
+
+    @Override
+    public GetBucketImageResult getBucketImage(String bucketName, GenericRequest genericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getBucketImage");
+    }
+
+    @Override
+    public void deleteBucketImage(String bucketName) throws OSSException, ClientException {
+        throw unsupported("deleteBucketImage");
+    }
+
+    @Override
+    public void deleteBucketImage(String bucketName, GenericRequest genericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("deleteBucketImage");
+    }
+
+    @Override
+    public void deleteImageStyle(String bucketName, String styleName) throws OSSException, ClientException {
+        throw unsupported("deleteImageStyle");
+    }
+
+    @Override
+    public void deleteImageStyle(String bucketName, String styleName, GenericRequest genericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("deleteImageStyle");
+    }
+
+    @Override
+    public void putImageStyle(PutImageStyleRequest putImageStyleRequest) throws OSSException, ClientException {
+        throw unsupported("putImageStyle");
+    }
+
+    @Override
+    public GetImageStyleResult getImageStyle(String bucketName, String styleName) throws OSSException, ClientException {
+        throw unsupported("getImageStyle");
+    }
+
+    @Override
+    public GetImageStyleResult getImageStyle(String bucketName, String styleName, GenericRequest genericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getImageStyle");
+    }
+
+    @Override
+    public List<Style> listImageStyle(String bucketName) throws OSSException, ClientException {
+        throw unsupported("listImageStyle");
+    }
+
+    @Override
+    public List<Style> listImageStyle(String bucketName, GenericRequest genericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("listImageStyle");
+    }
+
+    @Override
+    public void setBucketProcess(SetBucketProcessRequest setBucketProcessRequest) throws OSSException, ClientException {
+        throw unsupported("setBucketProcess");
+    }
+
+    @Override
+    public BucketProcess getBucketProcess(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketProcess");
+    }
+
+    @Override
+    public BucketProcess getBucketProcess(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketProcess");
+    }
+
+    @Override
+    public UploadPartCopyResult uploadPartCopy(UploadPartCopyRequest request) throws OSSException, ClientException {
+        throw unsupported("uploadPartCopy");
+    }
+
+    @Override
+    public void setBucketCORS(SetBucketCORSRequest request) throws OSSException, ClientException {
+        throw unsupported("setBucketCORS");
+    }
+
+    @Override
+    public List<CORSRule> getBucketCORSRules(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketCORSRules");
+    }
+
+    @Override
+    public List<CORSRule> getBucketCORSRules(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketCORSRules");
+    }
+
+    @Override
+    public void deleteBucketCORSRules(String bucketName) throws OSSException, ClientException {
+        throw unsupported("deleteBucketCORSRules");
+    }
+
+    @Override
+    public void deleteBucketCORSRules(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("deleteBucketCORSRules");
+    }
+
+    @Deprecated
+    @Override
+    public ResponseMessage optionsObject(OptionsRequest request) throws OSSException, ClientException {
+        throw unsupported("optionsObject");
+    }
+
+    @Override
+    public void setBucketLogging(SetBucketLoggingRequest request) throws OSSException, ClientException {
+        throw unsupported("setBucketLogging");
+    }
+
+    @Override
+    public BucketLoggingResult getBucketLogging(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketLogging");
+    }
+
+    @Override
+    public BucketLoggingResult getBucketLogging(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketLogging");
+    }
+
+    @Override
+    public void deleteBucketLogging(String bucketName) throws OSSException, ClientException {
+        throw unsupported("deleteBucketLogging");
+    }
+
+    @Override
+    public void deleteBucketLogging(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("deleteBucketLogging");
+    }
+
+    @Override
+    public void setBucketWebsite(SetBucketWebsiteRequest setBucketWebSiteRequest) throws OSSException, ClientException {
+        throw unsupported("setBucketWebsite");
+    }
+
+    @Override
+    public BucketWebsiteResult getBucketWebsite(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketWebsite");
+    }
+
+    @Override
+    public BucketWebsiteResult getBucketWebsite(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketWebsite");
+    }
+
+    @Override
+    public void deleteBucketWebsite(String bucketName) throws OSSException, ClientException {
+        throw unsupported("deleteBucketWebsite");
+    }
+
+    @Override
+    public void deleteBucketWebsite(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("deleteBucketWebsite");
+    }
+
+    @Override
+    public String generatePostPolicy(Date expiration, PolicyConditions conds) throws ClientException {
+        return signer.generatePostPolicy(expiration, conds);
+    }
+
+    @Override
+    public String calculatePostSignature(String postPolicy) {
+        return signer.calculatePostSignature(postPolicy);
+    }
+
+    @Override
+    public void setBucketLifecycle(SetBucketLifecycleRequest setBucketLifecycleRequest)
+            throws OSSException, ClientException {
+        throw unsupported("setBucketLifecycle");
+    }
+
+    @Override
+    public List<LifecycleRule> getBucketLifecycle(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketLifecycle");
+    }
+
+    @Override
+    public List<LifecycleRule> getBucketLifecycle(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketLifecycle");
+    }
+
+    @Override
+    public void deleteBucketLifecycle(String bucketName) throws OSSException, ClientException {
+        throw unsupported("deleteBucketLifecycle");
+    }
+
+    @Override
+    public void deleteBucketLifecycle(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("deleteBucketLifecycle");
+    }
+
+    @Override
+    public void addBucketReplication(AddBucketReplicationRequest addBucketReplicationRequest)
+            throws OSSException, ClientException {
+        throw unsupported("addBucketReplication");
+    }
+
+    @Override
+    public List<ReplicationRule> getBucketReplication(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketReplication");
+    }
+
+    @Override
+    public List<ReplicationRule> getBucketReplication(GenericRequest genericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getBucketReplication");
+    }
+
+    @Override
+    public void deleteBucketReplication(String bucketName, String replicationRuleID)
+            throws OSSException, ClientException {
+        throw unsupported("deleteBucketReplication");
+    }
+
+    @Override
+    public void deleteBucketReplication(DeleteBucketReplicationRequest deleteBucketReplicationRequest)
+            throws OSSException, ClientException {
+        throw unsupported("deleteBucketReplication");
+    }
+
+    @Override
+    public BucketReplicationProgress getBucketReplicationProgress(String bucketName, String replicationRuleID)
+            throws OSSException, ClientException {
+        throw unsupported("getBucketReplicationProgress");
+    }
+
+    @Override
+    public BucketReplicationProgress getBucketReplicationProgress(
+            GetBucketReplicationProgressRequest getBucketReplicationProgressRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getBucketReplicationProgress");
+    }
+
+    @Override
+    public List<String> getBucketReplicationLocation(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketReplicationLocation");
+    }
+
+    @Override
+    public List<String> getBucketReplicationLocation(GenericRequest genericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getBucketReplicationLocation");
+    }
+
+    @Override
+    public void addBucketCname(AddBucketCnameRequest addBucketCnameRequest) throws OSSException, ClientException {
+        throw unsupported("addBucketCname");
+    }
+
+    @Override
+    public List<CnameConfiguration> getBucketCname(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketCname");
+    }
+
+    @Override
+    public List<CnameConfiguration> getBucketCname(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketCname");
+    }
+
+    @Override
+    public void deleteBucketCname(String bucketName, String domain) throws OSSException, ClientException {
+        throw unsupported("deleteBucketCname");
+    }
+
+    @Override
+    public void deleteBucketCname(DeleteBucketCnameRequest deleteBucketCnameRequest)
+            throws OSSException, ClientException {
+        throw unsupported("deleteBucketCname");
+    }
+
+    @Override
+    public BucketInfo getBucketInfo(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketInfo");
+    }
+
+    @Override
+    public BucketInfo getBucketInfo(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketInfo");
+    }
+
+    @Override
+    public BucketStat getBucketStat(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketStat");
+    }
+
+    @Override
+    public BucketStat getBucketStat(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketStat");
+    }
+
+    @Override
+    public void setBucketStorageCapacity(String bucketName, UserQos userQos) throws OSSException, ClientException {
+        throw unsupported("setBucketStorageCapacity");
+    }
+
+    @Override
+    public void setBucketStorageCapacity(SetBucketStorageCapacityRequest setBucketStorageCapacityRequest)
+            throws OSSException, ClientException {
+        throw unsupported("setBucketStorageCapacity");
+    }
+
+    @Override
+    public UserQos getBucketStorageCapacity(String bucketName) throws OSSException, ClientException {
+        throw unsupported("getBucketStorageCapacity");
+    }
+
+    @Override
+    public UserQos getBucketStorageCapacity(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getBucketStorageCapacity");
+    }
+
+    @Override
+    public UploadFileResult uploadFile(UploadFileRequest uploadFileRequest) throws Throwable {
+        throw unsupported("uploadFile");
+    }
+
+    @Override
+    public DownloadFileResult downloadFile(DownloadFileRequest downloadFileRequest) throws Throwable {
+        throw unsupported("downloadFile");
+    }
+
+    @Override
+    public CreateLiveChannelResult createLiveChannel(CreateLiveChannelRequest createLiveChannelRequest)
+            throws OSSException, ClientException {
+        throw unsupported("createLiveChannel");
+    }
+
+    @Override
+    public void setLiveChannelStatus(String bucketName, String liveChannel, LiveChannelStatus status)
+            throws OSSException, ClientException {
+        throw unsupported("setLiveChannelStatus");
+    }
+
+    @Override
+    public void setLiveChannelStatus(SetLiveChannelRequest setLiveChannelRequest) throws OSSException, ClientException {
+        throw unsupported("setLiveChannelStatus");
+    }
+
+    @Override
+    public LiveChannelInfo getLiveChannelInfo(String bucketName, String liveChannel)
+            throws OSSException, ClientException {
+        throw unsupported("getLiveChannelInfo");
+    }
+
+    @Override
+    public LiveChannelInfo getLiveChannelInfo(LiveChannelGenericRequest liveChannelGenericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getLiveChannelInfo");
+    }
+
+    @Override
+    public LiveChannelStat getLiveChannelStat(String bucketName, String liveChannel)
+            throws OSSException, ClientException {
+        throw unsupported("getLiveChannelStat");
+    }
+
+    @Override
+    public LiveChannelStat getLiveChannelStat(LiveChannelGenericRequest liveChannelGenericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getLiveChannelStat");
+    }
+
+    @Override
+    public void deleteLiveChannel(String bucketName, String liveChannel) throws OSSException, ClientException {
+        throw unsupported("deleteLiveChannel");
+    }
+
+    @Override
+    public void deleteLiveChannel(LiveChannelGenericRequest liveChannelGenericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("deleteLiveChannel");
+    }
+
+    @Override
+    public List<LiveChannel> listLiveChannels(String bucketName) throws OSSException, ClientException {
+        throw unsupported("listLiveChannels");
+    }
+
+    @Override
+    public LiveChannelListing listLiveChannels(ListLiveChannelsRequest listLiveChannelRequest)
+            throws OSSException, ClientException {
+        throw unsupported("listLiveChannels");
+    }
+
+    @Override
+    public List<LiveRecord> getLiveChannelHistory(String bucketName, String liveChannel)
+            throws OSSException, ClientException {
+        throw unsupported("getLiveChannelHistory");
+    }
+
+    @Override
+    public List<LiveRecord> getLiveChannelHistory(LiveChannelGenericRequest liveChannelGenericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getLiveChannelHistory");
+    }
+
+    @Override
+    public void generateVodPlaylist(
+            String bucketName, String liveChannelName, String PlaylistName, long startTime, long endTime)
+            throws OSSException, ClientException {
+        throw unsupported("generateVodPlaylist");
+    }
+
+    @Override
+    public void generateVodPlaylist(GenerateVodPlaylistRequest generateVodPlaylistRequest)
+            throws OSSException, ClientException {
+        throw unsupported("generateVodPlaylist");
+    }
+
+    @Override
+    public OSSObject getVodPlaylist(String bucketName, String liveChannelName, long startTime, long endTime)
+            throws OSSException, ClientException {
+        throw unsupported("getVodPlaylist");
+    }
+
+    @Override
+    public OSSObject getVodPlaylist(GetVodPlaylistRequest getVodPlaylistRequest) throws OSSException, ClientException {
+        throw unsupported("getVodPlaylist");
+    }
+
+    @Override
+    public String generateRtmpUri(String bucketName, String liveChannelName, String PlaylistName, long expires)
+            throws OSSException, ClientException {
+        throw unsupported("generateRtmpUri");
+    }
+
+    @Override
+    public String generateRtmpUri(GenerateRtmpUriRequest generatePushflowUrlRequest)
+            throws OSSException, ClientException {
+        throw unsupported("generateRtmpUri");
+    }
+
+    @Override
+    public void createSymlink(String bucketName, String symlink, String target) throws OSSException, ClientException {
+        throw unsupported("createSymlink");
+    }
+
+    @Override
+    public void createSymlink(CreateSymlinkRequest createSymlinkRequest) throws OSSException, ClientException {
+        throw unsupported("createSymlink");
+    }
+
+    @Override
+    public OSSSymlink getSymlink(String bucketName, String symlink) throws OSSException, ClientException {
+        throw unsupported("getSymlink");
+    }
+
+    @Override
+    public OSSSymlink getSymlink(GenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getSymlink");
+    }
+
+    @Override
+    public GenericResult processObject(ProcessObjectRequest processObjectRequest) throws OSSException, ClientException {
+        throw unsupported("processObject");
+    }
+
+    @Override
+    public void createUdf(CreateUdfRequest createUdfRequest) throws OSSException, ClientException {
+        throw unsupported("createUdf");
+    }
+
+    @Override
+    public UdfInfo getUdfInfo(UdfGenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getUdfInfo");
+    }
+
+    @Override
+    public List<UdfInfo> listUdfs() throws OSSException, ClientException {
+        throw unsupported("listUdfs");
+    }
+
+    @Override
+    public void deleteUdf(UdfGenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("deleteUdf");
+    }
+
+    @Override
+    public void uploadUdfImage(UploadUdfImageRequest uploadUdfImageRequest) throws OSSException, ClientException {
+        throw unsupported("uploadUdfImage");
+    }
+
+    @Override
+    public List<UdfImageInfo> getUdfImageInfo(UdfGenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("getUdfImageInfo");
+    }
+
+    @Override
+    public void deleteUdfImage(UdfGenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("deleteUdfImage");
+    }
+
+    @Override
+    public void createUdfApplication(CreateUdfApplicationRequest createUdfApplicationRequest)
+            throws OSSException, ClientException {
+        throw unsupported("createUdfApplication");
+    }
+
+    @Override
+    public UdfApplicationInfo getUdfApplicationInfo(UdfGenericRequest genericRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getUdfApplicationInfo");
+    }
+
+    @Override
+    public List<UdfApplicationInfo> listUdfApplications() throws OSSException, ClientException {
+        throw unsupported("listUdfApplications");
+    }
+
+    @Override
+    public void deleteUdfApplication(UdfGenericRequest genericRequest) throws OSSException, ClientException {
+        throw unsupported("deleteUdfApplication");
+    }
+
+    @Override
+    public void upgradeUdfApplication(UpgradeUdfApplicationRequest upgradeUdfApplicationRequest)
+            throws OSSException, ClientException {
+        throw unsupported("upgradeUdfApplication");
+    }
+
+    @Override
+    public void resizeUdfApplication(ResizeUdfApplicationRequest resizeUdfApplicationRequest)
+            throws OSSException, ClientException {
+        throw unsupported("resizeUdfApplication");
+    }
+
+    @Override
+    public UdfApplicationLog getUdfApplicationLog(GetUdfApplicationLogRequest getUdfApplicationLogRequest)
+            throws OSSException, ClientException {
+        throw unsupported("getUdfApplicationLog");
+    }
+
+    private void inject() {
+        long min = minLatency;
+        long max = maxLatency;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (max > 0) {
+            try {
+                Thread.sleep(max > min ? min + random.nextLong(max - min + 1) : min);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ClientException("Interrupted while waiting for injected latency", e);
+            }
+        }
+        double rate = errorRate;
+        if (rate > 0 && random.nextDouble() < rate) {
+            if (random.nextBoolean()) {
+                throw new ClientException("Injected socket timeout", ClientErrorCode.SOCKET_TIMEOUT, nextRequestId());
+            }
+            throw error(OSSErrorCode.INTERNAL_ERROR, "Injected internal error");
+        }
+    }
+
+    private String nextRequestId() {
+        return "LOCAL" + Long.toHexString(requestIds.incrementAndGet()).toUpperCase();
+    }
+
+    private OSSException error(String errorCode, String message) {
+        return ExceptionFactory.createOSSException(nextRequestId(), errorCode, message);
+    }
+
+    private OSSException noSuchKey(String key) {
+        return error(OSSErrorCode.NO_SUCH_KEY, "The specified key does not exist: " + key);
+    }
+
+    private ClientException unsupported(String operation) {
+        return new ClientException("LocalFileOSS does not support " + operation, ClientErrorCode.UNKNOWN,
+                nextRequestId());
+    }
+
+    private ConcurrentSkipListMap<String, LocalObject> objects(String bucketName) {
+        ConcurrentSkipListMap<String, LocalObject> objects = buckets.get(bucketName);
+        if (objects == null) {
+            throw error(OSSErrorCode.NO_SUCH_BUCKET, "The specified bucket does not exist: " + bucketName);
+        }
+        return objects;
+    }
+
+    private LocalObject object(String bucketName, String key) {
+        LocalObject object = objects(bucketName).get(key);
+        if (object == null) {
+            throw noSuchKey(key);
+        }
+        return object;
+    }
+
+    private LocalUpload upload(String uploadId) {
+        LocalUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw error(OSSErrorCode.NO_SUCH_UPLOAD, "The specified upload does not exist.");
+        }
+        return upload;
+    }
+
+    private void checkConstraints(LocalObject object, List<String> matching, List<String> nonmatching) {
+        if (matching != null && !matching.isEmpty() && !containsETag(matching, object.eTag)) {
+            throw error(OSSErrorCode.PRECONDITION_FAILED,
+                    "At least one of the pre-conditions you specified did not hold.");
+        }
+        if (nonmatching != null && containsETag(nonmatching, object.eTag)) {
+            throw error(OSSErrorCode.NOT_MODIFIED, "Not Modified");
+        }
+    }
+
+    private static boolean containsETag(List<String> eTags, String eTag) {
+        for (String candidate : eTags) {
+            if ("*".equals(candidate) || eTag.equalsIgnoreCase(OSSUtils.trimQuotes(candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves {bucket, key} from a URL signed against this instance's endpoint, in either virtual-host or
+     * path style.
+     */
+    private String[] resolve(URL url) {
+        String host = url.getHost();
+        String endpointHost = java.net.URI.create(endpoint).getHost();
+        String path;
+        try {
+            path = URLDecoder.decode(url.getPath(), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new ClientException(e);
+        }
+        path = path.startsWith("/") ? path.substring(1) : path;
+        if (endpointHost != null && host.endsWith("." + endpointHost)) {
+            return new String[] { host.substring(0, host.length() - endpointHost.length() - 1), path };
+        }
+        int slash = path.indexOf('/');
+        if (slash < 0) {
+            throw new ClientException("Cannot resolve bucket and key from " + url);
+        }
+        return new String[] { path.substring(0, slash), path.substring(slash + 1) };
+    }
+
+    private Path dataFile(String bucketName, String key) {
+        return root.resolve(bucketName).resolve(DATA_DIR).resolve(fileName(key));
+    }
+
+    private Path metaFile(String bucketName, String key) {
+        return root.resolve(bucketName).resolve(META_DIR).resolve(fileName(key) + META_SUFFIX);
+    }
+
+    private Path tempFile(String bucketName, String key) {
+        return root.resolve(bucketName).resolve(DATA_DIR)
+                .resolve(fileName(key) + "." + Thread.currentThread().getId() + "." + System.nanoTime() + ".tmp");
+    }
+
+    private static String fileName(String key) {
+        return BinaryUtil.encodeMD5(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private LocalObject store(String bucketName, String key, InputStream in, ObjectMetadata metadata) {
+        return store(bucketName, key, in, metadata == null ? new HashMap<String, String>() : headers(metadata));
+    }
+
+    private LocalObject store(String bucketName, String key, InputStream in, Map<String, String> headers) {
+        OSSUtils.ensureObjectKeyValid(key);
+        objects(bucketName);
+        MessageDigest md5 = md5();
+        Path tmp = tempFile(bucketName, key);
+        long size;
+        try {
+            size = Files.copy(new DigestInputStream(in, md5), tmp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw ExceptionFactory.createNetworkException(e);
+        }
+        return commit(bucketName, key, tmp, size, hex(md5.digest()), headers);
+    }
+
+    /**
+     * Moves a fully written temporary file into place, then persists its metadata and publishes it in the index.
+     */
+    private LocalObject commit(String bucketName, String key, Path tmp, long size, String eTag,
+            Map<String, String> headers) {
+        LocalObject object = new LocalObject(key, size, eTag, System.currentTimeMillis(), headers);
+        Path meta = metaFile(bucketName, key);
+        Path metaTmp = meta.resolveSibling(meta.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Files.move(tmp, dataFile(bucketName, key), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            try (OutputStream out = Files.newOutputStream(metaTmp)) {
+                object.toProperties().store(out, null);
+            }
+            Files.move(metaTmp, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            deleteQuietly(metaTmp);
+            throw ExceptionFactory.createNetworkException(e);
+        }
+        objects(bucketName).put(key, object);
+        return object;
+    }
+
+    private void remove(String bucketName, String key) {
+        objects(bucketName).remove(key);
+        try {
+            Files.deleteIfExists(metaFile(bucketName, key));
+            Files.deleteIfExists(dataFile(bucketName, key));
+        } catch (IOException e) {
+            throw ExceptionFactory.createNetworkException(e);
+        }
+    }
+
+    /**
+     * Keeps the string headers and user metadata of the request; size, ETag and Last-Modified are computed on write.
+     */
+    private static Map<String, String> headers(ObjectMetadata metadata) {
+        Map<String, String> headers = new HashMap<String, String>();
+        for (Map.Entry<String, Object> entry : metadata.getRawMetadata().entrySet()) {
+            String name = entry.getKey();
+            if (entry.getValue() instanceof String && !OSSHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                    && !OSSHeaders.ETAG.equalsIgnoreCase(name) && !OSSHeaders.LAST_MODIFIED.equalsIgnoreCase(name)) {
+                headers.put(name, (String) entry.getValue());
+            }
+        }
+        for (Map.Entry<String, String> entry : metadata.getUserMetadata().entrySet()) {
+            headers.put(OSSHeaders.OSS_USER_METADATA_PREFIX + entry.getKey(), entry.getValue());
+        }
+        return headers;
+    }
+
+    private static ConcurrentSkipListMap<String, LocalObject> loadIndex(Path bucketDir) throws IOException {
+        ConcurrentSkipListMap<String, LocalObject> objects = new ConcurrentSkipListMap<String, LocalObject>();
+        Path metaDir = bucketDir.resolve(META_DIR);
+        if (!Files.isDirectory(metaDir)) {
+            return objects;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(metaDir, "*" + META_SUFFIX)) {
+            for (Path file : files) {
+                Properties properties = new Properties();
+                try (InputStream in = Files.newInputStream(file)) {
+                    properties.load(in);
+                }
+                LocalObject object = LocalObject.fromProperties(properties);
+                objects.put(object.key, object);
+            }
+        }
+        return objects;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5 algorithm not found.");
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] buf = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            buf[i * 2] = HEX_DIGITS[(bytes[i] >>> 4) & 0x0f];
+            buf[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(buf);
+    }
+
+    private static byte[] unhex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            Iterator<Path> iterator = files.sorted(Comparator.reverseOrder()).iterator();
+            while (iterator.hasNext()) {
+                Files.deleteIfExists(iterator.next());
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Index entry of a stored object.
+     */
+    private static final class LocalObject {
+        private final String key;
+        private final long size;
+        private final String eTag;
+        private final long lastModified;
+        private final Map<String, String> headers;
+
+        private LocalObject(String key, long size, String eTag, long lastModified, Map<String, String> headers) {
+            this.key = key;
+            this.size = size;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.headers = Collections.unmodifiableMap(new HashMap<String, String>(headers));
+        }
+
+        private OSSObjectSummary toSummary(String bucketName) {
+            OSSObjectSummary summary = new OSSObjectSummary();
+            summary.setBucketName(bucketName);
+            summary.setKey(key);
+            summary.setETag(eTag);
+            summary.setSize(size);
+            summary.setLastModified(new Date(lastModified));
+            summary.setStorageClass(StorageClass.Standard.toString());
+            return summary;
+        }
+
+        private ObjectMetadata toMetadata() {
+            ObjectMetadata metadata = new ObjectMetadata();
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (header.getKey().startsWith(OSSHeaders.OSS_USER_METADATA_PREFIX)) {
+                    metadata.addUserMetadata(header.getKey().substring(OSSHeaders.OSS_USER_METADATA_PREFIX.length()),
+                            header.getValue());
+                } else {
+                    metadata.setHeader(header.getKey(), header.getValue());
+                }
+            }
+            metadata.setContentLength(size);
+            metadata.setLastModified(new Date(lastModified));
+            metadata.setHeader(OSSHeaders.ETAG, eTag);
+            return metadata;
+        }
+
+        private Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty(KEY_PROPERTY, key);
+            properties.setProperty(SIZE_PROPERTY, String.valueOf(size));
+            properties.setProperty(ETAG_PROPERTY, eTag);
+            properties.setProperty(LAST_MODIFIED_PROPERTY, String.valueOf(lastModified));
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                properties.setProperty(HEADER_PREFIX + header.getKey(), header.getValue());
+            }
+            return properties;
+        }
+
+        private static LocalObject fromProperties(Properties properties) {
+            Map<String, String> headers = new HashMap<String, String>();
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith(HEADER_PREFIX)) {
+                    headers.put(name.substring(HEADER_PREFIX.length()), properties.getProperty(name));
+                }
+            }
+            return new LocalObject(properties.getProperty(KEY_PROPERTY),
+                    Long.parseLong(properties.getProperty(SIZE_PROPERTY)), properties.getProperty(ETAG_PROPERTY),
+                    Long.parseLong(properties.getProperty(LAST_MODIFIED_PROPERTY)), headers);
+        }
+    }
+
+    /**
+     * In-progress multipart upload; parts are kept as separate files until completion.
+     */
+    private static final class LocalUpload {
+        private final String bucketName;
+        private final String key;
+        private final Path dir;
+        private final Map<String, String> headers;
+        private final long initiated = System.currentTimeMillis();
+        private final ConcurrentSkipListMap<Integer, PartSummary> parts =
+                new ConcurrentSkipListMap<Integer, PartSummary>();
+
+        private LocalUpload(String bucketName, String key, Path dir, Map<String, String> headers) {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.dir = dir;
+            this.headers = headers;
+        }
+
+        private void delete() {
+            for (Integer partNumber : parts.keySet()) {
+                deleteQuietly(dir.resolve(String.valueOf(partNumber)));
+            }
+            deleteQuietly(dir);
+        }
+    }
+}
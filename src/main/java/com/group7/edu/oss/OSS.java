@@ -956,6 +956,19 @@ public interface OSS {
      */
     public URL generatePresignedUrl(GeneratePresignedUrlRequest request) throws ClientException;
 
+    /**
+     * Generates signed urls for a batch of {@link GeneratePresignedUrlRequest}.
+     * The credentials are resolved once and a single signer is reused for
+     * the whole batch, which is much cheaper than calling
+     * {@link #generatePresignedUrl(GeneratePresignedUrlRequest)} in a loop.
+     *
+     * @param requests
+     *            A list of {@link GeneratePresignedUrlRequest} instances.
+     * @return The signed urls, in the same order as the requests.
+     * @throws ClientException
+     */
+    public List<URL> generatePresignedUrls(List<GeneratePresignedUrlRequest> requests) throws ClientException;
+
     /**
      * Sets image processing attributes on the specific {@link Bucket}
      *
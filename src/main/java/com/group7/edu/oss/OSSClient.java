@@ -22,19 +22,26 @@ package com.group7.edu.oss;
 import com.group7.edu.oss.common.auth.Credentials;
 import com.group7.edu.oss.common.auth.CredentialsProvider;
 import com.group7.edu.oss.common.auth.DefaultCredentialProvider;
+import com.group7.edu.oss.common.auth.HmacSHA256Signature;
 import com.group7.edu.oss.common.auth.ServiceSignature;
 import com.group7.edu.oss.common.comm.*;
 import com.group7.edu.oss.common.utils.BinaryUtil;
 import com.group7.edu.oss.common.utils.DateUtil;
+import com.group7.edu.oss.common.utils.LatencyHistogram;
 import com.group7.edu.oss.internal.*;
 import com.group7.edu.oss.model.*;
 import com.group7.edu.oss.model.SetBucketCORSRequest.CORSRule;
 
+import org.apache.http.pool.PoolStats;
+
 import java.io.*;
 import java.net.*;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static com.group7.edu.oss.common.utils.CodingUtils.assertParameterNotNull;
 import static com.group7.edu.oss.common.utils.IOUtils.checkFile;
@@ -304,6 +311,59 @@ public class OSSClient implements OSS {
         return serviceClient.getClientConfiguration();
     }
 
+    /**
+     * Gets the statistics of the HTTP connection pool shared by all operations
+     * of this client: leased (active), available (idle), pending and max.
+     *
+     * @return The pool statistics, or null if connections are not pooled.
+     */
+    public PoolStats getConnectionPoolStats() {
+        return serviceClient.getConnectionPoolStats();
+    }
+
+    /**
+     * Gets the connection pool statistics of each route: leased, available,
+     * pending and max connections, and how long requests waited to lease one.
+     *
+     * @return The statistics keyed by route, empty if connections are not
+     *         pooled.
+     */
+    public Map<String, RoutePoolStats> getRoutePoolStats() {
+        return serviceClient.getRoutePoolStats();
+    }
+
+    /**
+     * Gets the retry statistics of this client: retries sent, retries refused
+     * because the retry budget was spent, and failed attempts by error code.
+     *
+     * @return The retry statistics.
+     */
+    public RetryBudget.Stats getRetryStats() {
+        return serviceClient.getRetryStats();
+    }
+
+    /**
+     * Gets the hedging statistics of getObject and getObjectMetadata: calls
+     * made, second requests sent, how many of them answered first and how
+     * many were held back by the rate limit.
+     *
+     * @return The hedging statistics.
+     */
+    public RequestHedger.Stats getHedgingStats() {
+        return objectOperation.getHedgingStats();
+    }
+
+    /**
+     * Gets the latency histograms of the calls made by this client, keyed by
+     * operation, final status code and retry count. Presigning is recorded
+     * as operation "presign" with no status.
+     *
+     * @return A snapshot of the latency histograms.
+     */
+    public Map<RequestMetrics.Key, LatencyHistogram.Snapshot> getLatencyStats() {
+        return serviceClient.getRequestMetrics().snapshot();
+    }
+
     @Override
     public Bucket createBucket(String bucketName) throws OSSException, ClientException {
         return this.createBucket(new CreateBucketRequest(bucketName));
@@ -674,6 +734,32 @@ public class OSSClient implements OSS {
 
     @Override
     public URL generatePresignedUrl(GeneratePresignedUrlRequest request) throws ClientException {
+        return generatePresignedUrl(request, credsProvider.getCredentials(), createUrlSigner());
+    }
+
+    @Override
+    public List<URL> generatePresignedUrls(List<GeneratePresignedUrlRequest> requests) throws ClientException {
+
+        assertParameterNotNull(requests, "requests");
+
+        Credentials creds = credsProvider.getCredentials();
+        ServiceSignature signer = createUrlSigner();
+        List<URL> urls = new ArrayList<URL>(requests.size());
+        for (GeneratePresignedUrlRequest request : requests) {
+            urls.add(generatePresignedUrl(request, creds, signer));
+        }
+        return urls;
+    }
+
+    private ServiceSignature createUrlSigner() {
+        if (serviceClient.getClientConfiguration().getSignatureVersion() == SignVersion.V2) {
+            return new HmacSHA256Signature();
+        }
+        return ServiceSignature.create();
+    }
+
+    private URL generatePresignedUrl(GeneratePresignedUrlRequest request, Credentials creds, ServiceSignature signer)
+            throws ClientException {
 
         assertParameterNotNull(request, "request");
 
@@ -685,13 +771,16 @@ public class OSSClient implements OSS {
         if (request.getExpiration() == null) {
             throw new IllegalArgumentException(OSS_RESOURCE_MANAGER.getString("MustSetExpiration"));
         }
+        long startNanos = System.nanoTime();
         String url;
 
         if (serviceClient.getClientConfiguration().getSignatureVersion() != null && serviceClient.getClientConfiguration().getSignatureVersion() == SignVersion.V2) {
-            url = SignV2Utils.buildSignedURL(request, credsProvider.getCredentials(), serviceClient.getClientConfiguration(), endpoint);
+            url = SignV2Utils.buildSignedURL(request, creds, serviceClient.getClientConfiguration(), endpoint, signer);
         } else {
-            url = SignUtils.buildSignedURL(request, credsProvider.getCredentials(), serviceClient.getClientConfiguration(), endpoint);
+            url = SignUtils.buildSignedURL(request, creds, serviceClient.getClientConfiguration(), endpoint, signer);
         }
+        serviceClient.getRequestMetrics().record("presign", RequestMetrics.NO_RESPONSE, 0,
+                System.nanoTime() - startNanos);
 
         try {
             return new URL(url);
@@ -738,6 +827,93 @@ public class OSSClient implements OSS {
         return multipartOperation.uploadPartCopy(request);
     }
 
+    /**
+     * Asynchronous variants of the common object and multipart operations.
+     * The returned future completes on an SDK thread; signing, retries and
+     * CRC checks behave the same as in the blocking methods. Failures
+     * complete the future with an {@link OSSException} or
+     * {@link ClientException} wrapped in a
+     * {@link java.util.concurrent.CompletionException}.
+     */
+    public CompletableFuture<PutObjectResult> putObjectAsync(PutObjectRequest putObjectRequest) {
+        return objectOperation.putObjectAsync(putObjectRequest);
+    }
+
+    public CompletableFuture<OSSObject> getObjectAsync(String bucketName, String key) {
+        return getObjectAsync(new GetObjectRequest(bucketName, key));
+    }
+
+    public CompletableFuture<OSSObject> getObjectAsync(GetObjectRequest getObjectRequest) {
+        return objectOperation.getObjectAsync(getObjectRequest);
+    }
+
+    public CompletableFuture<ObjectMetadata> getObjectMetadataAsync(String bucketName, String key) {
+        return getObjectMetadataAsync(new GenericRequest(bucketName, key));
+    }
+
+    public CompletableFuture<ObjectMetadata> getObjectMetadataAsync(GenericRequest genericRequest) {
+        return objectOperation.getObjectMetadataAsync(genericRequest);
+    }
+
+    public CompletableFuture<CopyObjectResult> copyObjectAsync(CopyObjectRequest copyObjectRequest) {
+        return objectOperation.copyObjectAsync(copyObjectRequest);
+    }
+
+    public CompletableFuture<Void> deleteObjectAsync(String bucketName, String key) {
+        return deleteObjectAsync(new GenericRequest(bucketName, key));
+    }
+
+    public CompletableFuture<Void> deleteObjectAsync(GenericRequest genericRequest) {
+        return objectOperation.deleteObjectAsync(genericRequest);
+    }
+
+    public CompletableFuture<InitiateMultipartUploadResult> initiateMultipartUploadAsync(
+            InitiateMultipartUploadRequest request) {
+        return multipartOperation.initiateMultipartUploadAsync(request);
+    }
+
+    public CompletableFuture<UploadPartResult> uploadPartAsync(UploadPartRequest request) {
+        return multipartOperation.uploadPartAsync(request);
+    }
+
+    public CompletableFuture<CompleteMultipartUploadResult> completeMultipartUploadAsync(
+            CompleteMultipartUploadRequest request) {
+        return multipartOperation.completeMultipartUploadAsync(request);
+    }
+
+    public CompletableFuture<ObjectListing> listObjectsAsync(ListObjectsRequest listObjectsRequest) {
+        return bucketOperation.listObjectsAsync(listObjectsRequest);
+    }
+
+    public CompletableFuture<MultipartUploadListing> listMultipartUploadsAsync(ListMultipartUploadsRequest request) {
+        return multipartOperation.listMultipartUploadsAsync(request);
+    }
+
+    /**
+     * Lists every object matching the request, paging transparently and
+     * fetching the next page in the background while the current one is
+     * consumed. At most two pages are held in memory.
+     */
+    public Iterable<OSSObjectSummary> listAllObjects(ListObjectsRequest listObjectsRequest) {
+        return bucketOperation.listAllObjects(listObjectsRequest);
+    }
+
+    public Iterable<OSSObjectSummary> listAllObjects(String bucketName, String prefix) {
+        return listAllObjects(new ListObjectsRequest(bucketName, prefix, null, null, null));
+    }
+
+    public Stream<OSSObjectSummary> streamObjects(ListObjectsRequest listObjectsRequest) {
+        return bucketOperation.streamObjects(listObjectsRequest);
+    }
+
+    public Iterable<MultipartUpload> listAllMultipartUploads(ListMultipartUploadsRequest request) {
+        return multipartOperation.listAllMultipartUploads(request);
+    }
+
+    public Stream<MultipartUpload> streamMultipartUploads(ListMultipartUploadsRequest request) {
+        return multipartOperation.streamMultipartUploads(request);
+    }
+
     @Override
     public void setBucketCORS(SetBucketCORSRequest request) throws OSSException, ClientException {
         corsOperation.setBucketCORS(request);
@@ -1330,6 +1506,9 @@ public class OSSClient implements OSS {
     @Override
     public void shutdown() {
         try {
+            downloadOperation.shutdown();
+            uploadOperation.shutdown();
+            objectOperation.shutdown();
             serviceClient.shutdown();
         } catch (Exception e) {
             logException("shutdown throw exception: ", e);
@@ -74,6 +74,29 @@ public class BasicCredentials implements Credentials {
         return expiredDurationSeconds * expiredFactor < (now - startedTimeInMilliSeconds) / 1000.0;
     }
 
+    /**
+     * Gets the time, in milliseconds since the epoch, from which
+     * {@link #willSoonExpire()} holds, or Long.MAX_VALUE if the credentials
+     * never expire.
+     */
+    public long getSoonExpireTimeMillis() {
+        if (expiredDurationSeconds == 0) {
+            return Long.MAX_VALUE;
+        }
+        return startedTimeInMilliSeconds + (long) (expiredDurationSeconds * expiredFactor * 1000);
+    }
+
+    /**
+     * Gets the time, in milliseconds since the epoch, at which the
+     * credentials expire, or Long.MAX_VALUE if they never do.
+     */
+    public long getExpirationTimeMillis() {
+        if (expiredDurationSeconds == 0) {
+            return Long.MAX_VALUE;
+        }
+        return startedTimeInMilliSeconds + expiredDurationSeconds * 1000;
+    }
+
     protected String accessKeyId;
     protected String accessKeySecret;
     protected String securityToken;
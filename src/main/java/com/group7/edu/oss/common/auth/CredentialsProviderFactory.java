@@ -130,6 +130,44 @@ public class CredentialsProviderFactory {
         return new InstanceProfileCredentialsProvider(roleName);
     }
 
+    /**
+     * Create an instance of RefreshAheadCredentialsProvider that assumes the
+     * given role and renews the session in the background before it expires.
+     * 
+     * @param regionId
+     *            RAM's available area.
+     * @param accessKeyId
+     *            Access Key ID of the child user.
+     * @param accessKeySecret
+     *            Secret Access Key of the child user.
+     * @param roleArn
+     *            The ARN of the Role to be assumed.
+     * @return A {@link RefreshAheadCredentialsProvider} instance.
+     * @throws ClientException
+     *             OSS Client side exception.
+     */
+    public static RefreshAheadCredentialsProvider newRefreshAheadSTSAssumeRoleSessionCredentialsProvider(
+            String regionId, String accessKeyId, String accessKeySecret, String roleArn) throws ClientException {
+        return new RefreshAheadCredentialsProvider(
+                newSTSAssumeRoleSessionCredentialsProvider(regionId, accessKeyId, accessKeySecret, roleArn));
+    }
+
+    /**
+     * Create an instance of RefreshAheadCredentialsProvider that obtains the
+     * ak/sk from the ECS Metadata Service and renews them in the background
+     * before they expire.
+     * 
+     * @param roleName
+     *            Role name of the ECS binding, NOT ROLE ARN.
+     * @return A {@link RefreshAheadCredentialsProvider} instance.
+     * @throws ClientException
+     *             OSS Client side exception.
+     */
+    public static RefreshAheadCredentialsProvider newRefreshAheadInstanceProfileCredentialsProvider(String roleName)
+            throws ClientException {
+        return new RefreshAheadCredentialsProvider(newInstanceProfileCredentialsProvider(roleName));
+    }
+
     /**
      * Create an instance of InstanceProfileCredentialsProvider based on RSA key
      * pair.
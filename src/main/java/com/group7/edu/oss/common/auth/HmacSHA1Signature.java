@@ -21,7 +21,6 @@ package com.group7.edu.oss.common.auth;
 
 import com.group7.edu.oss.common.utils.BinaryUtil;
 
-import javax.crypto.Mac;
 import java.io.UnsupportedEncodingException;
 
 /**
@@ -38,11 +37,6 @@ public class HmacSHA1Signature extends ServiceSignature {
     /* Signature version. */
     private static final String VERSION = "1";
 
-    private static final Object LOCK = new Object();
-
-    /* Prototype of the Mac instance. */
-    private static Mac macInstance;
-
     public String getAlgorithm() {
         return ALGORITHM;
     }
@@ -53,8 +47,7 @@ public class HmacSHA1Signature extends ServiceSignature {
 
     public String computeSignature(String key, String data) {
         try {
-            byte[] signData = sign(key.getBytes(DEFAULT_ENCODING), data.getBytes(DEFAULT_ENCODING), macInstance,
-                                LOCK, ALGORITHM);
+            byte[] signData = sign(key.getBytes(DEFAULT_ENCODING), data.getBytes(DEFAULT_ENCODING), ALGORITHM);
             return BinaryUtil.toBase64String(signData);
         } catch (UnsupportedEncodingException ex) {
             throw new RuntimeException("Unsupported algorithm: " + DEFAULT_ENCODING, ex);
@@ -57,6 +57,16 @@ public class InstanceProfileCredentials extends BasicCredentials {
         return expiredDurationSeconds * (1.0 - expiredFactor) > (expirationInMilliseconds - now) / 1000.0;
     }
 
+    @Override
+    public long getSoonExpireTimeMillis() {
+        return expirationInMilliseconds - (long) (expiredDurationSeconds * (1.0 - expiredFactor) * 1000);
+    }
+
+    @Override
+    public long getExpirationTimeMillis() {
+        return expirationInMilliseconds - refreshIntervalInMillSeconds;
+    }
+
     public boolean isExpired() {
         long now = System.currentTimeMillis();
         return now >= expirationInMilliseconds - refreshIntervalInMillSeconds;
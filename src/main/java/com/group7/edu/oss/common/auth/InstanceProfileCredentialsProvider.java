@@ -86,6 +86,14 @@ public class InstanceProfileCredentialsProvider implements CredentialsProvider {
         return credentials;
     }
 
+    /**
+     * Fetches credentials from the metadata service, without catching the
+     * failure.
+     */
+    InstanceProfileCredentials fetchCredentials() throws ClientException {
+        return (InstanceProfileCredentials) fetcher.fetch(maxRetryTimes);
+    }
+
     private final String roleName;
     private InstanceProfileCredentials credentials;
     private InstanceProfileCredentialsFetcher fetcher;
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.group7.edu.oss.common.auth;
+
+import com.group7.edu.oss.common.utils.LatencyHistogram;
+import com.group7.edu.oss.common.utils.LogUtils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.group7.edu.oss.common.utils.LogUtils.getLog;
+
+/**
+ * Wraps a source of temporary credentials, such as an STS role or the ECS
+ * metadata service, and renews them on a background thread before they
+ * expire, so request threads never wait for the round trip.
+ * <p>
+ * The current credentials are read from a volatile field without locking.
+ * A request thread only fetches when there are no valid credentials at all,
+ * e.g. on the first call or after every background attempt failed until
+ * expiry. Concurrent fetches, including {@link #refresh()}, are merged into
+ * one call to the source. A failed background renewal keeps the current
+ * credentials and is retried with exponential backoff.
+ */
+public class RefreshAheadCredentialsProvider implements CredentialsProvider {
+
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60 * 1000;
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+
+    /* Shared by all providers; the thread goes away while nothing is scheduled. */
+    private static final ScheduledThreadPoolExecutor scheduler = createScheduler();
+
+    private final Callable<? extends BasicCredentials> source;
+
+    private volatile BasicCredentials credentials;
+    private CompletableFuture<BasicCredentials> inFlight;
+    private ScheduledFuture<?> nextRefresh;
+    private volatile boolean shutdown;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong blockingFetches = new AtomicLong();
+    private volatile int consecutiveFailures;
+    private volatile long lastFailureTime;
+    private volatile String lastError;
+
+    /**
+     * @param source
+     *            Fetches new credentials on every call; it may throw or return
+     *            null to report a failure.
+     */
+    public RefreshAheadCredentialsProvider(Callable<? extends BasicCredentials> source) {
+        if (source == null) {
+            throw new NullPointerException("You must specify a credentials source.");
+        }
+        this.source = source;
+    }
+
+    public RefreshAheadCredentialsProvider(final STSAssumeRoleSessionCredentialsProvider provider) {
+        this(new Callable<BasicCredentials>() {
+            @Override
+            public BasicCredentials call() throws Exception {
+                return provider.fetchNewSessionCredentials();
+            }
+        });
+    }
+
+    public RefreshAheadCredentialsProvider(final InstanceProfileCredentialsProvider provider) {
+        this(new Callable<BasicCredentials>() {
+            @Override
+            public BasicCredentials call() throws Exception {
+                return provider.fetchCredentials();
+            }
+        });
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "oss-credentials-refresh-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setKeepAliveTime(MAX_RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    @Override
+    public void setCredentials(Credentials creds) {
+
+    }
+
+    /**
+     * Gets the current credentials. Only blocks when none are valid; if
+     * fetching then fails, the last credentials, possibly expired, or null
+     * are returned.
+     */
+    @Override
+    public Credentials getCredentials() {
+        BasicCredentials current = credentials;
+        long now = System.currentTimeMillis();
+        if (current != null && now < current.getExpirationTimeMillis()) {
+            return current;
+        }
+        if (consecutiveFailures > 0 && now - lastFailureTime < MIN_RETRY_DELAY_MILLIS) {
+            return current;
+        }
+        blockingFetches.incrementAndGet();
+        BasicCredentials fresh = joinOrStartRefresh().join();
+        return fresh != null ? fresh : credentials;
+    }
+
+    /**
+     * Fetches new credentials now, sharing the call with any fetch already
+     * in progress.
+     *
+     * @return The new credentials, or null if fetching failed.
+     */
+    public Credentials refresh() {
+        return joinOrStartRefresh().join();
+    }
+
+    /**
+     * Stops renewing in the background. Credentials are still fetched on
+     * demand when they expire.
+     */
+    public void shutdown() {
+        shutdown = true;
+        synchronized (this) {
+            if (nextRefresh != null) {
+                nextRefresh.cancel(false);
+                nextRefresh = null;
+            }
+        }
+    }
+
+    public Stats getStats() {
+        BasicCredentials current = credentials;
+        return new Stats(refreshes.get(), failures.get(), consecutiveFailures, blockingFetches.get(),
+                latency.snapshot(), current != null ? current.getExpirationTimeMillis() : 0, lastError);
+    }
+
+    private CompletableFuture<BasicCredentials> joinOrStartRefresh() {
+        CompletableFuture<BasicCredentials> flight;
+        boolean leader = false;
+        synchronized (this) {
+            flight = inFlight;
+            if (flight == null) {
+                flight = inFlight = new CompletableFuture<BasicCredentials>();
+                leader = true;
+            }
+        }
+        if (leader) {
+            runRefresh(flight);
+        }
+        return flight;
+    }
+
+    private void runRefresh(CompletableFuture<BasicCredentials> flight) {
+        BasicCredentials fresh = null;
+        try {
+            long startNanos = System.nanoTime();
+            Exception failure = null;
+            try {
+                fresh = source.call();
+            } catch (Exception e) {
+                failure = e;
+            }
+            latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+
+            if (fresh != null) {
+                credentials = fresh;
+                refreshes.incrementAndGet();
+                consecutiveFailures = 0;
+                long delay = fresh.getSoonExpireTimeMillis() - System.currentTimeMillis();
+                if (fresh.getSoonExpireTimeMillis() != Long.MAX_VALUE) {
+                    schedule(Math.max(delay, 0));
+                }
+                getLog().debug("Refreshed credentials, next refresh in " + delay + "(ms)");
+            } else {
+                failures.incrementAndGet();
+                int failed = ++consecutiveFailures;
+                lastFailureTime = System.currentTimeMillis();
+                lastError = failure != null ? failure.toString() : "The credentials source returned null";
+                long delay = Math.min(MIN_RETRY_DELAY_MILLIS << Math.min(failed - 1, 16), MAX_RETRY_DELAY_MILLIS);
+                schedule(delay);
+                LogUtils.logException("Unable to refresh credentials, retrying in " + delay + "(ms): ",
+                        failure != null ? failure : new IllegalStateException(lastError));
+            }
+        } finally {
+            synchronized (this) {
+                inFlight = null;
+            }
+            flight.complete(fresh);
+        }
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (shutdown) {
+            return;
+        }
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        nextRefresh = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    joinOrStartRefresh();
+                } catch (Throwable t) {
+                    getLog().warn("Unable to refresh credentials", t);
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Refresh counters and the latency of calls to the credentials source.
+     */
+    public static class Stats {
+        private final long refreshes;
+        private final long failures;
+        private final int consecutiveFailures;
+        private final long blockingFetches;
+        private final LatencyHistogram.Snapshot latency;
+        private final long expirationTime;
+        private final String lastError;
+
+        Stats(long refreshes, long failures, int consecutiveFailures, long blockingFetches,
+                LatencyHistogram.Snapshot latency, long expirationTime, String lastError) {
+            this.refreshes = refreshes;
+            this.failures = failures;
+            this.consecutiveFailures = consecutiveFailures;
+            this.blockingFetches = blockingFetches;
+            this.latency = latency;
+            this.expirationTime = expirationTime;
+            this.lastError = lastError;
+        }
+
+        /** Successful fetches from the source. */
+        public long getRefreshes() {
+            return refreshes;
+        }
+
+        /** Failed fetches from the source. */
+        public long getFailures() {
+            return failures;
+        }
+
+        /** Failed fetches since the last success. */
+        public int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        /** Calls to getCredentials that had to wait for a fetch. */
+        public long getBlockingFetches() {
+            return blockingFetches;
+        }
+
+        /** Durations of the fetches, successful or not. */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        /**
+         * When the current credentials expire, in milliseconds since the
+         * epoch; 0 if there are none, Long.MAX_VALUE if they never do.
+         */
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+
+        /** The error of the last failed fetch, or null. */
+        public String getLastError() {
+            return lastError;
+        }
+    }
+}
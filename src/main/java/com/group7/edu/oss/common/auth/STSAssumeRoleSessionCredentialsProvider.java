@@ -88,19 +88,24 @@ public class STSAssumeRoleSessionCredentialsProvider implements CredentialsProvi
     }
 
     private BasicCredentials getNewSessionCredentials() {
-        AssumeRoleRequest assumeRoleRequest = new AssumeRoleRequest();
-        assumeRoleRequest.setRoleArn(roleArn);
-        assumeRoleRequest.setRoleSessionName(roleSessionName);
-        assumeRoleRequest.setDurationSeconds(expiredDurationSeconds);
-
-        AssumeRoleResponse response = null;
         try {
-            response = ramClient.getAcsResponse(assumeRoleRequest);
+            return fetchNewSessionCredentials();
         } catch (ClientException e) {
             LogUtils.logException("RamClient.getAcsResponse Exception:", e);
             return null;
         }
+    }
+
+    /**
+     * Assumes the role once, without catching the failure.
+     */
+    BasicCredentials fetchNewSessionCredentials() throws ClientException {
+        AssumeRoleRequest assumeRoleRequest = new AssumeRoleRequest();
+        assumeRoleRequest.setRoleArn(roleArn);
+        assumeRoleRequest.setRoleSessionName(roleSessionName);
+        assumeRoleRequest.setDurationSeconds(expiredDurationSeconds);
 
+        AssumeRoleResponse response = ramClient.getAcsResponse(assumeRoleRequest);
         return new BasicCredentials(response.getCredentials().getAccessKeyId(),
                 response.getCredentials().getAccessKeySecret(), response.getCredentials().getSecurityToken(),
                 expiredDurationSeconds).withExpiredFactor(expiredFactor);
@@ -23,12 +23,22 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The interface to compute the signature of the data.
  */
 public abstract class ServiceSignature {
 
+    /*
+     * One Mac per thread and algorithm, kept initialized with the last used
+     * key. Signing with the same key again (the common case: one credential
+     * for the whole client) skips Mac.getInstance and init entirely, and
+     * since nothing is shared between threads, instances are thread-safe.
+     */
+    private static final ConcurrentHashMap<String, ThreadLocal<KeyedMac>> MACS = new ConcurrentHashMap<String, ThreadLocal<KeyedMac>>();
+
     /**
      * Gets the algorithm of signature.
      * 
@@ -65,28 +75,28 @@ public abstract class ServiceSignature {
         return new HmacSHA1Signature();
     }
 
-    protected byte[] sign(byte[] key, byte[] data, Mac macInstance, Object lock, String algorithm) {
-        try {
-            // Because Mac.getInstance(String) calls a synchronized method, it
-            // could block on
-            // invoked concurrently, so use prototype pattern to improve perf.
-            if (macInstance == null) {
-                synchronized (lock) {
-                    if (macInstance == null) {
-                        macInstance = Mac.getInstance(algorithm);
-                    }
-                }
+    protected byte[] sign(byte[] key, byte[] data, String algorithm) {
+        ThreadLocal<KeyedMac> local = MACS.get(algorithm);
+        if (local == null) {
+            local = new ThreadLocal<KeyedMac>();
+            ThreadLocal<KeyedMac> existing = MACS.putIfAbsent(algorithm, local);
+            if (existing != null) {
+                local = existing;
             }
+        }
 
-            Mac mac;
-            try {
-                mac = (Mac) macInstance.clone();
-            } catch (CloneNotSupportedException e) {
-                // If it is not clonable, create a new one.
-                mac = Mac.getInstance(algorithm);
+        KeyedMac keyedMac = local.get();
+        try {
+            if (keyedMac == null) {
+                keyedMac = new KeyedMac(Mac.getInstance(algorithm));
+                local.set(keyedMac);
             }
-            mac.init(new SecretKeySpec(key, algorithm));
-            return mac.doFinal(data);
+            if (!Arrays.equals(key, keyedMac.key)) {
+                keyedMac.key = null;
+                keyedMac.mac.init(new SecretKeySpec(key, algorithm));
+                keyedMac.key = key.clone();
+            }
+            return keyedMac.mac.doFinal(data);
         } catch (NoSuchAlgorithmException ex) {
             throw new RuntimeException("Unsupported algorithm: " + algorithm, ex);
         } catch (InvalidKeyException ex) {
@@ -94,4 +104,13 @@ public abstract class ServiceSignature {
         }
     }
 
+    private static final class KeyedMac {
+        private final Mac mac;
+        private byte[] key;
+
+        private KeyedMac(Mac mac) {
+            this.mac = mac;
+        }
+    }
+
 }
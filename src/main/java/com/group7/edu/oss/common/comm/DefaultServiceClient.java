@@ -27,6 +27,7 @@ import com.group7.edu.oss.common.utils.IOUtils;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.http.Header;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.auth.AUTH;
 import org.apache.http.auth.AuthScope;
@@ -37,6 +38,7 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.Cancellable;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
@@ -52,6 +54,17 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.ssl.SSLContextBuilder;
 
 import javax.net.ssl.SSLContext;
@@ -60,6 +73,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.group7.edu.oss.common.utils.LogUtils.logException;
 
 /**
  * Default implementation of {@link ServiceClient}.
@@ -74,6 +96,10 @@ public class DefaultServiceClient extends ServiceClient {
     protected HttpHost proxyHttpHost;
     protected AuthCache authCache;
 
+    private CloseableHttpAsyncClient asyncHttpClient;
+    private PoolingNHttpClientConnectionManager asyncConnectionManager;
+    private ThreadPoolExecutor callbackExecutor;
+
     public DefaultServiceClient(ClientConfiguration config) {
         super(config);
         this.connectionManager = createHttpClientConnectionManager();
@@ -108,7 +134,14 @@ public class DefaultServiceClient extends ServiceClient {
 
     @Override
     public ResponseMessage sendRequestCore(ServiceClient.Request request, ExecutionContext context) throws IOException {
-        HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
+        final HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
+        context.setInFlightRequest(new Cancellable() {
+            @Override
+            public boolean cancel() {
+                httpRequest.abort();
+                return true;
+            }
+        });
         setProxyAuthorizationIfNeed(httpRequest);
         HttpClientContext httpContext = createHttpContext();
         httpContext.setRequestConfig(this.requestConfig);
@@ -124,6 +157,113 @@ public class DefaultServiceClient extends ServiceClient {
         return buildResponse(request, httpResponse);
     }
 
+    /**
+     * Sends the request on a non-blocking client: waiting for a connection
+     * and for the response costs no thread. Once the response head arrives
+     * the future is completed on a callback pool, since building the
+     * response and whatever the caller chains on it may block on the body.
+     */
+    @Override
+    protected CompletableFuture<ResponseMessage> sendRequestCoreAsync(final ServiceClient.Request request,
+            final ExecutionContext context) {
+        final CompletableFuture<ResponseMessage> future = new CompletableFuture<ResponseMessage>();
+        final StreamingResponseConsumer consumer = new StreamingResponseConsumer();
+        final ThreadPoolExecutor callbacks;
+        try {
+            HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
+            setProxyAuthorizationIfNeed(httpRequest);
+            CloseableHttpAsyncClient client = getAsyncHttpClient();
+            callbacks = getCallbackExecutor();
+            context.setInFlightRequest(consumer::abort);
+            Future<HttpResponse> exchange = client.execute(HttpAsyncMethods.create(httpRequest), consumer,
+                    createHttpContext(), null);
+            consumer.setExchange(exchange);
+        } catch (RuntimeException ex) {
+            consumer.abort();
+            future.completeExceptionally(ex);
+            return future;
+        }
+
+        // Completed by someone else, e.g. a request timeout: drop the exchange.
+        future.whenComplete((response, error) -> {
+            if (error != null) {
+                consumer.abort();
+            }
+        });
+        consumer.getHead().whenComplete((httpResponse, error) -> {
+            try {
+                callbacks.execute(() -> {
+                    if (error != null) {
+                        future.completeExceptionally(error instanceof IOException
+                                ? ExceptionFactory.createNetworkException((IOException) error) : error);
+                        return;
+                    }
+                    ResponseMessage response;
+                    try {
+                        response = buildResponse(request, httpResponse);
+                    } catch (IOException ex) {
+                        consumer.abort();
+                        future.completeExceptionally(ExceptionFactory.createNetworkException(ex));
+                        return;
+                    }
+                    if (!future.complete(response)) {
+                        consumer.abort();
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                consumer.abort();
+                future.completeExceptionally(new ClientException(callbacks.isShutdown()
+                        ? "The async client has been shut down." : "Too many async responses are pending.", ex));
+            }
+        });
+        return future;
+    }
+
+    private synchronized CloseableHttpAsyncClient getAsyncHttpClient() {
+        if (asyncHttpClient == null) {
+            asyncConnectionManager = createAsyncConnectionManager();
+            asyncHttpClient = HttpAsyncClients.custom().setConnectionManager(asyncConnectionManager)
+                    .setUserAgent(this.config.getUserAgent()).build();
+            asyncHttpClient.start();
+        }
+        return asyncHttpClient;
+    }
+
+    /**
+     * Gets the pool that completes asynchronous requests. At most one task
+     * per leased connection is pending at a time, so a pool and queue sized
+     * by {@link ClientConfiguration#getMaxConnections()} never make a
+     * response wait for a thread.
+     */
+    private synchronized ThreadPoolExecutor getCallbackExecutor() {
+        if (callbackExecutor == null) {
+            int threads = Math.max(1, config.getMaxConnections());
+            callbackExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(threads), daemonThreadFactory("oss-async-"));
+            callbackExecutor.allowCoreThreadTimeOut(true);
+        }
+        return callbackExecutor;
+    }
+
+    protected PoolingNHttpClientConnectionManager createAsyncConnectionManager() {
+        IOReactorConfig reactorConfig = IOReactorConfig.custom().setConnectTimeout(config.getConnectionTimeout())
+                .setSoTimeout(config.getSocketTimeout()).setTcpNoDelay(true).build();
+        Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy> create()
+                .register(Protocol.HTTP.toString(), NoopIOSessionStrategy.INSTANCE)
+                .register(Protocol.HTTPS.toString(),
+                        new SSLIOSessionStrategy(createSSLContext(), NoopHostnameVerifier.INSTANCE))
+                .build();
+        try {
+            PoolingNHttpClientConnectionManager pool = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(reactorConfig), sessionStrategyRegistry);
+            pool.setDefaultMaxPerRoute(config.getMaxConnections());
+            pool.setMaxTotal(config.getMaxConnections());
+            return pool;
+        } catch (IOReactorException e) {
+            throw new ClientException(e.getMessage(), e);
+        }
+    }
+
     protected static ResponseMessage buildResponse(ServiceClient.Request request, CloseableHttpResponse httpResponse)
             throws IOException {
 
@@ -215,9 +355,28 @@ public class DefaultServiceClient extends ServiceClient {
     }
 
     protected HttpClientConnectionManager createHttpClientConnectionManager() {
-        SSLContext sslContext = null;
+        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(createSSLContext(),
+                NoopHostnameVerifier.INSTANCE);
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory> create()
+                .register(Protocol.HTTP.toString(), PlainConnectionSocketFactory.getSocketFactory())
+                .register(Protocol.HTTPS.toString(), sslSocketFactory).build();
+
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        pool.setDefaultMaxPerRoute(config.getMaxConnections());
+        pool.setMaxTotal(config.getMaxConnections());
+        pool.setValidateAfterInactivity(config.getValidateAfterInactivity());
+        pool.setDefaultSocketConfig(
+                SocketConfig.custom().setSoTimeout(config.getSocketTimeout()).setTcpNoDelay(true).build());
+        HttpClientConnectionManager connectionManager = new InstrumentedConnectionManager(pool);
+        if (config.isUseReaper()) {
+            IdleConnectionReaper.registerConnectionManager(connectionManager, config.getIdleConnectionTime());
+        }
+        return connectionManager;
+    }
+
+    private static SSLContext createSSLContext() {
         try {
-            sslContext = new SSLContextBuilder().loadTrustMaterial(null, new TrustStrategy() {
+            return new SSLContextBuilder().loadTrustMaterial(null, new TrustStrategy() {
 
                 @Override
                 public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
@@ -229,25 +388,6 @@ public class DefaultServiceClient extends ServiceClient {
         } catch (Exception e) {
             throw new ClientException(e.getMessage());
         }
-
-        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContext,
-                NoopHostnameVerifier.INSTANCE);
-        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory> create()
-                .register(Protocol.HTTP.toString(), PlainConnectionSocketFactory.getSocketFactory())
-                .register(Protocol.HTTPS.toString(), sslSocketFactory).build();
-
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
-                socketFactoryRegistry);
-        connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
-        connectionManager.setMaxTotal(config.getMaxConnections());
-        connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
-        connectionManager.setDefaultSocketConfig(
-                SocketConfig.custom().setSoTimeout(config.getSocketTimeout()).setTcpNoDelay(true).build());
-        if (config.isUseReaper()) {
-            IdleConnectionReaper.setIdleConnectionTime(config.getIdleConnectionTime());
-            IdleConnectionReaper.registerConnectionManager(connectionManager);
-        }
-        return connectionManager;
     }
 
     protected HttpClientContext createHttpContext() {
@@ -269,9 +409,41 @@ public class DefaultServiceClient extends ServiceClient {
         }
     }
 
+    @Override
+    public PoolStats getConnectionPoolStats() {
+        if (this.connectionManager instanceof InstrumentedConnectionManager) {
+            return ((InstrumentedConnectionManager) this.connectionManager).getPool().getTotalStats();
+        }
+        if (this.connectionManager instanceof PoolingHttpClientConnectionManager) {
+            return ((PoolingHttpClientConnectionManager) this.connectionManager).getTotalStats();
+        }
+        return null;
+    }
+
+    @Override
+    public Map<String, RoutePoolStats> getRoutePoolStats() {
+        if (this.connectionManager instanceof InstrumentedConnectionManager) {
+            return ((InstrumentedConnectionManager) this.connectionManager).getRouteStats();
+        }
+        return super.getRoutePoolStats();
+    }
+
     @Override
     public void shutdown() {
         IdleConnectionReaper.removeConnectionManager(this.connectionManager);
+        shutdownAsync();
+        synchronized (this) {
+            if (asyncHttpClient != null) {
+                try {
+                    asyncHttpClient.close();
+                } catch (IOException ex) {
+                    logException("Failed to close the async http client: ", ex);
+                }
+            }
+            if (callbackExecutor != null) {
+                callbackExecutor.shutdownNow();
+            }
+        }
         this.connectionManager.shutdown();
     }
 }
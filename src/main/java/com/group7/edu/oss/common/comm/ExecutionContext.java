@@ -22,6 +22,7 @@ package com.group7.edu.oss.common.comm;
 import com.group7.edu.oss.common.auth.Credentials;
 import com.group7.edu.oss.common.auth.RequestSigner;
 import com.group7.edu.oss.internal.OSSConstants;
+import org.apache.http.concurrent.Cancellable;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -50,6 +51,10 @@ public class ExecutionContext {
 
     private Credentials credentials;
 
+    /* The HTTP request being sent, and whether it should be abandoned. */
+    private volatile Cancellable inFlightRequest;
+    private volatile boolean aborted;
+
     public RetryStrategy getRetryStrategy() {
         return retryStrategy;
     }
@@ -130,4 +135,31 @@ public class ExecutionContext {
         this.credentials = credentials;
     }
 
+
+    /**
+     * Sets the HTTP request being sent with this context, aborting it right
+     * away if the context was aborted before it started.
+     */
+    public void setInFlightRequest(Cancellable inFlightRequest) {
+        this.inFlightRequest = inFlightRequest;
+        if (aborted) {
+            inFlightRequest.cancel();
+        }
+    }
+
+    /**
+     * Abandons the request: the attempt in flight is aborted and no further
+     * attempt is made.
+     */
+    public void abort() {
+        aborted = true;
+        Cancellable request = inFlightRequest;
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
 }
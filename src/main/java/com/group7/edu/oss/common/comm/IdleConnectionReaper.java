@@ -16,105 +16,142 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
 package com.group7.edu.oss.common.comm;
 
 import org.apache.http.conn.HttpClientConnectionManager;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.group7.edu.oss.common.utils.LogUtils.getLog;
 
 /**
- * A daemon thread used to periodically check connection pools for idle
- * connections.
+ * Periodically closes expired and idle connections of the registered
+ * connection pools.
+ * <p>
+ * All clients share one scheduled task on a single daemon thread. The
+ * registry is a concurrent map, so registering, removing and reaping never
+ * block each other; the task is scheduled when the first pool is registered
+ * and cancelled when the last one is removed.
  */
-public final class IdleConnectionReaper extends Thread {
+public final class IdleConnectionReaper {
     private static final int REAP_INTERVAL_MILLISECONDS = 5 * 1000;
-    private static final ArrayList<HttpClientConnectionManager> connectionManagers = new ArrayList<HttpClientConnectionManager>();
 
-    private static IdleConnectionReaper instance;
+    /* Pools and the idle time after which their connections are closed. */
+    private static final ConcurrentHashMap<HttpClientConnectionManager, Long> connectionManagers = new ConcurrentHashMap<HttpClientConnectionManager, Long>();
+
+    private static final AtomicReference<ScheduledFuture<?>> task = new AtomicReference<ScheduledFuture<?>>();
 
-    private static long idleConnectionTime = 60 * 1000;
+    private static volatile long idleConnectionTime = 60 * 1000;
 
-    private volatile boolean shuttingDown;
+    private static final ScheduledThreadPoolExecutor scheduler = createScheduler();
 
     private IdleConnectionReaper() {
-        super("idle_connection_reaper");
-        setDaemon(true);
     }
 
-    public static synchronized boolean registerConnectionManager(HttpClientConnectionManager connectionManager) {
-        if (instance == null) {
-            instance = new IdleConnectionReaper();
-            instance.start();
-        }
-        return connectionManagers.add(connectionManager);
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "idle_connection_reaper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // Let the thread go away while no pool is registered.
+        executor.setKeepAliveTime(REAP_INTERVAL_MILLISECONDS * 2, TimeUnit.MILLISECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
     }
 
-    public static synchronized boolean removeConnectionManager(HttpClientConnectionManager connectionManager) {
-        boolean b = connectionManagers.remove(connectionManager);
-        if (connectionManagers.isEmpty())
-            shutdown();
-        return b;
+    /**
+     * Registers a pool using the idle time last set by
+     * {@link #setIdleConnectionTime(long)}.
+     */
+    public static boolean registerConnectionManager(HttpClientConnectionManager connectionManager) {
+        return registerConnectionManager(connectionManager, idleConnectionTime);
     }
 
-    private void markShuttingDown() {
-        shuttingDown = true;
+    /**
+     * Registers a pool whose connections are closed after being idle for the
+     * given number of milliseconds.
+     */
+    public static boolean registerConnectionManager(HttpClientConnectionManager connectionManager,
+            long idleConnectionTime) {
+        boolean added = connectionManagers.put(connectionManager, idleConnectionTime) == null;
+        ensureScheduled();
+        return added;
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public void run() {
-        while (true) {
-            if (shuttingDown) {
-                getLog().debug("Shutting down reaper thread.");
-                return;
-            }
-
-            try {
-                Thread.sleep(REAP_INTERVAL_MILLISECONDS);
-            } catch (InterruptedException e) {
+    public static boolean removeConnectionManager(HttpClientConnectionManager connectionManager) {
+        boolean b = connectionManagers.remove(connectionManager) != null;
+        if (connectionManagers.isEmpty()) {
+            cancel();
+            // A pool registered while cancelling must not be left unreaped.
+            if (!connectionManagers.isEmpty()) {
+                ensureScheduled();
             }
+        }
+        return b;
+    }
 
-            try {
-                List<HttpClientConnectionManager> connectionManagers = null;
-                synchronized (IdleConnectionReaper.class) {
-                    connectionManagers = (List<HttpClientConnectionManager>) IdleConnectionReaper.connectionManagers
-                            .clone();
-                }
-                for (HttpClientConnectionManager connectionManager : connectionManagers) {
-                    try {
-                        connectionManager.closeExpiredConnections();
-                        connectionManager.closeIdleConnections(idleConnectionTime, TimeUnit.MILLISECONDS);
-                    } catch (Exception ex) {
-                        getLog().warn("Unable to close idle connections", ex);
-                    }
+    private static void ensureScheduled() {
+        if (task.get() != null) {
+            return;
+        }
+        ScheduledFuture<?> scheduled = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reap();
+                } catch (Throwable t) {
+                    // An exception escaping here would stop the schedule.
+                    getLog().debug("Reaper thread: ", t);
                 }
-            } catch (Throwable t) {
-                getLog().debug("Reaper thread: ", t);
             }
+        }, REAP_INTERVAL_MILLISECONDS, REAP_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+        if (!task.compareAndSet(null, scheduled)) {
+            scheduled.cancel(false);
         }
     }
 
-    public static synchronized boolean shutdown() {
-        if (instance != null) {
-            instance.markShuttingDown();
-            instance.interrupt();
-            connectionManagers.clear();
-            instance = null;
+    private static boolean cancel() {
+        ScheduledFuture<?> scheduled = task.getAndSet(null);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            getLog().debug("Shutting down idle connection reaper.");
             return true;
         }
         return false;
     }
 
-    public static synchronized int size() {
+    private static void reap() {
+        for (Map.Entry<HttpClientConnectionManager, Long> entry : connectionManagers.entrySet()) {
+            try {
+                entry.getKey().closeExpiredConnections();
+                entry.getKey().closeIdleConnections(entry.getValue(), TimeUnit.MILLISECONDS);
+            } catch (Exception ex) {
+                getLog().warn("Unable to close idle connections", ex);
+            }
+        }
+    }
+
+    public static boolean shutdown() {
+        connectionManagers.clear();
+        return cancel();
+    }
+
+    public static int size() {
         return connectionManagers.size();
     }
 
-    public static synchronized void setIdleConnectionTime(long idletime) {
+    public static void setIdleConnectionTime(long idletime) {
         idleConnectionTime = idletime;
     }
 
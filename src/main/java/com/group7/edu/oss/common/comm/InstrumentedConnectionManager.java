@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.group7.edu.oss.common.comm;
+
+import com.group7.edu.oss.common.utils.LatencyHistogram;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A connection manager that hands connections out of a
+ * {@link PoolingHttpClientConnectionManager} and records, per route, how long
+ * each lease waited for a connection.
+ */
+class InstrumentedConnectionManager implements HttpClientConnectionManager {
+
+    private final PoolingHttpClientConnectionManager pool;
+    private final ConcurrentHashMap<HttpRoute, LeaseMetrics> leaseMetrics = new ConcurrentHashMap<HttpRoute, LeaseMetrics>();
+
+    InstrumentedConnectionManager(PoolingHttpClientConnectionManager pool) {
+        this.pool = pool;
+    }
+
+    PoolingHttpClientConnectionManager getPool() {
+        return pool;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final ConnectionRequest request = pool.requestConnection(route, state);
+        final LeaseMetrics metrics = metricsOf(route);
+        return new ConnectionRequest() {
+
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, tunit);
+                } catch (ConnectionPoolTimeoutException e) {
+                    metrics.timeouts.incrementAndGet();
+                    throw e;
+                } finally {
+                    metrics.wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit) {
+        pool.releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+            throws IOException {
+        pool.connect(conn, route, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        pool.upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        pool.routeComplete(conn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit tunit) {
+        pool.closeIdleConnections(idletime, tunit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        pool.closeExpiredConnections();
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Gets the statistics of every route that has a pool or has leased a
+     * connection, keyed by route.
+     */
+    Map<String, RoutePoolStats> getRouteStats() {
+        Set<HttpRoute> routes = new HashSet<HttpRoute>(pool.getRoutes());
+        routes.addAll(leaseMetrics.keySet());
+
+        Map<String, RoutePoolStats> stats = new LinkedHashMap<String, RoutePoolStats>();
+        for (HttpRoute route : routes) {
+            PoolStats routeStats = pool.getStats(route);
+            LeaseMetrics metrics = metricsOf(route);
+            String name = route.toString();
+            stats.put(name, new RoutePoolStats(name, routeStats.getLeased(), routeStats.getAvailable(),
+                    routeStats.getPending(), routeStats.getMax(), metrics.timeouts.get(), metrics.wait.snapshot()));
+        }
+        return stats;
+    }
+
+    private LeaseMetrics metricsOf(HttpRoute route) {
+        LeaseMetrics metrics = leaseMetrics.get(route);
+        if (metrics == null) {
+            LeaseMetrics created = new LeaseMetrics();
+            metrics = leaseMetrics.putIfAbsent(route, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    private static final class LeaseMetrics {
+        final LatencyHistogram wait = new LatencyHistogram();
+        final AtomicLong timeouts = new AtomicLong();
+    }
+}
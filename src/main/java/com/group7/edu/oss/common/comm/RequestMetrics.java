@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.group7.edu.oss.common.comm;
+
+import com.group7.edu.oss.common.utils.LatencyHistogram;
+import com.group7.edu.oss.model.GenericRequest;
+import com.group7.edu.oss.model.WebServiceRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of the requests sent by one client, kept per operation,
+ * final HTTP status code and number of retries. A call is recorded once,
+ * from its first attempt to its outcome, so retry pauses are included.
+ * Recording takes a map lookup and a few atomic increments; a histogram is
+ * only created the first time a combination is seen.
+ */
+public class RequestMetrics {
+
+    /** Status recorded when no HTTP response was received, or none was needed. */
+    public static final int NO_RESPONSE = 0;
+
+    /* Operation names derived from request classes, e.g. PutObjectRequest -> putObject. */
+    private static final ConcurrentHashMap<Class<?>, String> operationNames = new ConcurrentHashMap<Class<?>, String>();
+
+    private final ConcurrentHashMap<Key, LatencyHistogram> histograms = new ConcurrentHashMap<Key, LatencyHistogram>();
+
+    public void record(RequestMessage request, int status, int retries, long nanos) {
+        record(operationOf(request), status, retries, nanos);
+    }
+
+    public void record(String operation, int status, int retries, long nanos) {
+        Key key = new Key(operation, status, retries);
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(key, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes a snapshot of every histogram.
+     */
+    public Map<Key, LatencyHistogram.Snapshot> snapshot() {
+        Map<Key, LatencyHistogram.Snapshot> snapshot = new LinkedHashMap<Key, LatencyHistogram.Snapshot>();
+        for (Map.Entry<Key, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Names the operation of a request after its request class, or after the
+     * HTTP method and target for requests that only name an object or bucket.
+     */
+    static String operationOf(RequestMessage request) {
+        WebServiceRequest original = request.getOriginalRequest();
+        if (original == null || original.getClass() == GenericRequest.class
+                || original.getClass().isAnonymousClass()) {
+            String method = request.getMethod() != null ? request.getMethod().toString().toLowerCase() : "unknown";
+            return method + (request.getKey() != null ? "Object" : request.getBucket() != null ? "Bucket" : "Service");
+        }
+        Class<?> type = original.getClass();
+        String name = operationNames.get(type);
+        if (name == null) {
+            name = type.getSimpleName();
+            if (name.endsWith("Request")) {
+                name = name.substring(0, name.length() - "Request".length());
+            }
+            name = name.isEmpty() ? "unknown" : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+            operationNames.putIfAbsent(type, name);
+        }
+        return name;
+    }
+
+    /**
+     * An operation, final status code and retry count.
+     */
+    public static final class Key {
+        private final String operation;
+        private final int status;
+        private final int retries;
+
+        Key(String operation, int status, int retries) {
+            this.operation = operation;
+            this.status = status;
+            this.retries = retries;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        /** The HTTP status code of the last attempt, or {@link #NO_RESPONSE}. */
+        public int getStatus() {
+            return status;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return status == other.status && retries == other.retries && operation.equals(other.operation);
+        }
+
+        @Override
+        public int hashCode() {
+            return (operation.hashCode() * 31 + status) * 31 + retries;
+        }
+
+        @Override
+        public String toString() {
+            return operation + " status=" + status + " retries=" + retries;
+        }
+    }
+}
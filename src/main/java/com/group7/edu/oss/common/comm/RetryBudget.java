@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.group7.edu.oss.common.comm;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A client-wide token bucket that limits retries to a share of successful
+ * requests. The bucket starts full; every retry takes one token and every
+ * successful request puts back a fraction of one. While the service is
+ * healthy the bucket stays full and retries are never refused; during an
+ * outage it drains after {@code capacity} retries, and from then on requests
+ * fail fast instead of multiplying the load on the service.
+ * <p>
+ * Also counts retries, refused retries and failed attempts per error code.
+ */
+public class RetryBudget {
+
+    /* Tokens are kept in thousandths so that fractional deposits stay exact. */
+    private static final long SCALE = 1000;
+
+    private final long maxTokens;
+    private final long deposit;
+    private final AtomicLong tokens;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * @param capacity
+     *            The most retries the bucket holds; 0 or less means retries
+     *            are not limited.
+     * @param ratio
+     *            The tokens earned by each successful request.
+     */
+    public RetryBudget(int capacity, double ratio) {
+        this.maxTokens = Math.max(0, capacity) * SCALE;
+        this.deposit = Math.max(0, Math.round(ratio * SCALE));
+        this.tokens = new AtomicLong(maxTokens);
+    }
+
+    /**
+     * Takes a token for one retry.
+     *
+     * @return False if the budget is spent and the request should not be
+     *         retried.
+     */
+    public boolean tryAcquire() {
+        if (maxTokens > 0) {
+            long current;
+            do {
+                current = tokens.get();
+                if (current < SCALE) {
+                    exhausted.incrementAndGet();
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - SCALE));
+        }
+        retries.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Earns tokens for a successful request.
+     */
+    public void onSuccess() {
+        long current;
+        // A full bucket, the normal case, costs a single read.
+        while ((current = tokens.get()) < maxTokens) {
+            if (tokens.compareAndSet(current, Math.min(maxTokens, current + deposit))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts one failed attempt under its error code.
+     */
+    public void onError(String errorCode) {
+        AtomicLong count = errors.get(errorCode);
+        if (count == null) {
+            AtomicLong created = new AtomicLong();
+            count = errors.putIfAbsent(errorCode, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    public Stats getStats() {
+        Map<String, Long> errorCounts = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+            errorCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        return new Stats(retries.get(), exhausted.get(), (double) tokens.get() / SCALE, (double) maxTokens / SCALE,
+                errorCounts);
+    }
+
+    /**
+     * A point-in-time copy of the retry counters.
+     */
+    public static class Stats {
+        private final long retries;
+        private final long budgetExhausted;
+        private final double availableTokens;
+        private final double capacity;
+        private final Map<String, Long> errorCounts;
+
+        Stats(long retries, long budgetExhausted, double availableTokens, double capacity,
+                Map<String, Long> errorCounts) {
+            this.retries = retries;
+            this.budgetExhausted = budgetExhausted;
+            this.availableTokens = availableTokens;
+            this.capacity = capacity;
+            this.errorCounts = errorCounts;
+        }
+
+        /** Retries sent. */
+        public long getRetries() {
+            return retries;
+        }
+
+        /** Retries refused because the budget was spent. */
+        public long getBudgetExhausted() {
+            return budgetExhausted;
+        }
+
+        /** Retries the budget allows right now. */
+        public double getAvailableTokens() {
+            return availableTokens;
+        }
+
+        /** The most retries the budget holds, 0 if it is turned off. */
+        public double getCapacity() {
+            return capacity;
+        }
+
+        /** Failed attempts by error code. */
+        public Map<String, Long> getErrorCounts() {
+            return errorCounts;
+        }
+
+        @Override
+        public String toString() {
+            return "[retries: " + retries + "; budget exhausted: " + budgetExhausted + "; tokens: "
+                    + availableTokens + "/" + capacity + "][errors: " + errorCounts + "]";
+        }
+    }
+}
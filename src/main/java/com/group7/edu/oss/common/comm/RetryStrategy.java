@@ -19,12 +19,22 @@
 
 package com.group7.edu.oss.common.comm;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 public abstract class RetryStrategy {
 
     private static final int DEFAULT_RETRY_PAUSE_SCALE = 300; // milliseconds.
+    private static final int DEFAULT_MAX_RETRY_PAUSE = 10 * 1000; // milliseconds.
 
     public abstract boolean shouldRetry(Exception ex, RequestMessage request, ResponseMessage response, int retries);
 
+    /**
+     * Gets the fixed exponential pause before the given retry.
+     *
+     * @deprecated Requests failing together would retry together on this
+     *             schedule; the client uses {@link #getPauseDelay(int, long)}.
+     */
+    @Deprecated
     public long getPauseDelay(int retries) {
         // make the pause time increase exponentially
         // based on an assumption that the more times it retries,
@@ -34,4 +44,22 @@ public abstract class RetryStrategy {
 
         return delay;
     }
+
+    /**
+     * Gets the pause before the given retry using decorrelated jitter: a
+     * random delay between the base pause and three times the previous one,
+     * capped. Delays still grow about exponentially, but requests that failed
+     * at the same moment spread their retries out instead of hitting the
+     * service again in lockstep.
+     *
+     * @param retries
+     *            The retry about to be made, starting from 1.
+     * @param previousDelay
+     *            The pause before the previous retry, 0 before the first.
+     */
+    public long getPauseDelay(int retries, long previousDelay) {
+        long base = DEFAULT_RETRY_PAUSE_SCALE;
+        long upper = Math.min(DEFAULT_MAX_RETRY_PAUSE, Math.max(base, previousDelay) * 3);
+        return ThreadLocalRandom.current().nextLong(base, upper + 1);
+    }
 }
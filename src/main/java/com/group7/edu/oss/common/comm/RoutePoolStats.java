@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.group7.edu.oss.common.comm;
+
+import com.group7.edu.oss.common.utils.LatencyHistogram;
+
+/**
+ * Connection pool statistics of one route (target host, and proxy if any),
+ * together with how long requests waited to lease a connection for it. A
+ * growing pending count and lease wait point to a starved pool rather than
+ * a slow network.
+ */
+public class RoutePoolStats {
+    private final String route;
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+    private final long leaseTimeouts;
+    private final LatencyHistogram.Snapshot leaseWait;
+
+    public RoutePoolStats(String route, int leased, int available, int pending, int max, long leaseTimeouts,
+            LatencyHistogram.Snapshot leaseWait) {
+        this.route = route;
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+        this.leaseTimeouts = leaseTimeouts;
+        this.leaseWait = leaseWait;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    /** Connections currently in use. */
+    public int getLeased() {
+        return leased;
+    }
+
+    /** Idle connections kept in the pool. */
+    public int getAvailable() {
+        return available;
+    }
+
+    /** Requests waiting for a connection. */
+    public int getPending() {
+        return pending;
+    }
+
+    /** Maximum number of connections for this route. */
+    public int getMax() {
+        return max;
+    }
+
+    /** Lease requests that gave up after the connection request timeout. */
+    public long getLeaseTimeouts() {
+        return leaseTimeouts;
+    }
+
+    /** Time spent waiting to lease a connection, including timed out leases. */
+    public LatencyHistogram.Snapshot getLeaseWait() {
+        return leaseWait;
+    }
+
+    @Override
+    public String toString() {
+        return "[route: " + route + "][leased: " + leased + "; available: " + available + "; pending: " + pending
+                + "; max: " + max + "; lease timeouts: " + leaseTimeouts + "][lease wait: " + leaseWait + "]";
+    }
+}
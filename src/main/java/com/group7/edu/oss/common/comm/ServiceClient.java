@@ -28,12 +28,17 @@ import com.group7.edu.oss.common.utils.HttpUtil;
 import com.group7.edu.oss.common.utils.LogUtils;
 import com.group7.edu.oss.internal.OSSConstants;
 import org.apache.http.HttpMessage;
+import org.apache.http.pool.PoolStats;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.group7.edu.oss.common.utils.CodingUtils.assertParameterNotNull;
 import static com.group7.edu.oss.common.utils.LogUtils.getLog;
@@ -47,8 +52,13 @@ public abstract class ServiceClient {
 
     protected ClientConfiguration config;
 
+    private ScheduledExecutorService timer;
+    private final RetryBudget retryBudget;
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+
     protected ServiceClient(ClientConfiguration config) {
         this.config = config;
+        this.retryBudget = new RetryBudget(config.getRetryBudgetCapacity(), config.getRetryBudgetRatio());
     }
 
     public ClientConfiguration getClientConfiguration() {
@@ -81,38 +91,21 @@ public abstract class ServiceClient {
     private ResponseMessage sendRequestImpl(RequestMessage request, ExecutionContext context)
             throws ClientException, ServiceException {
 
-        RetryStrategy retryStrategy = context.getRetryStrategy() != null ? context.getRetryStrategy()
-                : this.getDefaultRetryStrategy();
-
-        // Sign the request if a signer provided.
-        if (context.getSigner() != null && !request.isUseUrlSignature()) {
-            context.getSigner().sign(request);
-        }
-
-        for (RequestSigner signer : context.getSignerHandlers()) {
-            signer.sign(request);
-        }
-
-        InputStream requestContent = request.getContent();
-        if (requestContent != null && requestContent.markSupported()) {
-            requestContent.mark(OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
-        }
+        RetryStrategy retryStrategy = getRetryStrategy(context);
+        signRequest(request, context);
 
         int retries = 0;
+        long pauseDelay = 0;
         ResponseMessage response = null;
+        long startNanos = System.nanoTime();
+        int status = RequestMetrics.NO_RESPONSE;
 
         while (true) {
             try {
+                status = RequestMetrics.NO_RESPONSE;
                 if (retries > 0) {
-                    pause(retries, retryStrategy);
-                    if (requestContent != null && requestContent.markSupported()) {
-                        try {
-                            requestContent.reset();
-                        } catch (IOException ex) {
-                            logException("Failed to reset the request input stream: ", ex);
-                            throw new ClientException("Failed to reset the request input stream: ", ex);
-                        }
-                    }
+                    pauseDelay = pause(retries, pauseDelay, retryStrategy);
+                    resetRequestContent(request);
                 }
 
                 /*
@@ -130,6 +123,7 @@ public abstract class ServiceClient {
                 // Step 3. Send HTTP request to OSS.
                 long startTime = System.currentTimeMillis();
                 response = sendRequestCore(httpRequest, context);
+                status = response.getStatusCode();
                 long duration = System.currentTimeMillis() - startTime;
                 if (duration > config.getSlowRequestsThreshold()) {
                     LogUtils.getLog().warn(formatSlowRequestLog(request, response, duration));
@@ -138,6 +132,8 @@ public abstract class ServiceClient {
                 // Step 4. Preprocess HTTP response.
                 handleResponse(response, context.getResponseHandlers());
 
+                retryBudget.onSuccess();
+                requestMetrics.record(request, status, retries, System.nanoTime() - startNanos);
                 return response;
             } catch (ServiceException sex) {
                 logException("[Server]Unable to execute HTTP request: ", sex,
@@ -149,6 +145,7 @@ public abstract class ServiceClient {
                 closeResponseSilently(response);
 
                 if (!shouldRetry(sex, request, response, retries, retryStrategy)) {
+                    requestMetrics.record(request, status, retries, System.nanoTime() - startNanos);
                     throw sex;
                 }
             } catch (ClientException cex) {
@@ -158,6 +155,7 @@ public abstract class ServiceClient {
                 closeResponseSilently(response);
 
                 if (!shouldRetry(cex, request, response, retries, retryStrategy)) {
+                    requestMetrics.record(request, status, retries, System.nanoTime() - startNanos);
                     throw cex;
                 }
             } catch (Exception ex) {
@@ -166,6 +164,7 @@ public abstract class ServiceClient {
 
                 closeResponseSilently(response);
 
+                requestMetrics.record(request, status, retries, System.nanoTime() - startNanos);
                 throw new ClientException(
                         COMMON_RESOURCE_MANAGER.getFormattedString("ConnectionError", ex.getMessage()), ex);
             } finally {
@@ -174,11 +173,201 @@ public abstract class ServiceClient {
         }
     }
 
+    /**
+     * Send HTTP request with specified context to OSS without blocking the
+     * calling thread. Signing, request/response handlers and the retry
+     * strategy behave exactly as in {@link #sendRequest}; the pause between
+     * retries is scheduled on a timer instead of sleeping a thread, so a
+     * request waiting for its next attempt holds no thread at all.
+     * Cancelling the returned future aborts the attempt in flight and stops
+     * further retries.
+     */
+    public CompletableFuture<ResponseMessage> sendRequestAsync(final RequestMessage request,
+            final ExecutionContext context) {
+
+        assertParameterNotNull(request, "request");
+        assertParameterNotNull(context, "context");
+
+        final CompletableFuture<ResponseMessage> result = new CompletableFuture<ResponseMessage>();
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                context.abort();
+            }
+            // Close the request stream as well after the request is completed.
+            try {
+                request.close();
+            } catch (IOException ex) {
+                logException("Unexpected io exception when trying to close http request: ", ex);
+            }
+        });
+
+        try {
+            RetryStrategy retryStrategy = getRetryStrategy(context);
+            signRequest(request, context);
+            attemptAsync(request, context, retryStrategy, 0, 0, System.nanoTime(), result);
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    private void attemptAsync(final RequestMessage request, final ExecutionContext context,
+            final RetryStrategy retryStrategy, final int retries, final long pauseDelay, final long startNanos,
+            final CompletableFuture<ResponseMessage> result) {
+
+        if (result.isDone()) {
+            return;
+        }
+        final Request httpRequest;
+        try {
+            if (retries > 0) {
+                resetRequestContent(request);
+            }
+            handleRequest(request, context.getResquestHandlers());
+            httpRequest = buildRequest(request, context);
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+            return;
+        }
+
+        final long startTime = System.currentTimeMillis();
+        sendRequestCoreAsync(httpRequest, context).whenComplete((response, error) -> {
+            Throwable failure = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (failure == null) {
+                try {
+                    long duration = System.currentTimeMillis() - startTime;
+                    if (duration > config.getSlowRequestsThreshold()) {
+                        LogUtils.getLog().warn(formatSlowRequestLog(request, response, duration));
+                    }
+                    handleResponse(response, context.getResponseHandlers());
+                    retryBudget.onSuccess();
+                    requestMetrics.record(request, response.getStatusCode(), retries, System.nanoTime() - startNanos);
+                    if (!result.complete(response)) {
+                        // Cancelled while the response was on its way.
+                        closeResponseSilently(response);
+                    }
+                    return;
+                } catch (RuntimeException ex) {
+                    failure = ex;
+                }
+            }
+
+            closeResponseSilently(response);
+            if (result.isDone()) {
+                return;
+            }
+
+            RuntimeException ex;
+            if (failure instanceof ServiceException || failure instanceof ClientException) {
+                ex = (RuntimeException) failure;
+                logException(failure instanceof ServiceException ? "[Server]Unable to execute HTTP request: "
+                        : "[Client]Unable to execute HTTP request: ", ex, request.getOriginalRequest().isLogEnabled());
+                if (shouldRetry(ex, request, response, retries, retryStrategy)) {
+                    long delay = retryStrategy.getPauseDelay(retries + 1, pauseDelay);
+                    getLog().debug("An retriable error request will be retried after " + delay
+                            + "(ms) with attempt times: " + (retries + 1));
+                    try {
+                        getTimer().schedule(
+                                () -> attemptAsync(request, context, retryStrategy, retries + 1, delay, startNanos,
+                                        result),
+                                delay, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException rex) {
+                        result.completeExceptionally(ex);
+                    }
+                    return;
+                }
+            } else {
+                logException("[Unknown]Unable to execute HTTP request: ", failure,
+                        request.getOriginalRequest().isLogEnabled());
+                ex = new ClientException(
+                        COMMON_RESOURCE_MANAGER.getFormattedString("ConnectionError", failure.getMessage()), failure);
+            }
+            requestMetrics.record(request, response != null ? response.getStatusCode() : RequestMetrics.NO_RESPONSE,
+                    retries, System.nanoTime() - startNanos);
+            result.completeExceptionally(ex);
+        });
+    }
+
     /**
      * Implements the core logic to send requests to Aliyun OSS services.
      */
     protected abstract ResponseMessage sendRequestCore(Request request, ExecutionContext context) throws IOException;
 
+    /**
+     * Asynchronous counterpart of {@link #sendRequestCore}. The returned
+     * future completes once the response head has arrived; no thread may be
+     * held while the request waits on the network. If the future is
+     * completed by someone else first, the exchange must be aborted.
+     */
+    protected abstract CompletableFuture<ResponseMessage> sendRequestCoreAsync(Request request,
+            ExecutionContext context);
+
+    /**
+     * Gets the timer that schedules retry pauses and other delayed tasks of
+     * the asynchronous API.
+     */
+    protected synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                    daemonThreadFactory("oss-timer-"));
+            executor.setRemoveOnCancelPolicy(true);
+            timer = executor;
+        }
+        return timer;
+    }
+
+    /**
+     * Stops the timer. Requests waiting for their next attempt fail
+     * with a {@link ClientException}.
+     */
+    protected synchronized void shutdownAsync() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    protected static ThreadFactory daemonThreadFactory(final String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private RetryStrategy getRetryStrategy(ExecutionContext context) {
+        return context.getRetryStrategy() != null ? context.getRetryStrategy() : this.getDefaultRetryStrategy();
+    }
+
+    private void signRequest(RequestMessage request, ExecutionContext context) throws ClientException {
+        // Sign the request if a signer provided.
+        if (context.getSigner() != null && !request.isUseUrlSignature()) {
+            context.getSigner().sign(request);
+        }
+
+        for (RequestSigner signer : context.getSignerHandlers()) {
+            signer.sign(request);
+        }
+
+        InputStream requestContent = request.getContent();
+        if (requestContent != null && requestContent.markSupported()) {
+            requestContent.mark(OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
+        }
+    }
+
+    private void resetRequestContent(RequestMessage request) throws ClientException {
+        InputStream requestContent = request.getContent();
+        if (requestContent != null && requestContent.markSupported()) {
+            try {
+                requestContent.reset();
+            } catch (IOException ex) {
+                logException("Failed to reset the request input stream: ", ex);
+                throw new ClientException("Failed to reset the request input stream: ", ex);
+            }
+        }
+    }
+
     private Request buildRequest(RequestMessage requestMessage, ExecutionContext context) throws ClientException {
 
         Request request = new Request();
@@ -264,9 +453,9 @@ public abstract class ServiceClient {
         }
     }
 
-    private void pause(int retries, RetryStrategy retryStrategy) throws ClientException {
+    private long pause(int retries, long previousDelay, RetryStrategy retryStrategy) throws ClientException {
 
-        long delay = retryStrategy.getPauseDelay(retries);
+        long delay = retryStrategy.getPauseDelay(retries, previousDelay);
 
         getLog().debug(
                 "An retriable error request will be retried after " + delay + "(ms) with attempt times: " + retries);
@@ -276,11 +465,14 @@ public abstract class ServiceClient {
         } catch (InterruptedException e) {
             throw new ClientException(e.getMessage(), e);
         }
+        return delay;
     }
 
     private boolean shouldRetry(Exception exception, RequestMessage request, ResponseMessage response, int retries,
             RetryStrategy retryStrategy) {
 
+        retryBudget.onError(errorCodeOf(exception));
+
         if (retries >= config.getMaxErrorRetry()) {
             return false;
         }
@@ -290,12 +482,27 @@ public abstract class ServiceClient {
         }
 
         if (retryStrategy.shouldRetry(exception, request, response, retries)) {
+            if (!retryBudget.tryAcquire()) {
+                getLog().debug("Retry budget exhausted, not retrying on " + exception.getClass().getName() + ": "
+                        + exception.getMessage());
+                return false;
+            }
             getLog().debug("Retrying on " + exception.getClass().getName() + ": " + exception.getMessage());
             return true;
         }
         return false;
     }
 
+    private static String errorCodeOf(Exception exception) {
+        String errorCode = null;
+        if (exception instanceof ServiceException) {
+            errorCode = ((ServiceException) exception).getErrorCode();
+        } else if (exception instanceof ClientException) {
+            errorCode = ((ClientException) exception).getErrorCode();
+        }
+        return errorCode != null ? errorCode : exception.getClass().getSimpleName();
+    }
+
     private void closeResponseSilently(ResponseMessage response) {
         if (response != null) {
             try {
@@ -315,6 +522,41 @@ public abstract class ServiceClient {
 
     protected abstract RetryStrategy getDefaultRetryStrategy();
 
+    /**
+     * Gets the total statistics of the underlying connection pool.
+     *
+     * @return The pool statistics, or null if the client does not pool
+     *         connections.
+     */
+    public PoolStats getConnectionPoolStats() {
+        return null;
+    }
+
+    /**
+     * Gets the connection pool statistics and lease wait times of each route.
+     *
+     * @return The statistics keyed by route, empty if the client does not
+     *         pool connections.
+     */
+    public Map<String, RoutePoolStats> getRoutePoolStats() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Gets the retries sent, the retries refused by the client-wide retry
+     * budget, the tokens left in it and the failed attempts by error code.
+     */
+    public RetryBudget.Stats getRetryStats() {
+        return retryBudget.getStats();
+    }
+
+    /**
+     * Gets the latency histograms of the requests sent by this client.
+     */
+    public RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
     public abstract void shutdown();
 
     /**
@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.group7.edu.oss.common.comm;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderIterator;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentInputStream;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Response consumer for the non-blocking transport that hands the response
+ * over as soon as its head has arrived, like the blocking client does, and
+ * streams the body through a bounded buffer. The I/O reactor stops reading
+ * from the connection while the buffer is full and resumes once the reader
+ * has drained it, so a slow reader never makes the body pile up in memory.
+ */
+class StreamingResponseConsumer implements HttpAsyncResponseConsumer<HttpResponse> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+    private final CompletableFuture<CloseableHttpResponse> head = new CompletableFuture<CloseableHttpResponse>();
+
+    private volatile HttpResponse response;
+    private volatile Exception exception;
+    private volatile boolean completed;
+    private volatile boolean aborted;
+    private volatile Future<HttpResponse> exchange;
+
+    /**
+     * Completes on the I/O reactor thread once the status line and headers
+     * have been received. The body must be read from another thread.
+     */
+    public CompletableFuture<CloseableHttpResponse> getHead() {
+        return head;
+    }
+
+    /**
+     * Binds the exchange to abort when the response is closed before its
+     * body has been read to the end.
+     */
+    public void setExchange(Future<HttpResponse> exchange) {
+        this.exchange = exchange;
+        if (aborted) {
+            exchange.cancel(true);
+        }
+    }
+
+    /**
+     * Aborts the exchange unless it has already completed. The connection
+     * is dropped instead of being returned to the pool.
+     */
+    public boolean abort() {
+        aborted = true;
+        if (completed) {
+            return false;
+        }
+        buffer.shutdown();
+        head.completeExceptionally(new CancellationException("The request was aborted."));
+        Future<HttpResponse> current = exchange;
+        return current == null || current.cancel(true);
+    }
+
+    @Override
+    public void responseReceived(HttpResponse response) {
+        this.response = response;
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            BasicHttpEntity streamed = new BasicHttpEntity();
+            streamed.setContent(new ContentInputStream(buffer));
+            streamed.setContentLength(entity.getContentLength());
+            streamed.setContentType(entity.getContentType());
+            streamed.setContentEncoding(entity.getContentEncoding());
+            streamed.setChunked(entity.isChunked());
+            response.setEntity(streamed);
+        }
+        head.complete(new Response(response));
+    }
+
+    @Override
+    public void consumeContent(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+        buffer.consumeContent(decoder, ioctrl);
+    }
+
+    @Override
+    public void responseCompleted(HttpContext context) {
+        completed = true;
+        // An empty body never reaches consumeContent; mark its end here.
+        buffer.close();
+    }
+
+    @Override
+    public void failed(Exception ex) {
+        exception = ex;
+        buffer.shutdown();
+        head.completeExceptionally(ex);
+    }
+
+    @Override
+    public Exception getException() {
+        return exception;
+    }
+
+    @Override
+    public HttpResponse getResult() {
+        return response;
+    }
+
+    @Override
+    public boolean isDone() {
+        return completed || exception != null || aborted;
+    }
+
+    @Override
+    public boolean cancel() {
+        aborted = true;
+        buffer.shutdown();
+        head.completeExceptionally(new CancellationException("The request was aborted."));
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (!completed) {
+            buffer.shutdown();
+        }
+    }
+
+    /**
+     * Closing the response before its body has been read to the end aborts
+     * the exchange, as closing a response of the blocking client does.
+     */
+    private class Response implements CloseableHttpResponse {
+
+        private final HttpResponse delegate;
+
+        Response(HttpResponse delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void close() {
+            abort();
+        }
+
+        @Override
+        public StatusLine getStatusLine() {
+            return delegate.getStatusLine();
+        }
+
+        @Override
+        public void setStatusLine(StatusLine statusline) {
+            delegate.setStatusLine(statusline);
+        }
+
+        @Override
+        public void setStatusLine(ProtocolVersion ver, int code) {
+            delegate.setStatusLine(ver, code);
+        }
+
+        @Override
+        public void setStatusLine(ProtocolVersion ver, int code, String reason) {
+            delegate.setStatusLine(ver, code, reason);
+        }
+
+        @Override
+        public void setStatusCode(int code) {
+            delegate.setStatusCode(code);
+        }
+
+        @Override
+        public void setReasonPhrase(String reason) {
+            delegate.setReasonPhrase(reason);
+        }
+
+        @Override
+        public HttpEntity getEntity() {
+            return delegate.getEntity();
+        }
+
+        @Override
+        public void setEntity(HttpEntity entity) {
+            delegate.setEntity(entity);
+        }
+
+        @Override
+        public Locale getLocale() {
+            return delegate.getLocale();
+        }
+
+        @Override
+        public void setLocale(Locale loc) {
+            delegate.setLocale(loc);
+        }
+
+        @Override
+        public ProtocolVersion getProtocolVersion() {
+            return delegate.getProtocolVersion();
+        }
+
+        @Override
+        public boolean containsHeader(String name) {
+            return delegate.containsHeader(name);
+        }
+
+        @Override
+        public Header[] getHeaders(String name) {
+            return delegate.getHeaders(name);
+        }
+
+        @Override
+        public Header getFirstHeader(String name) {
+            return delegate.getFirstHeader(name);
+        }
+
+        @Override
+        public Header getLastHeader(String name) {
+            return delegate.getLastHeader(name);
+        }
+
+        @Override
+        public Header[] getAllHeaders() {
+            return delegate.getAllHeaders();
+        }
+
+        @Override
+        public void addHeader(Header header) {
+            delegate.addHeader(header);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            delegate.addHeader(name, value);
+        }
+
+        @Override
+        public void setHeader(Header header) {
+            delegate.setHeader(header);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            delegate.setHeader(name, value);
+        }
+
+        @Override
+        public void setHeaders(Header[] headers) {
+            delegate.setHeaders(headers);
+        }
+
+        @Override
+        public void removeHeader(Header header) {
+            delegate.removeHeader(header);
+        }
+
+        @Override
+        public void removeHeaders(String name) {
+            delegate.removeHeaders(name);
+        }
+
+        @Override
+        public HeaderIterator headerIterator() {
+            return delegate.headerIterator();
+        }
+
+        @Override
+        public HeaderIterator headerIterator(String name) {
+            return delegate.headerIterator(name);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public org.apache.http.params.HttpParams getParams() {
+            return delegate.getParams();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setParams(org.apache.http.params.HttpParams params) {
+            delegate.setParams(params);
+        }
+    }
+}
@@ -27,6 +27,7 @@ import com.group7.edu.oss.common.utils.ExceptionFactory;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.Cancellable;
 
 import java.io.IOException;
 import java.util.concurrent.*;
@@ -52,7 +53,14 @@ public class TimeoutServiceClient extends DefaultServiceClient {
 
     @Override
     public ResponseMessage sendRequestCore(ServiceClient.Request request, ExecutionContext context) throws IOException {
-        HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
+        final HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
+        context.setInFlightRequest(new Cancellable() {
+            @Override
+            public boolean cancel() {
+                httpRequest.abort();
+                return true;
+            }
+        });
         HttpClientContext httpContext = HttpClientContext.create();
         httpContext.setRequestConfig(this.requestConfig);
 
@@ -89,6 +97,34 @@ public class TimeoutServiceClient extends DefaultServiceClient {
         return buildResponse(request, httpResponse);
     }
 
+    /**
+     * Fails the request with {@link OSSErrorCode#REQUEST_TIMEOUT} if its
+     * response has not arrived within the request timeout, which aborts the
+     * exchange.
+     */
+    @Override
+    protected CompletableFuture<ResponseMessage> sendRequestCoreAsync(ServiceClient.Request request,
+            ExecutionContext context) {
+        final CompletableFuture<ResponseMessage> future = super.sendRequestCoreAsync(request, context);
+        if (future.isDone()) {
+            return future;
+        }
+        final long timeout = this.config.getRequestTimeout();
+        try {
+            final ScheduledFuture<?> deadline = getTimer().schedule(() -> {
+                ClientException ex = new ClientException("The wait " + timeout + " timed out",
+                        OSSErrorCode.REQUEST_TIMEOUT, "Unknown");
+                if (future.completeExceptionally(ex)) {
+                    logException("[ExecutorService]The wait " + timeout + " timed out: ", ex);
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+            future.whenComplete((response, error) -> deadline.cancel(false));
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new ClientException("The async client has been shut down.", ex));
+        }
+        return future;
+    }
+
     @Override
     public void shutdown() {
         executor.shutdown();
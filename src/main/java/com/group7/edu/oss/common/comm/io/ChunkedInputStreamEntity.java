@@ -39,7 +39,15 @@ import static com.group7.edu.oss.common.utils.LogUtils.logException;
  */
 public class ChunkedInputStreamEntity extends BasicHttpEntity {
 
+    /*
+     * The content is written in blocks of this size. The HTTP client frames
+     * every write as one chunk and passes blocks this large straight to the
+     * socket, so each block costs one chunk header and no further copy.
+     */
+    private static final int CHUNK_SIZE = 128 * 1024;
+
     private boolean firstAttempt = true;
+    private byte[] chunk;
     private ReleasableInputStreamEntity notClosableRequestEntity;
     private InputStream content;
 
@@ -84,7 +92,44 @@ public class ChunkedInputStreamEntity extends BasicHttpEntity {
             content.reset();
 
         firstAttempt = false;
-        notClosableRequestEntity.writeTo(output);
+        if (chunk == null) {
+            chunk = new byte[CHUNK_SIZE];
+        }
+
+        try {
+            long remaining = getContentLength();
+            while (remaining != 0) {
+                int limit = remaining < 0 ? CHUNK_SIZE : (int) Math.min(CHUNK_SIZE, remaining);
+                int length = fill(chunk, limit);
+                if (length > 0) {
+                    output.write(chunk, 0, length);
+                    if (remaining > 0) {
+                        remaining -= length;
+                    }
+                }
+                if (length < limit) {
+                    break;
+                }
+            }
+        } finally {
+            notClosableRequestEntity.close();
+        }
+    }
+
+    /**
+     * Reads from the content until the buffer holds limit bytes or the
+     * content ends, returning the number of bytes read.
+     */
+    private int fill(byte[] buffer, int limit) throws IOException {
+        int length = 0;
+        while (length < limit) {
+            int bytesRead = content.read(buffer, length, limit - length);
+            if (bytesRead == -1) {
+                break;
+            }
+            length += bytesRead;
+        }
+        return length;
     }
 
     /**
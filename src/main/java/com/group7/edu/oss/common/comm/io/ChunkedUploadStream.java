@@ -24,17 +24,32 @@ import com.group7.edu.oss.ClientException;
 import java.io.IOException;
 import java.io.InputStream;
 
+/**
+ * Encodes an input stream of unknown length with the chunked transfer
+ * coding, 128KB of data per chunk.
+ * <p>
+ * Each chunk is assembled in place in a single reusable buffer: the data is
+ * read from the inner stream to just behind the room reserved for the
+ * longest chunk header, and the header is then written backwards in front of
+ * it from a table of hex digits. Nothing is allocated or copied per chunk.
+ */
 public class ChunkedUploadStream extends InputStream {
 
     private static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
-    private static final String DEFAULT_CHARTSET_NAME = "utf-8";
-    private static final String CLRF = "\r\n";
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd',
+            'e', 'f' };
+
+    /* Room in front of the chunk data for the longest header, size and CRLF. */
+    private static final int HEADER_SPACE = Integer.toHexString(DEFAULT_CHUNK_SIZE).length() + 2;
 
     private InputStream innerStream;
-    private byte[] inputBuffer;
-    private byte[] outputBuffer;
-    private int outputBufferPos = -1;
-    private int outputBufferDataLen = -1;
+    private final byte[] chunkBuffer = new byte[HEADER_SPACE + DEFAULT_CHUNK_SIZE + 2];
+    private final byte[] singleByte = new byte[1];
+    private int chunkPos = -1;
+    private int chunkEnd = -1;
 
     private final int innerStreamBufferSize;
     private boolean innerStreamConsumed = false;
@@ -47,16 +62,13 @@ public class ChunkedUploadStream extends InputStream {
 
         this.innerStream = innerStream;
         this.innerStreamBufferSize = innerStreamBufferSize;
-        this.inputBuffer = new byte[DEFAULT_CHUNK_SIZE];
-        this.outputBuffer = new byte[CalculateChunkHeaderLength(DEFAULT_CHUNK_SIZE)];
     }
 
     @Override
     public int read() throws IOException {
-        byte[] tmp = new byte[1];
-        int count = read(tmp);
+        int count = read(singleByte, 0, 1);
         if (count != -1) {
-            return tmp[0];
+            return singleByte[0] & 0xff;
         } else {
             return count;
         }
@@ -73,90 +85,78 @@ public class ChunkedUploadStream extends InputStream {
             throw new NullPointerException();
         } else if (offset < 0 || count < 0 || count > buffer.length - offset) {
             throw new IndexOutOfBoundsException(
-                    String.format("buffer size: %n, offset: %n, count: %n", buffer.length, offset, count));
+                    String.format("buffer size: %d, offset: %d, count: %d", buffer.length, offset, count));
         } else if (count == 0) {
             return 0;
         }
 
-        if (outputBufferPos == -1) {
+        if (chunkPos == -1) {
             if (innerStreamConsumed && isTerminatingChunk) {
                 return -1;
             }
 
-            int bytesRead = fillInputBuffer();
-            constructOutputBufferChunk(bytesRead);
+            int bytesRead = fillChunkData();
+            encodeChunk(bytesRead);
             isTerminatingChunk = (innerStreamConsumed && bytesRead == 0);
         }
 
-        int outputRemaining = outputBufferDataLen - outputBufferPos;
-        int bytesToRead = count;
-        if (outputRemaining < count) {
-            bytesToRead = outputRemaining;
-        }
-
-        System.arraycopy(outputBuffer, outputBufferPos, buffer, 0, bytesToRead);
-        outputBufferPos += bytesToRead;
-        if (outputBufferPos >= outputBufferDataLen) {
-            outputBufferPos = -1;
+        int bytesToRead = Math.min(count, chunkEnd - chunkPos);
+        System.arraycopy(chunkBuffer, chunkPos, buffer, offset, bytesToRead);
+        chunkPos += bytesToRead;
+        if (chunkPos >= chunkEnd) {
+            chunkPos = -1;
         }
 
         return bytesToRead;
     }
 
-    private int fillInputBuffer() {
+    /**
+     * Reads the next chunk's data from the inner stream into place behind
+     * the header space, returning its length.
+     */
+    private int fillChunkData() {
         if (innerStreamConsumed) {
             return 0;
         }
 
-        int inputBufferPos = 0;
-        while (inputBufferPos < inputBuffer.length && !innerStreamConsumed) {
-            int chunkBufferRemaining = inputBuffer.length - inputBufferPos;
-            if (chunkBufferRemaining > innerStreamBufferSize) {
-                chunkBufferRemaining = innerStreamBufferSize;
-            }
+        int dataLen = 0;
+        while (dataLen < DEFAULT_CHUNK_SIZE && !innerStreamConsumed) {
+            int chunkBufferRemaining = Math.min(DEFAULT_CHUNK_SIZE - dataLen, innerStreamBufferSize);
 
-            int bytesRead = 0;
             try {
-                bytesRead = innerStream.read(inputBuffer, inputBufferPos, chunkBufferRemaining);
+                int bytesRead = innerStream.read(chunkBuffer, HEADER_SPACE + dataLen, chunkBufferRemaining);
                 if (bytesRead == -1) {
                     innerStreamConsumed = true;
                 } else {
-                    inputBufferPos += bytesRead;
+                    dataLen += bytesRead;
                 }
             } catch (IOException e) {
                 throw new ClientException("Unexpected IO exception, " + e.getMessage(), e);
             }
         }
 
-        return inputBufferPos;
-    }
-
-    private void constructOutputBufferChunk(int dataLen) {
-        StringBuilder chunkHeader = new StringBuilder();
-        chunkHeader.append(Integer.toHexString(dataLen));
-        chunkHeader.append(CLRF);
-
-        try {
-            byte[] header = chunkHeader.toString().getBytes(DEFAULT_CHARTSET_NAME);
-            byte[] trailer = CLRF.getBytes(DEFAULT_CHARTSET_NAME);
-
-            int writePos = 0;
-            System.arraycopy(header, 0, outputBuffer, writePos, header.length);
-            writePos += header.length;
-            if (dataLen > 0) {
-                System.arraycopy(inputBuffer, 0, outputBuffer, writePos, dataLen);
-                writePos += dataLen;
-            }
-            System.arraycopy(trailer, 0, outputBuffer, writePos, trailer.length);
-
-            outputBufferPos = 0;
-            outputBufferDataLen = header.length + dataLen + trailer.length;
-        } catch (Exception e) {
-            throw new ClientException("Unable to sign the chunked data, " + e.getMessage(), e);
-        }
+        return dataLen;
     }
 
-    private static int CalculateChunkHeaderLength(long chunkDataSize) {
-        return (int) (Long.toHexString(chunkDataSize).length() + CLRF.length() + chunkDataSize + CLRF.length());
+    /**
+     * Writes the header, the size in hex and CRLF, right in front of the
+     * data and the CRLF trailer behind it.
+     */
+    private void encodeChunk(int dataLen) {
+        int pos = HEADER_SPACE;
+        chunkBuffer[--pos] = LF;
+        chunkBuffer[--pos] = CR;
+        int size = dataLen;
+        do {
+            chunkBuffer[--pos] = HEX_DIGITS[size & 0xf];
+            size >>>= 4;
+        } while (size != 0);
+
+        int end = HEADER_SPACE + dataLen;
+        chunkBuffer[end++] = CR;
+        chunkBuffer[end++] = LF;
+
+        chunkPos = pos;
+        chunkEnd = end;
     }
 }
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.group7.edu.oss.common.comm.io;
+
+import com.group7.edu.oss.ClientException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reads one range of a file through a channel shared with other parts,
+ * using positional reads so that any number of parts can be read
+ * concurrently without seeking. Closing the stream leaves the channel open.
+ * <p>
+ * The stream supports mark/reset by remembering a position, so a retried
+ * request re-reads the range from the file instead of buffering it. An MD5
+ * digest of the bytes is computed as they are read; it is valid once the
+ * range has been read through from its start.
+ */
+public class FilePartInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final MessageDigest digest;
+
+    private long position;
+    private long markPosition;
+    private boolean closed;
+
+    public FilePartInputStream(FileChannel channel, long offset, long length) {
+        this.channel = channel;
+        this.start = offset;
+        this.end = offset + length;
+        this.position = offset;
+        this.markPosition = offset;
+        try {
+            this.digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ClientException("MD5 digest is not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+        int toRead = (int) Math.min(len, end - position);
+        int bytesRead = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+        if (bytesRead == -1) {
+            return -1;
+        }
+        digest.update(b, off, bytesRead);
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("Skipping would leave the part digest incomplete");
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        markPosition = position;
+    }
+
+    /**
+     * Goes back to the marked position. Only a reset to the start of the
+     * range is expected, as done before a request is retried; the digest
+     * then starts over.
+     */
+    @Override
+    public synchronized void reset() throws IOException {
+        if (markPosition != start) {
+            throw new IOException("Can only reset to the start of the part");
+        }
+        position = start;
+        digest.reset();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Gets the MD5 digest of the range, or null if it has not been read
+     * through yet.
+     */
+    public byte[] getMd5Digest() {
+        if (position != end) {
+            return null;
+        }
+        try {
+            return ((MessageDigest) digest.clone()).digest();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+}
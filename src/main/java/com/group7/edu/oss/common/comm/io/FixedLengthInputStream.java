@@ -77,4 +77,9 @@ public class FixedLengthInputStream extends InputStream {
     public int read() throws IOException {
         return wrappedInputStream.read();
     }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return wrappedInputStream.read(b, off, len);
+    }
 }
@@ -83,6 +83,14 @@ public final class RequestMarshallers {
 
     }
 
+    /**
+     * Marshalls large request bodies, such as the part list of a multipart
+     * upload or the keys of a batch delete, without an intermediate String.
+     */
+    public interface XmlBodyMarshaller<R> extends Marshaller<XmlBody, R> {
+
+    }
+
     public static final class StringMarshaller implements Marshaller<FixedLengthInputStream, String> {
 
         @Override
@@ -456,23 +464,28 @@ public final class RequestMarshallers {
     }
 
     public static final class CompleteMultipartUploadRequestMarshaller
-            implements RequestMarshaller<CompleteMultipartUploadRequest> {
+            implements XmlBodyMarshaller<CompleteMultipartUploadRequest> {
+
+        /* A part with a quoted 32 digit ETag takes about 100 bytes. */
+        private static final int PART_SIZE_HINT = 100;
 
         @Override
-        public FixedLengthInputStream marshall(CompleteMultipartUploadRequest request) {
-            StringBuffer xmlBody = new StringBuffer();
+        public XmlBody marshall(CompleteMultipartUploadRequest request) {
             List<PartETag> eTags = request.getPartETags();
+            XmlBody xmlBody = new XmlBody(64 + eTags.size() * PART_SIZE_HINT);
             xmlBody.append("<CompleteMultipartUpload>");
             for (int i = 0; i < eTags.size(); i++) {
                 PartETag part = eTags.get(i);
-                String eTag = EscapedChar.QUOT + part.getETag().replace("\"", "") + EscapedChar.QUOT;
-                xmlBody.append("<Part>");
-                xmlBody.append("<PartNumber>" + part.getPartNumber() + "</PartNumber>");
-                xmlBody.append("<ETag>" + eTag + "</ETag>");
-                xmlBody.append("</Part>");
+                xmlBody.append("<Part><PartNumber>").append(part.getPartNumber()).append("</PartNumber><ETag>");
+                String eTag = part.getETag();
+                if (eTag.indexOf('"') >= 0) {
+                    eTag = eTag.replace("\"", "");
+                }
+                xmlBody.append(EscapedChar.QUOT.toString()).append(eTag).append(EscapedChar.QUOT.toString());
+                xmlBody.append("</ETag></Part>");
             }
             xmlBody.append("</CompleteMultipartUpload>");
-            return stringMarshaller.marshall(xmlBody.toString());
+            return xmlBody;
         }
 
     }
@@ -558,31 +571,26 @@ public final class RequestMarshallers {
         }
     }
 
-    public static final class DeleteObjectsRequestMarshaller implements RequestMarshaller2<DeleteObjectsRequest> {
+    public static final class DeleteObjectsRequestMarshaller implements XmlBodyMarshaller<DeleteObjectsRequest> {
 
         @Override
-        public byte[] marshall(DeleteObjectsRequest request) {
-            StringBuffer xmlBody = new StringBuffer();
+        public XmlBody marshall(DeleteObjectsRequest request) {
             boolean quiet = request.isQuiet();
             List<String> keysToDelete = request.getKeys();
 
-            xmlBody.append("<Delete>");
-            xmlBody.append("<Quiet>" + quiet + "</Quiet>");
+            int sizeHint = 64;
             for (int i = 0; i < keysToDelete.size(); i++) {
                 String key = keysToDelete.get(i);
-                xmlBody.append("<Object>");
-                xmlBody.append("<Key>" + escapeKey(key) + "</Key>");
-                xmlBody.append("</Object>");
+                sizeHint += 28 + (key != null ? key.length() : 0);
             }
-            xmlBody.append("</Delete>");
-
-            byte[] rawData = null;
-            try {
-                rawData = xmlBody.toString().getBytes(DEFAULT_CHARSET_NAME);
-            } catch (UnsupportedEncodingException e) {
-                throw new ClientException("Unsupported encoding " + e.getMessage(), e);
+            XmlBody xmlBody = new XmlBody(sizeHint);
+            xmlBody.append("<Delete>");
+            xmlBody.append("<Quiet>").append(String.valueOf(quiet)).append("</Quiet>");
+            for (int i = 0; i < keysToDelete.size(); i++) {
+                xmlBody.append("<Object><Key>").appendEscaped(keysToDelete.get(i)).append("</Key></Object>");
             }
-            return rawData;
+            xmlBody.append("</Delete>");
+            return xmlBody;
         }
 
     }
@@ -934,36 +942,9 @@ public final class RequestMarshallers {
         StringBuilder builder = new StringBuilder();
         for (pos = 0; pos < len; pos++) {
             char ch = key.charAt(pos);
-            EscapedChar escapedChar;
-            switch (ch) {
-            case '\t':
-                escapedChar = EscapedChar.TAB;
-                break;
-            case '\n':
-                escapedChar = EscapedChar.NEWLINE;
-                break;
-            case '\r':
-                escapedChar = EscapedChar.RETURN;
-                break;
-            case '&':
-                escapedChar = EscapedChar.AMP;
-                break;
-            case '"':
-                escapedChar = EscapedChar.QUOT;
-                break;
-            case '<':
-                escapedChar = EscapedChar.LT;
-                break;
-            case '>':
-                escapedChar = EscapedChar.GT;
-                break;
-            default:
-                escapedChar = null;
-                break;
-            }
-
+            String escapedChar = escapedCharOf(ch);
             if (escapedChar != null) {
-                builder.append(escapedChar.toString());
+                builder.append(escapedChar);
             } else {
                 builder.append(ch);
             }
@@ -972,6 +953,31 @@ public final class RequestMarshallers {
         return builder.toString();
     }
 
+    /**
+     * Gets the entity a character of an object key is escaped to, or null if
+     * it is written as is.
+     */
+    static String escapedCharOf(char ch) {
+        switch (ch) {
+        case '\t':
+            return EscapedChar.TAB.toString();
+        case '\n':
+            return EscapedChar.NEWLINE.toString();
+        case '\r':
+            return EscapedChar.RETURN.toString();
+        case '&':
+            return EscapedChar.AMP.toString();
+        case '"':
+            return EscapedChar.QUOT.toString();
+        case '<':
+            return EscapedChar.LT.toString();
+        case '>':
+            return EscapedChar.GT.toString();
+        default:
+            return null;
+        }
+    }
+
     private static String joinRepliationAction(List<ReplicationAction> actions) {
         StringBuilder sb = new StringBuilder();
         boolean first = true;
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.group7.edu.oss.common.parser;
+
+import com.group7.edu.oss.common.comm.io.FixedLengthInputStream;
+import com.group7.edu.oss.common.utils.BinaryUtil;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * An XML request body written straight into a single byte array. Text is
+ * encoded to UTF-8 as it is appended, without building an intermediate
+ * String, and the MD5 digest is updated block by block while the body is
+ * written, so a body of n bytes costs about n bytes of memory and one pass.
+ * The request stream reads the array in place and can be reset for retries.
+ */
+public final class XmlBody {
+
+    /* Bytes digested at a time, while they are still in cache. */
+    private static final int DIGEST_BLOCK = 8 * 1024;
+
+    private byte[] buf;
+    private int count;
+    private int digested;
+    private MessageDigest md5;
+    private String contentMd5;
+
+    /**
+     * @param sizeHint
+     *            The expected body length in bytes; the buffer grows if the
+     *            body turns out larger.
+     */
+    public XmlBody(int sizeHint) {
+        this.buf = new byte[Math.max(sizeHint, 64)];
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5 algorithm not found.");
+        }
+    }
+
+    /**
+     * Appends markup or text that needs no escaping.
+     */
+    public XmlBody append(String text) {
+        ensureWritable(text.length());
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ensureCapacity(count + 1);
+                buf[count++] = (byte) c;
+            } else {
+                i = appendNonAscii(text, i);
+            }
+        }
+        digestFullBlocks();
+        return this;
+    }
+
+    public XmlBody append(long value) {
+        return append(Long.toString(value));
+    }
+
+    /**
+     * Appends text escaped the same way object keys are escaped elsewhere in
+     * request bodies; a null value appends nothing.
+     */
+    public XmlBody appendEscaped(String text) {
+        if (text == null) {
+            return this;
+        }
+        ensureWritable(text.length());
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            String escaped = RequestMarshallers.escapedCharOf(c);
+            if (escaped != null) {
+                for (int j = 0; j < escaped.length(); j++) {
+                    ensureCapacity(count + 1);
+                    buf[count++] = (byte) escaped.charAt(j);
+                }
+            } else if (c < 0x80) {
+                ensureCapacity(count + 1);
+                buf[count++] = (byte) c;
+            } else {
+                i = appendNonAscii(text, i);
+            }
+        }
+        digestFullBlocks();
+        return this;
+    }
+
+    public int length() {
+        return count;
+    }
+
+    /**
+     * Finishes the body and gets the Base64 MD5 of it, for the Content-MD5
+     * header. Nothing can be appended afterwards.
+     */
+    public String getContentMd5() {
+        if (contentMd5 == null) {
+            md5.update(buf, digested, count - digested);
+            digested = count;
+            contentMd5 = BinaryUtil.toBase64String(md5.digest());
+        }
+        return contentMd5;
+    }
+
+    /**
+     * Gets a stream reading the body in place. It supports mark and reset.
+     */
+    public FixedLengthInputStream toInputStream() {
+        return new FixedLengthInputStream(new ByteArrayInputStream(buf, 0, count), count);
+    }
+
+    /**
+     * Gets a copy of the body.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Encodes the character at the given index, and the one after it when
+     * the two form a surrogate pair, as UTF-8. An unpaired surrogate becomes
+     * '?', as in {@link String#getBytes(String)}.
+     *
+     * @return The index of the last character consumed.
+     */
+    private int appendNonAscii(String text, int i) {
+        char c = text.charAt(i);
+        ensureCapacity(count + 4);
+        if (c < 0x800) {
+            buf[count++] = (byte) (0xc0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (!Character.isSurrogate(c)) {
+            buf[count++] = (byte) (0xe0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buf[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, text.charAt(++i));
+            buf[count++] = (byte) (0xf0 | (cp >> 18));
+            buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            buf[count++] = (byte) (0x80 | (cp & 0x3f));
+        } else {
+            buf[count++] = (byte) '?';
+        }
+        return i;
+    }
+
+    private void ensureWritable(int chars) {
+        if (contentMd5 != null) {
+            throw new IllegalStateException("The body has been finished.");
+        }
+        ensureCapacity(count + chars);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+        }
+    }
+
+    private void digestFullBlocks() {
+        if (count - digested >= DIGEST_BLOCK) {
+            md5.update(buf, digested, count - digested);
+            digested = count;
+        }
+    }
+}
@@ -49,12 +49,15 @@ public class BinaryUtil {
     }
 
     public static String encodeMD5(byte[] binaryData) {
-        byte[] md5Bytes = calculateMd5(binaryData);
-        int len = md5Bytes.length;
+        return toHex(calculateMd5(binaryData));
+    }
+
+    public static String toHex(byte[] bytes) {
+        int len = bytes.length;
         char buf[] = new char[len * 2];
         for (int i = 0; i < len; i++) {
-            buf[i * 2] = HEX_DIGITS[(md5Bytes[i] >>> 4) & 0x0f];
-            buf[i * 2 + 1] = HEX_DIGITS[md5Bytes[i] & 0x0f];
+            buf[i * 2] = HEX_DIGITS[(bytes[i] >>> 4) & 0x0f];
+            buf[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
         }
         return new String(buf);
     }
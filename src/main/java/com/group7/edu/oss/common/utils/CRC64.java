@@ -19,12 +19,23 @@
 
 package com.group7.edu.oss.common.utils;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
 import java.util.zip.Checksum;
 
 /**
  * CRC-64 implementation with ability to combine checksums calculated over
  * different blocks of data. Standard ECMA-182,
  * http://www.ecma-international.org/publications/standards/Ecma-182.htm
+ * <p>
+ * Byte blocks are processed sixteen bytes at a time (slicing-by-16), which
+ * gives the same result as the byte-at-a-time table lookup at several times
+ * the speed.
  */
 public class CRC64 implements Checksum {
 
@@ -33,6 +44,18 @@ public class CRC64 implements Checksum {
     /* CRC64 calculation table. */
     private final static long[] table;
 
+    /*
+     * Slicing-by-16 tables, laid out one after another: slice k maps a byte
+     * to its CRC followed by k zero bytes, slice 0 being the table above.
+     */
+    private final static int SLICES = 16;
+    private final static long[] slices;
+
+    /* Length of the chunks a file is split into by checksum(File). */
+    private final static int FILE_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private final static int FILE_READ_BUFFER_SIZE = 64 * 1024;
+
     /* Current CRC value. */
     private long value;
 
@@ -50,6 +73,13 @@ public class CRC64 implements Checksum {
             }
             table[n] = crc;
         }
+
+        slices = new long[SLICES * 256];
+        System.arraycopy(table, 0, slices, 0, 256);
+        for (int n = 256; n < SLICES * 256; n++) {
+            long crc = slices[n - 256];
+            slices[n] = table[(int) crc & 0xff] ^ (crc >>> 8);
+        }
     }
 
     public CRC64() {
@@ -100,14 +130,7 @@ public class CRC64 implements Checksum {
      * Update CRC64 with new byte block.
      **/
     public void update(byte[] b, int len) {
-        int idx = 0;
-        this.value = ~this.value;
-        while (len > 0) {
-            this.value = table[((int) (this.value ^ b[idx])) & 0xff] ^ (this.value >>> 8);
-            idx++;
-            len--;
-        }
-        this.value = ~this.value;
+        this.value = update(this.value, b, 0, len);
     }
 
     /**
@@ -126,9 +149,94 @@ public class CRC64 implements Checksum {
 
     @Override
     public void update(byte[] b, int off, int len) {
-        for (int i = off; len > 0; len--) {
-            update(b[i++]);
+        this.value = update(this.value, b, off, len);
+    }
+
+    private static long update(long crc, byte[] b, int off, int len) {
+        final long[] t = slices;
+
+        crc = ~crc;
+        // The CRC is reflected, so it is folded into the first eight bytes
+        // read as little-endian; each of the sixteen bytes is then looked up
+        // in the slice for the number of bytes that follow it.
+        while (len >= 16) {
+            int lo = (int) crc ^ littleEndianInt(b, off);
+            int hi = (int) (crc >>> 32) ^ littleEndianInt(b, off + 4);
+            crc = t[15 * 256 + (lo & 0xff)] ^ t[14 * 256 + ((lo >>> 8) & 0xff)]
+                    ^ t[13 * 256 + ((lo >>> 16) & 0xff)] ^ t[12 * 256 + (lo >>> 24)]
+                    ^ t[11 * 256 + (hi & 0xff)] ^ t[10 * 256 + ((hi >>> 8) & 0xff)]
+                    ^ t[9 * 256 + ((hi >>> 16) & 0xff)] ^ t[8 * 256 + (hi >>> 24)]
+                    ^ t[7 * 256 + (b[off + 8] & 0xff)] ^ t[6 * 256 + (b[off + 9] & 0xff)]
+                    ^ t[5 * 256 + (b[off + 10] & 0xff)] ^ t[4 * 256 + (b[off + 11] & 0xff)]
+                    ^ t[3 * 256 + (b[off + 12] & 0xff)] ^ t[2 * 256 + (b[off + 13] & 0xff)]
+                    ^ t[256 + (b[off + 14] & 0xff)] ^ t[b[off + 15] & 0xff];
+            off += 16;
+            len -= 16;
+        }
+        while (len > 0) {
+            crc = t[((int) crc ^ b[off]) & 0xff] ^ (crc >>> 8);
+            off++;
+            len--;
+        }
+        return ~crc;
+    }
+
+    private static int littleEndianInt(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Computes the CRC-64 of a file. The file is split into chunks that are
+     * checksummed in parallel on the common fork-join pool, and the chunk
+     * checksums are combined in order.
+     */
+    public static long checksum(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            final int chunks = (int) ((size + FILE_CHUNK_SIZE - 1) / FILE_CHUNK_SIZE);
+            final long[] crcs = new long[chunks];
+            try {
+                IntStream.range(0, chunks).parallel().forEach(i -> {
+                    long start = (long) i * FILE_CHUNK_SIZE;
+                    crcs[i] = checksum(channel, start, Math.min(FILE_CHUNK_SIZE, size - start));
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            long crc = 0;
+            for (int i = 0; i < chunks; i++) {
+                long start = (long) i * FILE_CHUNK_SIZE;
+                crc = combine(crc, crcs[i], Math.min(FILE_CHUNK_SIZE, size - start));
+            }
+            return crc;
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static long checksum(FileChannel channel, long position, long length) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(FILE_READ_BUFFER_SIZE, length));
+        long crc = 0;
+        try {
+            while (length > 0) {
+                buffer.clear();
+                if (buffer.remaining() > length) {
+                    buffer.limit((int) length);
+                }
+                int bytesRead = channel.read(buffer, position);
+                if (bytesRead < 0) {
+                    throw new IOException("File truncated while computing its CRC-64");
+                }
+                crc = update(crc, buffer.array(), 0, bytesRead);
+                position += bytesRead;
+                length -= bytesRead;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return crc;
     }
 
     @Override
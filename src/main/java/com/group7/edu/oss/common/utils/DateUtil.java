@@ -28,6 +28,10 @@ import java.util.SimpleTimeZone;
 
 /**
  * A simple utility class for date formating.
+ *
+ * SimpleDateFormat is not thread-safe and expensive to build, so each thread
+ * keeps its own instances. The current RFC 822 date, sent as the Date header
+ * of every request, only changes once a second and is cached.
  */
 public class DateUtil {
 
@@ -40,33 +44,46 @@ public class DateUtil {
     // Alternate ISO 8601 format without fractional seconds
     private static final String ALTERNATIVE_ISO8601_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
+    private static final ThreadLocal<DateFormat> RFC822 = newDateFormat(RFC822_DATE_FORMAT);
+    private static final ThreadLocal<DateFormat> ISO8601 = newDateFormat(ISO8601_DATE_FORMAT);
+    private static final ThreadLocal<DateFormat> ALTERNATIVE_ISO8601 = newDateFormat(ALTERNATIVE_ISO8601_DATE_FORMAT);
+
+    private static volatile CachedDate currentRfc822Date = new CachedDate(Long.MIN_VALUE, null);
+
     /**
      * Formats Date to GMT string.
      */
     public static String formatRfc822Date(Date date) {
-        return getRfc822DateFormat().format(date);
+        return RFC822.get().format(date);
     }
 
     /**
-     * Parses a GMT-format string.
+     * Formats the current time to GMT string, reusing the string formatted
+     * earlier in the same second.
      */
-    public static Date parseRfc822Date(String dateString) throws ParseException {
-        return getRfc822DateFormat().parse(dateString);
+    public static String currentRfc822Date() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate cached = currentRfc822Date;
+        if (cached.second != second) {
+            cached = new CachedDate(second, formatRfc822Date(new Date(second * 1000)));
+            currentRfc822Date = cached;
+        }
+        return cached.value;
     }
 
-    private static DateFormat getRfc822DateFormat() {
-        SimpleDateFormat rfc822DateFormat = new SimpleDateFormat(RFC822_DATE_FORMAT, Locale.US);
-        rfc822DateFormat.setTimeZone(new SimpleTimeZone(0, "GMT"));
-
-        return rfc822DateFormat;
+    /**
+     * Parses a GMT-format string.
+     */
+    public static Date parseRfc822Date(String dateString) throws ParseException {
+        return RFC822.get().parse(dateString);
     }
 
     public static String formatIso8601Date(Date date) {
-        return getIso8601DateFormat().format(date);
+        return ISO8601.get().format(date);
     }
 
     public static String formatAlternativeIso8601Date(Date date) {
-        return getAlternativeIso8601DateFormat().format(date);
+        return ALTERNATIVE_ISO8601.get().format(date);
     }
 
     /**
@@ -77,22 +94,89 @@ public class DateUtil {
      * @throws ParseException
      */
     public static Date parseIso8601Date(String dateString) throws ParseException {
+        Date date = parseCanonicalIso8601Date(dateString);
+        if (date != null) {
+            return date;
+        }
         try {
-            return getIso8601DateFormat().parse(dateString);
+            return ISO8601.get().parse(dateString);
         } catch (ParseException e) {
-            return getAlternativeIso8601DateFormat().parse(dateString);
+            return ALTERNATIVE_ISO8601.get().parse(dateString);
+        }
+    }
+
+    /**
+     * Parses the exact form OSS returns, e.g. 2012-02-24T08:42:32.000Z,
+     * without going through SimpleDateFormat, which allocates a calendar's
+     * worth of garbage per call and shows up when listing thousands of keys.
+     * Returns null for anything else so the formats above decide.
+     */
+    private static Date parseCanonicalIso8601Date(String s) {
+        if (s == null || s.length() != 24 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T'
+                || s.charAt(13) != ':' || s.charAt(16) != ':' || s.charAt(19) != '.' || s.charAt(23) != 'Z') {
+            return null;
+        }
+        int year = parseDigits(s, 0, 4);
+        int month = parseDigits(s, 5, 7);
+        int day = parseDigits(s, 8, 10);
+        int hour = parseDigits(s, 11, 13);
+        int minute = parseDigits(s, 14, 16);
+        int second = parseDigits(s, 17, 19);
+        int millis = parseDigits(s, 20, 23);
+        // Before the Gregorian cutover SimpleDateFormat uses the Julian calendar.
+        if (year < 1583 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0
+                || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return null;
+        }
+
+        // Days since the epoch in the proleptic Gregorian calendar.
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097L + dayOfEra - 719468;
+
+        return new Date((((days * 24 + hour) * 60 + minute) * 60 + second) * 1000 + millis);
+    }
+
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
         }
+        return value;
     }
 
-    private static DateFormat getIso8601DateFormat() {
-        SimpleDateFormat df = new SimpleDateFormat(ISO8601_DATE_FORMAT, Locale.US);
-        df.setTimeZone(new SimpleTimeZone(0, "GMT"));
-        return df;
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
     }
 
-    private static DateFormat getAlternativeIso8601DateFormat() {
-        SimpleDateFormat df = new SimpleDateFormat(ALTERNATIVE_ISO8601_DATE_FORMAT, Locale.US);
-        df.setTimeZone(new SimpleTimeZone(0, "GMT"));
-        return df;
+    private static ThreadLocal<DateFormat> newDateFormat(final String pattern) {
+        return new ThreadLocal<DateFormat>() {
+            @Override
+            protected DateFormat initialValue() {
+                SimpleDateFormat df = new SimpleDateFormat(pattern, Locale.US);
+                df.setTimeZone(new SimpleTimeZone(0, "GMT"));
+                return df;
+            }
+        };
+    }
+
+    private static final class CachedDate {
+        private final long second;
+        private final String value;
+
+        private CachedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
     }
 }
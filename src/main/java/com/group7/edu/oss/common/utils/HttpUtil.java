@@ -21,7 +21,7 @@ package com.group7.edu.oss.common.utils;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -30,20 +30,60 @@ import static com.group7.edu.oss.internal.OSSUtils.OSS_RESOURCE_MANAGER;
 
 public class HttpUtil {
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     /**
      * Encode a URL segment with special chars replaced.
+     *
+     * Produces the same output as URLEncoder with '+', '*', '~' and '/'
+     * percent-encoded, in a single pass: only letters, digits, '-', '_' and
+     * '.' are kept, every other run of chars is encoded with the charset.
      */
     public static String urlEncode(String value, String encoding) {
         if (value == null) {
             return "";
         }
 
+        Charset charset;
         try {
-            String encoded = URLEncoder.encode(value, encoding);
-            return encoded.replace("+", "%20").replace("*", "%2A").replace("~", "%7E").replace("/", "%2F");
-        } catch (UnsupportedEncodingException e) {
+            charset = Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException(OSS_RESOURCE_MANAGER.getString("FailedToEncodeUri"), e);
         }
+
+        int length = value.length();
+        int i = 0;
+        while (i < length && isUnreserved(value.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return value;
+        }
+
+        StringBuilder encoded = new StringBuilder(length + 16);
+        encoded.append(value, 0, i);
+        while (i < length) {
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                encoded.append(c);
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && !isUnreserved(value.charAt(end))) {
+                end++;
+            }
+            for (byte b : value.substring(i, end).getBytes(charset)) {
+                encoded.append('%').append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+            }
+            i = end;
+        }
+        return encoded.toString();
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.';
     }
 
     public static String urlDecode(String value, String encoding) {
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.group7.edu.oss.common.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations with microsecond resolution. Each
+ * power of two is split into eight buckets, so a percentile, reported as the
+ * upper bound of its bucket, is at most 12.5% above the true value.
+ * Recording is a few atomic operations and can be done from any thread.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /* Up to 2^38 microseconds, about 76 hours; longer durations go to the last bucket. */
+    private static final int MAX_EXPONENT = 38;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long duration, TimeUnit unit) {
+        long nanos = Math.max(0, unit.toNanos(duration));
+        counts.incrementAndGet(bucketOf(nanos / 1000));
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+        }
+    }
+
+    /**
+     * Takes a point-in-time copy of the histogram. Concurrent recordings may
+     * be partially included.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, totalNanos.get(), maxNanos.get());
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, SUB_BUCKETS + shift * SUB_BUCKETS + subBucket);
+    }
+
+    /**
+     * Exclusive upper bound of a bucket in milliseconds.
+     */
+    static double upperBoundMillis(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return (bucket + 1) / 1000.0;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) / 1000.0;
+    }
+
+    /**
+     * An immutable copy of a {@link LatencyHistogram}.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long totalNanos, long maxNanos) {
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Gets an empty snapshot, the starting point for {@link #merge}.
+         */
+        public static Snapshot empty() {
+            return new Snapshot(new long[BUCKETS], 0, 0);
+        }
+
+        /**
+         * Combines two snapshots, e.g. of the same operation with different
+         * status codes.
+         */
+        public Snapshot merge(Snapshot other) {
+            long[] sum = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                sum[i] = counts[i] + other.counts[i];
+            }
+            return new Snapshot(sum, totalNanos + other.totalNanos, Math.max(maxNanos, other.maxNanos));
+        }
+
+        /**
+         * Gets the recordings made between an earlier snapshot of the same
+         * histogram and this one. The maximum of the interval is not kept, so
+         * it is estimated by the upper bound of its highest bucket.
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] delta = new long[BUCKETS];
+            int highest = -1;
+            for (int i = 0; i < BUCKETS; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+                if (delta[i] > 0) {
+                    highest = i;
+                }
+            }
+            long max = highest < 0 ? 0 : highest == BUCKETS - 1 ? maxNanos
+                    : Math.min(maxNanos, (long) (upperBoundMillis(highest) * 1e6));
+            return new Snapshot(delta, totalNanos - earlier.totalNanos, max);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        /**
+         * Gets the duration, in milliseconds, below which the given fraction
+         * of the recordings fall, rounded up to a bucket bound and capped by
+         * the largest recording.
+         *
+         * @param quantile
+         *            A value between 0 and 1, e.g. 0.99.
+         */
+        public double getPercentileMillis(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0 && i < counts.length - 1) {
+                    return Math.min(upperBoundMillis(i), getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        /**
+         * Gets the number of recordings per bucket, in increasing order of
+         * duration; see {@link #getBucketUpperBoundMillis(int)}.
+         */
+        public long[] getBucketCounts() {
+            return counts.clone();
+        }
+
+        /**
+         * Gets the exclusive upper bound, in milliseconds, of the durations
+         * counted in the given bucket.
+         */
+        public double getBucketUpperBoundMillis(int bucket) {
+            return upperBoundMillis(bucket);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms", count,
+                    getMeanMillis(), getPercentileMillis(0.5), getPercentileMillis(0.9), getPercentileMillis(0.99),
+                    getMaxMillis());
+        }
+    }
+}
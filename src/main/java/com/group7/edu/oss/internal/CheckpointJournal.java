@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.group7.edu.oss.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only checkpoint file for resumable transfers. The file starts
+ * with a serialized snapshot of the checkpoint and is followed by one small
+ * record per completed part, so finishing a part costs one short write
+ * instead of re-serializing the whole checkpoint.
+ * <p>
+ * Layout: magic, version, the length, bytes and CRC32 of the serialized
+ * snapshot, then records of length, payload and CRC32 of the payload. A
+ * record cut short by a crash fails its length or CRC check and ends the
+ * replay, so at worst the parts recorded last are transferred again.
+ * <p>
+ * Records reach the file as they are appended; forcing them to the device
+ * is done in groups, once enough records or time have gone by since the
+ * last force, and on close.
+ * <p>
+ * Checkpoint files written by earlier versions, which hold a single
+ * serialized object, are still read by {@link #load}.
+ */
+final class CheckpointJournal implements Closeable {
+
+    /** Replays one record onto the checkpoint read from the snapshot. */
+    interface Replayer<T> {
+        void replay(T checkpoint, DataInputStream record) throws IOException;
+    }
+
+    /** Writes the fields of one record. */
+    interface RecordWriter {
+        void write(DataOutputStream record) throws IOException;
+    }
+
+    private static final int MAGIC = 0x4F43504A; // "OCPJ"
+    private static final int VERSION = 1;
+    private static final int MAX_RECORD_LENGTH = 64 * OSSConstants.KB;
+
+    /* Records appended before the journal is forced to the device. */
+    private static final int SYNC_RECORDS = 64;
+    private static final long SYNC_INTERVAL_NANOS = 1000L * 1000 * 1000;
+
+    private final FileChannel channel;
+    private int unsynced;
+    private long lastSync = System.nanoTime();
+
+    private CheckpointJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Starts a journal holding only the given snapshot, replacing the file
+     * in one rename so that an earlier checkpoint stays readable until the
+     * new one is complete.
+     */
+    static CheckpointJournal create(String file, Serializable snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(snapshot);
+        out.close();
+        byte[] snapshotBytes = bytes.toByteArray();
+
+        ByteBuffer header = ByteBuffer.allocate(16 + snapshotBytes.length);
+        header.putInt(MAGIC).putInt(VERSION).putInt(snapshotBytes.length).put(snapshotBytes)
+                .putInt((int) crc32(snapshotBytes, 0, snapshotBytes.length));
+        header.flip();
+
+        Path target = new File(file).toPath();
+        Path temp = new File(file + ".tmp").toPath();
+        FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (header.hasRemaining()) {
+                tempChannel.write(header);
+            }
+            tempChannel.force(true);
+        } finally {
+            tempChannel.close();
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return new CheckpointJournal(FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Reads the snapshot of a checkpoint file and replays its records in
+     * order. A file in the earlier format is read as a single object and has
+     * no records.
+     */
+    static <T> T load(String file, Class<T> type, Replayer<T> replayer) throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            in.mark(4);
+            if (in.readInt() != MAGIC) {
+                in.reset();
+                return type.cast(new ObjectInputStream(in).readObject());
+            }
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unsupported checkpoint version");
+            }
+
+            byte[] snapshotBytes = new byte[in.readInt()];
+            in.readFully(snapshotBytes);
+            if (in.readInt() != (int) crc32(snapshotBytes, 0, snapshotBytes.length)) {
+                throw new IOException("Corrupted checkpoint snapshot");
+            }
+            T snapshot = type.cast(new ObjectInputStream(new ByteArrayInputStream(snapshotBytes)).readObject());
+
+            byte[] record = new byte[256];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_LENGTH) {
+                        break;
+                    }
+                    if (length > record.length) {
+                        record = new byte[length];
+                    }
+                    in.readFully(record, 0, length);
+                    if (in.readInt() != (int) crc32(record, 0, length)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                replayer.replay(snapshot, new DataInputStream(new ByteArrayInputStream(record, 0, length)));
+            }
+            return snapshot;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Appends one record. Safe to call from several part threads; only the
+     * write itself is serialized.
+     */
+    void append(RecordWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        writer.write(new DataOutputStream(bytes));
+        byte[] payload = bytes.toByteArray();
+
+        ByteBuffer frame = ByteBuffer.allocate(payload.length + 8);
+        frame.putInt(payload.length).put(payload).putInt((int) crc32(payload, 0, payload.length));
+        frame.flip();
+
+        boolean sync;
+        synchronized (this) {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            long now = System.nanoTime();
+            sync = ++unsynced >= SYNC_RECORDS || now - lastSync >= SYNC_INTERVAL_NANOS;
+            if (sync) {
+                unsynced = 0;
+                lastSync = now;
+            }
+        }
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Forces the remaining records to the device and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static long crc32(byte[] b, int off, int len) {
+        CRC32 crc = new CRC32();
+        crc.update(b, off, len);
+        return crc.getValue();
+    }
+}
@@ -28,11 +28,14 @@ import com.group7.edu.oss.common.comm.ServiceClient;
 import com.group7.edu.oss.common.utils.BinaryUtil;
 import com.group7.edu.oss.common.utils.ExceptionFactory;
 import com.group7.edu.oss.common.utils.HttpHeaders;
+import com.group7.edu.oss.common.utils.HttpUtil;
 import com.group7.edu.oss.model.*;
 import org.apache.http.HttpStatus;
 
 import java.io.ByteArrayInputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static com.group7.edu.oss.common.parser.RequestMarshallers.*;
 import static com.group7.edu.oss.common.utils.CodingUtils.assertParameterNotNull;
@@ -299,6 +302,78 @@ public class OSSBucketOperation extends OSSOperation {
 
         assertParameterNotNull(listObjectsRequest, "listObjectsRequest");
 
+        RequestMessage request = buildListObjectsRequest(listObjectsRequest);
+        return doOperation(request, listObjectsReponseParser, request.getBucket(), null, true);
+    }
+
+    /**
+     * Asynchronously list objects under the specified bucket.
+     */
+    public CompletableFuture<ObjectListing> listObjectsAsync(ListObjectsRequest listObjectsRequest) {
+
+        assertParameterNotNull(listObjectsRequest, "listObjectsRequest");
+
+        RequestMessage request = buildListObjectsRequest(listObjectsRequest);
+        return doOperationAsync(request, listObjectsReponseParser, request.getBucket(), null, true);
+    }
+
+    /**
+     * Iterate over all objects matching the request, starting from its
+     * marker and following the listing across pages. The next page is
+     * fetched in the background while the current one is consumed, and at
+     * most two pages are held in memory. Common prefixes are not returned.
+     * Each call of {@link Iterable#iterator()} starts a new listing.
+     */
+    public Iterable<OSSObjectSummary> listAllObjects(final ListObjectsRequest listObjectsRequest) {
+
+        assertParameterNotNull(listObjectsRequest, "listObjectsRequest");
+        assertParameterNotNull(listObjectsRequest.getBucketName(), "bucketName");
+
+        return () -> iterateObjects(listObjectsRequest);
+    }
+
+    /**
+     * Same as {@link #listAllObjects} as a sequential stream. Closing the
+     * stream before it is exhausted cancels the page being prefetched.
+     */
+    public Stream<OSSObjectSummary> streamObjects(ListObjectsRequest listObjectsRequest) {
+
+        assertParameterNotNull(listObjectsRequest, "listObjectsRequest");
+        assertParameterNotNull(listObjectsRequest.getBucketName(), "bucketName");
+
+        return iterateObjects(listObjectsRequest).stream();
+    }
+
+    private PrefetchingIterator<ObjectListing, OSSObjectSummary> iterateObjects(
+            final ListObjectsRequest listObjectsRequest) {
+        return new PrefetchingIterator<ObjectListing, OSSObjectSummary>(previous -> {
+            if (previous == null) {
+                return listObjectsAsync(copyListObjectsRequest(listObjectsRequest, listObjectsRequest.getMarker()));
+            }
+            String nextMarker = previous.getNextMarker();
+            if (!previous.isTruncated() || nextMarker == null) {
+                return null;
+            }
+            if (OSSConstants.URL_ENCODING.equals(previous.getEncodingType())) {
+                nextMarker = HttpUtil.urlDecode(nextMarker, OSSConstants.DEFAULT_CHARSET_NAME);
+            }
+            return listObjectsAsync(copyListObjectsRequest(listObjectsRequest, nextMarker));
+        }, ObjectListing::getObjectSummaries);
+    }
+
+    private static ListObjectsRequest copyListObjectsRequest(ListObjectsRequest original, String marker) {
+        ListObjectsRequest copy = new ListObjectsRequest(original.getBucketName(), original.getPrefix(), marker,
+                original.getDelimiter(), original.getMaxKeys());
+        copy.setEncodingType(original.getEncodingType());
+        copy.setParameters(original.getParameters());
+        copy.setHeaders(original.getHeaders());
+        copy.setAdditionalHeaderNames(original.getAdditionalHeaderNames());
+        copy.setLogEnabled(original.isLogEnabled());
+        return copy;
+    }
+
+    private RequestMessage buildListObjectsRequest(ListObjectsRequest listObjectsRequest) {
+
         String bucketName = listObjectsRequest.getBucketName();
         assertParameterNotNull(bucketName, "bucketName");
         ensureBucketNameValid(bucketName);
@@ -306,11 +381,9 @@ public class OSSBucketOperation extends OSSOperation {
         Map<String, String> params = new LinkedHashMap<String, String>();
         populateListObjectsRequestParameters(listObjectsRequest, params);
 
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.GET).setBucket(bucketName).setParameters(params)
                 .setOriginalRequest(listObjectsRequest).build();
-
-        return doOperation(request, listObjectsReponseParser, bucketName, null, true);
     }
 
     /**
@@ -29,6 +29,8 @@ public final class OSSConstants {
     public static final String DEFAULT_CHARSET_NAME = "utf-8";
     public static final String DEFAULT_XML_ENCODING = "utf-8";
 
+    public static final String URL_ENCODING = "url";
+
     public static final String DEFAULT_OBJECT_CONTENT_TYPE = "application/octet-stream";
 
     public static final int KB = 1024;
@@ -28,8 +28,12 @@ import com.group7.edu.oss.event.ProgressPublisher;
 import com.group7.edu.oss.model.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.group7.edu.oss.common.utils.CodingUtils.assertParameterNotNull;
 import static com.group7.edu.oss.common.utils.LogUtils.logException;
@@ -49,27 +53,61 @@ public class OSSDownloadOperation {
         private static final String DOWNLOAD_MAGIC = "92611BED-89E2-46B6-89E5-72F273D4B0A3";
 
         /**
-         * Loads the checkpoint data from the checkpoint file.
+         * Loads the checkpoint data from the checkpoint file, replaying the
+         * parts recorded after its snapshot.
          */
         public synchronized void load(String cpFile) throws IOException, ClassNotFoundException {
-            FileInputStream fileIn = new FileInputStream(cpFile);
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            DownloadCheckPoint dcp = (DownloadCheckPoint) in.readObject();
+            DownloadCheckPoint dcp = CheckpointJournal.load(cpFile, DownloadCheckPoint.class,
+                    DownloadCheckPoint::replay);
+            if (dcp.replayed) {
+                // The snapshot is guarded by its own CRC, the replayed parts
+                // changed what the md5 was taken over.
+                dcp.md5 = dcp.hashCode();
+            }
             assign(dcp);
-            in.close();
-            fileIn.close();
         }
 
         /**
-         * Writes the checkpoint data to the checkpoint file.
+         * Writes the checkpoint data to the checkpoint file as a new journal,
+         * which the parts completed later are appended to.
          */
         public synchronized void dump(String cpFile) throws IOException {
+            close();
             this.md5 = hashCode();
-            FileOutputStream fileOut = new FileOutputStream(cpFile);
-            ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
-            outStream.writeObject(this);
-            outStream.close();
-            fileOut.close();
+            journal = CheckpointJournal.create(cpFile, this);
+        }
+
+        /**
+         * Appends a completed part to the checkpoint journal.
+         */
+        public void record(final int index) throws IOException {
+            final DownloadPart downloadPart = downloadParts.get(index);
+            final long length = downloadPart.length;
+            final long crc = downloadPart.crc;
+            journal.append(record -> {
+                record.writeInt(index);
+                record.writeLong(length);
+                record.writeLong(crc);
+            });
+        }
+
+        /**
+         * Closes the checkpoint journal, forcing the last records out.
+         */
+        public synchronized void close() throws IOException {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+
+        private static void replay(DownloadCheckPoint dcp, DataInputStream record) throws IOException {
+            int index = record.readInt();
+            DownloadPart downloadPart = dcp.downloadParts.get(index);
+            downloadPart.length = record.readLong();
+            downloadPart.crc = record.readLong();
+            dcp.update(index, true);
+            dcp.replayed = true;
         }
 
         /**
@@ -134,6 +172,8 @@ public class OSSDownloadOperation {
         public ObjectStat objectStat; // object state
         public ArrayList<DownloadPart> downloadParts; // download parts list.
 
+        private transient CheckpointJournal journal;
+        private transient boolean replayed;
     }
 
     static class ObjectStat implements Serializable {
@@ -295,6 +335,12 @@ public class OSSDownloadOperation {
         private ObjectMetadata objectMetadata;
     }
 
+    /* Upper bound on the threads downloading parts, across all downloads. */
+    private static final int MAX_DOWNLOAD_THREADS = 64;
+
+    /* Bytes gathered before each positional write to the file. */
+    private static final int WRITE_BUFFER_SIZE = 128 * OSSConstants.KB;
+
     public OSSDownloadOperation(OSSObjectOperation objectOperation) {
         this.objectOperation = objectOperation;
     }
@@ -353,12 +399,23 @@ public class OSSDownloadOperation {
             prepare(downloadCheckPoint, downloadFileRequest);
         }
 
+        // Starts the checkpoint journal from the current state, each part
+        // completed from here on is appended to it.
+        if (downloadFileRequest.isEnableCheckpoint()) {
+            downloadCheckPoint.dump(downloadFileRequest.getCheckpointFile());
+        }
+
         // Progress listen starts tracking the progress.
         ProgressListener listener = downloadFileRequest.getProgressListener();
         ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
 
         // Concurrently download parts.
-        DownloadResult downloadResult = download(downloadCheckPoint, downloadFileRequest);
+        DownloadResult downloadResult;
+        try {
+            downloadResult = download(downloadCheckPoint, downloadFileRequest);
+        } finally {
+            downloadCheckPoint.close();
+        }
         Long serverCRC = null;
         for (PartResult partResult : downloadResult.getPartResults()) {
             if (partResult.getServerCRC() != null) {
@@ -442,8 +499,6 @@ public class OSSDownloadOperation {
             throws Throwable {
         DownloadResult downloadResult = new DownloadResult();
         ArrayList<PartResult> taskResults = new ArrayList<PartResult>();
-        ExecutorService service = Executors.newFixedThreadPool(downloadFileRequest.getTaskNum());
-        ArrayList<Future<PartResult>> futures = new ArrayList<Future<PartResult>>();
         List<Task> tasks = new ArrayList<Task>();
         ProgressListener listener = downloadFileRequest.getProgressListener();
 
@@ -459,31 +514,55 @@ public class OSSDownloadOperation {
         ProgressPublisher.publishResponseContentLength(listener, contentLength);
         downloadFileRequest.setProgressListener(null);
 
-        // Concurrently download parts.
-        for (int i = 0; i < downloadCheckPoint.downloadParts.size(); i++) {
-            if (!downloadCheckPoint.downloadParts.get(i).isCompleted) {
-                Task task = new Task(i, "download-" + i, downloadCheckPoint, i, downloadFileRequest, objectOperation,
-                        listener);
-                futures.add(service.submit(task));
-                tasks.add(task);
-            } else {
-                taskResults.add(new PartResult(i + 1, downloadCheckPoint.downloadParts.get(i).start,
-                        downloadCheckPoint.downloadParts.get(i).end, downloadCheckPoint.downloadParts.get(i).length,
-                        downloadCheckPoint.downloadParts.get(i).crc));
-            }
-        }
-        service.shutdown();
+        // Concurrently download parts on the shared executor, keeping at most
+        // taskNum of them in flight. All parts write to the same channel at
+        // their own positions.
+        FileChannel channel = FileChannel.open(new File(downloadFileRequest.getTempDownloadFile()).toPath(),
+                StandardOpenOption.WRITE);
+        boolean partFailed = false;
+        Throwable failure = null;
+        try {
+            CompletionService<PartResult> completionService = new ExecutorCompletionService<PartResult>(
+                    getExecutor());
+            int maxInFlight = Math.max(1, downloadFileRequest.getTaskNum());
+            int inFlight = 0;
+            int next = 0;
+            while (true) {
+                for (; !partFailed && failure == null && inFlight < maxInFlight && next < downloadCheckPoint.downloadParts.size();
+                        next++) {
+                    DownloadPart part = downloadCheckPoint.downloadParts.get(next);
+                    if (!part.isCompleted) {
+                        Task task = new Task(next, "download-" + next, downloadCheckPoint, next,
+                                downloadFileRequest, objectOperation, listener, channel, bufferPool);
+                        completionService.submit(task);
+                        tasks.add(task);
+                        inFlight++;
+                    } else {
+                        taskResults.add(new PartResult(next + 1, part.start, part.end, part.length, part.crc));
+                    }
+                }
+                if (inFlight == 0) {
+                    break;
+                }
 
-        // Waiting for all parts download,
-        service.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
-        for (Future<PartResult> future : futures) {
-            try {
-                PartResult tr = future.get();
-                taskResults.add(tr);
-            } catch (ExecutionException e) {
-                downloadFileRequest.setProgressListener(listener);
-                throw e.getCause();
+                // Waiting for the next part to finish.
+                try {
+                    PartResult tr = completionService.take().get();
+                    taskResults.add(tr);
+                    // After a failure stop submitting; the parts in flight
+                    // still finish and are recorded in the checkpoint.
+                    partFailed |= tr.isFailed();
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                }
+                inFlight--;
             }
+        } finally {
+            channel.close();
+            downloadFileRequest.setProgressListener(listener);
+        }
+        if (failure != null) {
+            throw failure;
         }
 
         // Sorts the download result by the part number.
@@ -499,16 +578,54 @@ public class OSSDownloadOperation {
         if (tasks.size() > 0) {
             downloadResult.setObjectMetadata(tasks.get(0).GetobjectMetadata());
         }
-        downloadFileRequest.setProgressListener(listener);
 
         return downloadResult;
     }
 
+    /**
+     * Gets the executor shared by all downloads of this client, creating it
+     * on first use. Idle threads exit after a minute.
+     */
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(MAX_DOWNLOAD_THREADS, MAX_DOWNLOAD_THREADS, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), r -> {
+                        Thread thread = new Thread(r, "oss-download-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the shared download executor once the running parts finish.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        bufferPool.clear();
+    }
+
+    /**
+     * The buffers one part download works with: a heap chunk the response
+     * stream is read into, and a direct buffer the chunks are gathered in
+     * and written to the file from. A thread uses at most one pair at a
+     * time, so the pool never holds more than the executor has threads.
+     */
+    static class PartBuffer {
+        final byte[] chunk = new byte[DEFAULT_BUFFER_SIZE];
+        final ByteBuffer direct = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    }
+
     static class Task implements Callable<PartResult> {
 
         public Task(int id, String name, DownloadCheckPoint downloadCheckPoint, int partIndex,
                 DownloadFileRequest downloadFileRequest, OSSObjectOperation objectOperation,
-                ProgressListener progressListener) {
+                ProgressListener progressListener, FileChannel output, Queue<PartBuffer> bufferPool) {
             this.id = id;
             this.name = name;
             this.downloadCheckPoint = downloadCheckPoint;
@@ -516,21 +633,23 @@ public class OSSDownloadOperation {
             this.downloadFileRequest = downloadFileRequest;
             this.objectOperation = objectOperation;
             this.progressListener = progressListener;
+            this.output = output;
+            this.bufferPool = bufferPool;
         }
 
         @Override
         public PartResult call() throws Exception {
             PartResult tr = null;
-            RandomAccessFile output = null;
             InputStream content = null;
+            PartBuffer buffer = bufferPool.poll();
+            if (buffer == null) {
+                buffer = new PartBuffer();
+            }
 
             try {
                 DownloadPart downloadPart = downloadCheckPoint.downloadParts.get(partIndex);
                 tr = new PartResult(partIndex + 1, downloadPart.start, downloadPart.end);
 
-                output = new RandomAccessFile(downloadFileRequest.getTempDownloadFile(), "rw");
-                output.seek(downloadPart.start);
-
                 GetObjectRequest getObjectRequest = new GetObjectRequest(downloadFileRequest.getBucketName(),
                         downloadFileRequest.getKey());
                 getObjectRequest.setMatchingETagConstraints(downloadFileRequest.getMatchingETagConstraints());
@@ -542,13 +661,21 @@ public class OSSDownloadOperation {
 
                 OSSObject ossObj = objectOperation.getObject(getObjectRequest);
                 objectMetadata = ossObj.getObjectMetadata();
+                // The content is a CheckedInputStream, the part's CRC64 is
+                // computed as it is read.
                 content = ossObj.getObjectContent();
 
-                byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+                long position = downloadPart.start;
+                byte[] chunk = buffer.chunk;
+                ByteBuffer direct = buffer.direct;
                 int bytesRead = 0;
-                while ((bytesRead = content.read(buffer)) != -1) {
-                    output.write(buffer, 0, bytesRead);
+                while ((bytesRead = content.read(chunk)) != -1) {
+                    if (direct.remaining() < bytesRead) {
+                        position += writeFully(output, direct, position);
+                    }
+                    direct.put(chunk, 0, bytesRead);
                 }
+                writeFully(output, direct, position);
 
                 if (objectOperation.getInnerClient().getClientConfiguration().isCrcCheckEnabled()) {
                     Long clientCRC = IOUtils.getCRCValue(content);
@@ -560,18 +687,17 @@ public class OSSDownloadOperation {
                 }
                 downloadCheckPoint.update(partIndex, true);
                 if (downloadFileRequest.isEnableCheckpoint()) {
-                    downloadCheckPoint.dump(downloadFileRequest.getCheckpointFile());
+                    downloadCheckPoint.record(partIndex);
                 }
                 ProgressPublisher.publishResponseBytesTransferred(progressListener,
                         (downloadPart.end - downloadPart.start + 1));
             } catch (Exception e) {
                 tr.setFailed(true);
                 tr.setException(e);
-                logException(String.format("Task %d:%s upload part %d failed: ", id, name, partIndex), e);
+                logException(String.format("Task %d:%s download part %d failed: ", id, name, partIndex), e);
             } finally {
-                if (output != null) {
-                    output.close();
-                }
+                buffer.direct.clear();
+                bufferPool.offer(buffer);
 
                 if (content != null) {
                     content.close();
@@ -581,6 +707,21 @@ public class OSSDownloadOperation {
             return tr;
         }
 
+        /**
+         * Writes the buffered bytes at the given position and empties the
+         * buffer. Positional writes leave the channel's own position alone,
+         * so parts write concurrently without locking.
+         */
+        private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            buffer.flip();
+            int written = 0;
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, position + written);
+            }
+            buffer.clear();
+            return written;
+        }
+
         public ObjectMetadata GetobjectMetadata() {
             return objectMetadata;
         }
@@ -593,6 +734,8 @@ public class OSSDownloadOperation {
         private OSSObjectOperation objectOperation;
         private ObjectMetadata objectMetadata;
         private ProgressListener progressListener;
+        private FileChannel output;
+        private Queue<PartBuffer> bufferPool;
     }
 
     private ArrayList<DownloadPart> splitFile(long objectSize, long partSize) {
@@ -689,4 +832,6 @@ public class OSSDownloadOperation {
     }
 
     private OSSObjectOperation objectOperation;
+    private ThreadPoolExecutor executor;
+    private final Queue<PartBuffer> bufferPool = new ConcurrentLinkedQueue<PartBuffer>();
 }
@@ -27,7 +27,9 @@ import com.group7.edu.oss.common.comm.RequestMessage;
 import com.group7.edu.oss.common.comm.ResponseHandler;
 import com.group7.edu.oss.common.comm.ResponseMessage;
 import com.group7.edu.oss.common.comm.ServiceClient;
+import com.group7.edu.oss.common.parser.XmlBody;
 import com.group7.edu.oss.common.utils.CRC64;
+import com.group7.edu.oss.common.utils.HttpHeaders;
 import com.group7.edu.oss.common.utils.HttpUtil;
 import com.group7.edu.oss.event.ProgressEventType;
 import com.group7.edu.oss.event.ProgressListener;
@@ -38,6 +40,8 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static com.group7.edu.oss.common.parser.RequestMarshallers.completeMultipartUploadRequestMarshaller;
 import static com.group7.edu.oss.common.utils.CodingUtils.*;
@@ -99,6 +103,65 @@ public class OSSMultipartOperation extends OSSOperation {
 
         assertParameterNotNull(completeMultipartUploadRequest, "completeMultipartUploadRequest");
 
+        RequestMessage request = buildCompleteMultipartUploadRequest(completeMultipartUploadRequest);
+        String bucketName = request.getBucket();
+        String key = request.getKey();
+
+        CompleteMultipartUploadResult result = null;
+        if (!isNeedReturnResponse(completeMultipartUploadRequest)) {
+            result = doOperation(request, completeMultipartUploadResponseParser, bucketName, key, true);
+        } else {
+            result = doOperation(request, completeMultipartUploadProcessResponseParser, bucketName, key, true, null,
+                    callbackResponseHandlers());
+        }
+
+        return checkCompleteResult(completeMultipartUploadRequest, result);
+    }
+
+    /**
+     * Asynchronously complete multipart upload.
+     */
+    public CompletableFuture<CompleteMultipartUploadResult> completeMultipartUploadAsync(
+            final CompleteMultipartUploadRequest completeMultipartUploadRequest) {
+
+        assertParameterNotNull(completeMultipartUploadRequest, "completeMultipartUploadRequest");
+
+        RequestMessage request = buildCompleteMultipartUploadRequest(completeMultipartUploadRequest);
+        String bucketName = request.getBucket();
+        String key = request.getKey();
+
+        CompletableFuture<CompleteMultipartUploadResult> future;
+        if (!isNeedReturnResponse(completeMultipartUploadRequest)) {
+            future = doOperationAsync(request, completeMultipartUploadResponseParser, bucketName, key, true);
+        } else {
+            future = doOperationAsync(request, completeMultipartUploadProcessResponseParser, bucketName, key, true,
+                    null, callbackResponseHandlers());
+        }
+
+        return cancelWith(future.thenApply(result -> checkCompleteResult(completeMultipartUploadRequest, result)),
+                future, result -> {
+                });
+    }
+
+    private CompleteMultipartUploadResult checkCompleteResult(
+            CompleteMultipartUploadRequest completeMultipartUploadRequest, CompleteMultipartUploadResult result) {
+        result.setClientCRC(calcObjectCRCFromParts(completeMultipartUploadRequest.getPartETags()));
+        if (getInnerClient().getClientConfiguration().isCrcCheckEnabled()) {
+            OSSUtils.checkChecksum(result.getClientCRC(), result.getServerCRC(), result.getRequestId());
+        }
+
+        return result;
+    }
+
+    private static List<ResponseHandler> callbackResponseHandlers() {
+        List<ResponseHandler> reponseHandlers = new ArrayList<ResponseHandler>();
+        reponseHandlers.add(new OSSCallbackErrorResponseHandler());
+        return reponseHandlers;
+    }
+
+    private RequestMessage buildCompleteMultipartUploadRequest(
+            CompleteMultipartUploadRequest completeMultipartUploadRequest) {
+
         String key = completeMultipartUploadRequest.getKey();
         String bucketName = completeMultipartUploadRequest.getBucketName();
         String uploadId = completeMultipartUploadRequest.getUploadId();
@@ -125,30 +188,14 @@ public class OSSMultipartOperation extends OSSOperation {
             }
         });
 
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        XmlBody rawContent = completeMultipartUploadRequestMarshaller.marshall(completeMultipartUploadRequest);
+        headers.put(HttpHeaders.CONTENT_MD5, rawContent.getContentMd5());
+
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.POST).setBucket(bucketName).setKey(key).setHeaders(headers)
                 .setParameters(parameters)
-                .setInputStreamWithLength(
-                        completeMultipartUploadRequestMarshaller.marshall(completeMultipartUploadRequest))
+                .setInputStreamWithLength(rawContent.toInputStream())
                 .setOriginalRequest(completeMultipartUploadRequest).build();
-
-        List<ResponseHandler> reponseHandlers = new ArrayList<ResponseHandler>();
-        reponseHandlers.add(new OSSCallbackErrorResponseHandler());
-
-        CompleteMultipartUploadResult result = null;
-        if (!isNeedReturnResponse(completeMultipartUploadRequest)) {
-            result = doOperation(request, completeMultipartUploadResponseParser, bucketName, key, true);
-        } else {
-            result = doOperation(request, completeMultipartUploadProcessResponseParser, bucketName, key, true, null,
-                    reponseHandlers);
-        }
-
-        result.setClientCRC(calcObjectCRCFromParts(completeMultipartUploadRequest.getPartETags()));
-        if (getInnerClient().getClientConfiguration().isCrcCheckEnabled()) {
-            OSSUtils.checkChecksum(result.getClientCRC(), result.getServerCRC(), result.getRequestId());
-        }
-
-        return result;
     }
 
     /**
@@ -159,6 +206,26 @@ public class OSSMultipartOperation extends OSSOperation {
 
         assertParameterNotNull(initiateMultipartUploadRequest, "initiateMultipartUploadRequest");
 
+        RequestMessage request = buildInitiateMultipartUploadRequest(initiateMultipartUploadRequest);
+        return doOperation(request, initiateMultipartUploadResponseParser, request.getBucket(), request.getKey(), true);
+    }
+
+    /**
+     * Asynchronously initiate multipart upload.
+     */
+    public CompletableFuture<InitiateMultipartUploadResult> initiateMultipartUploadAsync(
+            InitiateMultipartUploadRequest initiateMultipartUploadRequest) {
+
+        assertParameterNotNull(initiateMultipartUploadRequest, "initiateMultipartUploadRequest");
+
+        RequestMessage request = buildInitiateMultipartUploadRequest(initiateMultipartUploadRequest);
+        return doOperationAsync(request, initiateMultipartUploadResponseParser, request.getBucket(), request.getKey(),
+                true);
+    }
+
+    private RequestMessage buildInitiateMultipartUploadRequest(
+            InitiateMultipartUploadRequest initiateMultipartUploadRequest) {
+
         String key = initiateMultipartUploadRequest.getKey();
         String bucketName = initiateMultipartUploadRequest.getBucketName();
 
@@ -183,12 +250,10 @@ public class OSSMultipartOperation extends OSSOperation {
         // parameters
         // to request body. Set HttpRequestFactory#createHttpRequest for
         // details.
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.POST).setBucket(bucketName).setKey(key).setHeaders(headers).setParameters(params)
                 .setInputStream(new ByteArrayInputStream(new byte[0])).setInputSize(0)
                 .setOriginalRequest(initiateMultipartUploadRequest).build();
-
-        return doOperation(request, initiateMultipartUploadResponseParser, bucketName, key, true);
     }
 
     /**
@@ -199,6 +264,85 @@ public class OSSMultipartOperation extends OSSOperation {
 
         assertParameterNotNull(listMultipartUploadsRequest, "listMultipartUploadsRequest");
 
+        RequestMessage request = buildListMultipartUploadsRequest(listMultipartUploadsRequest);
+        return doOperation(request, listMultipartUploadsResponseParser, request.getBucket(), null, true);
+    }
+
+    /**
+     * Asynchronously list multipart uploads.
+     */
+    public CompletableFuture<MultipartUploadListing> listMultipartUploadsAsync(
+            ListMultipartUploadsRequest listMultipartUploadsRequest) {
+
+        assertParameterNotNull(listMultipartUploadsRequest, "listMultipartUploadsRequest");
+
+        RequestMessage request = buildListMultipartUploadsRequest(listMultipartUploadsRequest);
+        return doOperationAsync(request, listMultipartUploadsResponseParser, request.getBucket(), null, true);
+    }
+
+    /**
+     * Iterate over all multipart uploads matching the request, following the
+     * listing across pages with the next page fetched in the background; see
+     * {@link OSSBucketOperation#listAllObjects}.
+     */
+    public Iterable<MultipartUpload> listAllMultipartUploads(
+            final ListMultipartUploadsRequest listMultipartUploadsRequest) {
+
+        assertParameterNotNull(listMultipartUploadsRequest, "listMultipartUploadsRequest");
+        assertParameterNotNull(listMultipartUploadsRequest.getBucketName(), "bucketName");
+
+        return () -> iterateMultipartUploads(listMultipartUploadsRequest);
+    }
+
+    /**
+     * Same as {@link #listAllMultipartUploads} as a sequential stream.
+     */
+    public Stream<MultipartUpload> streamMultipartUploads(ListMultipartUploadsRequest listMultipartUploadsRequest) {
+
+        assertParameterNotNull(listMultipartUploadsRequest, "listMultipartUploadsRequest");
+        assertParameterNotNull(listMultipartUploadsRequest.getBucketName(), "bucketName");
+
+        return iterateMultipartUploads(listMultipartUploadsRequest).stream();
+    }
+
+    private PrefetchingIterator<MultipartUploadListing, MultipartUpload> iterateMultipartUploads(
+            final ListMultipartUploadsRequest listMultipartUploadsRequest) {
+        return new PrefetchingIterator<MultipartUploadListing, MultipartUpload>(previous -> {
+            if (previous == null) {
+                return listMultipartUploadsAsync(copyListMultipartUploadsRequest(listMultipartUploadsRequest,
+                        listMultipartUploadsRequest.getKeyMarker(), listMultipartUploadsRequest.getUploadIdMarker()));
+            }
+            String nextKeyMarker = previous.getNextKeyMarker();
+            String nextUploadIdMarker = previous.getNextUploadIdMarker();
+            if (!previous.isTruncated() || (nextKeyMarker == null && nextUploadIdMarker == null)) {
+                return null;
+            }
+            if (OSSConstants.URL_ENCODING.equals(listMultipartUploadsRequest.getEncodingType())) {
+                nextKeyMarker = HttpUtil.urlDecode(nextKeyMarker, DEFAULT_CHARSET_NAME);
+            }
+            return listMultipartUploadsAsync(
+                    copyListMultipartUploadsRequest(listMultipartUploadsRequest, nextKeyMarker, nextUploadIdMarker));
+        }, MultipartUploadListing::getMultipartUploads);
+    }
+
+    private static ListMultipartUploadsRequest copyListMultipartUploadsRequest(ListMultipartUploadsRequest original,
+            String keyMarker, String uploadIdMarker) {
+        ListMultipartUploadsRequest copy = new ListMultipartUploadsRequest(original.getBucketName());
+        copy.setDelimiter(original.getDelimiter());
+        copy.setPrefix(original.getPrefix());
+        copy.setMaxUploads(original.getMaxUploads());
+        copy.setKeyMarker(keyMarker);
+        copy.setUploadIdMarker(uploadIdMarker);
+        copy.setEncodingType(original.getEncodingType());
+        copy.setParameters(original.getParameters());
+        copy.setHeaders(original.getHeaders());
+        copy.setAdditionalHeaderNames(original.getAdditionalHeaderNames());
+        copy.setLogEnabled(original.isLogEnabled());
+        return copy;
+    }
+
+    private RequestMessage buildListMultipartUploadsRequest(ListMultipartUploadsRequest listMultipartUploadsRequest) {
+
         String bucketName = listMultipartUploadsRequest.getBucketName();
         assertParameterNotNull(bucketName, "bucketName");
         ensureBucketNameValid(bucketName);
@@ -207,11 +351,9 @@ public class OSSMultipartOperation extends OSSOperation {
         Map<String, String> params = new LinkedHashMap<String, String>();
         populateListMultipartUploadsRequestParameters(listMultipartUploadsRequest, params);
 
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.GET).setBucket(bucketName).setParameters(params)
                 .setOriginalRequest(listMultipartUploadsRequest).build();
-
-        return doOperation(request, listMultipartUploadsResponseParser, bucketName, null, true);
     }
 
     /**
@@ -249,6 +391,58 @@ public class OSSMultipartOperation extends OSSOperation {
 
         assertParameterNotNull(uploadPartRequest, "uploadPartRequest");
 
+        RequestMessage request = buildUploadPartRequest(uploadPartRequest);
+
+        final ProgressListener listener = uploadPartRequest.getProgressListener();
+        ResponseMessage response = null;
+        try {
+            publishProgress(listener, ProgressEventType.TRANSFER_PART_STARTED_EVENT);
+            response = doOperation(request, emptyResponseParser, request.getBucket(), request.getKey());
+            publishProgress(listener, ProgressEventType.TRANSFER_PART_COMPLETED_EVENT);
+        } catch (RuntimeException e) {
+            publishProgress(listener, ProgressEventType.TRANSFER_PART_FAILED_EVENT);
+            throw e;
+        }
+
+        return toUploadPartResult(uploadPartRequest, response);
+    }
+
+    /**
+     * Asynchronously upload part.
+     */
+    public CompletableFuture<UploadPartResult> uploadPartAsync(final UploadPartRequest uploadPartRequest) {
+
+        assertParameterNotNull(uploadPartRequest, "uploadPartRequest");
+
+        RequestMessage request = buildUploadPartRequest(uploadPartRequest);
+
+        final ProgressListener listener = uploadPartRequest.getProgressListener();
+        publishProgress(listener, ProgressEventType.TRANSFER_PART_STARTED_EVENT);
+        CompletableFuture<ResponseMessage> future = doOperationAsync(request, emptyResponseParser, request.getBucket(),
+                request.getKey(), false);
+        return cancelWith(future.whenComplete((response, error) -> publishProgress(listener, error == null
+                        ? ProgressEventType.TRANSFER_PART_COMPLETED_EVENT : ProgressEventType.TRANSFER_PART_FAILED_EVENT))
+                .thenApply(response -> toUploadPartResult(uploadPartRequest, response)), future, response -> {
+                });
+    }
+
+    private UploadPartResult toUploadPartResult(UploadPartRequest uploadPartRequest, ResponseMessage response) {
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(uploadPartRequest.getPartNumber());
+        result.setETag(trimQuotes(response.getHeaders().get(OSSHeaders.ETAG)));
+        result.setRequestId(response.getRequestId());
+        result.setPartSize(uploadPartRequest.getPartSize());
+        ResponseParsers.setCRC(result, response);
+
+        if (getInnerClient().getClientConfiguration().isCrcCheckEnabled()) {
+            OSSUtils.checkChecksum(result.getClientCRC(), result.getServerCRC(), result.getRequestId());
+        }
+
+        return result;
+    }
+
+    private RequestMessage buildUploadPartRequest(UploadPartRequest uploadPartRequest) {
+
         String key = uploadPartRequest.getKey();
         String bucketName = uploadPartRequest.getBucketName();
         String uploadId = uploadPartRequest.getUploadId();
@@ -284,35 +478,11 @@ public class OSSMultipartOperation extends OSSOperation {
         params.put(PART_NUMBER, Integer.toString(partNumber));
         params.put(UPLOAD_ID, uploadId);
 
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.PUT).setBucket(bucketName).setKey(key).setParameters(params).setHeaders(headers)
                 .setInputStream(repeatableInputStream).setInputSize(uploadPartRequest.getPartSize())
                 .setUseChunkEncoding(uploadPartRequest.isUseChunkEncoding()).setOriginalRequest(uploadPartRequest)
                 .build();
-
-        final ProgressListener listener = uploadPartRequest.getProgressListener();
-        ResponseMessage response = null;
-        try {
-            publishProgress(listener, ProgressEventType.TRANSFER_PART_STARTED_EVENT);
-            response = doOperation(request, emptyResponseParser, bucketName, key);
-            publishProgress(listener, ProgressEventType.TRANSFER_PART_COMPLETED_EVENT);
-        } catch (RuntimeException e) {
-            publishProgress(listener, ProgressEventType.TRANSFER_PART_FAILED_EVENT);
-            throw e;
-        }
-
-        UploadPartResult result = new UploadPartResult();
-        result.setPartNumber(partNumber);
-        result.setETag(trimQuotes(response.getHeaders().get(OSSHeaders.ETAG)));
-        result.setRequestId(response.getRequestId());
-        result.setPartSize(uploadPartRequest.getPartSize());
-        ResponseParsers.setCRC(result, response);
-
-        if (getInnerClient().getClientConfiguration().isCrcCheckEnabled()) {
-            OSSUtils.checkChecksum(result.getClientCRC(), result.getServerCRC(), result.getRequestId());
-        }
-
-        return result;
     }
 
     /**
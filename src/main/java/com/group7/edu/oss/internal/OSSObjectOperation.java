@@ -27,6 +27,7 @@ import com.group7.edu.oss.common.comm.ResponseMessage;
 import com.group7.edu.oss.common.comm.ServiceClient;
 import com.group7.edu.oss.common.comm.io.RepeatableFileInputStream;
 import com.group7.edu.oss.common.parser.ResponseParser;
+import com.group7.edu.oss.common.parser.XmlBody;
 import com.group7.edu.oss.common.utils.*;
 import com.group7.edu.oss.event.ProgressEventType;
 import com.group7.edu.oss.event.ProgressInputStream;
@@ -38,6 +39,8 @@ import org.apache.http.HttpStatus;
 import java.io.*;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.CheckedInputStream;
 
 import static com.group7.edu.oss.common.parser.RequestMarshallers.*;
@@ -58,8 +61,26 @@ import static com.group7.edu.oss.internal.ResponseParsers.*;
  */
 public class OSSObjectOperation extends OSSOperation {
 
+    private final RequestHedger hedger;
+
     public OSSObjectOperation(ServiceClient client, CredentialsProvider credsProvider) {
         super(client, credsProvider);
+        this.hedger = new RequestHedger(client.getClientConfiguration());
+    }
+
+    /**
+     * Gets how often getObject and getObjectMetadata sent a second request
+     * and how often it answered first.
+     */
+    public RequestHedger.Stats getHedgingStats() {
+        return hedger.getStats();
+    }
+
+    /**
+     * Stops the timer used to send hedged requests.
+     */
+    public void shutdown() {
+        hedger.shutdown();
     }
 
     /**
@@ -84,6 +105,30 @@ public class OSSObjectOperation extends OSSOperation {
         return result;
     }
 
+    /**
+     * Asynchronously upload input stream or file to oss.
+     */
+    public CompletableFuture<PutObjectResult> putObjectAsync(PutObjectRequest putObjectRequest) {
+
+        assertParameterNotNull(putObjectRequest, "putObjectRequest");
+
+        CompletableFuture<PutObjectResult> future;
+        if (!isNeedReturnResponse(putObjectRequest)) {
+            future = writeObjectInternalAsync(WriteMode.OVERWRITE, putObjectRequest, putObjectReponseParser);
+        } else {
+            future = writeObjectInternalAsync(WriteMode.OVERWRITE, putObjectRequest, putObjectProcessReponseParser);
+        }
+
+        if (!isCrcCheckEnabled()) {
+            return future;
+        }
+        return cancelWith(future.thenApply(result -> {
+            OSSUtils.checkChecksum(result.getClientCRC(), result.getServerCRC(), result.getRequestId());
+            return result;
+        }), future, result -> {
+        });
+    }
+
     /**
      * Upload input stream to oss by using url signature.
      */
@@ -249,6 +294,75 @@ public class OSSObjectOperation extends OSSOperation {
 
         assertParameterNotNull(getObjectRequest, "getObjectRequest");
 
+        if (hedger.isEnabled()) {
+            return RequestHedger.await(getObjectAsync(getObjectRequest));
+        }
+
+        RequestMessage request = buildGetObjectRequest(getObjectRequest);
+        String bucketName = request.getBucket();
+        String key = request.getKey();
+
+        final ProgressListener listener = getObjectRequest.getProgressListener();
+        OSSObject ossObject = null;
+        try {
+            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+            ossObject = doOperation(request, new GetObjectResponseParser(bucketName, key), bucketName, key, true);
+            wrapObjectContent(ossObject, listener);
+        } catch (RuntimeException e) {
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw e;
+        }
+
+        return ossObject;
+    }
+
+    /**
+     * Asynchronously pull an object from oss. The future completes once the
+     * response headers arrive; the content stream is read by the caller.
+     * With hedging enabled a slow request may be raced by a second one.
+     */
+    public CompletableFuture<OSSObject> getObjectAsync(final GetObjectRequest getObjectRequest) {
+
+        assertParameterNotNull(getObjectRequest, "getObjectRequest");
+
+        // Build the first request up front so that invalid arguments fail
+        // before any progress is published; a hedge builds its own copy.
+        final AtomicReference<RequestMessage> firstRequest = new AtomicReference<RequestMessage>(
+                buildGetObjectRequest(getObjectRequest));
+
+        final ProgressListener listener = getObjectRequest.getProgressListener();
+        publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+        CompletableFuture<OSSObject> fetched = hedger.call(() -> {
+            RequestMessage request = firstRequest.getAndSet(null);
+            if (request == null) {
+                request = buildGetObjectRequest(getObjectRequest);
+            }
+            String bucketName = request.getBucket();
+            String key = request.getKey();
+            return doOperationAsync(request, new GetObjectResponseParser(bucketName, key), bucketName, key, true);
+        }, OSSObjectOperation::abortObject);
+        return cancelWith(fetched.whenComplete((ossObject, error) -> {
+            if (error != null) {
+                publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            } else {
+                wrapObjectContent(ossObject, listener);
+            }
+        }), fetched, OSSObjectOperation::abortObject);
+    }
+
+    /**
+     * Drops an object nobody will read without downloading its content.
+     */
+    private static void abortObject(OSSObject ossObject) {
+        try {
+            ossObject.forcedClose();
+        } catch (IOException e) {
+            logException("Unable to abort the object response: ", e);
+        }
+    }
+
+    private RequestMessage buildGetObjectRequest(GetObjectRequest getObjectRequest) {
+
         String bucketName = null;
         String key = null;
         RequestMessage request = null;
@@ -286,27 +400,20 @@ public class OSSObjectOperation extends OSSOperation {
             request.setHeaders(getObjectRequest.getHeaders());
         }
 
-        final ProgressListener listener = getObjectRequest.getProgressListener();
-        OSSObject ossObject = null;
-        try {
-            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
-            ossObject = doOperation(request, new GetObjectResponseParser(bucketName, key), bucketName, key, true);
-            InputStream instream = ossObject.getObjectContent();
-            ProgressInputStream progressInputStream = new ProgressInputStream(instream, listener) {
-                @Override
-                protected void onEOF() {
-                    publishProgress(getListener(), ProgressEventType.TRANSFER_COMPLETED_EVENT);
-                };
-            };
-            CRC64 crc = new CRC64();
-            CheckedInputStream checkedInputstream = new CheckedInputStream(progressInputStream, crc);
-            ossObject.setObjectContent(checkedInputstream);
-        } catch (RuntimeException e) {
-            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
-            throw e;
-        }
+        return request;
+    }
 
-        return ossObject;
+    private static void wrapObjectContent(OSSObject ossObject, ProgressListener listener) {
+        InputStream instream = ossObject.getObjectContent();
+        ProgressInputStream progressInputStream = new ProgressInputStream(instream, listener) {
+            @Override
+            protected void onEOF() {
+                publishProgress(getListener(), ProgressEventType.TRANSFER_COMPLETED_EVENT);
+            };
+        };
+        CRC64 crc = new CRC64();
+        CheckedInputStream checkedInputstream = new CheckedInputStream(progressInputStream, crc);
+        ossObject.setObjectContent(checkedInputstream);
     }
 
     /**
@@ -374,6 +481,32 @@ public class OSSObjectOperation extends OSSOperation {
 
         assertParameterNotNull(genericRequest, "genericRequest");
 
+        if (hedger.isEnabled()) {
+            return RequestHedger.await(getObjectMetadataAsync(genericRequest));
+        }
+
+        RequestMessage request = buildGetObjectMetadataRequest(genericRequest);
+        return doOperation(request, getObjectMetadataResponseParser, request.getBucket(), request.getKey(), true, null,
+                objectMetadataResponseHandlers());
+    }
+
+    /**
+     * Asynchronously get object matadata.
+     */
+    public CompletableFuture<ObjectMetadata> getObjectMetadataAsync(final GenericRequest genericRequest) {
+
+        assertParameterNotNull(genericRequest, "genericRequest");
+
+        return hedger.call(() -> {
+            RequestMessage request = buildGetObjectMetadataRequest(genericRequest);
+            return doOperationAsync(request, getObjectMetadataResponseParser, request.getBucket(), request.getKey(),
+                    true, null, objectMetadataResponseHandlers());
+        }, metadata -> {
+        });
+    }
+
+    private RequestMessage buildGetObjectMetadataRequest(GenericRequest genericRequest) {
+
         String bucketName = genericRequest.getBucketName();
         String key = genericRequest.getKey();
 
@@ -382,10 +515,15 @@ public class OSSObjectOperation extends OSSOperation {
         ensureBucketNameValid(bucketName);
         ensureObjectKeyValid(key);
 
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.HEAD).setBucket(bucketName).setKey(key).setOriginalRequest(genericRequest)
                 .build();
+    }
 
+    /**
+     * A HEAD response has no body, so 404 is mapped to NoSuchKey here.
+     */
+    private static List<ResponseHandler> objectMetadataResponseHandlers() {
         List<ResponseHandler> reponseHandlers = new ArrayList<ResponseHandler>();
         reponseHandlers.add(new ResponseHandler() {
 
@@ -401,7 +539,7 @@ public class OSSObjectOperation extends OSSOperation {
 
         });
 
-        return doOperation(request, getObjectMetadataResponseParser, bucketName, key, true, null, reponseHandlers);
+        return reponseHandlers;
     }
 
     /**
@@ -411,16 +549,32 @@ public class OSSObjectOperation extends OSSOperation {
 
         assertParameterNotNull(copyObjectRequest, "copyObjectRequest");
 
+        RequestMessage request = buildCopyObjectRequest(copyObjectRequest);
+        return doOperation(request, copyObjectResponseParser, copyObjectRequest.getDestinationBucketName(),
+                copyObjectRequest.getDestinationKey(), true);
+    }
+
+    /**
+     * Asynchronously copy an existing object to another one.
+     */
+    public CompletableFuture<CopyObjectResult> copyObjectAsync(CopyObjectRequest copyObjectRequest) {
+
+        assertParameterNotNull(copyObjectRequest, "copyObjectRequest");
+
+        RequestMessage request = buildCopyObjectRequest(copyObjectRequest);
+        return doOperationAsync(request, copyObjectResponseParser, copyObjectRequest.getDestinationBucketName(),
+                copyObjectRequest.getDestinationKey(), true);
+    }
+
+    private RequestMessage buildCopyObjectRequest(CopyObjectRequest copyObjectRequest) {
+
         Map<String, String> headers = new HashMap<String, String>();
         populateCopyObjectHeaders(copyObjectRequest, headers);
 
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.PUT).setBucket(copyObjectRequest.getDestinationBucketName())
                 .setKey(copyObjectRequest.getDestinationKey()).setHeaders(headers).setOriginalRequest(copyObjectRequest)
                 .build();
-
-        return doOperation(request, copyObjectResponseParser, copyObjectRequest.getDestinationBucketName(),
-                copyObjectRequest.getDestinationKey(), true);
     }
 
     /**
@@ -430,6 +584,26 @@ public class OSSObjectOperation extends OSSOperation {
 
         assertParameterNotNull(genericRequest, "genericRequest");
 
+        RequestMessage request = buildDeleteObjectRequest(genericRequest);
+        doOperation(request, emptyResponseParser, request.getBucket(), request.getKey());
+    }
+
+    /**
+     * Asynchronously delete an object.
+     */
+    public CompletableFuture<Void> deleteObjectAsync(GenericRequest genericRequest) {
+
+        assertParameterNotNull(genericRequest, "genericRequest");
+
+        RequestMessage request = buildDeleteObjectRequest(genericRequest);
+        CompletableFuture<ResponseMessage> future = doOperationAsync(request, emptyResponseParser,
+                request.getBucket(), request.getKey(), false);
+        return cancelWith(future.thenApply(response -> (Void) null), future, response -> {
+        });
+    }
+
+    private RequestMessage buildDeleteObjectRequest(GenericRequest genericRequest) {
+
         String bucketName = genericRequest.getBucketName();
         String key = genericRequest.getKey();
 
@@ -438,11 +612,9 @@ public class OSSObjectOperation extends OSSOperation {
         assertParameterNotNull(key, "key");
         ensureObjectKeyValid(key);
 
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.DELETE).setBucket(bucketName).setKey(key).setOriginalRequest(genericRequest)
                 .build();
-
-        doOperation(request, emptyResponseParser, bucketName, key);
     }
 
     /**
@@ -459,14 +631,14 @@ public class OSSObjectOperation extends OSSOperation {
         Map<String, String> params = new HashMap<String, String>();
         params.put(SUBRESOURCE_DELETE, null);
 
-        byte[] rawContent = deleteObjectsRequestMarshaller.marshall(deleteObjectsRequest);
+        XmlBody rawContent = deleteObjectsRequestMarshaller.marshall(deleteObjectsRequest);
         Map<String, String> headers = new HashMap<String, String>();
         addDeleteObjectsRequiredHeaders(headers, rawContent);
         addDeleteObjectsOptionalHeaders(headers, deleteObjectsRequest);
 
         RequestMessage request = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.POST).setBucket(bucketName).setParameters(params).setHeaders(headers)
-                .setInputSize(rawContent.length).setInputStream(new ByteArrayInputStream(rawContent))
+                .setInputStreamWithLength(rawContent.toInputStream())
                 .setOriginalRequest(deleteObjectsRequest).build();
 
         return doOperation(request, deleteObjectsResponseParser, bucketName, null, true);
@@ -771,6 +943,52 @@ public class OSSObjectOperation extends OSSOperation {
     private <RequestType extends PutObjectRequest, ResponseType> ResponseType writeObjectInternal(WriteMode mode,
                                                                                                   RequestType originalRequest, ResponseParser<ResponseType> responseParser) {
 
+        RequestMessage httpRequest = buildWriteObjectRequest(mode, originalRequest);
+        String bucketName = httpRequest.getBucket();
+        String key = httpRequest.getKey();
+
+        final ProgressListener listener = originalRequest.getProgressListener();
+        ResponseType result = null;
+        try {
+            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+            result = doOperation(httpRequest, responseParser, bucketName, key, true, null,
+                    writeObjectResponseHandlers(originalRequest));
+            publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+        } catch (RuntimeException e) {
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw e;
+        }
+        return result;
+    }
+
+    private <RequestType extends PutObjectRequest, ResponseType> CompletableFuture<ResponseType> writeObjectInternalAsync(
+            WriteMode mode, RequestType originalRequest, ResponseParser<ResponseType> responseParser) {
+
+        RequestMessage httpRequest = buildWriteObjectRequest(mode, originalRequest);
+        String bucketName = httpRequest.getBucket();
+        String key = httpRequest.getKey();
+
+        final ProgressListener listener = originalRequest.getProgressListener();
+        publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+        CompletableFuture<ResponseType> future = doOperationAsync(httpRequest, responseParser, bucketName, key, true,
+                null, writeObjectResponseHandlers(originalRequest));
+        return cancelWith(future.whenComplete((result, error) -> publishProgress(listener,
+                error == null ? ProgressEventType.TRANSFER_COMPLETED_EVENT : ProgressEventType.TRANSFER_FAILED_EVENT)),
+                future, result -> {
+                });
+    }
+
+    private static List<ResponseHandler> writeObjectResponseHandlers(PutObjectRequest originalRequest) {
+        if (originalRequest.getCallback() == null) {
+            return null;
+        }
+        List<ResponseHandler> reponseHandlers = new ArrayList<ResponseHandler>();
+        reponseHandlers.add(new OSSCallbackErrorResponseHandler());
+        return reponseHandlers;
+    }
+
+    private RequestMessage buildWriteObjectRequest(WriteMode mode, PutObjectRequest originalRequest) {
+
         final String bucketName = originalRequest.getBucketName();
         final String key = originalRequest.getKey();
         InputStream originalInputStream = originalRequest.getInputStream();
@@ -826,30 +1044,11 @@ public class OSSObjectOperation extends OSSOperation {
         Map<String, String> params = new LinkedHashMap<String, String>();
         populateWriteObjectParams(mode, originalRequest, params);
 
-        RequestMessage httpRequest = new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
+        return new OSSRequestMessageBuilder(getInnerClient()).setEndpoint(getEndpoint())
                 .setMethod(WriteMode.getMappingMethod(mode)).setBucket(bucketName).setKey(key).setHeaders(headers)
                 .setParameters(params).setInputStream(repeatableInputStream)
                 .setInputSize(determineInputStreamLength(repeatableInputStream, metadata.getContentLength()))
                 .setOriginalRequest(originalRequest).build();
-
-        List<ResponseHandler> reponseHandlers = new ArrayList<ResponseHandler>();
-        reponseHandlers.add(new OSSCallbackErrorResponseHandler());
-
-        final ProgressListener listener = originalRequest.getProgressListener();
-        ResponseType result = null;
-        try {
-            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
-            if (originalRequest.getCallback() == null) {
-                result = doOperation(httpRequest, responseParser, bucketName, key, true);
-            } else {
-                result = doOperation(httpRequest, responseParser, bucketName, key, true, null, reponseHandlers);
-            }
-            publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
-        } catch (RuntimeException e) {
-            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
-            throw e;
-        }
-        return result;
     }
 
     private boolean isCrcCheckEnabled() {
@@ -917,12 +1116,9 @@ public class OSSObjectOperation extends OSSOperation {
         }
     }
 
-    private static void addDeleteObjectsRequiredHeaders(Map<String, String> headers, byte[] rawContent) {
-        headers.put(HttpHeaders.CONTENT_LENGTH, String.valueOf(rawContent.length));
-
-        byte[] md5 = BinaryUtil.calculateMd5(rawContent);
-        String md5Base64 = BinaryUtil.toBase64String(md5);
-        headers.put(HttpHeaders.CONTENT_MD5, md5Base64);
+    private static void addDeleteObjectsRequiredHeaders(Map<String, String> headers, XmlBody rawContent) {
+        headers.put(HttpHeaders.CONTENT_LENGTH, String.valueOf(rawContent.length()));
+        headers.put(HttpHeaders.CONTENT_MD5, rawContent.getContentMd5());
     }
 
     private static void addDeleteObjectsOptionalHeaders(Map<String, String> headers, DeleteObjectsRequest request) {
@@ -35,6 +35,8 @@ import com.group7.edu.oss.model.WebServiceRequest;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static com.group7.edu.oss.common.utils.LogUtils.logException;
 import static com.group7.edu.oss.internal.OSSConstants.DEFAULT_CHARSET_NAME;
@@ -106,6 +108,77 @@ public abstract class OSSOperation {
                                 boolean keepResponseOpen, List<RequestHandler> requestHandlers, List<ResponseHandler> reponseHandlers)
             throws OSSException, ClientException {
 
+        ExecutionContext context = createOperationContext(request, bucketName, key, requestHandlers, reponseHandlers);
+        ResponseMessage response = send(request, context, keepResponseOpen);
+        return parseResponse(parser, response);
+    }
+
+    protected <T> CompletableFuture<T> doOperationAsync(RequestMessage request, ResponseParser<T> parser,
+                                                        String bucketName, String key, boolean keepResponseOpen) {
+        return doOperationAsync(request, parser, bucketName, key, keepResponseOpen, null, null);
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #doOperation}: the same handlers,
+     * signer and retry strategy are applied, and the response is parsed on
+     * the thread that completes the request. Cancelling the returned future
+     * aborts the request.
+     */
+    protected <T> CompletableFuture<T> doOperationAsync(RequestMessage request, final ResponseParser<T> parser,
+                                                        String bucketName, String key, final boolean keepResponseOpen,
+                                                        List<RequestHandler> requestHandlers, List<ResponseHandler> reponseHandlers) {
+        ExecutionContext context;
+        try {
+            context = createOperationContext(request, bucketName, key, requestHandlers, reponseHandlers);
+        } catch (RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<T>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        final CompletableFuture<ResponseMessage> sent = client.sendRequestAsync(request, context);
+        final CompletableFuture<T> parsed = sent.thenApply(response -> {
+            try {
+                return parseResponse(parser, response);
+            } finally {
+                if (!keepResponseOpen) {
+                    safeCloseResponse(response);
+                }
+            }
+        });
+        return cancelWith(parsed, sent, response -> safeCloseResponse(response));
+    }
+
+    /**
+     * Makes cancelling {@code dependent} cancel {@code source} too, which
+     * {@link CompletableFuture} does not do by itself. A value the source
+     * produced just before is handed to {@code discard} since nobody else
+     * will see it.
+     */
+    protected static <S, T> CompletableFuture<T> cancelWith(final CompletableFuture<T> dependent,
+            final CompletableFuture<S> source, final Consumer<S> discard) {
+        dependent.whenComplete((result, error) -> {
+            if (dependent.isCancelled() && !source.cancel(false)) {
+                source.thenAccept(discard);
+            }
+        });
+        return dependent;
+    }
+
+    private <T> T parseResponse(ResponseParser<T> parser, ResponseMessage response) throws OSSException {
+        try {
+            return parser.parse(response);
+        } catch (ResponseParseException rpe) {
+            OSSException oe = ExceptionFactory.createInvalidResponseException(response.getRequestId(), rpe.getMessage(),
+                    rpe);
+            logException("Unable to parse response error: ", rpe);
+            throw oe;
+        }
+    }
+
+    private ExecutionContext createOperationContext(RequestMessage request, String bucketName, String key,
+                                                    List<RequestHandler> requestHandlers, List<ResponseHandler> reponseHandlers) {
+
         final WebServiceRequest originalRequest = request.getOriginalRequest();
         request.getHeaders().putAll(client.getClientConfiguration().getDefaultHeaders());
         request.getHeaders().putAll(originalRequest.getHeaders());
@@ -142,16 +215,7 @@ public abstract class OSSOperation {
             }
         }
 
-        ResponseMessage response = send(request, context, keepResponseOpen);
-
-        try {
-            return parser.parse(response);
-        } catch (ResponseParseException rpe) {
-            OSSException oe = ExceptionFactory.createInvalidResponseException(response.getRequestId(), rpe.getMessage(),
-                    rpe);
-            logException("Unable to parse response error: ", rpe);
-            throw oe;
-        }
+        return context;
     }
 
     private static RequestSigner createSigner(HttpMethod method, String bucketName, String key, Credentials creds, SignVersion signatureVersion) {
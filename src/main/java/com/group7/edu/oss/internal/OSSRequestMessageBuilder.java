@@ -164,7 +164,7 @@ public class OSSRequestMessageBuilder {
 
     public RequestMessage build() {
         Map<String, String> sentHeaders = new HashMap<String, String>(this.headers);
-        sentHeaders.put(OSSHeaders.DATE, DateUtil.formatRfc822Date(new Date()));
+        sentHeaders.put(OSSHeaders.DATE, DateUtil.currentRfc822Date());
         Map<String, String> sentParameters = new LinkedHashMap<String, String>(this.parameters);
 
         RequestMessage request = new RequestMessage(this.originalRequest, this.bucket, this.key);
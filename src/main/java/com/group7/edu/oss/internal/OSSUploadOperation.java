@@ -19,7 +19,10 @@
 
 package com.group7.edu.oss.internal;
 
+import com.group7.edu.oss.ClientException;
 import com.group7.edu.oss.InconsistentException;
+import com.group7.edu.oss.common.comm.io.FilePartInputStream;
+import com.group7.edu.oss.common.utils.BinaryUtil;
 import com.group7.edu.oss.common.utils.CRC64;
 import com.group7.edu.oss.event.ProgressEventType;
 import com.group7.edu.oss.event.ProgressListener;
@@ -27,11 +30,14 @@ import com.group7.edu.oss.event.ProgressPublisher;
 import com.group7.edu.oss.model.*;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.group7.edu.oss.common.utils.CodingUtils.assertParameterNotNull;
 import static com.group7.edu.oss.common.utils.LogUtils.logException;
@@ -51,27 +57,62 @@ public class OSSUploadOperation {
         private static final String UPLOAD_MAGIC = "FE8BB4EA-B593-4FAC-AD7A-2459A36E2E62";
 
         /**
-         * Gets the checkpoint data from the checkpoint file.
+         * Gets the checkpoint data from the checkpoint file, replaying the
+         * parts recorded after its snapshot.
          */
         public synchronized void load(String cpFile) throws IOException, ClassNotFoundException {
-            FileInputStream fileIn = new FileInputStream(cpFile);
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            UploadCheckPoint ucp = (UploadCheckPoint) in.readObject();
+            UploadCheckPoint ucp = CheckpointJournal.load(cpFile, UploadCheckPoint.class, UploadCheckPoint::replay);
+            if (ucp.replayed) {
+                // The snapshot is guarded by its own CRC, the replayed parts
+                // changed what the md5 was taken over.
+                ucp.md5 = ucp.hashCode();
+            }
             assign(ucp);
-            in.close();
-            fileIn.close();
         }
 
         /**
-         * Writes the checkpoint data to the checkpoint file.
+         * Writes the checkpoint data to the checkpoint file as a new journal,
+         * which the parts completed later are appended to.
          */
         public synchronized void dump(String cpFile) throws IOException {
+            close();
             this.md5 = hashCode();
-            FileOutputStream fileOut = new FileOutputStream(cpFile);
-            ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
-            outStream.writeObject(this);
-            outStream.close();
-            fileOut.close();
+            journal = CheckpointJournal.create(cpFile, this);
+        }
+
+        /**
+         * Appends a completed part to the checkpoint journal.
+         */
+        public void record(final int partIndex, final PartETag partETag) throws IOException {
+            final long crc = uploadParts.get(partIndex).crc;
+            journal.append(record -> {
+                record.writeInt(partIndex);
+                record.writeInt(partETag.getPartNumber());
+                record.writeUTF(partETag.getETag());
+                record.writeLong(crc);
+            });
+        }
+
+        /**
+         * Closes the checkpoint journal, forcing the last records out.
+         */
+        public synchronized void close() throws IOException {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+
+        private static void replay(UploadCheckPoint ucp, DataInputStream record) throws IOException {
+            int partIndex = record.readInt();
+            PartETag partETag = new PartETag(record.readInt(), record.readUTF());
+            long crc = record.readLong();
+            UploadPart uploadPart = ucp.uploadParts.get(partIndex);
+            if (!uploadPart.isCompleted) {
+                uploadPart.crc = crc;
+                ucp.update(partIndex, partETag, true);
+                ucp.replayed = true;
+            }
         }
 
         /**
@@ -145,6 +186,8 @@ public class OSSUploadOperation {
         public ArrayList<UploadPart> uploadParts;
         public ArrayList<PartETag> partETags;
 
+        private transient CheckpointJournal journal;
+        private transient boolean replayed;
     }
 
     static class FileStat implements Serializable {
@@ -266,6 +309,41 @@ public class OSSUploadOperation {
         private Long partCRC;
     }
 
+    /**
+     * A moving average of how fast a single part goes up, in bytes per
+     * second, taken over the parts this client has uploaded so far.
+     */
+    static class PartThroughput {
+
+        private static final double WEIGHT = 0.3;
+
+        private double bytesPerSecond;
+
+        public synchronized void record(long bytes, long nanos) {
+            if (bytes <= 0 || nanos <= 0) {
+                return;
+            }
+            double sample = bytes * 1e9 / nanos;
+            bytesPerSecond = bytesPerSecond == 0 ? sample : WEIGHT * sample + (1 - WEIGHT) * bytesPerSecond;
+        }
+
+        /**
+         * Gets the average, or 0 before any part was uploaded.
+         */
+        public synchronized double bytesPerSecond() {
+            return bytesPerSecond;
+        }
+    }
+
+    /* Upper bound on the threads uploading parts, across all uploads. */
+    private static final int MAX_UPLOAD_THREADS = 64;
+
+    /* The time a part should take once the throughput is known. */
+    private static final int TARGET_PART_SECONDS = 2;
+
+    /* Adapted parts never grow beyond this size. */
+    private static final long MAX_ADAPTED_PART_SIZE = 64L * 1024 * 1024;
+
     public OSSUploadOperation(OSSMultipartOperation multipartOperation) {
         this.multipartOperation = multipartOperation;
     }
@@ -319,12 +397,23 @@ public class OSSUploadOperation {
             prepare(uploadCheckPoint, uploadFileRequest);
         }
 
+        // Starts the checkpoint journal from the current state, each part
+        // completed from here on is appended to it.
+        if (uploadFileRequest.isEnableCheckpoint()) {
+            uploadCheckPoint.dump(uploadFileRequest.getCheckpointFile());
+        }
+
         // The progress tracker starts
         ProgressListener listener = uploadFileRequest.getProgressListener();
         ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
 
         // Concurrently upload parts.
-        List<PartResult> partResults = upload(uploadCheckPoint, uploadFileRequest);
+        List<PartResult> partResults;
+        try {
+            partResults = upload(uploadCheckPoint, uploadFileRequest);
+        } finally {
+            uploadCheckPoint.close();
+        }
         for (PartResult partResult : partResults) {
             if (partResult.isFailed()) {
                 ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_PART_FAILED_EVENT);
@@ -376,7 +465,8 @@ public class OSSUploadOperation {
         uploadCheckPoint.uploadFile = uploadFileRequest.getUploadFile();
         uploadCheckPoint.key = uploadFileRequest.getKey();
         uploadCheckPoint.uploadFileStat = FileStat.getFileStat(uploadCheckPoint.uploadFile);
-        uploadCheckPoint.uploadParts = splitFile(uploadCheckPoint.uploadFileStat.size, uploadFileRequest.getPartSize());
+        uploadCheckPoint.uploadParts = splitFile(uploadCheckPoint.uploadFileStat.size,
+                adaptPartSize(uploadCheckPoint.uploadFileStat.size, uploadFileRequest));
         uploadCheckPoint.partETags = new ArrayList<PartETag>();
 
         ObjectMetadata metadata = uploadFileRequest.getObjectMetadata();
@@ -396,11 +486,27 @@ public class OSSUploadOperation {
         uploadCheckPoint.uploadID = initiateUploadResult.getUploadId();
     }
 
+    /**
+     * Picks the part size of a new upload. The requested size is the lower
+     * bound. Once the client has seen how fast a part goes up, parts grow to
+     * take about {@link #TARGET_PART_SECONDS} each, so that a fast link is
+     * not held back by a round trip per small part, but not so far that the
+     * file splits into fewer parts than there are tasks.
+     */
+    private long adaptPartSize(long fileSize, UploadFileRequest uploadFileRequest) {
+        long partSize = uploadFileRequest.getPartSize();
+        double bytesPerSecond = partThroughput.bytesPerSecond();
+        if (bytesPerSecond > 0) {
+            long target = Math.min((long) (bytesPerSecond * TARGET_PART_SECONDS), MAX_ADAPTED_PART_SIZE);
+            long spread = fileSize / uploadFileRequest.getTaskNum();
+            partSize = Math.max(partSize, Math.min(target, spread));
+        }
+        return partSize;
+    }
+
     private ArrayList<PartResult> upload(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest)
             throws Throwable {
         ArrayList<PartResult> taskResults = new ArrayList<PartResult>();
-        ExecutorService service = Executors.newFixedThreadPool(uploadFileRequest.getTaskNum());
-        ArrayList<Future<PartResult>> futures = new ArrayList<Future<PartResult>>();
         ProgressListener listener = uploadFileRequest.getProgressListener();
 
         // Compute the size of the data pending upload.
@@ -413,28 +519,52 @@ public class OSSUploadOperation {
         ProgressPublisher.publishRequestContentLength(listener, contentLength);
         uploadFileRequest.setProgressListener(null);
 
-        // Upload parts.
-        for (int i = 0; i < uploadCheckPoint.uploadParts.size(); i++) {
-            if (!uploadCheckPoint.uploadParts.get(i).isCompleted) {
-                futures.add(service.submit(new Task(i, "upload-" + i, uploadCheckPoint, i, uploadFileRequest,
-                        multipartOperation, listener)));
-            } else {
-                taskResults.add(new PartResult(i + 1, uploadCheckPoint.uploadParts.get(i).offset,
-                        uploadCheckPoint.uploadParts.get(i).size, uploadCheckPoint.uploadParts.get(i).crc));
-            }
-        }
-        service.shutdown();
+        // Upload parts on the shared executor, keeping at most taskNum of
+        // them in flight. All parts read the file through the same channel.
+        FileChannel channel = FileChannel.open(new File(uploadCheckPoint.uploadFile).toPath(),
+                StandardOpenOption.READ);
+        boolean partFailed = false;
+        Throwable failure = null;
+        try {
+            CompletionService<PartResult> completionService = new ExecutorCompletionService<PartResult>(
+                    getExecutor());
+            int maxInFlight = Math.max(1, uploadFileRequest.getTaskNum());
+            int inFlight = 0;
+            int next = 0;
+            while (true) {
+                for (; !partFailed && failure == null && inFlight < maxInFlight
+                        && next < uploadCheckPoint.uploadParts.size(); next++) {
+                    UploadPart part = uploadCheckPoint.uploadParts.get(next);
+                    if (!part.isCompleted) {
+                        completionService.submit(new Task(next, "upload-" + next, uploadCheckPoint, next,
+                                uploadFileRequest, multipartOperation, listener, channel, partThroughput));
+                        inFlight++;
+                    } else {
+                        taskResults.add(new PartResult(next + 1, part.offset, part.size, part.crc));
+                    }
+                }
+                if (inFlight == 0) {
+                    break;
+                }
 
-        // Waiting for parts upload complete.
-        service.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
-        for (Future<PartResult> future : futures) {
-            try {
-                PartResult tr = future.get();
-                taskResults.add(tr);
-            } catch (ExecutionException e) {
-                uploadFileRequest.setProgressListener(listener);
-                throw e.getCause();
+                // Waiting for the next part to finish.
+                try {
+                    PartResult tr = completionService.take().get();
+                    taskResults.add(tr);
+                    // After a failure stop submitting; the parts in flight
+                    // still finish and are recorded in the checkpoint.
+                    partFailed |= tr.isFailed();
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                }
+                inFlight--;
             }
+        } finally {
+            channel.close();
+            uploadFileRequest.setProgressListener(listener);
+        }
+        if (failure != null) {
+            throw failure;
         }
 
         // Sorts PartResult by the part numnber.
@@ -444,16 +574,42 @@ public class OSSUploadOperation {
                 return p1.getNumber() - p2.getNumber();
             }
         });
-        uploadFileRequest.setProgressListener(listener);
 
         return taskResults;
     }
 
+    /**
+     * Gets the executor shared by all uploads of this client, creating it on
+     * first use. Idle threads exit after a minute.
+     */
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(MAX_UPLOAD_THREADS, MAX_UPLOAD_THREADS, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), r -> {
+                        Thread thread = new Thread(r, "oss-upload-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the shared upload executor once the running parts finish.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
     static class Task implements Callable<PartResult> {
 
         public Task(int id, String name, UploadCheckPoint uploadCheckPoint, int partIndex,
                     UploadFileRequest uploadFileRequest, OSSMultipartOperation multipartOperation,
-                    ProgressListener progressListener) {
+                    ProgressListener progressListener, FileChannel input, PartThroughput partThroughput) {
             this.id = id;
             this.name = name;
             this.uploadCheckPoint = uploadCheckPoint;
@@ -461,19 +617,22 @@ public class OSSUploadOperation {
             this.uploadFileRequest = uploadFileRequest;
             this.multipartOperation = multipartOperation;
             this.progressListener = progressListener;
+            this.input = input;
+            this.partThroughput = partThroughput;
         }
 
         @Override
         public PartResult call() throws Exception {
             PartResult tr = null;
-            InputStream instream = null;
+            FilePartInputStream instream = null;
 
             try {
                 UploadPart uploadPart = uploadCheckPoint.uploadParts.get(partIndex);
                 tr = new PartResult(partIndex + 1, uploadPart.offset, uploadPart.size);
 
-                instream = new FileInputStream(uploadCheckPoint.uploadFile);
-                instream.skip(uploadPart.offset);
+                // Reads the part straight from the shared channel; the MD5 is
+                // computed as the request body is sent.
+                instream = new FilePartInputStream(input, uploadPart.offset, uploadPart.size);
 
                 UploadPartRequest uploadPartRequest = new UploadPartRequest();
                 uploadPartRequest.setBucketName(uploadFileRequest.getBucketName());
@@ -483,10 +642,13 @@ public class OSSUploadOperation {
                 uploadPartRequest.setInputStream(instream);
                 uploadPartRequest.setPartSize(uploadPart.size);
 
+                long startNanos = System.nanoTime();
                 UploadPartResult uploadPartResult = multipartOperation.uploadPart(uploadPartRequest);
+                partThroughput.record(uploadPart.size, System.nanoTime() - startNanos);
 
                 if(multipartOperation.getInnerClient().getClientConfiguration().isCrcCheckEnabled()) {
                     OSSUtils.checkChecksum(uploadPartResult.getClientCRC(), uploadPartResult.getServerCRC(), uploadPartResult.getRequestId());
+                    checkMd5(instream, uploadPartResult);
                     tr.setPartCRC(uploadPartResult.getClientCRC());
                     tr.setLength(uploadPartResult.getPartSize());
                     uploadPart.crc = uploadPartResult.getClientCRC();
@@ -494,7 +656,7 @@ public class OSSUploadOperation {
                 PartETag partETag = new PartETag(uploadPartResult.getPartNumber(), uploadPartResult.getETag());
                 uploadCheckPoint.update(partIndex, partETag, true);
                 if (uploadFileRequest.isEnableCheckpoint()) {
-                    uploadCheckPoint.dump(uploadFileRequest.getCheckpointFile());
+                    uploadCheckPoint.record(partIndex, partETag);
                 }
                 ProgressPublisher.publishRequestBytesTransferred(progressListener, uploadPart.size);
             } catch (Exception e) {
@@ -510,6 +672,23 @@ public class OSSUploadOperation {
             return tr;
         }
 
+        /**
+         * The ETag OSS returns for a part is the hex MD5 of the data it
+         * received; compares it with the digest taken while sending.
+         */
+        private static void checkMd5(FilePartInputStream instream, UploadPartResult uploadPartResult) {
+            byte[] md5 = instream.getMd5Digest();
+            String eTag = uploadPartResult.getETag();
+            if (md5 == null || eTag == null || eTag.length() != 32) {
+                return;
+            }
+            String clientMd5 = BinaryUtil.toHex(md5);
+            if (!clientMd5.equalsIgnoreCase(eTag)) {
+                throw new ClientException(String.format("Part %d MD5 %s does not match the ETag %s, request id %s",
+                        uploadPartResult.getPartNumber(), clientMd5, eTag, uploadPartResult.getRequestId()));
+            }
+        }
+
         private int id;
         private String name;
         private UploadCheckPoint uploadCheckPoint;
@@ -517,6 +696,8 @@ public class OSSUploadOperation {
         private UploadFileRequest uploadFileRequest;
         private OSSMultipartOperation multipartOperation;
         private ProgressListener progressListener;
+        private FileChannel input;
+        private PartThroughput partThroughput;
     }
 
     private CompleteMultipartUploadResult complete(UploadCheckPoint uploadCheckPoint,
@@ -576,4 +757,6 @@ public class OSSUploadOperation {
     }
 
     private OSSMultipartOperation multipartOperation;
+    private ThreadPoolExecutor executor;
+    private final PartThroughput partThroughput = new PartThroughput();
 }
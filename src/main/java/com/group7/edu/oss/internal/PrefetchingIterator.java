@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.group7.edu.oss.internal;
+
+import com.group7.edu.oss.ClientException;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the items of a paged listing, requesting the next page as
+ * soon as the current one arrives so that it is on its way while the current
+ * page is consumed. At most two pages are held at a time: the one being
+ * iterated and the one being fetched.
+ *
+ * @param <P> the page type, e.g. {@code ObjectListing}
+ * @param <T> the item type, e.g. {@code OSSObjectSummary}
+ */
+public class PrefetchingIterator<P, T> implements Iterator<T>, AutoCloseable {
+
+    private final Function<P, CompletableFuture<P>> nextPage;
+    private final Function<P, List<T>> itemsOf;
+
+    private Iterator<T> current = Collections.<T>emptyIterator();
+    private CompletableFuture<P> pending;
+    private boolean closed;
+
+    /**
+     * @param nextPage
+     *            returns the request for the page following the given one,
+     *            which is null for the first page, or null when there are no
+     *            more pages.
+     * @param itemsOf
+     *            the items of a page, in order.
+     */
+    public PrefetchingIterator(Function<P, CompletableFuture<P>> nextPage, Function<P, List<T>> itemsOf) {
+        this.nextPage = nextPage;
+        this.itemsOf = itemsOf;
+        this.pending = nextPage.apply(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed || pending == null) {
+                return false;
+            }
+            P page = await(pending);
+            pending = nextPage.apply(page);
+            current = itemsOf.apply(page).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Stops iterating and cancels the prefetch in flight, if any.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        current = Collections.<T>emptyIterator();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Wraps the iterator in a sequential stream; closing the stream closes
+     * the iterator.
+     */
+    public Stream<T> stream() {
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    private static <P> P await(CompletableFuture<P> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ClientException(e.getCause());
+        } catch (CancellationException e) {
+            throw new ClientException("Listing was cancelled.", e);
+        }
+    }
+}
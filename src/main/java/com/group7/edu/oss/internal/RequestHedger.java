@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.group7.edu.oss.internal;
+
+import com.group7.edu.oss.ClientConfiguration;
+import com.group7.edu.oss.ClientException;
+import com.group7.edu.oss.ServiceException;
+import com.group7.edu.oss.common.utils.LatencyHistogram;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second copy of an idempotent read when the first has not answered
+ * within a delay, and completes with whichever answers first. The other
+ * request is cancelled, and a result it still produces is discarded.
+ * <p>
+ * The delay is either fixed or the configured percentile of recent call
+ * latencies, so only the slowest few percent of calls are hedged. Second
+ * requests are limited by a token bucket: each call earns
+ * {@link ClientConfiguration#getHedgingRatio()} tokens and each second
+ * request spends one, so hedging cannot multiply the load on a slow service.
+ */
+public class RequestHedger {
+
+    /* Calls per latency window; the adaptive delay is refreshed every REFRESH_SAMPLES calls. */
+    private static final int WINDOW_SAMPLES = 1024;
+    private static final int REFRESH_SAMPLES = 64;
+
+    /* Second requests that may be sent in a burst, in thousandths of a token. */
+    private static final long SCALE = 1000;
+    private static final long MAX_TOKENS = 10 * SCALE;
+
+    private final ClientConfiguration config;
+
+    private final AtomicReference<LatencyHistogram> window = new AtomicReference<LatencyHistogram>(
+            new LatencyHistogram());
+    private final AtomicLong samples = new AtomicLong();
+    private volatile long adaptiveDelayNanos = -1;
+
+    private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    private ScheduledThreadPoolExecutor timer;
+
+    public RequestHedger(ClientConfiguration config) {
+        this.config = config;
+    }
+
+    public boolean isEnabled() {
+        return config.isHedgingEnabled();
+    }
+
+    /**
+     * Runs a call, hedging it if hedging is enabled.
+     *
+     * @param attempt
+     *            Starts one request; called once, or twice when hedging.
+     * @param discard
+     *            Releases a result that lost the race.
+     */
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> attempt, Consumer<T> discard) {
+        if (!isEnabled()) {
+            return attempt.get();
+        }
+        calls.incrementAndGet();
+        earnToken();
+
+        final Race<T> race = new Race<T>(discard);
+        race.start(attempt.get(), false);
+
+        long delay = getDelayNanos();
+        if (delay >= 0 && !race.result.isDone()) {
+            try {
+                race.hedgeTimer = getTimer().schedule(() -> {
+                    if (race.result.isDone()) {
+                        return;
+                    }
+                    if (!takeToken()) {
+                        rateLimited.incrementAndGet();
+                        return;
+                    }
+                    if (race.enterHedge()) {
+                        hedges.incrementAndGet();
+                        CompletableFuture<T> second;
+                        try {
+                            second = attempt.get();
+                        } catch (RuntimeException e) {
+                            second = new CompletableFuture<T>();
+                            second.completeExceptionally(e);
+                        }
+                        race.start(second, true);
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                // The client is shutting down; go on without a hedge.
+            }
+        }
+        return race.result;
+    }
+
+    /**
+     * Waits for a call and rethrows its failure unwrapped, as the blocking
+     * methods do.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ClientException(e.getCause());
+        } catch (CancellationException e) {
+            throw new ClientException("Request was cancelled.", e);
+        }
+    }
+
+    /**
+     * Gets the current hedging delay, or -1 while too few calls have been
+     * seen to pick an adaptive one.
+     */
+    private long getDelayNanos() {
+        long fixed = config.getHedgingDelay();
+        return fixed > 0 ? TimeUnit.MILLISECONDS.toNanos(fixed) : adaptiveDelayNanos;
+    }
+
+    private void recordLatency(long nanos) {
+        LatencyHistogram current = window.get();
+        current.record(nanos, TimeUnit.NANOSECONDS);
+        long n = samples.incrementAndGet();
+        if (n % REFRESH_SAMPLES == 0) {
+            LatencyHistogram.Snapshot snapshot = current.snapshot();
+            if (snapshot.getCount() >= REFRESH_SAMPLES) {
+                adaptiveDelayNanos = (long) (snapshot.getPercentileMillis(config.getHedgingPercentile()) * 1e6);
+            }
+            if (n % WINDOW_SAMPLES == 0) {
+                // Start a new window so the delay follows recent latency.
+                window.compareAndSet(current, new LatencyHistogram());
+            }
+        }
+    }
+
+    private void earnToken() {
+        long deposit = Math.round(config.getHedgingRatio() * SCALE);
+        long current;
+        while ((current = tokens.get()) < MAX_TOKENS) {
+            if (tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + deposit))) {
+                return;
+            }
+        }
+    }
+
+    private boolean takeToken() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    private synchronized ScheduledThreadPoolExecutor getTimer() {
+        if (timer == null) {
+            final AtomicInteger count = new AtomicInteger();
+            timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "oss-hedge-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+
+    public synchronized void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(calls.get(), hedges.get(), hedgeWins.get(), rateLimited.get(),
+                getDelayNanos() / 1e6);
+    }
+
+    /**
+     * The attempts of one call. The call fails only when every attempt has
+     * failed, or at once when the service itself answered with an error.
+     */
+    private final class Race<T> {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        final long start = System.nanoTime();
+        final Consumer<T> discard;
+
+        /* Attempts still running; 0 once the call has failed. */
+        final AtomicInteger running = new AtomicInteger(1);
+        volatile CompletableFuture<T> primary;
+        volatile CompletableFuture<T> hedge;
+        volatile ScheduledFuture<?> hedgeTimer;
+
+        Race(Consumer<T> discard) {
+            this.discard = discard;
+            result.whenComplete((value, error) -> {
+                ScheduledFuture<?> timer = hedgeTimer;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                if (result.isCancelled()) {
+                    cancel(primary);
+                    cancel(hedge);
+                }
+            });
+        }
+
+        boolean enterHedge() {
+            int n;
+            do {
+                n = running.get();
+                if (n == 0 || result.isDone()) {
+                    return false;
+                }
+            } while (!running.compareAndSet(n, n + 1));
+            return true;
+        }
+
+        void start(final CompletableFuture<T> attempt, final boolean isHedge) {
+            if (isHedge) {
+                hedge = attempt;
+            } else {
+                primary = attempt;
+            }
+            attempt.whenComplete((value, error) -> {
+                if (error == null) {
+                    if (result.complete(value)) {
+                        recordLatency(System.nanoTime() - start);
+                        if (isHedge) {
+                            hedgeWins.incrementAndGet();
+                        }
+                        cancel(isHedge ? primary : hedge);
+                    } else {
+                        discard.accept(value);
+                    }
+                    return;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (cause instanceof ServiceException || running.decrementAndGet() == 0) {
+                    running.set(0);
+                    if (result.completeExceptionally(cause)) {
+                        cancel(isHedge ? primary : hedge);
+                    }
+                }
+            });
+        }
+
+        private void cancel(CompletableFuture<T> attempt) {
+            if (attempt != null) {
+                attempt.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A point-in-time copy of the hedging counters.
+     */
+    public static class Stats {
+        private final long calls;
+        private final long hedges;
+        private final long hedgeWins;
+        private final long rateLimited;
+        private final double delayMillis;
+
+        Stats(long calls, long hedges, long hedgeWins, long rateLimited, double delayMillis) {
+            this.calls = calls;
+            this.hedges = hedges;
+            this.hedgeWins = hedgeWins;
+            this.rateLimited = rateLimited;
+            this.delayMillis = delayMillis;
+        }
+
+        /** Calls made while hedging was enabled. */
+        public long getCalls() {
+            return calls;
+        }
+
+        /** Second requests sent. */
+        public long getHedges() {
+            return hedges;
+        }
+
+        /** Calls answered by the second request. */
+        public long getHedgeWins() {
+            return hedgeWins;
+        }
+
+        /** Share of second requests that answered first. */
+        public double getWinRate() {
+            return hedges == 0 ? 0 : (double) hedgeWins / hedges;
+        }
+
+        /** Second requests not sent because of the rate limit. */
+        public long getRateLimited() {
+            return rateLimited;
+        }
+
+        /** Current hedging delay, or a negative value while it is not known yet. */
+        public double getDelayMillis() {
+            return delayMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[calls: %d; hedges: %d; hedge wins: %d (%.1f%%); rate limited: %d; delay: %.3fms]",
+                    calls, hedges, hedgeWins, getWinRate() * 100, rateLimited, delayMillis);
+        }
+    }
+}
@@ -932,10 +932,29 @@ public final class ResponseParsers {
 
     /**
      * Unmarshall list objects response body to object listing.
+     * The body is read with a streaming parser unless that is unavailable,
+     * in which case the document tree parser is used instead.
      */
-    @SuppressWarnings("unchecked")
     public static ObjectListing parseListObjects(InputStream responseBody) throws ResponseParseException {
 
+        if (!XmlStreamParsers.isEnabled()) {
+            return parseListObjectsWithJdom(responseBody);
+        }
+
+        try {
+            return XmlStreamParsers.parseListObjects(responseBody);
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshall list objects response body to object listing.
+     * Builds the whole document tree first.
+     */
+    @SuppressWarnings("unchecked")
+    public static ObjectListing parseListObjectsWithJdom(InputStream responseBody) throws ResponseParseException {
+
         try {
             Element root = getXmlRootElement(responseBody);
 
@@ -1517,11 +1536,32 @@ public final class ResponseParsers {
     /**
      * Unmarshall list multipart uploads response body to multipart upload
      * listing.
+     * The body is read with a streaming parser unless that is unavailable,
+     * in which case the document tree parser is used instead.
      */
-    @SuppressWarnings("unchecked")
     public static MultipartUploadListing parseListMultipartUploads(InputStream responseBody)
             throws ResponseParseException {
 
+        if (!XmlStreamParsers.isEnabled()) {
+            return parseListMultipartUploadsWithJdom(responseBody);
+        }
+
+        try {
+            return XmlStreamParsers.parseListMultipartUploads(responseBody);
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshall list multipart uploads response body to multipart upload
+     * listing.
+     * Builds the whole document tree first.
+     */
+    @SuppressWarnings("unchecked")
+    public static MultipartUploadListing parseListMultipartUploadsWithJdom(InputStream responseBody)
+            throws ResponseParseException {
+
         try {
             Element root = getXmlRootElement(responseBody);
 
@@ -1604,10 +1644,29 @@ public final class ResponseParsers {
 
     /**
      * Unmarshall list parts response body to part listing.
+     * The body is read with a streaming parser unless that is unavailable,
+     * in which case the document tree parser is used instead.
      */
-    @SuppressWarnings("unchecked")
     public static PartListing parseListParts(InputStream responseBody) throws ResponseParseException {
 
+        if (!XmlStreamParsers.isEnabled()) {
+            return parseListPartsWithJdom(responseBody);
+        }
+
+        try {
+            return XmlStreamParsers.parseListParts(responseBody);
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshall list parts response body to part listing.
+     * Builds the whole document tree first.
+     */
+    @SuppressWarnings("unchecked")
+    public static PartListing parseListPartsWithJdom(InputStream responseBody) throws ResponseParseException {
+
         try {
             Element root = getXmlRootElement(responseBody);
 
@@ -1657,10 +1716,31 @@ public final class ResponseParsers {
     /**
      * Unmarshall complete multipart upload response body to corresponding
      * result.
+     * The body is read with a streaming parser unless that is unavailable,
+     * in which case the document tree parser is used instead.
      */
     public static CompleteMultipartUploadResult parseCompleteMultipartUpload(InputStream responseBody)
             throws ResponseParseException {
 
+        if (!XmlStreamParsers.isEnabled()) {
+            return parseCompleteMultipartUploadWithJdom(responseBody);
+        }
+
+        try {
+            return XmlStreamParsers.parseCompleteMultipartUpload(responseBody);
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshall complete multipart upload response body to corresponding
+     * result.
+     * Builds the whole document tree first.
+     */
+    public static CompleteMultipartUploadResult parseCompleteMultipartUploadWithJdom(InputStream responseBody)
+            throws ResponseParseException {
+
         try {
             Element root = getXmlRootElement(responseBody);
 
@@ -1869,10 +1949,30 @@ public final class ResponseParsers {
 
     /**
      * Unmarshall delete objects response body to corresponding result.
+     * The body is read with a streaming parser unless that is unavailable,
+     * in which case the document tree parser is used instead.
      */
-    @SuppressWarnings("unchecked")
     public static DeleteObjectsResult parseDeleteObjectsResult(InputStream responseBody) throws ResponseParseException {
 
+        if (!XmlStreamParsers.isEnabled()) {
+            return parseDeleteObjectsResultWithJdom(responseBody);
+        }
+
+        try {
+            return XmlStreamParsers.parseDeleteObjectsResult(responseBody);
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshall delete objects response body to corresponding result.
+     * Builds the whole document tree first.
+     */
+    @SuppressWarnings("unchecked")
+    public static DeleteObjectsResult parseDeleteObjectsResultWithJdom(InputStream responseBody)
+            throws ResponseParseException {
+
         try {
             Element root = getXmlRootElement(responseBody);
 
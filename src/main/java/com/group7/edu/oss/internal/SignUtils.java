@@ -40,6 +40,24 @@ import static com.group7.edu.oss.internal.SignParameters.AUTHORIZATION_PREFIX;
 
 public class SignUtils {
 
+    private static final int MAX_CACHED_BUILDER_CAPACITY = 8 * 1024;
+
+    private static final Set<String> SIGNED_PARAMETERS = new HashSet<String>(SignParameters.SIGNED_PARAMTERS);
+
+    private static final ThreadLocal<StringBuilder> CANONICAL_BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private static final ThreadLocal<SortedPairs> SORTED_PAIRS = new ThreadLocal<SortedPairs>() {
+        @Override
+        protected SortedPairs initialValue() {
+            return new SortedPairs();
+        }
+    };
+
     public static String composeRequestAuthorization(String accessKeyId, String signature) {
         return AUTHORIZATION_PREFIX + accessKeyId + ":" + signature;
     }
@@ -47,51 +65,53 @@ public class SignUtils {
     public static String buildCanonicalString(String method, String resourcePath, RequestMessage request,
             String expires) {
 
-        StringBuilder canonicalString = new StringBuilder();
+        StringBuilder canonicalString = canonicalBuilder();
         canonicalString.append(method).append(SignParameters.NEW_LINE);
 
-        Map<String, String> headers = request.getHeaders();
-        TreeMap<String, String> headersToSign = new TreeMap<String, String>();
-
-        if (headers != null) {
-            for (Entry<String, String> header : headers.entrySet()) {
-                if (header.getKey() == null) {
-                    continue;
-                }
-
-                String lowerKey = header.getKey().toLowerCase();
-                if (lowerKey.equals(HttpHeaders.CONTENT_TYPE.toLowerCase())
-                        || lowerKey.equals(HttpHeaders.CONTENT_MD5.toLowerCase())
-                        || lowerKey.equals(HttpHeaders.DATE.toLowerCase())
-                        || lowerKey.startsWith(OSSHeaders.OSS_PREFIX)) {
-                    headersToSign.put(lowerKey, header.getValue().trim());
+        // Content-MD5, Content-Type and Date come first in that (sorted)
+        // order, followed by the x-oss- headers sorted by lower-cased name.
+        String contentMd5 = "";
+        String contentType = "";
+        String date = null;
+        SortedPairs ossHeaders = sortedPairs();
+        try {
+            Map<String, String> headers = request.getHeaders();
+            if (headers != null) {
+                for (Entry<String, String> header : headers.entrySet()) {
+                    String name = header.getKey();
+                    if (name == null) {
+                        continue;
+                    }
+
+                    if (name.equalsIgnoreCase(HttpHeaders.CONTENT_TYPE)) {
+                        contentType = header.getValue().trim();
+                    } else if (name.equalsIgnoreCase(HttpHeaders.CONTENT_MD5)) {
+                        contentMd5 = header.getValue().trim();
+                    } else if (name.equalsIgnoreCase(HttpHeaders.DATE)) {
+                        date = header.getValue().trim();
+                    } else if (name.regionMatches(true, 0, OSSHeaders.OSS_PREFIX, 0, OSSHeaders.OSS_PREFIX.length())) {
+                        ossHeaders.put(name.toLowerCase(), header.getValue().trim());
+                    }
                 }
             }
-        }
 
-        if (!headersToSign.containsKey(HttpHeaders.CONTENT_TYPE.toLowerCase())) {
-            headersToSign.put(HttpHeaders.CONTENT_TYPE.toLowerCase(), "");
-        }
-        if (!headersToSign.containsKey(HttpHeaders.CONTENT_MD5.toLowerCase())) {
-            headersToSign.put(HttpHeaders.CONTENT_MD5.toLowerCase(), "");
-        }
-
-        // Append all headers to sign to canonical string
-        for (Entry<String, String> entry : headersToSign.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-
-            if (key.startsWith(OSSHeaders.OSS_PREFIX)) {
-                canonicalString.append(key).append(':').append(value);
-            } else {
-                canonicalString.append(value);
+            canonicalString.append(contentMd5).append(SignParameters.NEW_LINE);
+            canonicalString.append(contentType).append(SignParameters.NEW_LINE);
+            if (date != null) {
+                canonicalString.append(date).append(SignParameters.NEW_LINE);
             }
-
-            canonicalString.append(SignParameters.NEW_LINE);
+            for (int i = 0; i < ossHeaders.size; i++) {
+                canonicalString.append(ossHeaders.keys[i]).append(':').append(ossHeaders.values[i])
+                        .append(SignParameters.NEW_LINE);
+            }
+        } finally {
+            // Also on failure, e.g. a null header value, or the leftovers
+            // would end up in the next signature on this thread.
+            ossHeaders.clear();
         }
 
         // Append canonical resource to canonical string
-        canonicalString.append(buildCanonicalizedResource(resourcePath, request.getParameters()));
+        appendCanonicalizedResource(canonicalString, resourcePath, request.getParameters());
 
         return canonicalString.toString();
     }
@@ -119,6 +139,15 @@ public class SignUtils {
     }
 
     public static String buildSignedURL(GeneratePresignedUrlRequest request, Credentials currentCreds, ClientConfiguration config, URI endpoint) {
+        return buildSignedURL(request, currentCreds, config, endpoint, ServiceSignature.create());
+    }
+
+    /**
+     * Builds the signed url with the given signer, which may be
+     * reused across calls to sign a batch of urls with the same credentials.
+     */
+    public static String buildSignedURL(GeneratePresignedUrlRequest request, Credentials currentCreds, ClientConfiguration config, URI endpoint,
+            ServiceSignature signer) {
         String bucketName = request.getBucketName();
         String accessId = currentCreds.getAccessKeyId();
         String accessKey = currentCreds.getSecretAccessKey();
@@ -169,7 +198,7 @@ public class SignUtils {
         String canonicalResource = "/" + ((bucketName != null) ? bucketName : "") + ((key != null ? "/" + key : ""));
         String canonicalString = buildCanonicalString(method.toString(), canonicalResource, requestMessage,
                 expires);
-        String signature = ServiceSignature.create().computeSignature(accessKey, canonicalString);
+        String signature = signer.computeSignature(accessKey, canonicalString);
 
         Map<String, String> params = new LinkedHashMap<String, String>();
         params.put(HttpHeaders.EXPIRES, expires);
@@ -189,33 +218,107 @@ public class SignUtils {
     }
 
     public static String buildCanonicalizedResource(String resourcePath, Map<String, String> parameters) {
+        StringBuilder builder = new StringBuilder(resourcePath.length() + 32);
+        appendCanonicalizedResource(builder, resourcePath, parameters);
+        return builder.toString();
+    }
+
+    private static void appendCanonicalizedResource(StringBuilder builder, String resourcePath,
+            Map<String, String> parameters) {
         assertTrue(resourcePath.startsWith("/"), "Resource path should start with slash character");
 
-        StringBuilder builder = new StringBuilder();
         builder.append(resourcePath);
 
-        if (parameters != null) {
-            String[] parameterNames = parameters.keySet().toArray(new String[parameters.size()]);
-            Arrays.sort(parameterNames);
+        if (parameters == null || parameters.isEmpty()) {
+            return;
+        }
 
-            char separator = '?';
-            for (String paramName : parameterNames) {
-                if (!SignParameters.SIGNED_PARAMTERS.contains(paramName)) {
-                    continue;
+        // Only the few sub-resources present are sorted, looked up in a
+        // precomputed set instead of scanning the signed parameter list.
+        SortedPairs subResources = sortedPairs();
+        try {
+            for (Entry<String, String> parameter : parameters.entrySet()) {
+                if (parameter.getKey() != null && SIGNED_PARAMETERS.contains(parameter.getKey())) {
+                    subResources.put(parameter.getKey(), parameter.getValue());
                 }
+            }
 
+            char separator = '?';
+            for (int i = 0; i < subResources.size; i++) {
                 builder.append(separator);
-                builder.append(paramName);
-                String paramValue = parameters.get(paramName);
+                builder.append(subResources.keys[i]);
+                String paramValue = subResources.values[i];
                 if (paramValue != null) {
-                    builder.append("=").append(paramValue);
+                    builder.append('=').append(paramValue);
                 }
 
                 separator = '&';
             }
+        } finally {
+            subResources.clear();
         }
+    }
 
-        return builder.toString();
+    /**
+     * Returns this thread's canonical string builder, emptied. Builders that
+     * grew unusually large are dropped rather than kept around.
+     */
+    private static StringBuilder canonicalBuilder() {
+        StringBuilder builder = CANONICAL_BUILDER.get();
+        if (builder.capacity() > MAX_CACHED_BUILDER_CAPACITY) {
+            builder = new StringBuilder(256);
+            CANONICAL_BUILDER.set(builder);
+        }
+        builder.setLength(0);
+        return builder;
+    }
+
+    /**
+     * Returns this thread's sorted pairs, emptied.
+     */
+    private static SortedPairs sortedPairs() {
+        SortedPairs pairs = SORTED_PAIRS.get();
+        pairs.clear();
+        return pairs;
+    }
+
+    /**
+     * A small reusable list of name/value pairs kept sorted by name, a later
+     * put of the same name replacing the earlier value like a TreeMap would.
+     * Requests carry only a handful of headers and sub-resources, so an
+     * insertion sort is cheaper than building a tree.
+     */
+    private static final class SortedPairs {
+        private String[] keys = new String[16];
+        private String[] values = new String[16];
+        private int size;
+
+        private void put(String key, String value) {
+            int i = size - 1;
+            while (i >= 0 && keys[i].compareTo(key) > 0) {
+                i--;
+            }
+            if (i >= 0 && keys[i].equals(key)) {
+                values[i] = value;
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int pos = i + 1;
+            System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            keys[pos] = key;
+            values[pos] = value;
+            size++;
+        }
+
+        private void clear() {
+            Arrays.fill(keys, 0, size, null);
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
     }
 
     public static String buildSignature(String secretAccessKey, String httpMethod, String resourcePath, RequestMessage request) {
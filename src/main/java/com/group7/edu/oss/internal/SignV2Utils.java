@@ -1,17 +1,17 @@
 package com.group7.edu.oss.internal;
 
 import com.group7.edu.oss.ClientConfiguration;
-import com.group7.edu.oss.ClientException;
 import com.group7.edu.oss.HttpMethod;
 import com.group7.edu.oss.common.auth.Credentials;
 import com.group7.edu.oss.common.auth.HmacSHA256Signature;
+import com.group7.edu.oss.common.auth.ServiceSignature;
 import com.group7.edu.oss.common.comm.RequestMessage;
 import com.group7.edu.oss.common.utils.HttpHeaders;
 import com.group7.edu.oss.common.utils.HttpUtil;
 import com.group7.edu.oss.model.GeneratePresignedUrlRequest;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static com.group7.edu.oss.common.utils.CodingUtils.assertTrue;
@@ -22,6 +22,8 @@ import static com.group7.edu.oss.internal.SignParameters.*;
 
 public class SignV2Utils {
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     public static String composeRequestAuthorization(String accessKeyId, String signature, RequestMessage request) {
         StringBuilder sb = new StringBuilder();
         sb.append(AUTHORIZATION_PREFIX_V2 + AUTHORIZATION_ACCESS_KEY_ID).append(":").append(accessKeyId).append(", ");
@@ -77,7 +79,7 @@ public class SignV2Utils {
     }
 
     public static String buildCanonicalString(String method, String resourcePath, RequestMessage request, Set<String> additionalHeaderNames) {
-        StringBuilder canonicalString = new StringBuilder();
+        StringBuilder canonicalString = new StringBuilder(256);
         canonicalString.append(method).append(SignParameters.NEW_LINE);
         Map<String, String> headers = request.getHeaders();
         TreeMap<String, String> fixedHeadersToSign = new TreeMap<String, String>();
@@ -142,12 +144,21 @@ public class SignV2Utils {
         canonicalString.append(SignParameters.NEW_LINE);
 
         // Append canonical resource to canonical string
-        canonicalString.append(buildCanonicalizedResource(resourcePath, request.getParameters()));
+        appendCanonicalizedResource(canonicalString, resourcePath, request.getParameters());
 
         return canonicalString.toString();
     }
 
     public static String buildSignedURL(GeneratePresignedUrlRequest request, Credentials currentCreds, ClientConfiguration config, URI endpoint) {
+        return buildSignedURL(request, currentCreds, config, endpoint, new HmacSHA256Signature());
+    }
+
+    /**
+     * Builds the signed url with the given signer, which may be
+     * reused across calls to sign a batch of urls with the same credentials.
+     */
+    public static String buildSignedURL(GeneratePresignedUrlRequest request, Credentials currentCreds, ClientConfiguration config, URI endpoint,
+            ServiceSignature signer) {
         String bucketName = request.getBucketName();
         String accessId = currentCreds.getAccessKeyId();
         String accessKey = currentCreds.getSecretAccessKey();
@@ -206,7 +217,7 @@ public class SignV2Utils {
         }
         Set<String> rawAdditionalHeaderNames = buildRawAdditionalHeaderNames(request.getHeaders().keySet(), request.getAdditionalHeaderNames());
         String canonicalString = buildCanonicalString(method.toString(), canonicalResource, requestMessage, rawAdditionalHeaderNames);
-        String signature = new HmacSHA256Signature().computeSignature(accessKey, canonicalString);
+        String signature = signer.computeSignature(accessKey, canonicalString);
 
         Map<String, String> params = new LinkedHashMap<String, String>();
 
@@ -227,61 +238,61 @@ public class SignV2Utils {
         return url;
     }
 
-    private static String buildCanonicalizedResource(String resourcePath, Map<String, String> parameters) {
+    private static void appendCanonicalizedResource(StringBuilder builder, String resourcePath,
+            Map<String, String> parameters) {
         assertTrue(resourcePath.startsWith("/"), "Resource path should start with slash character");
 
-        StringBuilder builder = new StringBuilder();
-        builder.append(uriEncoding(resourcePath));
+        appendUriEncoding(builder, resourcePath);
 
-        if (parameters != null) {
+        if (parameters != null && !parameters.isEmpty()) {
             String[] parameterNames = parameters.keySet().toArray(new String[parameters.size()]);
             Arrays.sort(parameterNames);
 
             char separator = '?';
             for (String paramName : parameterNames) {
                 builder.append(separator);
-                builder.append(uriEncoding(paramName));
+                appendUriEncoding(builder, paramName);
                 String paramValue = parameters.get(paramName);
                 if (paramValue != null && !paramValue.isEmpty()) {
-                    builder.append("=").append(uriEncoding(paramValue));
+                    builder.append('=');
+                    appendUriEncoding(builder, paramValue);
                 }
 
                 separator = '&';
             }
         }
-
-        return builder.toString();
     }
 
     public static String uriEncoding(String uri) {
-        String result = "";
-
-        try {
-            for (char c : uri.toCharArray()) {
-                if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
-                        || (c >= '0' && c <= '9') || c == '_' || c == '-'
-                        || c == '~' || c == '.') {
-                    result += c;
-                } else if (c == '/') {
-                    result += "%2F";
-                } else {
-                    byte[] b;
-                    b = Character.toString(c).getBytes("utf-8");
-
-                    for (int i = 0; i < b.length; i++) {
-                        int k = b[i];
-
-                        if (k < 0) {
-                            k += 256;
-                        }
-                        result += "%" + Integer.toHexString(k).toUpperCase();
-                    }
+        StringBuilder result = new StringBuilder(uri.length() + 16);
+        appendUriEncoding(result, uri);
+        return result.toString();
+    }
+
+    private static void appendUriEncoding(StringBuilder result, String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+                    || (c >= '0' && c <= '9') || c == '_' || c == '-'
+                    || c == '~' || c == '.') {
+                result.append(c);
+            } else if (c < 0x80) {
+                appendPercentEncoded(result, c);
+            } else {
+                int end = i + 1;
+                if (Character.isHighSurrogate(c) && end < uri.length() && Character.isLowSurrogate(uri.charAt(end))) {
+                    end++;
+                }
+                for (byte b : uri.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                    appendPercentEncoded(result, b & 0xFF);
                 }
+                i = end - 1;
             }
-        } catch (UnsupportedEncodingException e) {
-            throw new ClientException(e);
         }
-        return result;
+    }
+
+    private static void appendPercentEncoded(StringBuilder result, int b) {
+        result.append('%').append(HEX_DIGITS[b >>> 4]).append(HEX_DIGITS[b & 0x0F]);
     }
 
     public static String buildSignature(String secretAccessKey, String httpMethod, String resourcePath, RequestMessage request) {
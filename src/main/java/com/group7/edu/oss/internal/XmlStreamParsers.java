@@ -0,0 +1,502 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.group7.edu.oss.internal;
+
+import com.group7.edu.oss.common.utils.DateUtil;
+import com.group7.edu.oss.common.utils.LogUtils;
+import com.group7.edu.oss.model.*;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.group7.edu.oss.common.utils.CodingUtils.isNullOrEmpty;
+import static com.group7.edu.oss.internal.OSSUtils.trimQuotes;
+
+/*
+ * Streaming (StAX) parsers for the list, multi-result and complete multipart
+ * upload responses. Model
+ * objects are filled in as their elements are read, so no document tree is
+ * built; the results are the same as those of the JDOM based parsers in
+ * ResponseParsers, which remain in use for everything else and whenever
+ * streaming parsing is unavailable.
+ */
+final class XmlStreamParsers {
+
+    /**
+     * System property that turns streaming parsing off, making the list
+     * parsers go through JDOM again.
+     */
+    static final String DISABLE_PROPERTY = "com.group7.edu.oss.disableStreamingXmlParser";
+
+    /*
+     * Configured once and afterwards only used to create readers, which the
+     * factory supports from any number of threads. Entity expansion and DTDs
+     * are turned off as responses never use them.
+     */
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private XmlStreamParsers() {
+    }
+
+    private static XMLInputFactory createFactory() {
+        if (Boolean.getBoolean(DISABLE_PROPERTY)) {
+            return null;
+        }
+        try {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            return factory;
+        } catch (Throwable t) {
+            LogUtils.getLog().warn("Streaming xml parser unavailable, falling back to JDOM: " + t.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Whether the streaming parsers can be used.
+     */
+    static boolean isEnabled() {
+        return FACTORY != null;
+    }
+
+    static ObjectListing parseListObjects(InputStream responseBody) throws XMLStreamException, ParseException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(responseBody);
+        try {
+            enterRoot(reader);
+
+            ObjectListing objectListing = new ObjectListing();
+            String maxKeys = null;
+            String isTruncated = null;
+            while (nextChild(reader)) {
+                String name = reader.getLocalName();
+                if ("Contents".equals(name)) {
+                    objectListing.addObjectSummary(readObjectSummary(reader));
+                } else if ("CommonPrefixes".equals(name)) {
+                    String prefix = readCommonPrefix(reader);
+                    if (!isNullOrEmpty(prefix)) {
+                        objectListing.addCommonPrefix(prefix);
+                    }
+                } else if ("Name".equals(name)) {
+                    objectListing.setBucketName(readText(reader));
+                } else if ("MaxKeys".equals(name)) {
+                    maxKeys = readText(reader);
+                } else if ("IsTruncated".equals(name)) {
+                    isTruncated = readText(reader);
+                } else if ("Prefix".equals(name)) {
+                    objectListing.setPrefix(emptyToNull(readText(reader)));
+                } else if ("Marker".equals(name)) {
+                    objectListing.setMarker(emptyToNull(readText(reader)));
+                } else if ("Delimiter".equals(name)) {
+                    objectListing.setDelimiter(emptyToNull(readText(reader)));
+                } else if ("NextMarker".equals(name)) {
+                    objectListing.setNextMarker(emptyToNull(readText(reader)));
+                } else if ("EncodingType".equals(name)) {
+                    objectListing.setEncodingType(emptyToNull(readText(reader)));
+                } else {
+                    skipElement(reader);
+                }
+            }
+
+            objectListing.setMaxKeys(Integer.valueOf(maxKeys));
+            objectListing.setTruncated(Boolean.valueOf(isTruncated));
+            for (OSSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
+                objectSummary.setBucketName(objectListing.getBucketName());
+            }
+            return objectListing;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static OSSObjectSummary readObjectSummary(XMLStreamReader reader)
+            throws XMLStreamException, ParseException {
+        OSSObjectSummary ossObjectSummary = new OSSObjectSummary();
+        String lastModified = null;
+        String size = null;
+        String id = null;
+        String displayName = null;
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Key".equals(name)) {
+                ossObjectSummary.setKey(readText(reader));
+            } else if ("ETag".equals(name)) {
+                ossObjectSummary.setETag(trimQuotes(readText(reader)));
+            } else if ("LastModified".equals(name)) {
+                lastModified = readText(reader);
+            } else if ("Size".equals(name)) {
+                size = readText(reader);
+            } else if ("StorageClass".equals(name)) {
+                ossObjectSummary.setStorageClass(readText(reader));
+            } else if ("Owner".equals(name)) {
+                while (nextChild(reader)) {
+                    String ownerField = reader.getLocalName();
+                    if ("ID".equals(ownerField)) {
+                        id = readText(reader);
+                    } else if ("DisplayName".equals(ownerField)) {
+                        displayName = readText(reader);
+                    } else {
+                        skipElement(reader);
+                    }
+                }
+            } else {
+                skipElement(reader);
+            }
+        }
+        ossObjectSummary.setLastModified(DateUtil.parseIso8601Date(lastModified));
+        ossObjectSummary.setSize(Long.valueOf(size));
+        ossObjectSummary.setOwner(new Owner(id, displayName));
+        return ossObjectSummary;
+    }
+
+    static MultipartUploadListing parseListMultipartUploads(InputStream responseBody)
+            throws XMLStreamException, ParseException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(responseBody);
+        try {
+            enterRoot(reader);
+
+            MultipartUploadListing multipartUploadListing = new MultipartUploadListing();
+            String maxUploads = null;
+            String isTruncated = null;
+            while (nextChild(reader)) {
+                String name = reader.getLocalName();
+                if ("Upload".equals(name)) {
+                    MultipartUpload mu = readMultipartUpload(reader);
+                    if (mu != null) {
+                        multipartUploadListing.addMultipartUpload(mu);
+                    }
+                } else if ("CommonPrefixes".equals(name)) {
+                    String prefix = readCommonPrefix(reader);
+                    if (!isNullOrEmpty(prefix)) {
+                        multipartUploadListing.addCommonPrefix(prefix);
+                    }
+                } else if ("Bucket".equals(name)) {
+                    multipartUploadListing.setBucketName(readText(reader));
+                } else if ("MaxUploads".equals(name)) {
+                    maxUploads = readText(reader);
+                } else if ("IsTruncated".equals(name)) {
+                    isTruncated = readText(reader);
+                } else if ("Delimiter".equals(name)) {
+                    String delimiter = readText(reader);
+                    if (!isNullOrEmpty(delimiter)) {
+                        multipartUploadListing.setDelimiter(delimiter);
+                    }
+                } else if ("Prefix".equals(name)) {
+                    String prefix = readText(reader);
+                    if (!isNullOrEmpty(prefix)) {
+                        multipartUploadListing.setPrefix(prefix);
+                    }
+                } else if ("KeyMarker".equals(name)) {
+                    String keyMarker = readText(reader);
+                    if (!isNullOrEmpty(keyMarker)) {
+                        multipartUploadListing.setKeyMarker(keyMarker);
+                    }
+                } else if ("UploadIdMarker".equals(name)) {
+                    String uploadIdMarker = readText(reader);
+                    if (!isNullOrEmpty(uploadIdMarker)) {
+                        multipartUploadListing.setUploadIdMarker(uploadIdMarker);
+                    }
+                } else if ("NextKeyMarker".equals(name)) {
+                    String nextKeyMarker = readText(reader);
+                    if (!isNullOrEmpty(nextKeyMarker)) {
+                        multipartUploadListing.setNextKeyMarker(nextKeyMarker);
+                    }
+                } else if ("NextUploadIdMarker".equals(name)) {
+                    String nextUploadIdMarker = readText(reader);
+                    if (!isNullOrEmpty(nextUploadIdMarker)) {
+                        multipartUploadListing.setNextUploadIdMarker(nextUploadIdMarker);
+                    }
+                } else {
+                    skipElement(reader);
+                }
+            }
+
+            multipartUploadListing.setMaxUploads(Integer.valueOf(maxUploads));
+            multipartUploadListing.setTruncated(Boolean.valueOf(isTruncated));
+            return multipartUploadListing;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /*
+     * Returns null for an upload without an Initiated element, which the
+     * listing leaves out.
+     */
+    private static MultipartUpload readMultipartUpload(XMLStreamReader reader)
+            throws XMLStreamException, ParseException {
+        MultipartUpload mu = new MultipartUpload();
+        String initiated = null;
+        boolean hasInitiated = false;
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Key".equals(name)) {
+                mu.setKey(readText(reader));
+            } else if ("UploadId".equals(name)) {
+                mu.setUploadId(readText(reader));
+            } else if ("StorageClass".equals(name)) {
+                mu.setStorageClass(readText(reader));
+            } else if ("Initiated".equals(name)) {
+                initiated = readText(reader);
+                hasInitiated = true;
+            } else {
+                skipElement(reader);
+            }
+        }
+        if (!hasInitiated) {
+            return null;
+        }
+        mu.setInitiated(DateUtil.parseIso8601Date(initiated));
+        return mu;
+    }
+
+    static PartListing parseListParts(InputStream responseBody) throws XMLStreamException, ParseException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(responseBody);
+        try {
+            enterRoot(reader);
+
+            PartListing partListing = new PartListing();
+            String maxParts = null;
+            String isTruncated = null;
+            while (nextChild(reader)) {
+                String name = reader.getLocalName();
+                if ("Part".equals(name)) {
+                    partListing.addPart(readPartSummary(reader));
+                } else if ("Bucket".equals(name)) {
+                    partListing.setBucketName(readText(reader));
+                } else if ("Key".equals(name)) {
+                    partListing.setKey(readText(reader));
+                } else if ("UploadId".equals(name)) {
+                    partListing.setUploadId(readText(reader));
+                } else if ("StorageClass".equals(name)) {
+                    partListing.setStorageClass(readText(reader));
+                } else if ("MaxParts".equals(name)) {
+                    maxParts = readText(reader);
+                } else if ("IsTruncated".equals(name)) {
+                    isTruncated = readText(reader);
+                } else if ("PartNumberMarker".equals(name)) {
+                    String partNumberMarker = readText(reader);
+                    if (!isNullOrEmpty(partNumberMarker)) {
+                        partListing.setPartNumberMarker(Integer.valueOf(partNumberMarker));
+                    }
+                } else if ("NextPartNumberMarker".equals(name)) {
+                    String nextPartNumberMarker = readText(reader);
+                    if (!isNullOrEmpty(nextPartNumberMarker)) {
+                        partListing.setNextPartNumberMarker(Integer.valueOf(nextPartNumberMarker));
+                    }
+                } else {
+                    skipElement(reader);
+                }
+            }
+
+            partListing.setMaxParts(Integer.valueOf(maxParts));
+            partListing.setTruncated(Boolean.valueOf(isTruncated));
+            return partListing;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static PartSummary readPartSummary(XMLStreamReader reader) throws XMLStreamException, ParseException {
+        PartSummary ps = new PartSummary();
+        String partNumber = null;
+        String lastModified = null;
+        String size = null;
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("PartNumber".equals(name)) {
+                partNumber = readText(reader);
+            } else if ("LastModified".equals(name)) {
+                lastModified = readText(reader);
+            } else if ("ETag".equals(name)) {
+                ps.setETag(trimQuotes(readText(reader)));
+            } else if ("Size".equals(name)) {
+                size = readText(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        ps.setPartNumber(Integer.valueOf(partNumber));
+        ps.setLastModified(DateUtil.parseIso8601Date(lastModified));
+        ps.setSize(Integer.valueOf(size));
+        return ps;
+    }
+
+    static DeleteObjectsResult parseDeleteObjectsResult(InputStream responseBody) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(responseBody);
+        try {
+            enterRoot(reader);
+
+            DeleteObjectsResult deleteObjectsResult = new DeleteObjectsResult();
+            List<String> deletedObjects = new ArrayList<String>();
+            while (nextChild(reader)) {
+                String name = reader.getLocalName();
+                if ("Deleted".equals(name)) {
+                    String key = null;
+                    while (nextChild(reader)) {
+                        if ("Key".equals(reader.getLocalName())) {
+                            key = readText(reader);
+                        } else {
+                            skipElement(reader);
+                        }
+                    }
+                    deletedObjects.add(key);
+                } else if ("EncodingType".equals(name)) {
+                    deleteObjectsResult.setEncodingType(emptyToNull(readText(reader)));
+                } else {
+                    skipElement(reader);
+                }
+            }
+            deleteObjectsResult.setDeletedObjects(deletedObjects);
+            return deleteObjectsResult;
+        } finally {
+            reader.close();
+        }
+    }
+
+    static CompleteMultipartUploadResult parseCompleteMultipartUpload(InputStream responseBody)
+            throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(responseBody);
+        try {
+            enterRoot(reader);
+
+            CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+            while (nextChild(reader)) {
+                String name = reader.getLocalName();
+                if ("Bucket".equals(name)) {
+                    result.setBucketName(readText(reader));
+                } else if ("ETag".equals(name)) {
+                    result.setETag(trimQuotes(readText(reader)));
+                } else if ("Key".equals(name)) {
+                    result.setKey(readText(reader));
+                } else if ("Location".equals(name)) {
+                    result.setLocation(readText(reader));
+                } else {
+                    skipElement(reader);
+                }
+            }
+            return result;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String readCommonPrefix(XMLStreamReader reader) throws XMLStreamException {
+        String prefix = null;
+        while (nextChild(reader)) {
+            if ("Prefix".equals(reader.getLocalName())) {
+                prefix = readText(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return prefix;
+    }
+
+    /**
+     * Reads the text of the current element up to its end tag, like
+     * getChildText on a document tree: text of nested elements is skipped.
+     * Unlike XMLStreamReader.getElementText no buffer is allocated for the
+     * usual case of a single text event.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        String text = null;
+        StringBuilder builder = null;
+        while (true) {
+            switch (reader.next()) {
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                if (text == null) {
+                    text = reader.getText();
+                } else {
+                    if (builder == null) {
+                        builder = new StringBuilder(text);
+                    }
+                    builder.append(reader.getText());
+                }
+                break;
+            case XMLStreamConstants.START_ELEMENT:
+                skipElement(reader);
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                return builder != null ? builder.toString() : (text != null ? text : "");
+            case XMLStreamConstants.END_DOCUMENT:
+                throw new XMLStreamException("Premature end of document");
+            default:
+                break;
+            }
+        }
+    }
+
+    private static void enterRoot(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            if (reader.getEventType() == XMLStreamConstants.END_DOCUMENT) {
+                throw new XMLStreamException("Premature end of document, no root element");
+            }
+        }
+    }
+
+    /**
+     * Advances to the next child of the current element. Returns false once
+     * the current element's end tag has been read. Text between elements is
+     * ignored, as it is by getChildText on a document tree.
+     */
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                return true;
+            case XMLStreamConstants.END_ELEMENT:
+                return false;
+            case XMLStreamConstants.END_DOCUMENT:
+                throw new XMLStreamException("Premature end of document");
+            default:
+                break;
+            }
+        }
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                throw new XMLStreamException("Premature end of document");
+            }
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return isNullOrEmpty(value) ? null : value;
+    }
+}
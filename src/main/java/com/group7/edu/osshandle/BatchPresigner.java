@@ -0,0 +1,101 @@
+package com.group7.edu.osshandle;
+
+import com.group7.edu.oss.ClientException;
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.model.GeneratePresignedUrlRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量生成签名url，一批请求只取一次密钥、复用同一个签名器。
+ * 数量超过阈值时按线程数切分，在小线程池中并行签名。
+ * @author 993926972
+ */
+@Component
+public class BatchPresigner {
+
+    @Resource
+    private OSS ossClient;
+
+    @Value("${oss.presign.parallel-threshold:500}")
+    private int parallelThreshold;
+
+    @Value("${oss.presign.threads:4}")
+    private int threads;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "oss-presign-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param requests 签名请求
+     * @return 与请求一一对应的url，签名失败返回null
+     */
+    public List<String> sign(List<GeneratePresignedUrlRequest> requests) {
+        if (requests.size() < parallelThreshold || threads <= 1) {
+            return signChunk(requests);
+        }
+        int chunkSize = (requests.size() + threads - 1) / threads;
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            List<GeneratePresignedUrlRequest> chunk = requests.subList(from, Math.min(from + chunkSize, requests.size()));
+            futures.add(executor.submit(() -> signChunk(chunk)));
+        }
+        List<String> urls = new ArrayList<>(requests.size());
+        for (Future<List<String>> future : futures) {
+            try {
+                urls.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return failed(requests);
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                return failed(requests);
+            }
+        }
+        return urls;
+    }
+
+    private List<String> signChunk(List<GeneratePresignedUrlRequest> requests) {
+        try {
+            List<URL> signed = ossClient.generatePresignedUrls(requests);
+            List<String> urls = new ArrayList<>(signed.size());
+            for (URL url : signed) {
+                urls.add(url + "");
+            }
+            return urls;
+        } catch (ClientException ce) {
+            OssException.clientException(ce);
+        }
+        return failed(requests);
+    }
+
+    private static List<String> failed(List<GeneratePresignedUrlRequest> requests) {
+        return Collections.nCopies(requests.size(), null);
+    }
+}
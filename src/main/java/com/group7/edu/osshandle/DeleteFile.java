@@ -1,28 +1,29 @@
 package com.group7.edu.osshandle;
 
-import com.group7.edu.oss.ClientException;
-import com.group7.edu.oss.OSS;
-import com.group7.edu.oss.OSSClientBuilder;
-import com.group7.edu.oss.OSSException;
-import com.group7.edu.osshandle.secretkey.Temporary;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.io.IOException;
+
 /**
  * @author 993926972
  */
 @Service
 public class DeleteFile implements OssDelete {
+    @Resource
+    private DeleteJournal deleteJournal;
+
+    /**
+     * 写入删除日志后立即返回，由DeleteJournal在后台批量删除
+     */
     @Override
-    public  void deleteFile(String fileUuid) {
-        OSS ossClient = new OSSClientBuilder().build(Temporary.ENDPOINT, Temporary.ACCESS_KEY_ID, Temporary.ACCESS_KEY_SECRET);
+    public boolean deleteFile(String fileUuid) {
         try {
-            ossClient.deleteObject(Temporary.BUCKET_NAME, fileUuid);
-        } catch (OSSException oe) {
-            OssException.ossException(oe);
-        } catch (ClientException ce) {
-            OssException.clientException(ce);
-        }finally {
-            ossClient.shutdown();
+            deleteJournal.append(fileUuid);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
     }
 
@@ -0,0 +1,216 @@
+package com.group7.edu.osshandle;
+
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.OSSException;
+import com.group7.edu.oss.internal.OSSUtils;
+import com.group7.edu.oss.model.DeleteObjectsRequest;
+import com.group7.edu.osshandle.secretkey.Temporary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 异步批量删除oss文件。
+ * 待删除的key先追加写入本地日志文件，重启后从日志恢复；定时任务把积压的key合并成DeleteObjects请求，
+ * 每批最多1000个。OSS返回错误的key下次重试，超过重试次数后写入死信文件，不再自动删除；
+ * 网络失败、超时或熔断时整批留在队列中，不计重试次数。
+ * 日志默认放在工作目录的data/oss下，不要配置到重启会清空的临时目录。
+ * @author 993926972
+ */
+@Component
+public class DeleteJournal {
+
+    private static final String JOURNAL_FILE = "delete.journal";
+    private static final String DEAD_LETTER_FILE = "delete.dead";
+
+    @Resource
+    private OSS ossClient;
+    @Resource
+    private OssGuard ossGuard;
+
+    @Value("${oss.delete.journal-dir:${user.dir}/data/oss}")
+    private String journalDir;
+
+    @Value("${oss.delete.max-attempts:5}")
+    private int maxAttempts;
+
+    private Path journal;
+    private Path deadLetter;
+    private FileOutputStream journalOut;
+    private Writer journalWriter;
+
+    /* 待删除的key及已失败次数，按入队顺序 */
+    private final Map<String, Integer> pending = new LinkedHashMap<>();
+    private final List<String> deadLetters = new ArrayList<>();
+
+    @PostConstruct
+    public synchronized void init() throws IOException {
+        Path dir = Paths.get(journalDir).toAbsolutePath();
+        if (dir.startsWith(Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath())) {
+            System.out.println("OSS删除日志位于临时目录，重启后可能丢失: " + dir);
+        }
+        Files.createDirectories(dir);
+        journal = dir.resolve(JOURNAL_FILE);
+        deadLetter = dir.resolve(DEAD_LETTER_FILE);
+        if (Files.exists(journal)) {
+            for (String key : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+                if (!key.isEmpty()) {
+                    pending.put(key, 0);
+                }
+            }
+        }
+        if (Files.exists(deadLetter)) {
+            deadLetters.addAll(Files.readAllLines(deadLetter, StandardCharsets.UTF_8));
+        }
+        rewriteJournal();
+    }
+
+    @PreDestroy
+    public synchronized void destroy() throws IOException {
+        if (journalWriter != null) {
+            journalWriter.close();
+            journalWriter = null;
+        }
+    }
+
+    /**
+     * 登记待删除的文件，写入日志并落盘后立即返回
+     * @param fileUuid 文件uuid
+     * @throws IOException 日志写入失败，文件没有登记，调用方需要撤销自己的删除
+     */
+    public synchronized void append(String fileUuid) throws IOException {
+        if (fileUuid == null || fileUuid.isEmpty() || pending.containsKey(fileUuid)) {
+            return;
+        }
+        try {
+            journalWriter.write(fileUuid);
+            journalWriter.write('\n');
+            journalWriter.flush();
+            journalOut.getChannel().force(false);
+        } catch (IOException e) {
+            // 可能已经写入了半行或整行，按内存中的队列重写日志去掉它，否则重启后仍会删除这个文件
+            try {
+                rewriteJournal();
+            } catch (IOException re) {
+                e.addSuppressed(re);
+            }
+            throw e;
+        }
+        pending.put(fileUuid, 0);
+    }
+
+    /**
+     * 定时把积压的key批量删除
+     */
+    @Scheduled(fixedDelayString = "${oss.delete.flush-interval:5000}")
+    public void flush() {
+        List<String> batch;
+        while (!(batch = nextBatch()).isEmpty()) {
+            List<String> keys = batch;
+            boolean success = false;
+            try {
+                Boolean deleted = ossGuard.call(OssGuard.DELETE, () -> {
+                    ossClient.deleteObjects(new DeleteObjectsRequest(Temporary.BUCKET_NAME).withKeys(keys).withQuiet(true));
+                    return true;
+                }, () -> null);
+                if (deleted == null) {
+                    // 网络失败、超时或熔断，不计重试次数，等下次定时任务
+                    return;
+                }
+                success = true;
+            } catch (OSSException oe) {
+                OssException.ossException(oe);
+            }
+            complete(batch, success);
+            if (!success) {
+                return;
+            }
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    public synchronized List<String> deadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    private synchronized List<String> nextBatch() {
+        List<String> batch = new ArrayList<>();
+        Iterator<String> iterator = pending.keySet().iterator();
+        while (iterator.hasNext() && batch.size() < DeleteObjectsRequest.DELETE_OBJECTS_ONETIME_LIMIT) {
+            String key = iterator.next();
+            if (OSSUtils.validateObjectKey(key)) {
+                batch.add(key);
+            } else {
+                iterator.remove();
+                toDeadLetter(key);
+            }
+        }
+        return batch;
+    }
+
+    private synchronized void complete(List<String> batch, boolean success) {
+        for (String key : batch) {
+            if (success) {
+                pending.remove(key);
+                continue;
+            }
+            int attempts = pending.get(key) + 1;
+            if (attempts >= maxAttempts) {
+                pending.remove(key);
+                toDeadLetter(key);
+            } else {
+                pending.put(key, attempts);
+            }
+        }
+        try {
+            rewriteJournal();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void toDeadLetter(String key) {
+        deadLetters.add(key);
+        try (Writer writer = Files.newBufferedWriter(deadLetter, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(key);
+            writer.write('\n');
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 用剩余的key重写日志，先写临时文件再原子替换
+     */
+    private void rewriteJournal() throws IOException {
+        if (journalWriter != null) {
+            try {
+                journalWriter.close();
+            } catch (IOException e) {
+                // 旧文件马上被替换，缓冲区里没写出去的内容不需要了
+                e.printStackTrace();
+            }
+        }
+        Path tmp = journal.resolveSibling(JOURNAL_FILE + ".tmp");
+        Files.write(tmp, pending.keySet(), StandardCharsets.UTF_8);
+        Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalOut = new FileOutputStream(journal.toFile(), true);
+        journalWriter = new OutputStreamWriter(journalOut, StandardCharsets.UTF_8);
+    }
+}
@@ -6,6 +6,7 @@ package com.group7.edu.osshandle;
 public interface OssDelete {
     /**
      * @param fileUuid 删除oss桶中的文件,传入的是该文件的唯一uuid。
+     * @return 是否已登记删除，false表示删除日志写入失败，文件不会被删除
      */
-    void deleteFile(String fileUuid);
+    boolean deleteFile(String fileUuid);
 }
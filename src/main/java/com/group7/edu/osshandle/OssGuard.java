@@ -0,0 +1,223 @@
+package com.group7.edu.osshandle;
+
+import com.group7.edu.oss.OSSException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * OSS网络调用的隔离和熔断。
+ * 每类操作(read、copy、delete)有独立的有界线程池，调用方线程最多等待deadline；
+ * 连续失败达到阈值后熔断，熔断期间直接走降级逻辑，冷却时间过后放一个请求试探，成功则恢复。
+ * 线程数、队列长度、超时可以按操作覆盖，如oss.guard.read.threads。
+ * @author 993926972
+ */
+@Component
+public class OssGuard {
+
+    public static final String READ = "read";
+    public static final String COPY = "copy";
+    public static final String DELETE = "delete";
+
+    @Resource
+    private Environment environment;
+
+    @Value("${oss.guard.threads:8}")
+    private int threads;
+
+    @Value("${oss.guard.queue-size:32}")
+    private int queueSize;
+
+    @Value("${oss.guard.timeout:3000}")
+    private long timeout;
+
+    @Value("${oss.guard.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${oss.guard.open-duration:30000}")
+    private long openDuration;
+
+    private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void destroy() {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 使用该操作默认的deadline执行
+     */
+    public <T> T call(String operation, Callable<T> task, Supplier<T> fallback) {
+        return call(operation, bulkhead(operation).timeout, task, fallback);
+    }
+
+    /**
+     * 在operation对应的线程池中执行task，熔断、排队已满、超时或出错时返回fallback的结果。
+     * OSSException说明服务端有响应，不计入熔断，原样抛给调用方。
+     * @param operation 操作类型
+     * @param deadline 最长等待毫秒数
+     * @param task OSS调用
+     * @param fallback 降级
+     */
+    public <T> T call(String operation, long deadline, Callable<T> task, Supplier<T> fallback) {
+        Bulkhead bulkhead = bulkhead(operation);
+        bulkhead.calls.incrementAndGet();
+        if (!bulkhead.allowRequest()) {
+            bulkhead.shortCircuited.incrementAndGet();
+            return fallback.get();
+        }
+        Future<T> future;
+        try {
+            future = bulkhead.executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            bulkhead.rejected.incrementAndGet();
+            bulkhead.releaseProbe();
+            return fallback.get();
+        }
+        try {
+            T result = future.get(deadline, TimeUnit.MILLISECONDS);
+            bulkhead.onSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            bulkhead.timeouts.incrementAndGet();
+            bulkhead.onFailure();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            bulkhead.releaseProbe();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OSSException) {
+                bulkhead.onSuccess();
+                throw (OSSException) e.getCause();
+            }
+            bulkhead.failures.incrementAndGet();
+            bulkhead.onFailure();
+            System.out.println("OSS " + operation + " 调用失败: " + e.getCause());
+        }
+        return fallback.get();
+    }
+
+    /**
+     * @return 该操作当前是否处于熔断状态
+     */
+    public boolean isOpen(String operation) {
+        return bulkhead(operation).state() == State.OPEN;
+    }
+
+    /**
+     * 各操作的熔断状态和计数
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        for (Map.Entry<String, Bulkhead> entry : bulkheads.entrySet()) {
+            Bulkhead bulkhead = entry.getValue();
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("state", bulkhead.state());
+            stat.put("calls", bulkhead.calls.get());
+            stat.put("failures", bulkhead.failures.get());
+            stat.put("timeouts", bulkhead.timeouts.get());
+            stat.put("rejected", bulkhead.rejected.get());
+            stat.put("shortCircuited", bulkhead.shortCircuited.get());
+            stat.put("active", bulkhead.executor.getActiveCount());
+            stat.put("queued", bulkhead.executor.getQueue().size());
+            stats.put(entry.getKey(), stat);
+        }
+        return stats;
+    }
+
+    private Bulkhead bulkhead(String operation) {
+        return bulkheads.computeIfAbsent(operation, op -> new Bulkhead(op,
+                environment.getProperty("oss.guard." + op + ".threads", Integer.class, threads),
+                environment.getProperty("oss.guard." + op + ".queue-size", Integer.class, queueSize),
+                environment.getProperty("oss.guard." + op + ".timeout", Long.class, timeout)));
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 单个操作类型的线程池、熔断器和计数
+     */
+    private class Bulkhead {
+        private final ThreadPoolExecutor executor;
+        private final long timeout;
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong shortCircuited = new AtomicLong();
+
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean open;
+        private boolean probing;
+
+        private Bulkhead(String operation, int threads, int queueSize, long timeout) {
+            final AtomicInteger count = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueSize),
+                    r -> {
+                        Thread thread = new Thread(r, "oss-" + operation + "-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.executor.allowCoreThreadTimeOut(true);
+            this.timeout = timeout;
+        }
+
+        /**
+         * 熔断中返回false；冷却期结束后只放行一个试探请求
+         */
+        private synchronized boolean allowRequest() {
+            if (!open) {
+                return true;
+            }
+            if (probing || System.currentTimeMillis() - openedAt < openDuration) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+
+        private synchronized void releaseProbe() {
+            probing = false;
+        }
+
+        private synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            open = false;
+            probing = false;
+        }
+
+        private synchronized void onFailure() {
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= failureThreshold) {
+                open = true;
+                openedAt = System.currentTimeMillis();
+            }
+            probing = false;
+        }
+
+        private synchronized State state() {
+            if (!open) {
+                return State.CLOSED;
+            }
+            return probing || System.currentTimeMillis() - openedAt >= openDuration ? State.HALF_OPEN : State.OPEN;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.group7.edu.osshandle;
+
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.OSSClient;
+import com.group7.edu.oss.common.comm.RequestMetrics;
+import com.group7.edu.oss.common.utils.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 定时输出OSS各操作在上一个周期内的耗时分布，只输出有调用的操作；
+ * 周期由oss.metrics.log-interval指定(毫秒)，oss.metrics.log-enabled为false时不输出。
+ * @author 993926972
+ */
+@Component
+public class OssLatencyReporter {
+
+    @Resource
+    private OSS ossClient;
+
+    @Value("${oss.metrics.log-enabled:true}")
+    private boolean enabled;
+
+    /* 上一次输出时各直方图的快照 */
+    private Map<RequestMetrics.Key, LatencyHistogram.Snapshot> previous = new HashMap<>();
+
+    @Scheduled(fixedDelayString = "${oss.metrics.log-interval:60000}")
+    public void report() {
+        if (!enabled || !(ossClient instanceof OSSClient)) {
+            return;
+        }
+        Map<RequestMetrics.Key, LatencyHistogram.Snapshot> current = ((OSSClient) ossClient).getLatencyStats();
+        Map<String, LatencyHistogram.Snapshot> operations = new TreeMap<>();
+        Map<String, Long> failures = new HashMap<>();
+        Map<String, Long> retried = new HashMap<>();
+        for (Map.Entry<RequestMetrics.Key, LatencyHistogram.Snapshot> entry : current.entrySet()) {
+            RequestMetrics.Key key = entry.getKey();
+            LatencyHistogram.Snapshot before = previous.get(key);
+            LatencyHistogram.Snapshot interval = before == null ? entry.getValue() : entry.getValue().minus(before);
+            if (interval.getCount() == 0) {
+                continue;
+            }
+            operations.merge(key.getOperation(), interval, LatencyHistogram.Snapshot::merge);
+            if (key.getStatus() == RequestMetrics.NO_RESPONSE && !"presign".equals(key.getOperation())
+                    || key.getStatus() >= 300) {
+                failures.merge(key.getOperation(), interval.getCount(), Long::sum);
+            }
+            if (key.getRetries() > 0) {
+                retried.merge(key.getOperation(), interval.getCount(), Long::sum);
+            }
+        }
+        previous = current;
+        operations.forEach((operation, snapshot) -> System.out.println("OSS耗时 " + operation + " " + snapshot
+                + " failed=" + failures.getOrDefault(operation, 0L)
+                + " retried=" + retried.getOrDefault(operation, 0L)));
+    }
+}
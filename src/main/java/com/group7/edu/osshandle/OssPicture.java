@@ -1,5 +1,8 @@
 package com.group7.edu.osshandle;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * 图片处理
  *传入的是文件的uuid
@@ -17,6 +20,12 @@ public interface OssPicture {
      * @param fileUuid 文件uuid
      */
     String  compressionfixation(String fileUuid);
+    /**
+     *批量获取固定156x156大小缩略图，重复的uuid只签名一次
+     * @param fileUuids 文件uuid集合
+     * @return uuid到url的映射，空uuid和签名失败的不包含在内
+     */
+    Map<String, String> compressionfixationAll(Collection<String> fileUuids);
     /**
      *原图大小
      * @param fileUuid 文件uuid
@@ -3,20 +3,33 @@ package com.group7.edu.osshandle;
 import com.group7.edu.oss.ClientException;
 import com.group7.edu.oss.HttpMethod;
 import com.group7.edu.oss.OSS;
-import com.group7.edu.oss.OSSClientBuilder;
 import com.group7.edu.oss.model.GeneratePresignedUrlRequest;
 import com.group7.edu.osshandle.secretkey.Temporary;
 import com.group7.edu.utils.StringUtils;
 import org.springframework.stereotype.Service;
 import org.testng.annotations.Test;
 
-import java.util.Date;
+import javax.annotation.Resource;
+import java.util.*;
 
 /**
  * @author 993926972
  */
 @Service
 public class OssPictureProcessing implements OssPicture {
+    private static final long VALIDITY = 3600L * 1000 * 24 * 180;
+    private static final int FIXATION_SIZE = 156;
+    private static final String FIXATION_STYLE = "image/resize,m_fixed,w_"+FIXATION_SIZE+",h_"+FIXATION_SIZE+"";
+
+    @Resource
+    private OSS ossClient;
+    @Resource
+    private PresignedUrlCache presignedUrlCache;
+    @Resource
+    private BatchPresigner batchPresigner;
+    @Resource
+    private ThumbnailService thumbnailService;
+
     @Test
     public void ss(){
         String compressionfixation = compressionfixation("0010d0d186694e7e92043b511387d1datimg (7).jpg");
@@ -25,41 +38,88 @@ public class OssPictureProcessing implements OssPicture {
     @Override
     public  String  pctureArbitrarySize(String fileUuid, int w, int h) {
         if (StringUtils.isNotEmpty(fileUuid)){
-            return getUrl(fileUuid, new OSSClientBuilder().build(Temporary.ENDPOINT, Temporary.ACCESS_KEY_ID, Temporary.ACCESS_KEY_SECRET), "image/resize,m_fixed,w_"+w+",h_"+h+"")+"";
+            if (thumbnailService.isEnabled() && thumbnailService.isAllowedSize(w, h)) {
+                return thumbnailService.url(fileUuid, w, h);
+            }
+            return getUrl(fileUuid, "image/resize,m_fixed,w_"+w+",h_"+h+"")+"";
         }
         return null;
     }
     @Override
     public  String  compressionfixation(String fileUuid){
         if (StringUtils.isNotEmpty(fileUuid)){
-            return getUrl(fileUuid, new OSSClientBuilder().build(Temporary.ENDPOINT, Temporary.ACCESS_KEY_ID, Temporary.ACCESS_KEY_SECRET), "image/resize,m_fixed,w_"+156+",h_"+156+"")+"";
+            if (thumbnailService.isEnabled()) {
+                return thumbnailService.url(fileUuid, FIXATION_SIZE, FIXATION_SIZE);
+            }
+            return getUrl(fileUuid, FIXATION_STYLE)+"";
         }
         return null;
     }
     @Override
+    public Map<String, String> compressionfixationAll(Collection<String> fileUuids) {
+        Map<String, String> urls = new HashMap<>();
+        if (fileUuids == null) {
+            return urls;
+        }
+        if (thumbnailService.isEnabled()) {
+            for (String fileUuid : fileUuids) {
+                if (StringUtils.isNotEmpty(fileUuid)) {
+                    urls.put(fileUuid, thumbnailService.url(fileUuid, FIXATION_SIZE, FIXATION_SIZE));
+                }
+            }
+            return urls;
+        }
+        Date expiration = presignedUrlCache.expirationFor(VALIDITY);
+        List<GeneratePresignedUrlRequest> misses = new ArrayList<>();
+        for (String fileUuid : new LinkedHashSet<>(fileUuids)) {
+            if (StringUtils.isEmpty(fileUuid)) {
+                continue;
+            }
+            String url = presignedUrlCache.getIfPresent(Temporary.SOURCE_BUCKET_NAME, fileUuid, FIXATION_STYLE, null, VALIDITY);
+            if (url != null) {
+                urls.put(fileUuid, url);
+            } else {
+                misses.add(presignRequest(fileUuid, FIXATION_STYLE, expiration));
+            }
+        }
+        List<String> signed = batchPresigner.sign(misses);
+        for (int i = 0; i < misses.size(); i++) {
+            String fileUuid = misses.get(i).getKey();
+            String url = signed.get(i);
+            if (url != null) {
+                presignedUrlCache.put(Temporary.SOURCE_BUCKET_NAME, fileUuid, FIXATION_STYLE, null, VALIDITY, url, expiration);
+                urls.put(fileUuid, url);
+            }
+        }
+        return urls;
+    }
+    @Override
     public  String  originalGraph(String fileUuid) {
         if (StringUtils.isNotEmpty(fileUuid)){
-            return  getUrl(fileUuid, new OSSClientBuilder().build(Temporary.ENDPOINT, Temporary.ACCESS_KEY_ID, Temporary.ACCESS_KEY_SECRET), "image/resize,m_fixed,w_"+4000+",h_"+4000+"")+"";
+            return  getUrl(fileUuid, "image/resize,m_fixed,w_"+4000+",h_"+4000+"")+"";
         }
         return null;
     }
     /**
-     * 图片处理
+     * 图片处理，签名url经过缓存，同一文件同一样式重复调用返回相同url
      * @param fileUuid 文件uuid
-     * @param ossClient 调用图片处理
      * @param style 格式
      */
-    private String getUrl(String fileUuid, OSS ossClient, String style) {
+    private String getUrl(String fileUuid, String style) {
+        return presignedUrlCache.get(Temporary.SOURCE_BUCKET_NAME, fileUuid, style, null, VALIDITY, expiration -> {
+            try {
+                return ossClient.generatePresignedUrl(presignRequest(fileUuid, style, expiration))+"";
+            } catch (ClientException ce) {
+                OssException.clientException(ce);
+            }
+            return null;
+        });
+    }
+
+    private static GeneratePresignedUrlRequest presignRequest(String fileUuid, String style, Date expiration) {
         GeneratePresignedUrlRequest req = new GeneratePresignedUrlRequest(Temporary.SOURCE_BUCKET_NAME, fileUuid, HttpMethod.GET);
-        req.setExpiration(new Date(System.currentTimeMillis() + 3600L * 1000 * 24 * 180));
+        req.setExpiration(expiration);
         req.setProcess(style);
-        try {
-            return ossClient.generatePresignedUrl(req)+"";
-        } catch (ClientException ce) {
-            OssException.clientException(ce);
-        }finally {
-            ossClient.shutdown();
-        }
-        return null;
+        return req;
     }
 }
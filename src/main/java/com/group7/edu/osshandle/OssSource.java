@@ -1,5 +1,7 @@
 package com.group7.edu.osshandle;
 
+import java.util.Map;
+
 /**
  * 修改文件源信息 在线预览/下载
  * 传入文件的uuid和文件名
@@ -19,4 +21,10 @@ public interface OssSource {
        * @return url在线预览连接
        */
       String onlinePreview(String fileUuid, String fileName, int time);
+      /**
+       * 批量生成在线预览连接，列表页使用
+       * @param files uuid到文件名的映射
+       * @return uuid到url在线预览连接的映射，签名失败的不包含在内
+       */
+      Map<String, String> onlinePreviewAll(Map<String, String> files, int time);
 }
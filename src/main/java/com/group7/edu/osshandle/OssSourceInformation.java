@@ -3,18 +3,35 @@ package com.group7.edu.osshandle;
 import com.group7.edu.oss.*;
 import com.group7.edu.oss.model.CopyObjectRequest;
 import com.group7.edu.oss.model.CopyObjectResult;
+import com.group7.edu.oss.model.GeneratePresignedUrlRequest;
 import com.group7.edu.oss.model.ObjectMetadata;
+import com.group7.edu.oss.model.ResponseHeaderOverrides;
 import com.group7.edu.osshandle.secretkey.Temporary;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.testng.annotations.Test;
 
-import java.util.Date;
+import javax.annotation.Resource;
+import java.util.*;
 
 /**
  * @author 993926972
  */
 @Service
 public class OssSourceInformation implements OssSource {
+    private static final long VALIDITY = 3600L * 1000 * 24 * 180;
+
+    @Resource
+    private OSS ossClient;
+    @Resource
+    private PresignedUrlCache presignedUrlCache;
+    @Resource
+    private BatchPresigner batchPresigner;
+    @Resource
+    private OssGuard ossGuard;
+
+    @Value("${oss.source.rewrite-metadata:false}")
+    private boolean rewriteMetadata;
 
     @Test
     public void sss(){
@@ -36,37 +53,93 @@ public class OssSourceInformation implements OssSource {
         }
         return null;
     }
+    @Override
+    public Map<String, String> onlinePreviewAll(Map<String, String> files, int time) {
+        Map<String, String> urls = new HashMap<>();
+        if (files == null) {
+            return urls;
+        }
+        long validity = time <= 0 ? VALIDITY : VALIDITY * time;
+        Date expiration = presignedUrlCache.expirationFor(validity);
+        List<GeneratePresignedUrlRequest> misses = new ArrayList<>();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            String fileUuid = file.getKey();
+            if (fileUuid == null || file.getValue() == null) {
+                continue;
+            }
+            String disposition = "filename=" + file.getValue();
+            String url = rewriteMetadata ? modify(fileUuid, disposition, time)
+                    : presignedUrlCache.getIfPresent(Temporary.SOURCE_BUCKET_NAME, fileUuid, null, disposition, validity);
+            if (url != null) {
+                urls.put(fileUuid, url);
+            } else if (!rewriteMetadata) {
+                misses.add(presignRequest(fileUuid, disposition, expiration));
+            }
+        }
+        List<String> signed = batchPresigner.sign(misses);
+        for (int i = 0; i < misses.size(); i++) {
+            GeneratePresignedUrlRequest req = misses.get(i);
+            String url = signed.get(i);
+            if (url != null) {
+                presignedUrlCache.put(Temporary.SOURCE_BUCKET_NAME, req.getKey(), null,
+                        req.getResponseHeaders().getContentDisposition(), validity, url, expiration);
+                urls.put(req.getKey(), url);
+            }
+        }
+        return urls;
+    }
     /**
-     * 修改源信息，生成url在线播放地址或下载地址。有效期一天。
+     * 生成url在线播放地址或下载地址。签名url经过缓存。
+     * 默认把Content-Disposition作为response-content-disposition参数签进url，只做本地签名，不访问OSS；
+     * oss.source.rewrite-metadata=true时沿用旧方式，先拷贝对象修改源信息再签名；拷贝超时或熔断时退回直接签名。
+     * 对象只有一个Content-Disposition，后一次拷贝会覆盖前一次，所以拷贝后的url也带上response-content-disposition，
+     * 缓存中的预览和下载url不会因为之后的拷贝而互相串。
      * @param fileUuid uuitd
      * @param fileName 文件名
      * @return url的地址
      */
-    private static String  modify(String fileUuid,String fileName,int time)  {
-        OSS ossClient = new OSSClientBuilder().build(Temporary.ENDPOINT, Temporary.ACCESS_KEY_ID, Temporary.ACCESS_KEY_SECRET);
+    private String  modify(String fileUuid,String fileName,int time)  {
+        long validity = time <= 0 ? VALIDITY : VALIDITY * time;
+        return presignedUrlCache.get(Temporary.SOURCE_BUCKET_NAME, fileUuid, null, fileName, validity, expiration -> {
+            try {
+                if (rewriteMetadata) {
+                    return ossGuard.call(OssGuard.COPY, () -> copyAndSign(fileUuid, fileName, expiration),
+                            () -> ossClient.generatePresignedUrl(presignRequest(fileUuid, fileName, expiration))+"");
+                }
+                return ossClient.generatePresignedUrl(presignRequest(fileUuid, fileName, expiration))+"";
+            } catch (OSSException oe) {
+                OssException.ossException(oe);
+            } catch (ClientException ce) {
+                OssException.clientException(ce);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 拷贝对象到自身以修改Content-Disposition，再生成带response-content-disposition的签名url
+     */
+    private String copyAndSign(String fileUuid, String fileName, Date expiration) {
         CopyObjectRequest copyObjectRequest = new CopyObjectRequest(Temporary.SOURCE_BUCKET_NAME, fileUuid, Temporary.SOURCE_BUCKET_NAME, fileUuid);
         ObjectMetadata meta = new ObjectMetadata();
         meta.setContentDisposition(fileName);
         copyObjectRequest.setNewObjectMetadata(meta);
-        CopyObjectResult result = null;
-        try {
-            result = ossClient.copyObject(copyObjectRequest);
-            if (result!=null){
-                Date date = null;
-                if (time<=0){
-                    date = new Date(System.currentTimeMillis() + 3600L * 1000 * 24 * 180);
-                }else {
-                    date = new Date(System.currentTimeMillis() + 3600L * 1000 * 24 * 180 * time);
-                }
-                return ossClient.generatePresignedUrl("wojiaotanqinglin", fileUuid,date , HttpMethod.GET)+"";
-            }
-        } catch (OSSException oe) {
-            OssException.ossException(oe);
-        } catch (ClientException ce) {
-            OssException.clientException(ce);
-        }finally {
-            ossClient.shutdown();
+        CopyObjectResult result = ossClient.copyObject(copyObjectRequest);
+        if (result!=null){
+            return ossClient.generatePresignedUrl(presignRequest(fileUuid, fileName, expiration))+"";
         }
         return null;
     }
+
+    /**
+     * 把Content-Disposition作为response-content-disposition参数的签名请求
+     */
+    private static GeneratePresignedUrlRequest presignRequest(String fileUuid, String disposition, Date expiration) {
+        GeneratePresignedUrlRequest req = new GeneratePresignedUrlRequest(Temporary.SOURCE_BUCKET_NAME, fileUuid, HttpMethod.GET);
+        req.setExpiration(expiration);
+        ResponseHeaderOverrides overrides = new ResponseHeaderOverrides();
+        overrides.setContentDisposition(disposition);
+        req.setResponseHeaders(overrides);
+        return req;
+    }
 }
@@ -0,0 +1,36 @@
+package com.group7.edu.osshandle;
+
+import java.util.Map;
+
+/**
+ * 浏览器直传OSS
+ * 服务端只签发PostObject表单参数，文件内容由浏览器直接上传到OSS，上传完成后OSS回调服务端入库
+ * @author 993926972
+ */
+public interface OssUpload {
+    /**
+     * 签发PostObject表单参数
+     * @param uid 上传用户id，写入回调参数
+     * @param fileName 文件名
+     * @return 表单域名到值的映射，另含host(上传地址)和expire(过期时间戳)；文件名不合法返回null
+     */
+    Map<String, String> postPolicy(int uid, String fileName);
+
+    /**
+     * 校验OSS上传回调的签名
+     * @param authorization authorization请求头
+     * @param pubKeyUrl x-oss-pub-key-url请求头
+     * @param path 回调请求路径(未解码)
+     * @param query 回调请求的查询字符串，没有时为null
+     * @param body 回调请求体
+     * @return 签名是否有效
+     */
+    boolean verifyCallback(String authorization, String pubKeyUrl, String path, String query, byte[] body);
+
+    /**
+     * 校验回调参数是否为本服务签发的上传：bucket为源bucket，object在签发的前缀下，token与uid和前缀匹配
+     * @param params 已校验签名的回调参数
+     * @return 是否可以入库
+     */
+    boolean verifyUpload(Map<String, String> params);
+}
@@ -0,0 +1,245 @@
+package com.group7.edu.osshandle;
+
+import com.group7.edu.oss.ClientException;
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.OSSClient;
+import com.group7.edu.oss.common.auth.BasicCredentials;
+import com.group7.edu.oss.common.auth.Credentials;
+import com.group7.edu.oss.common.auth.ServiceSignature;
+import com.group7.edu.oss.common.utils.BinaryUtil;
+import com.group7.edu.oss.internal.Mimetypes;
+import com.group7.edu.oss.internal.OSSUtils;
+import com.group7.edu.oss.model.Callback;
+import com.group7.edu.oss.model.MatchMode;
+import com.group7.edu.oss.model.PolicyConditions;
+import com.group7.edu.osshandle.secretkey.Temporary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 浏览器直传OSS的PostObject签名和回调校验
+ * key限定在本次签发的uuid前缀下，文件大小、Content-Type、uid和文件名都写进policy，浏览器无法篡改；
+ * 回调内容由浏览器提交，可以被换掉，所以回调参数里带上服务端对uid和key前缀的HMAC，入库前校验bucket、前缀和HMAC；
+ * 使用STS临时凭证时表单带上x-oss-security-token，policy的过期时间不超过凭证的过期时间
+ * @author 993926972
+ */
+@Service
+public class OssUploadPolicy implements OssUpload {
+
+    private static final String CALLBACK_BODY = "bucket=${bucket}&object=${object}&size=${size}&mimeType=${mimeType}"
+            + "&uid=${x:uid}&filename=${x:filename}";
+
+    /* OSS回调公钥只允许从这个地址下载 */
+    private static final String PUB_KEY_HOST = "gosspublic.alicdn.com";
+
+    @Resource
+    private OSS ossClient;
+
+    @Value("${oss.upload.callback-url:http://localhost:8080/sys/disk/callback}")
+    private String callbackUrl;
+
+    @Value("${oss.upload.host:}")
+    private String host;
+
+    @Value("${oss.upload.max-size:1073741824}")
+    private long maxSize;
+
+    @Value("${oss.upload.expire:300}")
+    private long expire;
+
+    /* 回调token的HMAC密钥，多实例部署时需一致；未配置时用AccessKeySecret */
+    @Value("${oss.upload.callback-secret:}")
+    private String callbackSecret;
+
+    /* 公钥地址到公钥 */
+    private final ConcurrentHashMap<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<String, String> postPolicy(int uid, String fileName) {
+        if (!validFileName(fileName)) {
+            return null;
+        }
+        String dir = UUID.randomUUID().toString().replace("-", "");
+        String contentType = Mimetypes.getInstance().getMimetype(fileName);
+        Credentials creds = credentials();
+        long expireAt = System.currentTimeMillis() + expire * 1000;
+        if (creds instanceof BasicCredentials) {
+            expireAt = Math.min(expireAt, ((BasicCredentials) creds).getExpirationTimeMillis());
+        }
+
+        PolicyConditions conditions = new PolicyConditions();
+        conditions.addConditionItem(PolicyConditions.COND_CONTENT_LENGTH_RANGE, 0, maxSize);
+        conditions.addConditionItem(MatchMode.StartWith, PolicyConditions.COND_KEY, dir);
+        conditions.addConditionItem(PolicyConditions.COND_CONTENT_TYPE, contentType);
+        conditions.addConditionItem("x:uid", String.valueOf(uid));
+        conditions.addConditionItem("x:filename", fileName);
+
+        Callback callback = new Callback();
+        callback.setCallbackUrl(callbackUrl);
+        callback.setCallbackBody(CALLBACK_BODY + "&dir=" + dir + "&token=" + callbackToken(String.valueOf(uid), dir));
+        callback.setCalbackBodyType(Callback.CalbackBodyType.URL);
+
+        try {
+            String policy = ossClient.generatePostPolicy(new Date(expireAt), conditions);
+            String encodedPolicy = BinaryUtil.toBase64String(policy.getBytes(StandardCharsets.UTF_8));
+            Map<String, String> form = new LinkedHashMap<>();
+            form.put("host", host.isEmpty() ? bucketHost() : host);
+            form.put("expire", String.valueOf(expireAt / 1000));
+            form.put("key", dir + fileName);
+            if (creds == null) {
+                form.put("OSSAccessKeyId", Temporary.ACCESS_KEY_ID);
+                form.put("Signature", ossClient.calculatePostSignature(policy));
+            } else {
+                // AccessKeyId、token和签名用的secret必须来自同一份凭证，否则续期前后签出的表单对不上
+                form.put("OSSAccessKeyId", creds.getAccessKeyId());
+                form.put("Signature", ServiceSignature.create().computeSignature(creds.getSecretAccessKey(), encodedPolicy));
+                if (creds.useSecurityToken()) {
+                    form.put("x-oss-security-token", creds.getSecurityToken());
+                }
+            }
+            form.put("policy", encodedPolicy);
+            form.put("Content-Type", contentType);
+            form.put("x:uid", String.valueOf(uid));
+            form.put("x:filename", fileName);
+            form.put("callback", BinaryUtil.toBase64String(
+                    OSSUtils.jsonizeCallback(callback).getBytes(StandardCharsets.UTF_8)));
+            return form;
+        } catch (ClientException ce) {
+            OssException.clientException(ce);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean verifyCallback(String authorization, String pubKeyUrl, String path, String query, byte[] body) {
+        if (authorization == null || pubKeyUrl == null || path == null) {
+            return false;
+        }
+        try {
+            String keyUrl = new String(BinaryUtil.fromBase64String(pubKeyUrl), StandardCharsets.UTF_8);
+            URI uri = URI.create(keyUrl);
+            if (!PUB_KEY_HOST.equals(uri.getHost())
+                    || !("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+                System.out.println("OSS回调公钥地址不合法: " + keyUrl);
+                return false;
+            }
+            PublicKey publicKey = publicKeys.get(keyUrl);
+            if (publicKey == null) {
+                publicKey = loadPublicKey(keyUrl);
+                publicKeys.put(keyUrl, publicKey);
+            }
+            String content = URLDecoder.decode(path, "UTF-8")
+                    + (query == null || query.isEmpty() ? "" : "?" + query) + "\n";
+            Signature signature = Signature.getInstance("MD5withRSA");
+            signature.initVerify(publicKey);
+            signature.update(content.getBytes(StandardCharsets.UTF_8));
+            signature.update(body);
+            return signature.verify(BinaryUtil.fromBase64String(authorization));
+        } catch (IllegalArgumentException | IOException | GeneralSecurityException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private PublicKey loadPublicKey(String keyUrl) throws IOException, GeneralSecurityException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(keyUrl).openConnection();
+        connection.setConnectTimeout(3000);
+        connection.setReadTimeout(3000);
+        String pem;
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            pem = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+        String base64 = pem.replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s", "");
+        return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(BinaryUtil.fromBase64String(base64)));
+    }
+
+    @Override
+    public boolean verifyUpload(Map<String, String> params) {
+        String bucket = params.get("bucket");
+        String object = params.get("object");
+        String dir = params.get("dir");
+        String uid = params.get("uid");
+        String token = params.get("token");
+        if (!Temporary.SOURCE_BUCKET_NAME.equals(bucket) || object == null || dir == null || uid == null
+                || token == null || dir.isEmpty() || !object.startsWith(dir) || object.length() == dir.length()) {
+            return false;
+        }
+        return MessageDigest.isEqual(callbackToken(uid, dir).getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 对uid和key前缀的HMAC-SHA256，十六进制
+     */
+    private String callbackToken(String uid, String dir) {
+        String secret = callbackSecret.isEmpty() ? Temporary.ACCESS_KEY_SECRET : callbackSecret;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return BinaryUtil.toHex(mac.doFinal((uid + "/" + dir).getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return OSSClient当前使用的凭证；本地实现返回null，由其自身签名
+     */
+    private Credentials credentials() {
+        if (!(ossClient instanceof OSSClient)) {
+            return null;
+        }
+        return ((OSSClient) ossClient).getCredentialsProvider().getCredentials();
+    }
+
+    /**
+     * policy和callback都是直接拼接的json，文件名里不能有引号、反斜杠和控制字符
+     */
+    private static boolean validFileName(String fileName) {
+        if (fileName == null || fileName.isEmpty() || fileName.length() > 255) {
+            return false;
+        }
+        for (int i = 0; i < fileName.length(); i++) {
+            char c = fileName.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\' || c == '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String bucketHost() {
+        URI endpoint = URI.create(Temporary.ENDPOINT);
+        return "https://" + Temporary.SOURCE_BUCKET_NAME + "." + endpoint.getHost();
+    }
+}
@@ -0,0 +1,168 @@
+package com.group7.edu.osshandle;
+
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.OSSClient;
+import com.group7.edu.oss.common.auth.BasicCredentials;
+import com.group7.edu.oss.common.auth.Credentials;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 签名url缓存，key为(bucket, 文件uuid, 图片处理样式, Content-Disposition, 有效期)。
+ * 过期时间向上取整到时间桶，同一文件在一个桶内重复签名得到的url完全相同，浏览器和CDN缓存可以命中；
+ * 剩余有效期不足一半时重新签名。
+ * 使用STS临时凭证时url随token一起失效，过期时间不超过当前凭证的过期时间。
+ * @author 993926972
+ */
+@Component
+public class PresignedUrlCache {
+
+    @Resource
+    private OSS ossClient;
+
+    @Value("${oss.url-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${oss.url-cache.expiration-bucket:86400000}")
+    private long expirationBucket;
+
+    private final LruMap entries = new LruMap();
+
+    @PostConstruct
+    public void init() {
+        synchronized (entries) {
+            entries.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * 从缓存获取签名url，缓存不存在或即将过期时调用signer重新签名
+     * @param bucket 桶名
+     * @param key 文件uuid
+     * @param process 图片处理样式，没有传null
+     * @param disposition Content-Disposition，没有传null
+     * @param validity 有效期，毫秒
+     * @param signer 根据过期时间生成签名url，失败返回null
+     * @return url
+     */
+    public String get(String bucket, String key, String process, String disposition, long validity,
+                      Function<Date, String> signer) {
+        String url = getIfPresent(bucket, key, process, disposition, validity);
+        if (url != null) {
+            return url;
+        }
+        Date expiration = expirationFor(validity);
+        url = signer.apply(expiration);
+        if (url != null) {
+            put(bucket, key, process, disposition, validity, url, expiration);
+        }
+        return url;
+    }
+
+    /**
+     * @return 缓存中剩余有效期超过一半的url，没有返回null；受凭证过期时间限制的url按实际签名的有效期算
+     */
+    public String getIfPresent(String bucket, String key, String process, String disposition, long validity) {
+        String cacheKey = cacheKey(bucket, key, process, disposition, validity);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(cacheKey);
+            if (entry != null && entry.expiration - now > Math.min(validity, entry.expiration - entry.signedAt) / 2) {
+                return entry.url;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 当前时间加有效期，向上取整到时间桶，且不超过当前凭证的过期时间
+     */
+    public Date expirationFor(long validity) {
+        return new Date(Math.min(roundUp(System.currentTimeMillis() + validity), credentialsExpiration()));
+    }
+
+    /**
+     * 缓存签名url，expiration必须是签名时使用的过期时间
+     */
+    public void put(String bucket, String key, String process, String disposition, long validity,
+                    String url, Date expiration) {
+        String cacheKey = cacheKey(bucket, key, process, disposition, validity);
+        synchronized (entries) {
+            entries.put(cacheKey, new Entry(url, expiration.getTime(), System.currentTimeMillis()));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static String cacheKey(String bucket, String key, String process, String disposition, long validity) {
+        return bucket + '\n' + key + '\n' + process + '\n' + disposition + '\n' + validity;
+    }
+
+    /**
+     * @return 当前凭证的过期时间，长期AccessKey返回Long.MAX_VALUE
+     */
+    private long credentialsExpiration() {
+        if (!(ossClient instanceof OSSClient)) {
+            return Long.MAX_VALUE;
+        }
+        Credentials creds = ((OSSClient) ossClient).getCredentialsProvider().getCredentials();
+        if (!(creds instanceof BasicCredentials)) {
+            return Long.MAX_VALUE;
+        }
+        return ((BasicCredentials) creds).getExpirationTimeMillis();
+    }
+
+    private long roundUp(long time) {
+        if (expirationBucket <= 0) {
+            return time;
+        }
+        return (time / expirationBucket + 1) * expirationBucket;
+    }
+
+    /**
+     * 按访问顺序淘汰的LinkedHashMap，超过maxSize时移除最久未访问的url
+     */
+    private static final class LruMap extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private int maxSize = Integer.MAX_VALUE;
+
+        private LruMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    private static class Entry {
+        private final String url;
+        private final long expiration;
+        private final long signedAt;
+
+        private Entry(String url, long expiration, long signedAt) {
+            this.url = url;
+            this.expiration = expiration;
+            this.signedAt = signedAt;
+        }
+    }
+}
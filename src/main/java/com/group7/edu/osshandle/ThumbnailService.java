@@ -0,0 +1,225 @@
+package com.group7.edu.osshandle;
+
+import com.group7.edu.oss.ClientException;
+import com.group7.edu.oss.HttpMethod;
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.OSSException;
+import com.group7.edu.oss.common.utils.BinaryUtil;
+import com.group7.edu.oss.model.GeneratePresignedUrlRequest;
+import com.group7.edu.oss.model.OSSObject;
+import com.group7.edu.osshandle.secretkey.Temporary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地缩略图服务，oss.thumb.enabled=true时启用。
+ * 原图只从OSS拉取一次，在有界线程池中用ImageIO缩放后写入ThumbnailStore，之后由/media/thumb直接返回。
+ * 同一张缩略图并发请求只生成一次；线程池排满或生成失败时回退到OSS图片处理的签名url。
+ * @author 993926972
+ */
+@Service
+public class ThumbnailService {
+
+    public static final int MAX_SIZE = 4000;
+    private static final long FALLBACK_VALIDITY = 3600L * 1000;
+
+    @Resource
+    private OSS ossClient;
+    @Resource
+    private ThumbnailStore thumbnailStore;
+    @Resource
+    private PresignedUrlCache presignedUrlCache;
+    @Resource
+    private OssGuard ossGuard;
+
+    @Value("${oss.thumb.enabled:false}")
+    private boolean enabled;
+
+    @Value("${oss.thumb.base-url:/media/thumb}")
+    private String baseUrl;
+
+    @Value("${oss.thumb.threads:2}")
+    private int threads;
+
+    @Value("${oss.thumb.queue-size:64}")
+    private int queueSize;
+
+    @Value("${oss.thumb.timeout:10000}")
+    private long timeout;
+
+    @Value("${oss.thumb.placeholder:}")
+    private String placeholder;
+
+    /* 允许生成的尺寸，逗号分隔的宽x高 */
+    @Value("${oss.thumb.sizes:156x156}")
+    private String sizes;
+
+    private Set<String> allowedSizes;
+
+    private ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<String, Future<ThumbnailStore.Thumbnail>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Set<String> allowed = new HashSet<>();
+        for (String size : sizes.split(",")) {
+            String[] wh = size.trim().split("x");
+            if (wh.length != 2) {
+                throw new IllegalArgumentException("oss.thumb.sizes格式错误: " + size);
+            }
+            int w = Integer.parseInt(wh[0].trim());
+            int h = Integer.parseInt(wh[1].trim());
+            if (w <= 0 || h <= 0 || w > MAX_SIZE || h > MAX_SIZE) {
+                throw new IllegalArgumentException("oss.thumb.sizes尺寸超出范围: " + size);
+            }
+            allowed.add(w + "x" + h);
+        }
+        allowedSizes = allowed;
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                r -> {
+                    Thread thread = new Thread(r, "oss-thumb-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 是否为oss.thumb.sizes中配置的尺寸，其他尺寸不在本地生成
+     */
+    public boolean isAllowedSize(int w, int h) {
+        return allowedSizes.contains(w + "x" + h);
+    }
+
+    /**
+     * @return 本地缩略图地址
+     */
+    public String url(String fileUuid, int w, int h) {
+        return baseUrl + "/" + UriUtils.encodePathSegment(fileUuid, StandardCharsets.UTF_8) + "/" + w + "x" + h;
+    }
+
+    /**
+     * 获取缩略图，没有缓存时拉取原图生成
+     * @return 缩略图，失败返回null
+     */
+    public ThumbnailStore.Thumbnail get(String fileUuid, int w, int h) {
+        String name = name(fileUuid, w, h);
+        ThumbnailStore.Thumbnail thumbnail = lookup(name);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        FutureTask<ThumbnailStore.Thumbnail> task = new FutureTask<>(() -> generate(fileUuid, w, h));
+        Future<ThumbnailStore.Thumbnail> future = inFlight.putIfAbsent(name, task);
+        if (future == null) {
+            future = task;
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(name, task);
+                return null;
+            }
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (TimeoutException e) {
+            System.out.println("缩略图生成超时: " + fileUuid);
+        }
+        return null;
+    }
+
+    /**
+     * 本地生成失败时使用的OSS图片处理签名url；OSS读取处于熔断状态且配置了占位图时返回占位图
+     */
+    public String fallbackUrl(String fileUuid, int w, int h) {
+        if (!placeholder.isEmpty() && ossGuard.isOpen(OssGuard.READ)) {
+            return placeholder;
+        }
+        String style = "image/resize,m_fixed,w_" + w + ",h_" + h;
+        return presignedUrlCache.get(Temporary.SOURCE_BUCKET_NAME, fileUuid, style, null, FALLBACK_VALIDITY, expiration -> {
+            GeneratePresignedUrlRequest req = new GeneratePresignedUrlRequest(Temporary.SOURCE_BUCKET_NAME, fileUuid, HttpMethod.GET);
+            req.setExpiration(expiration);
+            req.setProcess(style);
+            try {
+                return ossClient.generatePresignedUrl(req) + "";
+            } catch (ClientException ce) {
+                OssException.clientException(ce);
+            }
+            return null;
+        });
+    }
+
+    private ThumbnailStore.Thumbnail generate(String fileUuid, int w, int h) throws IOException {
+        String name = name(fileUuid, w, h);
+        try {
+            BufferedImage original = ossGuard.call(OssGuard.READ, timeout, () -> {
+                OSSObject object = ossClient.getObject(Temporary.SOURCE_BUCKET_NAME, fileUuid);
+                try (InputStream in = object.getObjectContent()) {
+                    return ImageIO.read(in);
+                }
+            }, () -> null);
+            if (original == null) {
+                return null;
+            }
+            boolean alpha = original.getColorModel().hasAlpha();
+            BufferedImage scaled = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = scaled.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(original, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(scaled, alpha ? "png" : "jpg", out);
+            String fileName = name + (alpha ? ".png" : ".jpg");
+            thumbnailStore.put(fileName, out.toByteArray());
+            return thumbnailStore.get(fileName);
+        } catch (OSSException oe) {
+            OssException.ossException(oe);
+        } finally {
+            inFlight.remove(name);
+        }
+        return null;
+    }
+
+    private ThumbnailStore.Thumbnail lookup(String name) {
+        ThumbnailStore.Thumbnail thumbnail = thumbnailStore.get(name + ".jpg");
+        return thumbnail != null ? thumbnail : thumbnailStore.get(name + ".png");
+    }
+
+    private static String name(String fileUuid, int w, int h) {
+        return BinaryUtil.encodeMD5((fileUuid + "/" + w + "x" + h).getBytes(StandardCharsets.UTF_8));
+    }
+}
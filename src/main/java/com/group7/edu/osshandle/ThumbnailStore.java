@@ -0,0 +1,156 @@
+package com.group7.edu.osshandle;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * 缩略图磁盘缓存，总大小超过上限时按LRU淘汰文件；读取时用内存映射，由操作系统页缓存承担热点。
+ * 文件名是(uuid, 宽, 高)的摘要加图片格式后缀，重启时扫描目录按修改时间恢复LRU顺序。
+ * @author 993926972
+ */
+@Component
+public class ThumbnailStore {
+
+    @Value("${oss.thumb.dir:${java.io.tmpdir}/edu-oss/thumb}")
+    private String dir;
+
+    @Value("${oss.thumb.max-bytes:268435456}")
+    private long maxBytes;
+
+    private Path root;
+    private long totalBytes;
+
+    /* 文件名到文件大小，访问顺序 */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    @PostConstruct
+    public synchronized void init() throws IOException {
+        root = Paths.get(dir);
+        Files.createDirectories(root);
+        File[] files = root.toFile().listFiles(File::isFile);
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+                continue;
+            }
+            index.put(file.getName(), file.length());
+            totalBytes += file.length();
+        }
+        evict();
+    }
+
+    /**
+     * @param name 文件名
+     * @return 缓存的缩略图，不存在返回null
+     */
+    public Thumbnail get(String name) {
+        synchronized (this) {
+            if (index.get(name) == null) {
+                return null;
+            }
+        }
+        Path file = root.resolve(name);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Thumbnail(name, buffer, Files.getLastModifiedTime(file).toMillis());
+        } catch (NoSuchFileException e) {
+            remove(name);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 写入缩略图，先写临时文件再原子替换，然后按需淘汰
+     */
+    public void put(String name, byte[] data) throws IOException {
+        Path tmp = root.resolve(name + "." + Thread.currentThread().getId() + ".tmp");
+        Files.write(tmp, data);
+        Files.move(tmp, root.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            Long old = index.put(name, (long) data.length);
+            totalBytes += data.length - (old == null ? 0 : old);
+            evict();
+        }
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private synchronized void remove(String name) {
+        Long size = index.remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(root.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 一张缓存的缩略图
+     */
+    public static class Thumbnail {
+        private final String name;
+        private final MappedByteBuffer data;
+        private final long lastModified;
+
+        private Thumbnail(String name, MappedByteBuffer data, long lastModified) {
+            this.name = name;
+            this.data = data;
+            this.lastModified = lastModified;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public MappedByteBuffer getData() {
+            return data;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getContentType() {
+            return name.endsWith(".png") ? "image/png" : "image/jpeg";
+        }
+
+        /**
+         * 强ETag：文件名已包含uuid和尺寸的摘要，同名文件内容不变
+         */
+        public String getETag() {
+            return "\"" + name.substring(0, name.lastIndexOf('.')) + "-" + data.capacity() + "\"";
+        }
+    }
+}
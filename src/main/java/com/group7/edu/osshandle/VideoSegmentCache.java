@@ -0,0 +1,349 @@
+package com.group7.edu.osshandle;
+
+import com.group7.edu.oss.ClientException;
+import com.group7.edu.oss.HttpMethod;
+import com.group7.edu.oss.OSS;
+import com.group7.edu.oss.OSSException;
+import com.group7.edu.oss.common.utils.BinaryUtil;
+import com.group7.edu.oss.model.GeneratePresignedUrlRequest;
+import com.group7.edu.oss.model.GetObjectRequest;
+import com.group7.edu.oss.model.OSSObject;
+import com.group7.edu.oss.model.ObjectMetadata;
+import com.group7.edu.osshandle.secretkey.Temporary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 视频分段缓存，oss.video.enabled=true时启用。
+ * 视频按固定大小切段，每段通过带Range的GetObject从OSS拉取一次后落到本地磁盘，
+ * 磁盘总量超过上限时按LRU淘汰；热门视频的热点段由页缓存承载，/media/video直接从本地文件输出。
+ * @author 993926972
+ */
+@Component
+public class VideoSegmentCache {
+
+    private static final long FALLBACK_VALIDITY = 3600L * 1000 * 6;
+
+    @Resource
+    private OSS ossClient;
+    @Resource
+    private PresignedUrlCache presignedUrlCache;
+    @Resource
+    private OssGuard ossGuard;
+
+    @Value("${oss.video.enabled:false}")
+    private boolean enabled;
+
+    @Value("${oss.video.base-url:/media/video}")
+    private String baseUrl;
+
+    @Value("${oss.video.dir:${java.io.tmpdir}/edu-oss/video}")
+    private String dir;
+
+    @Value("${oss.video.segment-size:4194304}")
+    private long segmentSize;
+
+    @Value("${oss.video.max-bytes:2147483648}")
+    private long maxBytes;
+
+    @Value("${oss.video.metadata-ttl:600000}")
+    private long metadataTtl;
+
+    @Value("${oss.video.segment-timeout:15000}")
+    private long segmentTimeout;
+
+    @Value("${oss.video.lease:10000}")
+    private long leaseMillis;
+
+    private Path root;
+    private long totalBytes;
+
+    /* 段文件名到文件大小，访问顺序 */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    /* 段文件名到租约到期时间，租约内的段不会被淘汰 */
+    private final Map<String, Long> leases = new HashMap<>();
+
+    /* 视频元数据，最多保留1024个 */
+    private final Map<String, VideoInfo> infos = Collections.synchronizedMap(new InfoMap());
+
+    private final ConcurrentHashMap<String, Future<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void init() throws IOException {
+        root = Paths.get(dir);
+        Files.createDirectories(root);
+        File[] files = root.toFile().listFiles(File::isFile);
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+                continue;
+            }
+            index.put(file.getName(), file.length());
+            totalBytes += file.length();
+        }
+        evict();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @return 本地视频地址
+     */
+    public String url(String fileUuid) {
+        return baseUrl + "/" + UriUtils.encodePathSegment(fileUuid, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 本地拉取失败时使用的OSS签名url
+     */
+    public String fallbackUrl(String fileUuid) {
+        return presignedUrlCache.get(Temporary.SOURCE_BUCKET_NAME, fileUuid, null, null, FALLBACK_VALIDITY, expiration -> {
+            GeneratePresignedUrlRequest req = new GeneratePresignedUrlRequest(Temporary.SOURCE_BUCKET_NAME, fileUuid, HttpMethod.GET);
+            req.setExpiration(expiration);
+            try {
+                return ossClient.generatePresignedUrl(req) + "";
+            } catch (ClientException ce) {
+                OssException.clientException(ce);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 视频长度、ETag、类型，短时间缓存
+     * @return 元数据，文件不存在、请求失败或熔断时返回null
+     */
+    public VideoInfo info(String fileUuid) {
+        VideoInfo info = infos.get(fileUuid);
+        if (info != null && System.currentTimeMillis() - info.loadedAt < metadataTtl) {
+            return info;
+        }
+        try {
+            ObjectMetadata metadata = ossGuard.call(OssGuard.READ,
+                    () -> ossClient.getObjectMetadata(Temporary.SOURCE_BUCKET_NAME, fileUuid), () -> null);
+            if (metadata == null) {
+                return null;
+            }
+            info = new VideoInfo(fileUuid, metadata.getContentLength(), metadata.getETag(), metadata.getContentType());
+            infos.put(fileUuid, info);
+            return info;
+        } catch (OSSException oe) {
+            OssException.ossException(oe);
+        }
+        return null;
+    }
+
+    /**
+     * 打开第segment段的本地文件，不存在时从OSS拉取；文件在缓存锁内打开，之后被淘汰删除也不影响读取
+     * @param info 视频元数据
+     * @param segment 段序号
+     * @return 只读的文件通道，由调用方关闭
+     */
+    public FileChannel open(VideoInfo info, long segment) throws IOException {
+        return acquire(info, segment, file -> FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * 获取第segment段的本地文件并租用oss.video.lease毫秒，租约内不会被淘汰；
+     * 用于交给Tomcat sendfile按文件名打开的场景
+     * @param info 视频元数据
+     * @param segment 段序号
+     */
+    public Path lease(VideoInfo info, long segment) throws IOException {
+        return acquire(info, segment, file -> {
+            leases.put(file.getFileName().toString(), System.currentTimeMillis() + leaseMillis);
+            return file;
+        });
+    }
+
+    /**
+     * 在缓存锁内对段文件执行action，段不存在时先拉取；同一段并发请求只拉取一次。
+     * 刚拉取的段在执行action前又被淘汰时重试一次
+     */
+    private <T> T acquire(VideoInfo info, long segment, SegmentAction<T> action) throws IOException {
+        String name = segmentName(info, segment);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            synchronized (this) {
+                if (index.get(name) != null) {
+                    return action.apply(root.resolve(name));
+                }
+            }
+            FutureTask<Path> task = new FutureTask<>(() -> fetch(info, segment, name));
+            Future<Path> future = inFlight.putIfAbsent(name, task);
+            if (future == null) {
+                future = task;
+                task.run();
+            }
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+        throw new IOException("视频分段拉取后即被淘汰: " + info.fileUuid + " 第" + segment + "段");
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * 在OssGuard的read线程池中下载，超过oss.video.segment-timeout或熔断时抛出IOException
+     */
+    private Path fetch(VideoInfo info, long segment, String name) throws IOException {
+        try {
+            Path file = ossGuard.call(OssGuard.READ, segmentTimeout, () -> download(info, segment, name), () -> null);
+            if (file == null) {
+                throw new IOException("视频分段拉取失败: " + info.fileUuid + " 第" + segment + "段");
+            }
+            return file;
+        } catch (OSSException e) {
+            infos.remove(info.fileUuid);
+            throw new IOException(e);
+        } finally {
+            inFlight.remove(name);
+        }
+    }
+
+    private Path download(VideoInfo info, long segment, String name) throws IOException {
+        long start = segment * segmentSize;
+        long end = Math.min(start + segmentSize, info.length) - 1;
+        GetObjectRequest request = new GetObjectRequest(Temporary.SOURCE_BUCKET_NAME, info.fileUuid);
+        request.setRange(start, end);
+        Path tmp = root.resolve(name + "." + Thread.currentThread().getId() + ".tmp");
+        OSSObject object = ossClient.getObject(request);
+        try (InputStream in = object.getObjectContent()) {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        long size = Files.size(tmp);
+        if (size != end - start + 1) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("视频分段长度不符: " + info.fileUuid + " 第" + segment + "段");
+        }
+        Path file = root.resolve(name);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            Long old = index.put(name, size);
+            totalBytes += size - (old == null ? 0 : old);
+            evict();
+        }
+        return file;
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        leases.values().removeIf(expiry -> expiry <= now);
+        Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (leases.containsKey(eldest.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(root.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 段文件名包含ETag，源文件被覆盖后旧的段不会再被命中
+     */
+    private String segmentName(VideoInfo info, long segment) {
+        String digest = BinaryUtil.encodeMD5((info.fileUuid + "\n" + info.eTag).getBytes(StandardCharsets.UTF_8));
+        return digest + "-" + segmentSize + "-" + segment + ".seg";
+    }
+
+    private interface SegmentAction<T> {
+        T apply(Path file) throws IOException;
+    }
+
+    /**
+     * 按访问顺序淘汰的LinkedHashMap，超过1024个时移除最久未访问的元数据
+     */
+    private static final class InfoMap extends LinkedHashMap<String, VideoInfo> {
+        private static final long serialVersionUID = 1L;
+
+        private InfoMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VideoInfo> eldest) {
+            return size() > 1024;
+        }
+    }
+
+    /**
+     * 视频元数据
+     */
+    public static class VideoInfo {
+        private final String fileUuid;
+        private final long length;
+        private final String eTag;
+        private final String contentType;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private VideoInfo(String fileUuid, long length, String eTag, String contentType) {
+            this.fileUuid = fileUuid;
+            this.length = length;
+            this.eTag = eTag;
+            this.contentType = contentType;
+        }
+
+        public String getFileUuid() {
+            return fileUuid;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
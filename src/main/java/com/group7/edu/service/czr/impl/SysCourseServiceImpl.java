@@ -13,7 +13,9 @@ import org.codehaus.plexus.util.StringUtils;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author c
@@ -99,10 +101,16 @@ public class SysCourseServiceImpl implements SysCourseService {
             count = sysCourseExtMapper.selectEvaluationCount(courseId);
             evaluations = sysCourseExtMapper.selectCourseEvaluationById(courseId, page, pageSize);
             if (evaluations != null) {
+                List<String> icons = new ArrayList<>();
                 for (SysCourseEvaluationDTO evaluation : evaluations) {
                     if (evaluation != null && StringUtils.isNotBlank(evaluation.getUserIcon())) {
-                        evaluation.setUserIcon(ossPicture
-                                .compressionfixation(evaluation.getUserIcon()));
+                        icons.add(evaluation.getUserIcon());
+                    }
+                }
+                Map<String, String> iconUrls = ossPicture.compressionfixationAll(icons);
+                for (SysCourseEvaluationDTO evaluation : evaluations) {
+                    if (evaluation != null && StringUtils.isNotBlank(evaluation.getUserIcon())) {
+                        evaluation.setUserIcon(iconUrls.get(evaluation.getUserIcon()));
                     }
                 }
             }
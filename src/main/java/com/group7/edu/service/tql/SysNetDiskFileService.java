@@ -9,6 +9,7 @@ import com.group7.edu.utils.ResultData;
  */
 public interface SysNetDiskFileService {
     ResultData fileUpload(SysNetDiskFile sysNetDiskFile);
+    ResultData uploadCallback(SysNetDiskFile sysNetDiskFile);
     PagingUtils fileQuery(int limit, int offset, String type);
     ResultData deleteFile(SysNetDiskFile sysNetDiskFile);
     String onlinePreview(SysNetDiskFile sysNetDiskFile);
@@ -7,14 +7,14 @@ import com.group7.edu.mapper.tql.SysNetDiskFileTqlMapper;
 import com.group7.edu.osshandle.DeleteFile;
 import com.group7.edu.osshandle.OssPicture;
 import com.group7.edu.osshandle.OssSource;
-import com.group7.edu.osshandle.OssSourceInformation;
 import com.group7.edu.service.tql.SysNetDiskFileService;
 import com.group7.edu.utils.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import javax.annotation.Resource;
-import java.util.Date;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author 993926972
@@ -29,8 +29,6 @@ public class SysNetDiskFileServiceImpl implements SysNetDiskFileService {
     private OssPicture ossPicture;
     @Resource
     private OssSource ossSource;
-    @Resource
-    private OssSourceInformation sourceInformation;
 
     /**
      * @param sysNetDiskFile 文件上传
@@ -39,34 +37,53 @@ public class SysNetDiskFileServiceImpl implements SysNetDiskFileService {
     @Override
     public ResultData fileUpload(SysNetDiskFile sysNetDiskFile) {
         if (sysNetDiskFile!=null){
-            String suffix = sysNetDiskFile.getSuffix();
-            if (StringUtils.isNotEmpty(suffix)){
-                if (ConstantUtils.JPG.equals(suffix)||ConstantUtils.PNG.equals(suffix)||ConstantUtils.BMP.equals(suffix)||ConstantUtils.GIF.equals(suffix)||ConstantUtils.WEBP.equals(suffix)||ConstantUtils.TIFF.equals(suffix)){
-                    sysNetDiskFile.setType(1);
-                }
-                else if (ConstantUtils.TXT.equals(suffix)||ConstantUtils.PDF.equals(suffix)||ConstantUtils.PPTV.equals(suffix)||ConstantUtils.DOC.equals(suffix)||ConstantUtils.XLSX.equals(suffix)||ConstantUtils.PPT.equals(suffix)||ConstantUtils.DOCX.equals(suffix)){
-                    sysNetDiskFile.setType(2);
-                }
-                else if (ConstantUtils.MP4.equals(suffix)||ConstantUtils.M4V.equals(suffix)){
-                    sysNetDiskFile.setType(3);
-                }
-                else if (ConstantUtils.MP3.equals(suffix)||ConstantUtils.WMA.equals(suffix)){
-                    sysNetDiskFile.setType(4);
-                }
-                else {
-                    sysNetDiskFile.setType(0);
-                }
-                sysNetDiskFile.setCreatedTime(new Date());
-                sysNetDiskFile.setUid(ShiroUtils.getUserId());
-                int i = sysNetDiskFileTqlMapper.insertSelective(sysNetDiskFile);
-                if (i>0){
-                    return ResultData.isSuccess();
-                }
+            sysNetDiskFile.setUid(ShiroUtils.getUserId());
+            if (insertFile(sysNetDiskFile)){
+                return ResultData.isSuccess();
             }
         }
         return ResultData.isFailure("文件上传失败");
     }
 
+    /**
+     * @param sysNetDiskFile 浏览器直传OSS完成后的回调入库，uid取自已校验签名和token的回调参数
+     * @return 返回是否成功
+     */
+    @Override
+    public ResultData uploadCallback(SysNetDiskFile sysNetDiskFile) {
+        if (sysNetDiskFile!=null&&sysNetDiskFile.getUid()!=null&&insertFile(sysNetDiskFile)){
+            return ResultData.isSuccess().put("fileuuid",sysNetDiskFile.getFileuuid());
+        }
+        return ResultData.isFailure("文件上传失败");
+    }
+
+    /**
+     * 按后缀设置文件类型后入库
+     */
+    private boolean insertFile(SysNetDiskFile sysNetDiskFile) {
+        String suffix = sysNetDiskFile.getSuffix();
+        if (StringUtils.isNotEmpty(suffix)){
+            if (ConstantUtils.JPG.equals(suffix)||ConstantUtils.PNG.equals(suffix)||ConstantUtils.BMP.equals(suffix)||ConstantUtils.GIF.equals(suffix)||ConstantUtils.WEBP.equals(suffix)||ConstantUtils.TIFF.equals(suffix)){
+                sysNetDiskFile.setType(1);
+            }
+            else if (ConstantUtils.TXT.equals(suffix)||ConstantUtils.PDF.equals(suffix)||ConstantUtils.PPTV.equals(suffix)||ConstantUtils.DOC.equals(suffix)||ConstantUtils.XLSX.equals(suffix)||ConstantUtils.PPT.equals(suffix)||ConstantUtils.DOCX.equals(suffix)){
+                sysNetDiskFile.setType(2);
+            }
+            else if (ConstantUtils.MP4.equals(suffix)||ConstantUtils.M4V.equals(suffix)){
+                sysNetDiskFile.setType(3);
+            }
+            else if (ConstantUtils.MP3.equals(suffix)||ConstantUtils.WMA.equals(suffix)){
+                sysNetDiskFile.setType(4);
+            }
+            else {
+                sysNetDiskFile.setType(0);
+            }
+            sysNetDiskFile.setCreatedTime(new Date());
+            return sysNetDiskFileTqlMapper.insertSelective(sysNetDiskFile)>0;
+        }
+        return false;
+    }
+
     @Override
     public PagingUtils fileQuery(int limit, int offset, String type) {
         PageHelper.offsetPage(limit,offset);
@@ -101,23 +118,42 @@ public class SysNetDiskFileServiceImpl implements SysNetDiskFileService {
 
     private void ifUUid(List<SysNetDiskFile> sysNetDiskFiles) {
         if (sysNetDiskFiles!=null){
+            List<String> pictures = new ArrayList<>();
+            Map<String, String> videos = new HashMap<>();
             for (SysNetDiskFile sysNetDiskFile : sysNetDiskFiles) {
                 if (sysNetDiskFile.getType().equals(1)){
-                    sysNetDiskFile.setUrl(ossPicture.compressionfixation(sysNetDiskFile.getFileuuid()));
+                    pictures.add(sysNetDiskFile.getFileuuid());
+                }
+                if (sysNetDiskFile.getType().equals(3)&&sysNetDiskFile.getFileuuid()!=null){
+                    videos.put(sysNetDiskFile.getFileuuid(),sysNetDiskFile.getFilename());
+                }
+            }
+            Map<String, String> pictureUrls = ossPicture.compressionfixationAll(pictures);
+            Map<String, String> videoUrls = ossSource.onlinePreviewAll(videos,0);
+            for (SysNetDiskFile sysNetDiskFile : sysNetDiskFiles) {
+                if (sysNetDiskFile.getType().equals(1)){
+                    sysNetDiskFile.setUrl(pictureUrls.get(sysNetDiskFile.getFileuuid()));
                 }
                 if (sysNetDiskFile.getType().equals(3)){
-                    sysNetDiskFile.setUrl(sourceInformation.onlinePreview(sysNetDiskFile.getFileuuid(),sysNetDiskFile.getFilename(),0));
+                    sysNetDiskFile.setUrl(videoUrls.get(sysNetDiskFile.getFileuuid()));
                 }
             }
         }
     }
 
+    /**
+     * 删除记录并登记删除oss文件；删除日志写入失败时回滚，避免记录没了文件却一直留在oss上
+     */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public ResultData deleteFile(SysNetDiskFile sysNetDiskFile) {
         int i = sysNetDiskFileTqlMapper.deleteByPrimaryKey(sysNetDiskFile.getId());
         if (i>0){
-            deleteFile.deleteFile(sysNetDiskFile.getFileuuid());
-            return ResultData.isSuccess();
+            if (deleteFile.deleteFile(sysNetDiskFile.getFileuuid())) {
+                return ResultData.isSuccess();
+            }
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResultData.isFailure("删除失败");
         }
         return ResultData.isFailure();
     }
@@ -7,6 +7,7 @@ import com.group7.edu.mapper.tql.SysFavoriteTqlMapper;
 import com.group7.edu.mapper.tql.SysNetDiskFileTqlMapper;
 import com.group7.edu.mapper.tql.SysVideoTqlMapper;
 import com.group7.edu.osshandle.OssSource;
+import com.group7.edu.osshandle.VideoSegmentCache;
 import com.group7.edu.service.tql.SysVideoService;
 import com.group7.edu.utils.ResultData;
 import com.group7.edu.utils.ShiroUtils;
@@ -25,6 +26,8 @@ public class SysVideoServiceImpl implements SysVideoService {
     @Resource
     private OssSource ossSource;
     @Resource
+    private VideoSegmentCache videoSegmentCache;
+    @Resource
     private SysNetDiskFileTqlMapper sysNetDiskFileTqlMapper;
     @Resource
     private SysFavoriteTqlMapper sysFavoriteTqlMapper;
@@ -74,12 +77,25 @@ public class SysVideoServiceImpl implements SysVideoService {
         SysVideo sysVideos = sysVideoTqlMapper.relatedVideos(capter);
         if (sysVideos!=null){
             List<SysVideo> chapterVideos = sysVideoTqlMapper.chapterVideos(sysVideos.getCapter());
-            for (SysVideo chapterVideo : chapterVideos) {
-                String url = ossSource.onlinePreview(chapterVideo.getFileUuid(), chapterVideo.getName(), 0);
-                chapterVideo.setUrl(url);
-            }
             if (chapterVideos!=null){
-                String url = ossSource.onlinePreview(sysVideos.getFileUuid(), sysVideos.getName(), 0);
+                Map<String,String> files = new HashMap<>();
+                for (SysVideo chapterVideo : chapterVideos) {
+                    files.put(chapterVideo.getFileUuid(), chapterVideo.getName());
+                }
+                files.put(sysVideos.getFileUuid(), sysVideos.getName());
+                Map<String,String> urls;
+                if (videoSegmentCache.isEnabled()) {
+                    urls = new HashMap<>();
+                    for (String fileUuid : files.keySet()) {
+                        urls.put(fileUuid, videoSegmentCache.url(fileUuid));
+                    }
+                } else {
+                    urls = ossSource.onlinePreviewAll(files, 0);
+                }
+                for (SysVideo chapterVideo : chapterVideos) {
+                    chapterVideo.setUrl(urls.get(chapterVideo.getFileUuid()));
+                }
+                String url = urls.get(sysVideos.getFileUuid());
                 Map<String,Object> map = new HashMap<>();
                 map.put("url",url);
                 map.put("chapter",chapterVideos);
@@ -0,0 +1,110 @@
+package com.group7.edu.test;
+
+import com.group7.edu.oss.common.utils.CRC64;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * CRC64吞吐量基准，比较按16字节分片查表与原来逐字节查表，不是单元测试，需要时直接运行main。
+ * 输出每秒处理的MB数，最后计算一个临时文件的并行分块校验；参数为文件MB数，默认256。
+ * @author 993926972
+ */
+public class CRC64Benchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 5;
+    private static final long ROUND_MILLIS = 1000;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final long POLY = 0xc96c5795d7870f42L;
+    private static final long[] TABLE = new long[256];
+
+    private static volatile long sink;
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            long crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) == 1 ? (crc >>> 1) ^ POLY : crc >>> 1;
+            }
+            TABLE[n] = crc;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int fileMegabytes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        byte[] block = new byte[BLOCK_SIZE];
+        new Random(1L).nextBytes(block);
+
+        run("crc64 slicing-by-16", () -> {
+            CRC64 crc = new CRC64();
+            crc.update(block, 0, block.length);
+            return crc.getValue();
+        });
+        run("crc64 byte-at-a-time", () -> byteAtATime(block));
+        run("crc32 (jdk)", () -> {
+            CRC32 crc = new CRC32();
+            crc.update(block, 0, block.length);
+            return crc.getValue();
+        });
+
+        File file = File.createTempFile("crc64", ".bin");
+        try {
+            byte[] data = new byte[1024 * 1024];
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                for (int i = 0; i < fileMegabytes; i++) {
+                    new Random(i).nextBytes(data);
+                    out.write(data);
+                }
+            }
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                sink = CRC64.checksum(file);
+            }
+            long start = System.nanoTime();
+            sink = CRC64.checksum(file);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-22s %,10.1f MB/s  (%d MB file, %d cpus)%n", "checksum(File)",
+                    fileMegabytes / seconds, fileMegabytes, Runtime.getRuntime().availableProcessors());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static long byteAtATime(byte[] b) {
+        long crc = ~0L;
+        for (int i = 0; i < b.length; i++) {
+            crc = TABLE[((int) (crc ^ b[i])) & 0xff] ^ (crc >>> 8);
+        }
+        return ~crc;
+    }
+
+    private static void run(String name, Operation operation) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(operation);
+        }
+        long blocks = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            blocks += round(operation);
+        }
+        double megabytes = blocks * (double) BLOCK_SIZE / (1024 * 1024);
+        System.out.printf("%-22s %,10.1f MB/s%n", name, megabytes * 1000 / (MEASURE_ROUNDS * ROUND_MILLIS));
+    }
+
+    private static long round(Operation operation) {
+        long count = 0;
+        long deadline = System.nanoTime() + ROUND_MILLIS * 1000000;
+        while (System.nanoTime() < deadline) {
+            sink = operation.run();
+            count++;
+        }
+        return count;
+    }
+
+    private interface Operation {
+        long run();
+    }
+}
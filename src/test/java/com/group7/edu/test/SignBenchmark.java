@@ -0,0 +1,114 @@
+package com.group7.edu.test;
+
+import com.group7.edu.oss.ClientBuilderConfiguration;
+import com.group7.edu.oss.HttpMethod;
+import com.group7.edu.oss.OSSClient;
+import com.group7.edu.oss.common.auth.DefaultCredentialProvider;
+import com.group7.edu.oss.common.comm.RequestMessage;
+import com.group7.edu.oss.common.utils.DateUtil;
+import com.group7.edu.oss.internal.SignUtils;
+import com.group7.edu.oss.model.GeneratePresignedUrlRequest;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 签名吞吐量基准，不是单元测试，需要时直接运行main。
+ * 每个场景先预热再计时若干轮，输出每秒操作数；参数为线程数，默认1。
+ * @author 993926972
+ */
+public class SignBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final long ROUND_MILLIS = 1000;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+
+        OSSClient client = new OSSClient("http://oss-cn-beijing.aliyuncs.com",
+                new DefaultCredentialProvider("LTAIbenchmarkkey", "benchmarksecret0123456789abcdef"),
+                new ClientBuilderConfiguration());
+        Date expiration = new Date(System.currentTimeMillis() + 3600L * 1000);
+
+        run("generatePresignedUrl", threads, () -> {
+            GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest("wojiaotanqinglin",
+                    "5f0c9d2e8a7b4c1d9e3f6a2b7c8d0e1f视频.mp4", HttpMethod.GET);
+            request.setExpiration(expiration);
+            request.setProcess("image/resize,m_fixed,w_156,h_156");
+            return client.generatePresignedUrl(request);
+        });
+
+        run("headerSignature", threads, () -> {
+            RequestMessage request = new RequestMessage("wojiaotanqinglin", "a.jpg");
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Date", DateUtil.currentRfc822Date());
+            headers.put("Content-Type", "image/jpeg");
+            headers.put("Content-MD5", "1B2M2Y8AsgTpgAmY7PhCfg==");
+            headers.put("x-oss-meta-uid", "42");
+            headers.put("x-oss-object-acl", "private");
+            request.setHeaders(headers);
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("uploadId", "0004B9894A22E5B1888A1E29F823");
+            params.put("partNumber", "3");
+            request.setParameters(params);
+            return SignUtils.buildSignature("benchmarksecret0123456789abcdef", "PUT", "/wojiaotanqinglin/a.jpg",
+                    request);
+        });
+
+        run("rfc822Date", threads, () -> DateUtil.formatRfc822Date(new Date()));
+
+        client.shutdown();
+    }
+
+    private static void run(String name, int threads, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(threads, operation);
+        }
+        double best = 0;
+        double total = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            double opsPerSecond = round(threads, operation);
+            best = Math.max(best, opsPerSecond);
+            total += opsPerSecond;
+        }
+        System.out.printf("%-22s threads=%d  avg %,12.0f ops/s  best %,12.0f ops/s%n",
+                name, threads, total / MEASURE_ROUNDS, best);
+    }
+
+    private static double round(int threads, Operation operation) throws Exception {
+        long[] counts = new long[threads];
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + ROUND_MILLIS * 1000000;
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            workers[t] = new Thread(() -> {
+                long count = 0;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        sink = operation.run();
+                        count++;
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                counts[index] = count;
+            });
+            workers[t].start();
+        }
+        long sum = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            sum += counts[t];
+        }
+        return sum * 1000.0 / ROUND_MILLIS;
+    }
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+}
@@ -0,0 +1,131 @@
+package com.group7.edu.test;
+
+import com.group7.edu.oss.common.utils.CRC64;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.CheckedInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * CRC64按16字节分片查表的实现与逐字节查表的原实现对比，随机数据、偏移和长度下结果必须一致。
+ * @author 993926972
+ */
+public class TestCRC64 {
+
+    private static final long POLY = 0xc96c5795d7870f42L;
+    private static final long[] TABLE = new long[256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            long crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) == 1 ? (crc >>> 1) ^ POLY : crc >>> 1;
+            }
+            TABLE[n] = crc;
+        }
+    }
+
+    /**
+     * 原来逐字节的实现，作为对照。
+     */
+    private static long reference(long crc, byte[] b, int off, int len) {
+        crc = ~crc;
+        for (int i = off; i < off + len; i++) {
+            crc = TABLE[((int) (crc ^ b[i])) & 0xff] ^ (crc >>> 8);
+        }
+        return ~crc;
+    }
+
+    @Test
+    public void testKnownValue() {
+        byte[] data = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0x995dc9bbdf1939faL, new CRC64(data, data.length).getValue());
+    }
+
+    @Test
+    public void testMatchesByteAtATime() {
+        Random random = new Random(20261018L);
+        for (int round = 0; round < 2000; round++) {
+            byte[] data = new byte[random.nextInt(300)];
+            random.nextBytes(data);
+            int off = data.length == 0 ? 0 : random.nextInt(data.length);
+            int len = random.nextInt(data.length - off + 1);
+            long initial = random.nextBoolean() ? 0 : random.nextLong();
+
+            CRC64 crc = new CRC64(initial);
+            crc.update(data, off, len);
+            assertEquals(reference(initial, data, off, len), crc.getValue());
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        Random random = new Random(7L);
+        for (int round = 0; round < 500; round++) {
+            byte[] data = new byte[random.nextInt(5000)];
+            random.nextBytes(data);
+
+            CRC64 crc = new CRC64();
+            int pos = 0;
+            while (pos < data.length) {
+                int len = Math.min(data.length - pos, random.nextInt(20));
+                if (len == 1) {
+                    crc.update(data[pos]);
+                } else {
+                    crc.update(data, pos, len);
+                }
+                pos += len;
+            }
+            assertEquals(reference(0, data, 0, data.length), crc.getValue());
+        }
+    }
+
+    @Test
+    public void testCheckedInputStream() throws Exception {
+        byte[] data = new byte[100003];
+        new Random(3L).nextBytes(data);
+        CRC64 crc = new CRC64();
+        CheckedInputStream in = new CheckedInputStream(new ByteArrayInputStream(data), crc);
+        byte[] buffer = new byte[4099];
+        while (in.read(buffer) != -1) {
+        }
+        assertEquals(reference(0, data, 0, data.length), crc.getValue());
+    }
+
+    @Test
+    public void testCombine() {
+        Random random = new Random(11L);
+        for (int round = 0; round < 200; round++) {
+            byte[] data = new byte[random.nextInt(2000)];
+            random.nextBytes(data);
+            int split = random.nextInt(data.length + 1);
+            long first = new CRC64(data, split).getValue();
+            CRC64 second = new CRC64();
+            second.update(data, split, data.length - split);
+            assertEquals(reference(0, data, 0, data.length),
+                    CRC64.combine(first, second.getValue(), data.length - split));
+        }
+    }
+
+    @Test
+    public void testFileChecksum() throws Exception {
+        Random random = new Random(5L);
+        for (int size : new int[] { 0, 1, 8 * 1024 * 1024, 8 * 1024 * 1024 + 1, 20 * 1024 * 1024 + 12345 }) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            File file = File.createTempFile("crc64", ".bin");
+            try {
+                Files.write(file.toPath(), data);
+                assertEquals(reference(0, data, 0, data.length), CRC64.checksum(file));
+            } finally {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.group7.edu.test;
+
+import com.group7.edu.controller.tql.MediaController;
+import com.group7.edu.osshandle.OssGuard;
+import com.group7.edu.osshandle.VideoSegmentCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 视频接口不带Range的GET：熔断关闭时重定向到OSS签名地址，熔断打开时只返回第一段
+ * @author 993926972
+ */
+public class TestMediaController {
+
+    private static final String UUID = "video.mp4";
+    private static final String SIGNED_URL = "http://wojiaotanqinglin.oss-cn-beijing.aliyuncs.com/video.mp4?Signature=x";
+    private static final int SEGMENT_SIZE = 16;
+    private static final int LENGTH = 40;
+
+    private MediaController controller;
+    private VideoSegmentCache videoSegmentCache;
+    private OssGuard ossGuard;
+    private Path segment;
+
+    @Before
+    public void setUp() throws Exception {
+        byte[] data = new byte[SEGMENT_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        segment = Files.createTempFile("segment", ".bin");
+        Files.write(segment, data);
+
+        VideoSegmentCache.VideoInfo info = mock(VideoSegmentCache.VideoInfo.class);
+        when(info.getLength()).thenReturn((long) LENGTH);
+        when(info.getETag()).thenReturn("ETAG");
+        when(info.getContentType()).thenReturn("video/mp4");
+
+        videoSegmentCache = mock(VideoSegmentCache.class);
+        when(videoSegmentCache.isEnabled()).thenReturn(true);
+        when(videoSegmentCache.getSegmentSize()).thenReturn((long) SEGMENT_SIZE);
+        when(videoSegmentCache.info(UUID)).thenReturn(info);
+        when(videoSegmentCache.fallbackUrl(UUID)).thenReturn(SIGNED_URL);
+        when(videoSegmentCache.open(any(), anyLong()))
+                .thenAnswer(invocation -> FileChannel.open(segment, StandardOpenOption.READ));
+
+        ossGuard = mock(OssGuard.class);
+
+        controller = new MediaController();
+        ReflectionTestUtils.setField(controller, "videoSegmentCache", videoSegmentCache);
+        ReflectionTestUtils.setField(controller, "ossGuard", ossGuard);
+        ReflectionTestUtils.setField(controller, "videoMaxAge", 86400L);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(segment);
+    }
+
+    private MockHttpServletResponse get() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/video/" + UUID);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.video(UUID, request, response);
+        return response;
+    }
+
+    @Test
+    public void testFullGetRedirectsToOssWhenBreakerClosed() throws Exception {
+        when(ossGuard.isOpen(OssGuard.READ)).thenReturn(false);
+
+        MockHttpServletResponse response = get();
+
+        assertEquals(302, response.getStatus());
+        assertEquals(SIGNED_URL, response.getRedirectedUrl());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        verify(videoSegmentCache, never()).open(any(), anyLong());
+    }
+
+    @Test
+    public void testFullGetServesFirstSegmentWhenBreakerOpen() throws Exception {
+        when(ossGuard.isOpen(OssGuard.READ)).thenReturn(true);
+
+        MockHttpServletResponse response = get();
+
+        assertEquals(206, response.getStatus());
+        assertNull(response.getRedirectedUrl());
+        assertEquals("bytes 0-" + (SEGMENT_SIZE - 1) + "/" + LENGTH, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Files.readAllBytes(segment), response.getContentAsByteArray());
+        verify(videoSegmentCache, never()).fallbackUrl(UUID);
+    }
+}
@@ -0,0 +1,266 @@
+package com.group7.edu.test;
+
+import com.group7.edu.oss.common.comm.RequestMessage;
+import com.group7.edu.oss.common.utils.HttpUtil;
+import com.group7.edu.oss.internal.SignParameters;
+import com.group7.edu.oss.internal.SignUtils;
+import com.group7.edu.oss.internal.SignV2Utils;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 签名路径优化后与原实现对比：V1规范串和签名、urlEncode必须逐字节一致；
+ * V2的uriEncoding只在控制字符补齐两位十六进制、四字节字符按码点编码这两处与原实现不同。
+ * @author 993926972
+ */
+public class TestSignUtils {
+
+    private static final String SECRET = "benchmarksecret0123456789abcdef";
+
+    private static final String[] HEADER_NAMES = {"Content-Type", "content-type", "Content-MD5", "Date", "DATE",
+            "x-oss-meta-uid", "X-OSS-Meta-Name", "x-oss-object-acl", "X-Oss-Security-Token", "x-oss-date",
+            "Cache-Control", "Host", "Content-Length", "x-ossa"};
+
+    private static final String[] PARAMETER_NAMES = {"acl", "uploads", "uploadId", "partNumber", "security-token",
+            "position", "response-content-disposition", "response-content-type", "x-oss-process", "delete",
+            "prefix", "marker", "max-keys", "encoding-type"};
+
+    private static final String[] VALUES = {"", " 42 ", "image/jpeg", "1B2M2Y8AsgTpgAmY7PhCfg==",
+            "Thu, 01 Jan 2026 00:00:00 GMT", "attachment; filename=\"课程 资料.pdf\"", "a&b=c?d/e%20f",
+            "\t带空白\t", "😀emoji", "0004B9894A22E5B1888A1E29F823", "~*+"};
+
+    /**
+     * 原来用TreeMap排序的V1规范串实现，作为对照。
+     */
+    private static String legacyCanonicalString(String method, String resourcePath, RequestMessage request) {
+        StringBuilder canonicalString = new StringBuilder();
+        canonicalString.append(method).append(SignParameters.NEW_LINE);
+
+        TreeMap<String, String> headersToSign = new TreeMap<String, String>();
+        if (request.getHeaders() != null) {
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                if (header.getKey() == null) {
+                    continue;
+                }
+                String lowerKey = header.getKey().toLowerCase();
+                if (lowerKey.equals("content-type") || lowerKey.equals("content-md5") || lowerKey.equals("date")
+                        || lowerKey.startsWith("x-oss-")) {
+                    headersToSign.put(lowerKey, header.getValue().trim());
+                }
+            }
+        }
+        if (!headersToSign.containsKey("content-type")) {
+            headersToSign.put("content-type", "");
+        }
+        if (!headersToSign.containsKey("content-md5")) {
+            headersToSign.put("content-md5", "");
+        }
+        for (Map.Entry<String, String> entry : headersToSign.entrySet()) {
+            if (entry.getKey().startsWith("x-oss-")) {
+                canonicalString.append(entry.getKey()).append(':').append(entry.getValue());
+            } else {
+                canonicalString.append(entry.getValue());
+            }
+            canonicalString.append(SignParameters.NEW_LINE);
+        }
+
+        canonicalString.append(resourcePath);
+        Map<String, String> parameters = request.getParameters();
+        if (parameters != null) {
+            String[] parameterNames = parameters.keySet().toArray(new String[parameters.size()]);
+            Arrays.sort(parameterNames);
+            char separator = '?';
+            for (String paramName : parameterNames) {
+                if (!SignParameters.SIGNED_PARAMTERS.contains(paramName)) {
+                    continue;
+                }
+                canonicalString.append(separator).append(paramName);
+                String paramValue = parameters.get(paramName);
+                if (paramValue != null) {
+                    canonicalString.append("=").append(paramValue);
+                }
+                separator = '&';
+            }
+        }
+        return canonicalString.toString();
+    }
+
+    private static String legacySignature(String canonicalString) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(canonicalString.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String legacyUrlEncode(String value) throws UnsupportedEncodingException {
+        String encoded = URLEncoder.encode(value, "utf-8");
+        return encoded.replace("+", "%20").replace("*", "%2A").replace("~", "%7E").replace("/", "%2F");
+    }
+
+    /**
+     * 原来逐字符拼接的V2 uriEncoding实现。
+     */
+    private static String legacyUriEncoding(String uri) throws UnsupportedEncodingException {
+        String result = "";
+        for (char c : uri.toCharArray()) {
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '_' || c == '-' || c == '~' || c == '.') {
+                result += c;
+            } else if (c == '/') {
+                result += "%2F";
+            } else {
+                for (byte b : Character.toString(c).getBytes("utf-8")) {
+                    result += "%" + Integer.toHexString(b & 0xFF).toUpperCase();
+                }
+            }
+        }
+        return result;
+    }
+
+    private static RequestMessage request(Map<String, String> headers, Map<String, String> parameters) {
+        RequestMessage request = new RequestMessage("wojiaotanqinglin", "课程/a b.jpg");
+        request.setHeaders(headers);
+        request.setParameters(parameters);
+        return request;
+    }
+
+    private static void assertSameAsLegacy(String method, String resourcePath, RequestMessage request)
+            throws Exception {
+        String expected = legacyCanonicalString(method, resourcePath, request);
+        assertEquals(expected, SignUtils.buildCanonicalString(method, resourcePath, request, null));
+        assertEquals(legacySignature(expected), SignUtils.buildSignature(SECRET, method, resourcePath, request));
+    }
+
+    @Test
+    public void testCanonicalStringOfTypicalRequest() throws Exception {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Date", "Thu, 01 Jan 2026 00:00:00 GMT");
+        headers.put("Content-Type", " image/jpeg ");
+        headers.put("Content-MD5", "1B2M2Y8AsgTpgAmY7PhCfg==");
+        headers.put("X-OSS-Meta-Uid", "42");
+        headers.put("x-oss-object-acl", "private");
+        headers.put("Host", "wojiaotanqinglin.oss-cn-beijing.aliyuncs.com");
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("uploadId", "0004B9894A22E5B1888A1E29F823");
+        parameters.put("partNumber", "3");
+        parameters.put("prefix", "not-signed");
+        RequestMessage request = request(headers, parameters);
+
+        assertEquals("PUT\n1B2M2Y8AsgTpgAmY7PhCfg==\nimage/jpeg\nThu, 01 Jan 2026 00:00:00 GMT\n"
+                        + "x-oss-meta-uid:42\nx-oss-object-acl:private\n"
+                        + "/wojiaotanqinglin/a.jpg?partNumber=3&uploadId=0004B9894A22E5B1888A1E29F823",
+                SignUtils.buildCanonicalString("PUT", "/wojiaotanqinglin/a.jpg", request, null));
+        assertSameAsLegacy("PUT", "/wojiaotanqinglin/a.jpg", request);
+    }
+
+    @Test
+    public void testCanonicalStringWithoutHeadersOrParameters() throws Exception {
+        assertSameAsLegacy("GET", "/", request(null, null));
+        assertSameAsLegacy("GET", "/wojiaotanqinglin/", request(new HashMap<>(), new HashMap<>()));
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("acl", null);
+        parameters.put("uploads", "");
+        assertSameAsLegacy("POST", "/wojiaotanqinglin/a.jpg", request(new HashMap<>(), parameters));
+    }
+
+    @Test
+    public void testCanonicalStringMatchesLegacyOnRandomRequests() throws Exception {
+        Random random = new Random(20261018L);
+        String[] methods = {"GET", "PUT", "POST", "DELETE", "HEAD"};
+        for (int round = 0; round < 3000; round++) {
+            Map<String, String> headers = new HashMap<>();
+            for (int i = random.nextInt(HEADER_NAMES.length); i > 0; i--) {
+                headers.put(HEADER_NAMES[random.nextInt(HEADER_NAMES.length)], VALUES[random.nextInt(VALUES.length)]);
+            }
+            for (int i = random.nextInt(4); i > 0; i--) {
+                headers.put("x-oss-meta-" + Integer.toString(random.nextInt(50), 36), VALUES[random.nextInt(VALUES.length)]);
+            }
+            Map<String, String> parameters = new HashMap<>();
+            for (int i = random.nextInt(PARAMETER_NAMES.length); i > 0; i--) {
+                String value = random.nextInt(5) == 0 ? null : VALUES[random.nextInt(VALUES.length)];
+                parameters.put(PARAMETER_NAMES[random.nextInt(PARAMETER_NAMES.length)], value);
+            }
+            String resourcePath = "/wojiaotanqinglin/" + VALUES[random.nextInt(VALUES.length)];
+            assertSameAsLegacy(methods[random.nextInt(methods.length)], resourcePath, request(headers, parameters));
+        }
+    }
+
+    @Test
+    public void testFailedSigningDoesNotLeakIntoNextSignature() throws Exception {
+        Map<String, String> broken = new LinkedHashMap<>();
+        broken.put("x-oss-meta-a", "leftover");
+        broken.put("x-oss-meta-b", null);
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("acl", null);
+        try {
+            SignUtils.buildCanonicalString("PUT", "/wojiaotanqinglin/a.jpg", request(broken, parameters), null);
+            fail("null header value should fail");
+        } catch (NullPointerException expected) {
+            // same as the legacy implementation
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("x-oss-meta-c", "3");
+        assertSameAsLegacy("PUT", "/wojiaotanqinglin/a.jpg", request(headers, null));
+        assertSameAsLegacy("GET", "/wojiaotanqinglin/a.jpg", request(null, new HashMap<>(parameters)));
+    }
+
+    @Test
+    public void testUrlEncodeMatchesLegacy() throws Exception {
+        for (String value : VALUES) {
+            assertEquals(legacyUrlEncode(value), HttpUtil.urlEncode(value, "utf-8"));
+        }
+        Random random = new Random(42L);
+        for (int round = 0; round < 3000; round++) {
+            String value = randomString(random, true);
+            assertEquals(value, legacyUrlEncode(value), HttpUtil.urlEncode(value, "utf-8"));
+        }
+        assertEquals("", HttpUtil.urlEncode(null, "utf-8"));
+    }
+
+    @Test
+    public void testV2UriEncodingMatchesLegacyExceptDocumentedFixes() throws Exception {
+        Random random = new Random(7L);
+        for (int round = 0; round < 3000; round++) {
+            String value = randomString(random, false);
+            assertEquals(value, legacyUriEncoding(value), SignV2Utils.uriEncoding(value));
+        }
+
+        // 控制字符原来输出一位十六进制(%A)，现在补齐为%0A
+        assertEquals("%A%9", legacyUriEncoding("\n\t"));
+        assertEquals("%0A%09", SignV2Utils.uriEncoding("\n\t"));
+        // 四字节字符原来按单个代理字符编码成两个'?'，现在按码点输出UTF-8
+        assertEquals("%3F%3F", legacyUriEncoding("😀"));
+        assertEquals("%F0%9F%98%80", SignV2Utils.uriEncoding("😀"));
+        assertEquals("a%2Fb%20~%E8%AF%BE", SignV2Utils.uriEncoding("a/b ~课"));
+    }
+
+    /**
+     * 随机字符串：ASCII可见字符、中文，可选控制字符和四字节字符。
+     */
+    private static String randomString(Random random, boolean all) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = random.nextInt(24); i > 0; i--) {
+            int kind = random.nextInt(all ? 4 : 2);
+            if (kind == 0) {
+                builder.append((char) (0x20 + random.nextInt(0x5F)));
+            } else if (kind == 1) {
+                builder.append((char) (0x4E00 + random.nextInt(0x5000)));
+            } else if (kind == 2) {
+                builder.append((char) random.nextInt(0x20));
+            } else {
+                builder.appendCodePoint(0x1F600 + random.nextInt(0x50));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,301 @@
+package com.group7.edu.test;
+
+import com.group7.edu.oss.internal.ResponseParsers;
+import com.group7.edu.oss.model.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 流式(StAX)解析与JDOM建树解析对比：同一份响应两种方式解析出的结果必须一致，
+ * 样例覆盖encoding-type=url、空列表和带marker的截断分页。
+ * @author 993926972
+ */
+public class TestXmlStreamParsers {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+    private static final String LIST_OBJECTS_TRUNCATED = HEADER
+            + "<ListBucketResult>\n"
+            + "  <Name>wojiaotanqinglin</Name>\n"
+            + "  <Prefix>course%2F</Prefix>\n"
+            + "  <Marker>course%2F0001.mp4</Marker>\n"
+            + "  <MaxKeys>2</MaxKeys>\n"
+            + "  <Delimiter>%2F</Delimiter>\n"
+            + "  <IsTruncated>true</IsTruncated>\n"
+            + "  <NextMarker>course%2F%E8%AF%BE%E4%BB%B6.pdf</NextMarker>\n"
+            + "  <EncodingType>url</EncodingType>\n"
+            + "  <Contents>\n"
+            + "    <Key>course%2F0002%20a%26b.mp4</Key>\n"
+            + "    <LastModified>2026-01-01T00:00:00.000Z</LastModified>\n"
+            + "    <ETag>\"5B3C1A2E053D763E1B002CC607C5A0FE\"</ETag>\n"
+            + "    <Type>Normal</Type>\n"
+            + "    <Size>344606</Size>\n"
+            + "    <StorageClass>Standard</StorageClass>\n"
+            + "    <Owner>\n"
+            + "      <ID>0022012****</ID>\n"
+            + "      <DisplayName>user &amp; co</DisplayName>\n"
+            + "    </Owner>\n"
+            + "  </Contents>\n"
+            + "  <Contents>\n"
+            + "    <Key>course%2F%E8%AF%BE%E4%BB%B6.pdf</Key>\n"
+            + "    <LastModified>2026-02-03T04:05:06.789Z</LastModified>\n"
+            + "    <ETag>&quot;A1B2&quot;</ETag>\n"
+            + "    <Size>0</Size>\n"
+            + "    <StorageClass>IA</StorageClass>\n"
+            + "    <Owner><ID>1</ID><DisplayName></DisplayName></Owner>\n"
+            + "  </Contents>\n"
+            + "  <CommonPrefixes><Prefix>course%2Fa%2F</Prefix></CommonPrefixes>\n"
+            + "  <CommonPrefixes><Prefix>course%2Fb%2F</Prefix></CommonPrefixes>\n"
+            + "</ListBucketResult>";
+
+    private static final String LIST_OBJECTS_EMPTY = HEADER
+            + "<ListBucketResult>"
+            + "<Name>wojiaotanqinglin</Name><Prefix></Prefix><Marker></Marker><MaxKeys>100</MaxKeys>"
+            + "<Delimiter></Delimiter><IsTruncated>false</IsTruncated>"
+            + "</ListBucketResult>";
+
+    private static final String LIST_MULTIPART_UPLOADS_TRUNCATED = HEADER
+            + "<ListMultipartUploadsResult>\n"
+            + "  <Bucket>wojiaotanqinglin</Bucket>\n"
+            + "  <EncodingType>url</EncodingType>\n"
+            + "  <KeyMarker>video%2F1.mp4</KeyMarker>\n"
+            + "  <UploadIdMarker>0004B999EF518A1FE585B0C9360DC4C8</UploadIdMarker>\n"
+            + "  <NextKeyMarker>video%2F%E8%AF%BE.mp4</NextKeyMarker>\n"
+            + "  <NextUploadIdMarker>0004B999EF5A239BB9138C6227D69F95</NextUploadIdMarker>\n"
+            + "  <Delimiter>%2F</Delimiter>\n"
+            + "  <Prefix>video%2F</Prefix>\n"
+            + "  <MaxUploads>3</MaxUploads>\n"
+            + "  <IsTruncated>true</IsTruncated>\n"
+            + "  <Upload>\n"
+            + "    <Key>video%2F2.mp4</Key>\n"
+            + "    <UploadId>0004B999EF518A1FE585B0C9360DC4C8</UploadId>\n"
+            + "    <StorageClass>Standard</StorageClass>\n"
+            + "    <Initiated>2026-01-07T12:00:00.000Z</Initiated>\n"
+            + "  </Upload>\n"
+            + "  <Upload>\n"
+            + "    <Key>video%2Fno-initiated.mp4</Key>\n"
+            + "    <UploadId>0004B999EF5A239BB9138C6227D69F00</UploadId>\n"
+            + "  </Upload>\n"
+            + "  <Upload>\n"
+            + "    <Key>video%2F%E8%AF%BE.mp4</Key>\n"
+            + "    <UploadId>0004B999EF5A239BB9138C6227D69F95</UploadId>\n"
+            + "    <StorageClass>IA</StorageClass>\n"
+            + "    <Initiated>2026-01-08T01:02:03.000Z</Initiated>\n"
+            + "  </Upload>\n"
+            + "  <CommonPrefixes><Prefix>video%2Fsub%2F</Prefix></CommonPrefixes>\n"
+            + "</ListMultipartUploadsResult>";
+
+    private static final String LIST_MULTIPART_UPLOADS_EMPTY = HEADER
+            + "<ListMultipartUploadsResult>"
+            + "<Bucket>wojiaotanqinglin</Bucket><KeyMarker></KeyMarker><UploadIdMarker></UploadIdMarker>"
+            + "<NextKeyMarker></NextKeyMarker><NextUploadIdMarker></NextUploadIdMarker><Delimiter></Delimiter>"
+            + "<Prefix></Prefix><MaxUploads>1000</MaxUploads><IsTruncated>false</IsTruncated>"
+            + "</ListMultipartUploadsResult>";
+
+    private static final String LIST_PARTS_TRUNCATED = HEADER
+            + "<ListPartsResult>\n"
+            + "  <Bucket>wojiaotanqinglin</Bucket>\n"
+            + "  <EncodingType>url</EncodingType>\n"
+            + "  <Key>video%2F%E8%AF%BE.mp4</Key>\n"
+            + "  <UploadId>0004B999EF5A239BB9138C6227D69F95</UploadId>\n"
+            + "  <StorageClass>Standard</StorageClass>\n"
+            + "  <PartNumberMarker>5</PartNumberMarker>\n"
+            + "  <NextPartNumberMarker>7</NextPartNumberMarker>\n"
+            + "  <MaxParts>2</MaxParts>\n"
+            + "  <IsTruncated>true</IsTruncated>\n"
+            + "  <Part>\n"
+            + "    <PartNumber>6</PartNumber>\n"
+            + "    <LastModified>2026-01-08T01:02:03.000Z</LastModified>\n"
+            + "    <ETag>\"3349DC700140D7F86A078484278075A9\"</ETag>\n"
+            + "    <HashCrc64ecma>1234567890</HashCrc64ecma>\n"
+            + "    <Size>6291456</Size>\n"
+            + "  </Part>\n"
+            + "  <Part>\n"
+            + "    <PartNumber>7</PartNumber>\n"
+            + "    <LastModified>2026-01-08T01:02:04.000Z</LastModified>\n"
+            + "    <ETag>\"7265F4D211B56873A381D321F586E4A9\"</ETag>\n"
+            + "    <Size>1024</Size>\n"
+            + "  </Part>\n"
+            + "</ListPartsResult>";
+
+    private static final String LIST_PARTS_EMPTY = HEADER
+            + "<ListPartsResult>"
+            + "<Bucket>wojiaotanqinglin</Bucket><Key>a.mp4</Key><UploadId>0004B999EF5A239BB9138C6227D69F95</UploadId>"
+            + "<PartNumberMarker></PartNumberMarker><NextPartNumberMarker></NextPartNumberMarker>"
+            + "<MaxParts>1000</MaxParts><IsTruncated>false</IsTruncated>"
+            + "</ListPartsResult>";
+
+    private static final String DELETE_OBJECTS = HEADER
+            + "<DeleteResult>\n"
+            + "  <EncodingType>url</EncodingType>\n"
+            + "  <Deleted><Key>course%2F0001.mp4</Key></Deleted>\n"
+            + "  <Deleted><Key>course%2F%E8%AF%BE%E4%BB%B6%20a%26b.pdf</Key></Deleted>\n"
+            + "  <Deleted><Key>plain.txt</Key><DeleteMarker>true</DeleteMarker></Deleted>\n"
+            + "</DeleteResult>";
+
+    private static final String DELETE_OBJECTS_QUIET = HEADER + "<DeleteResult></DeleteResult>";
+
+    private static final String COMPLETE_MULTIPART_UPLOAD = HEADER
+            + "<CompleteMultipartUploadResult>\n"
+            + "  <EncodingType>url</EncodingType>\n"
+            + "  <Location>http://wojiaotanqinglin.oss-cn-beijing.aliyuncs.com/video%2F%E8%AF%BE.mp4</Location>\n"
+            + "  <Bucket>wojiaotanqinglin</Bucket>\n"
+            + "  <Key>video%2F%E8%AF%BE.mp4</Key>\n"
+            + "  <ETag>\"097DE458AD02B5F89F9D0530231876B9-3\"</ETag>\n"
+            + "</CompleteMultipartUploadResult>";
+
+    private static final String COMPLETE_MULTIPART_UPLOAD_MINIMAL = HEADER
+            + "<CompleteMultipartUploadResult><Bucket>b</Bucket><Key>a &amp; b.mp4</Key>"
+            + "<ETag>  &quot;E-1&quot;  </ETag></CompleteMultipartUploadResult>";
+
+    private static InputStream body(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long time(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+    private static String describe(ObjectListing listing) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(listing.getBucketName()).append('|').append(listing.getPrefix()).append('|')
+                .append(listing.getMarker()).append('|').append(listing.getNextMarker()).append('|')
+                .append(listing.getDelimiter()).append('|').append(listing.getMaxKeys()).append('|')
+                .append(listing.isTruncated()).append('|').append(listing.getEncodingType()).append('|')
+                .append(listing.getCommonPrefixes());
+        for (OSSObjectSummary summary : listing.getObjectSummaries()) {
+            builder.append("\n  ").append(summary.getBucketName()).append('|').append(summary.getKey()).append('|')
+                    .append(summary.getETag()).append('|').append(summary.getSize()).append('|')
+                    .append(time(summary.getLastModified())).append('|').append(summary.getStorageClass())
+                    .append('|').append(summary.getOwner().getId()).append('|')
+                    .append(summary.getOwner().getDisplayName());
+        }
+        return builder.toString();
+    }
+
+    private static String describe(MultipartUploadListing listing) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(listing.getBucketName()).append('|').append(listing.getKeyMarker()).append('|')
+                .append(listing.getUploadIdMarker()).append('|').append(listing.getNextKeyMarker()).append('|')
+                .append(listing.getNextUploadIdMarker()).append('|').append(listing.getMaxUploads()).append('|')
+                .append(listing.isTruncated()).append('|').append(listing.getDelimiter()).append('|')
+                .append(listing.getPrefix()).append('|').append(listing.getCommonPrefixes());
+        for (MultipartUpload upload : listing.getMultipartUploads()) {
+            builder.append("\n  ").append(upload.getKey()).append('|').append(upload.getUploadId()).append('|')
+                    .append(upload.getStorageClass()).append('|').append(time(upload.getInitiated()));
+        }
+        return builder.toString();
+    }
+
+    private static String describe(PartListing listing) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(listing.getBucketName()).append('|').append(listing.getKey()).append('|')
+                .append(listing.getUploadId()).append('|').append(listing.getStorageClass()).append('|')
+                .append(listing.getPartNumberMarker()).append('|').append(listing.getNextPartNumberMarker())
+                .append('|').append(listing.getMaxParts()).append('|').append(listing.isTruncated());
+        for (PartSummary part : listing.getParts()) {
+            builder.append("\n  ").append(part.getPartNumber()).append('|').append(time(part.getLastModified()))
+                    .append('|').append(part.getETag()).append('|').append(part.getSize());
+        }
+        return builder.toString();
+    }
+
+    private static String describe(DeleteObjectsResult result) {
+        return result.getEncodingType() + "|" + result.getDeletedObjects();
+    }
+
+    private static String describe(CompleteMultipartUploadResult result) {
+        return result.getBucketName() + "|" + result.getKey() + "|" + result.getETag() + "|" + result.getLocation();
+    }
+
+    @Test
+    public void testListObjects() throws Exception {
+        for (String xml : new String[]{LIST_OBJECTS_TRUNCATED, LIST_OBJECTS_EMPTY}) {
+            assertEquals(describe(ResponseParsers.parseListObjectsWithJdom(body(xml))),
+                    describe(ResponseParsers.parseListObjects(body(xml))));
+        }
+
+        ObjectListing truncated = ResponseParsers.parseListObjects(body(LIST_OBJECTS_TRUNCATED));
+        assertTrue(truncated.isTruncated());
+        assertEquals("url", truncated.getEncodingType());
+        assertEquals("course%2F%E8%AF%BE%E4%BB%B6.pdf", truncated.getNextMarker());
+        assertEquals(2, truncated.getObjectSummaries().size());
+        assertEquals("A1B2", truncated.getObjectSummaries().get(1).getETag());
+        assertEquals("user & co", truncated.getObjectSummaries().get(0).getOwner().getDisplayName());
+
+        ObjectListing empty = ResponseParsers.parseListObjects(body(LIST_OBJECTS_EMPTY));
+        assertTrue(empty.getObjectSummaries().isEmpty());
+        assertTrue(empty.getCommonPrefixes().isEmpty());
+    }
+
+    @Test
+    public void testListMultipartUploads() throws Exception {
+        for (String xml : new String[]{LIST_MULTIPART_UPLOADS_TRUNCATED, LIST_MULTIPART_UPLOADS_EMPTY}) {
+            assertEquals(describe(ResponseParsers.parseListMultipartUploadsWithJdom(body(xml))),
+                    describe(ResponseParsers.parseListMultipartUploads(body(xml))));
+        }
+
+        MultipartUploadListing truncated =
+                ResponseParsers.parseListMultipartUploads(body(LIST_MULTIPART_UPLOADS_TRUNCATED));
+        assertTrue(truncated.isTruncated());
+        assertEquals("video%2F%E8%AF%BE.mp4", truncated.getNextKeyMarker());
+        assertEquals("0004B999EF5A239BB9138C6227D69F95", truncated.getNextUploadIdMarker());
+        // 没有Initiated的上传不计入
+        assertEquals(2, truncated.getMultipartUploads().size());
+
+        assertTrue(ResponseParsers.parseListMultipartUploads(body(LIST_MULTIPART_UPLOADS_EMPTY))
+                .getMultipartUploads().isEmpty());
+    }
+
+    @Test
+    public void testListParts() throws Exception {
+        for (String xml : new String[]{LIST_PARTS_TRUNCATED, LIST_PARTS_EMPTY}) {
+            assertEquals(describe(ResponseParsers.parseListPartsWithJdom(body(xml))),
+                    describe(ResponseParsers.parseListParts(body(xml))));
+        }
+
+        PartListing truncated = ResponseParsers.parseListParts(body(LIST_PARTS_TRUNCATED));
+        assertTrue(truncated.isTruncated());
+        assertEquals(Integer.valueOf(5), truncated.getPartNumberMarker());
+        assertEquals(Integer.valueOf(7), truncated.getNextPartNumberMarker());
+        assertEquals(2, truncated.getParts().size());
+
+        PartListing empty = ResponseParsers.parseListParts(body(LIST_PARTS_EMPTY));
+        assertTrue(empty.getParts().isEmpty());
+        assertEquals(null, empty.getNextPartNumberMarker());
+    }
+
+    @Test
+    public void testDeleteObjects() throws Exception {
+        for (String xml : new String[]{DELETE_OBJECTS, DELETE_OBJECTS_QUIET}) {
+            assertEquals(describe(ResponseParsers.parseDeleteObjectsResultWithJdom(body(xml))),
+                    describe(ResponseParsers.parseDeleteObjectsResult(body(xml))));
+        }
+
+        DeleteObjectsResult result = ResponseParsers.parseDeleteObjectsResult(body(DELETE_OBJECTS));
+        assertEquals("url", result.getEncodingType());
+        assertEquals(3, result.getDeletedObjects().size());
+        assertTrue(ResponseParsers.parseDeleteObjectsResult(body(DELETE_OBJECTS_QUIET)).getDeletedObjects().isEmpty());
+    }
+
+    @Test
+    public void testCompleteMultipartUpload() throws Exception {
+        for (String xml : new String[]{COMPLETE_MULTIPART_UPLOAD, COMPLETE_MULTIPART_UPLOAD_MINIMAL}) {
+            assertEquals(describe(ResponseParsers.parseCompleteMultipartUploadWithJdom(body(xml))),
+                    describe(ResponseParsers.parseCompleteMultipartUpload(body(xml))));
+        }
+
+        CompleteMultipartUploadResult result =
+                ResponseParsers.parseCompleteMultipartUpload(body(COMPLETE_MULTIPART_UPLOAD));
+        assertEquals("097DE458AD02B5F89F9D0530231876B9-3", result.getETag());
+        assertEquals("E-1", ResponseParsers.parseCompleteMultipartUpload(body(COMPLETE_MULTIPART_UPLOAD_MINIMAL))
+                .getETag());
+    }
+}
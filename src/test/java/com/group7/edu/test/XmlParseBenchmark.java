@@ -0,0 +1,110 @@
+package com.group7.edu.test;
+
+import com.group7.edu.oss.internal.ResponseParsers;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 列举类响应解析的基准，比较流式解析与JDOM建树两种方式，不是单元测试，需要时直接运行main。
+ * 输出每次解析平均分配的堆内存和每秒解析次数；参数为列表条数，默认1000。
+ * @author 993926972
+ */
+public class XmlParseBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 5;
+    private static final long ROUND_MILLIS = 1000;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        byte[] objects = listObjectsXml(entries);
+        byte[] parts = listPartsXml(entries);
+        byte[] deleted = deleteObjectsXml(entries);
+
+        System.out.printf("listObjects %d keys, %,d bytes%n", entries, objects.length);
+        run("listObjects stax", () -> ResponseParsers.parseListObjects(new ByteArrayInputStream(objects)));
+        run("listObjects jdom", () -> ResponseParsers.parseListObjectsWithJdom(new ByteArrayInputStream(objects)));
+        run("listParts stax", () -> ResponseParsers.parseListParts(new ByteArrayInputStream(parts)));
+        run("listParts jdom", () -> ResponseParsers.parseListPartsWithJdom(new ByteArrayInputStream(parts)));
+        run("deleteObjects stax", () -> ResponseParsers.parseDeleteObjectsResult(new ByteArrayInputStream(deleted)));
+        run("deleteObjects jdom",
+                () -> ResponseParsers.parseDeleteObjectsResultWithJdom(new ByteArrayInputStream(deleted)));
+    }
+
+    private static void run(String name, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(operation);
+        }
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long operations = 0;
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            operations += round(operation);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-20s %,12d bytes/parse  %,10.1f parses/s%n", name, allocated / operations,
+                operations * 1000.0 / (MEASURE_ROUNDS * ROUND_MILLIS));
+    }
+
+    private static long round(Operation operation) throws Exception {
+        long count = 0;
+        long deadline = System.nanoTime() + ROUND_MILLIS * 1000000;
+        while (System.nanoTime() < deadline) {
+            sink = operation.run();
+            count++;
+        }
+        return count;
+    }
+
+    private static byte[] listObjectsXml(int entries) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<ListBucketResult>"
+                + "<Name>wojiaotanqinglin</Name><Prefix>disk/</Prefix><Marker></Marker><MaxKeys>" + entries
+                + "</MaxKeys><Delimiter>/</Delimiter><IsTruncated>true</IsTruncated>"
+                + "<NextMarker>disk/" + entries + ".mp4</NextMarker>");
+        for (int i = 0; i < entries; i++) {
+            xml.append("<Contents><Key>disk/5f0c9d2e8a7b4c1d9e3f6a2b7c8d").append(i)
+                    .append(".mp4</Key><LastModified>2026-10-18T08:12:45.000Z</LastModified>")
+                    .append("<ETag>\"5B3C1A2E053D763E1B002CC607C5A0FE\"</ETag><Type>Normal</Type><Size>")
+                    .append(1024L * i).append("</Size><StorageClass>Standard</StorageClass>")
+                    .append("<Owner><ID>1305433xxx</ID><DisplayName>1305433xxx</DisplayName></Owner></Contents>");
+        }
+        for (int i = 0; i < entries / 10; i++) {
+            xml.append("<CommonPrefixes><Prefix>disk/dir").append(i).append("/</Prefix></CommonPrefixes>");
+        }
+        return xml.append("</ListBucketResult>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] listPartsXml(int entries) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<ListPartsResult>"
+                + "<Bucket>wojiaotanqinglin</Bucket><Key>disk/big.mp4</Key>"
+                + "<UploadId>0004B999EF5A239BB9138C6227D6****</UploadId><StorageClass>Standard</StorageClass>"
+                + "<PartNumberMarker>0</PartNumberMarker><NextPartNumberMarker>" + entries
+                + "</NextPartNumberMarker><MaxParts>" + entries + "</MaxParts><IsTruncated>false</IsTruncated>");
+        for (int i = 1; i <= entries; i++) {
+            xml.append("<Part><PartNumber>").append(i)
+                    .append("</PartNumber><LastModified>2026-10-18T08:12:45.000Z</LastModified>")
+                    .append("<ETag>\"3349DC700140D7F86A0784842780****\"</ETag><Size>6291456</Size></Part>");
+        }
+        return xml.append("</ListPartsResult>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deleteObjectsXml(int entries) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<DeleteResult>");
+        for (int i = 0; i < entries; i++) {
+            xml.append("<Deleted><Key>disk/5f0c9d2e8a7b4c1d9e3f6a2b7c8d").append(i).append(".mp4</Key></Deleted>");
+        }
+        return xml.append("</DeleteResult>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+}